@@ -1,6 +1,7 @@
 package com.baskettecase.mcpserver;
 
 import com.baskettecase.mcpserver.QueryToolsService;
+import com.baskettecase.mcpserver.service.ConnectionPools;
 import org.springframework.ai.tool.ToolCallbackProvider;
 import org.springframework.ai.tool.method.MethodToolCallbackProvider;
 import org.springframework.boot.SpringApplication;
@@ -8,12 +9,28 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 
+import javax.sql.DataSource;
+import java.util.Map;
+
 @SpringBootApplication
 @ComponentScan(basePackages = "com.baskettecase")
 public class McpServerApplication {
 
 	public static void main(String[] args) {
-		SpringApplication.run(McpServerApplication.class, args);
+		SpringApplication application = new SpringApplication(McpServerApplication.class);
+		// Expose the per-query latency histograms for Prometheus scraping
+		application.setDefaultProperties(Map.of(
+			"management.endpoints.web.exposure.include", "health,info,metrics,prometheus"));
+		application.run(args);
+	}
+
+	/**
+	 * The metadata pool doubles as the application's data source (health checks, startup checks),
+	 * which also keeps Spring Boot from creating a fourth pool. The pools close themselves.
+	 */
+	@Bean(destroyMethod = "")
+	public DataSource dataSource(ConnectionPools connectionPools) {
+		return connectionPools.dataSource(ConnectionPools.Workload.METADATA);
 	}
 
 	@Bean
@@ -1,18 +1,36 @@
 package com.baskettecase.mcpserver;
 
+import com.baskettecase.mcpserver.model.CursorPage;
+import com.baskettecase.mcpserver.model.QueryJobStatus;
 import com.baskettecase.mcpserver.model.QueryResult;
+import com.baskettecase.mcpserver.service.ConnectionPools;
+import com.baskettecase.mcpserver.service.JsonResultEncoder;
+import com.baskettecase.mcpserver.service.QueryCostGuard;
+import com.baskettecase.mcpserver.service.QueryCursorService;
 import com.baskettecase.mcpserver.service.QueryExecutionService;
+import com.baskettecase.mcpserver.service.QueryJobService;
+import com.baskettecase.mcpserver.service.QueryMetrics;
+import com.baskettecase.mcpserver.service.QueryPlanService;
+import com.baskettecase.mcpserver.service.QueryResultCache;
+import com.baskettecase.mcpserver.service.QueryResultStore;
+import com.baskettecase.mcpserver.service.QueryResultJsonWriter;
+import com.baskettecase.mcpserver.service.ResultEncoder;
+import com.baskettecase.mcpserver.service.ResultEncoders;
+import com.baskettecase.mcpserver.service.RowCountService;
+import com.baskettecase.mcpserver.service.SqlAnalyzer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.tool.annotation.Tool;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.StringWriter;
 import java.sql.SQLException;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.HashMap;
-import java.util.List;
-import java.util.ArrayList;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
 @Service
 public class QueryToolsService {
@@ -20,23 +38,52 @@ public class QueryToolsService {
     private static final Logger logger = LoggerFactory.getLogger(QueryToolsService.class);
 
     private final QueryExecutionService queryExecutionService;
+    private final QueryCursorService queryCursorService;
+    private final QueryJobService queryJobService;
+    private final QueryResultCache queryResultCache;
+    private final QueryResultStore queryResultStore;
+    private final RowCountService rowCountService;
+    private final QueryMetrics queryMetrics;
+    private final ConnectionPools connectionPools;
+    private final ResultEncoders resultEncoders;
+    private final QueryCostGuard queryCostGuard;
+    private final QueryPlanService queryPlanService;
+    private final ObjectMapper objectMapper;
 
-    public QueryToolsService(QueryExecutionService queryExecutionService) {
+    public QueryToolsService(QueryExecutionService queryExecutionService, QueryCursorService queryCursorService,
+                             QueryJobService queryJobService, QueryResultCache queryResultCache,
+                             QueryResultStore queryResultStore, RowCountService rowCountService,
+                             QueryMetrics queryMetrics, ConnectionPools connectionPools,
+                             ResultEncoders resultEncoders, QueryCostGuard queryCostGuard,
+                             QueryPlanService queryPlanService) {
         this.queryExecutionService = queryExecutionService;
+        this.queryCursorService = queryCursorService;
+        this.queryJobService = queryJobService;
+        this.queryResultCache = queryResultCache;
+        this.queryResultStore = queryResultStore;
+        this.rowCountService = rowCountService;
+        this.queryMetrics = queryMetrics;
+        this.connectionPools = connectionPools;
+        this.resultEncoders = resultEncoders;
+        this.queryCostGuard = queryCostGuard;
+        this.queryPlanService = queryPlanService;
+        this.objectMapper = new ObjectMapper();
     }
 
     /**
      * Execute a SQL SELECT query against the database
      * @param sql The SQL query to execute (must be a SELECT statement)
      * @param maxRows Maximum number of rows to return (optional, defaults to 1000, max 10000)
-     * @return JSON string containing query results including columns and data
+     * @param format Output format: compact, csv, tsv, markdown or json (optional, defaults to the server's format)
+     * @return the columns, the first and last rows and a handle to the full result in the requested format
      */
-    @Tool(description = "Execute a SQL SELECT query against the database. Only SELECT queries are allowed for security. Returns a formatted table showing the query results with column headers and data rows, plus execution statistics.")
+    @Tool(description = "Execute a SQL SELECT query against the database. Only SELECT queries are allowed for security. Queries the planner estimates to be very expensive run with a LIMIT (costGuard explains why) or are rejected with advice on how to narrow them. Returns the column headers, the row count, execution statistics and a preview of the first and last rows; when rows are left out, each column is summarized (nulls, min/max/mean, distinct values) over the full result. The full result is shown to the user as a table automatically, so summarize it rather than repeating the rows.")
     public String executeQuery(
         @org.springframework.ai.tool.annotation.ToolParam(description = "The SQL SELECT query to execute") String sql,
-        @org.springframework.ai.tool.annotation.ToolParam(description = "Maximum number of rows to return (optional, default 1000, max 10000)") Integer maxRows) {
-        logger.info("🔧 MCP Tool called: executeQuery(sql='{}...', maxRows={})", 
-                   sql != null ? sql.substring(0, Math.min(50, sql.length())) : "null", maxRows);
+        @org.springframework.ai.tool.annotation.ToolParam(description = "Maximum number of rows to return (optional, default 1000, max 10000)") Integer maxRows,
+        @org.springframework.ai.tool.annotation.ToolParam(description = "Output format: compact (default, schema header and |-delimited rows), csv, tsv, markdown or json (optional)") String format) {
+        logger.info("🔧 MCP Tool called: executeQuery(sql='{}...', maxRows={}, format={})", 
+                   sql != null ? sql.substring(0, Math.min(50, sql.length())) : "null", maxRows, format);
         
         if (sql == null || sql.trim().isEmpty()) {
             logger.warn("⚠️  executeQuery received null or empty SQL: '{}'", sql);
@@ -44,64 +91,35 @@ public class QueryToolsService {
         }
 
         try {
-            QueryResult result = queryExecutionService.executeQuery(sql.trim(), maxRows);
-            logger.info("✅ Successfully executed query, returned {} rows in {} ms", 
-                       result.getRowCount(), result.getExecutionTimeMs());
-            
-            // Return structured JSON that includes both readable text and structured data
-            Map<String, Object> structuredResponse = new HashMap<>();
-            structuredResponse.put("type", "query_result");
-            structuredResponse.put("executionTimeMs", result.getExecutionTimeMs());
-            structuredResponse.put("rowCount", result.getRowCount());
-            
-            // Human-readable message
-            StringBuilder message = new StringBuilder();
-            message.append("Query executed successfully!\n\n");
-            message.append("Execution time: ").append(result.getExecutionTimeMs()).append(" ms\n");
-            message.append("Rows returned: ").append(result.getRowCount()).append("\n");
-            
-            if (result.getRowCount() > 0) {
-                message.append("\nFound ").append(result.getRowCount()).append(" results.");
-            } else {
-                message.append("\nNo rows returned.");
+            ResultEncoder encoder = resultEncoders.encoder(format);
+            QueryCostGuard.Admission admission = queryCostGuard.admit(sql, maxRows);
+            if (admission.decision() == QueryCostGuard.Decision.REJECT) {
+                return "Error: " + admission.explanation();
             }
-            
-            structuredResponse.put("message", message.toString());
-            
-            // Structured data for UI table rendering
-            if (result.getColumnNames() != null) {
-                structuredResponse.put("columnNames", result.getColumnNames());
-                
-                // Add column metadata if available
-                if (result.getColumnMetadata() != null) {
-                    structuredResponse.put("columnMetadata", result.getColumnMetadata());
-                }
-                
-                if (result.getRowCount() > 0 && result.getRows() != null) {
-                    // Convert rows from List<Map<String, Object>> to List<List<Object>>
-                    List<List<Object>> rowData = new ArrayList<>();
-                    for (Map<String, Object> row : result.getRows()) {
-                        List<Object> rowValues = new ArrayList<>();
-                        for (String column : result.getColumnNames()) {
-                            rowValues.add(row.get(column));
-                        }
-                        rowData.add(rowValues);
-                    }
-                    structuredResponse.put("rows", rowData);
-                }
+            String trimmedSql = admission.sql();
+            QueryResultCache.CachedResult cached = queryResultCache.getOrLoad(trimmedSql, maxRows,
+                statementListener -> queryExecutionService.executeQuery(trimmedSql, maxRows,
+                    ConnectionPools.Workload.INTERACTIVE, statementListener));
+            QueryResult result = cached.result();
+            logger.info("✅ Successfully executed query, returned {} rows in {} ms{}", 
+                       result.getRowCount(), result.getExecutionTimeMs(),
+                       cached.cacheHit() ? " (cached)" : cached.coalesced() ? " (shared with an identical running query)" : "");
+
+            long serializeStart = System.nanoTime();
+            Map<String, Object> fields = new LinkedHashMap<>();
+            fields.put("cached", cached.cacheHit());
+            if (cached.coalesced()) {
+                fields.put("coalesced", true);
             }
-            
-            // Convert to JSON and return
-            try {
-                ObjectMapper mapper = new ObjectMapper();
-                String jsonResult = mapper.writeValueAsString(structuredResponse);
-                logger.debug("📤 Returning structured query result: {} characters", jsonResult.length());
-                return jsonResult;
-            } catch (Exception e) {
-                logger.error("Failed to serialize structured response", e);
-                // Fallback to simple message
-                return message.toString();
+            if (admission.explanation() != null) {
+                fields.put("costGuard", admission.explanation());
             }
+            String preview = toPreview(result, fields, encoder);
+            SqlAnalyzer.SqlAnalysis query = SqlAnalyzer.analyze(trimmedSql);
+            queryMetrics.recordPhase(query, QueryMetrics.Phase.SERIALIZE, System.nanoTime() - serializeStart);
+            queryMetrics.recordSerializedBytes(query, preview.length());
+            logger.debug("📤 Returning {} query result preview: {} characters", encoder.name(), preview.length());
+            return preview;
         } catch (SQLException e) {
             logger.error("❌ Failed to execute query", e);
             return "SQL Error: " + e.getMessage();
@@ -111,16 +129,323 @@ public class QueryToolsService {
         }
     }
 
+    /**
+     * Execute a SQL SELECT query and keep its cursor open for paging
+     * @param sql The SQL query to execute (must be a SELECT statement)
+     * @param pageSize Number of rows per page (optional, defaults to 500, max 10000)
+     * @return JSON string containing the first page of results and a continuation token
+     */
+    @Tool(description = "Execute a SQL SELECT query and return the first page of results together with a continuationToken. Use this instead of executeQuery when a result may be larger than 10000 rows or you want to read it in pages. Pass the token to fetchNextPage to read further pages; hasMore is false once the result is exhausted. Queries the planner estimates to be very expensive even with a LIMIT are rejected.")
+    public String executeQueryPaged(
+        @org.springframework.ai.tool.annotation.ToolParam(description = "The SQL SELECT query to execute") String sql,
+        @org.springframework.ai.tool.annotation.ToolParam(description = "Number of rows per page (optional, default 500, max 10000)") Integer pageSize) {
+        logger.info("🔧 MCP Tool called: executeQueryPaged(sql='{}...', pageSize={})", 
+                   sql != null ? sql.substring(0, Math.min(50, sql.length())) : "null", pageSize);
+        
+        if (sql == null || sql.trim().isEmpty()) {
+            logger.warn("⚠️  executeQueryPaged received null or empty SQL: '{}'", sql);
+            return "Error: SQL query cannot be null or empty";
+        }
+
+        try {
+            // A cursor computes rows as pages are read, so only rejection applies; downgrading to a
+            // LIMIT would cut the result short
+            QueryCostGuard.Admission admission = queryCostGuard.admit(sql, null);
+            if (admission.decision() == QueryCostGuard.Decision.REJECT) {
+                return "Error: " + admission.explanation();
+            }
+            CursorPage page = queryCursorService.openCursor(sql.trim(), pageSize);
+            logger.info("✅ Opened query cursor, first page has {} rows", page.result().getRowCount());
+            return toStructuredJson(page);
+        } catch (SQLException e) {
+            logger.error("❌ Failed to execute paged query", e);
+            return "SQL Error: " + e.getMessage();
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            logger.warn("⚠️  Invalid paged query: {}", e.getMessage());
+            return "Error: " + e.getMessage();
+        } catch (IOException e) {
+            logger.error("Failed to serialize structured response", e);
+            return "Error serializing query result: " + e.getMessage();
+        }
+    }
+
+    /**
+     * Read the next page of a query opened with executeQueryPaged
+     * @param continuationToken The token returned by the previous page
+     * @param pageSize Number of rows per page (optional, defaults to 500, max 10000)
+     * @return JSON string containing the next page of results
+     */
+    @Tool(description = "Fetch the next page of a result opened with executeQueryPaged, using the continuationToken from the previous page. Idle cursors expire after a few minutes.")
+    public String fetchNextPage(
+        @org.springframework.ai.tool.annotation.ToolParam(description = "The continuationToken returned by the previous page") String continuationToken,
+        @org.springframework.ai.tool.annotation.ToolParam(description = "Number of rows per page (optional, default 500, max 10000)") Integer pageSize) {
+        logger.info("🔧 MCP Tool called: fetchNextPage(pageSize={})", pageSize);
+        
+        if (continuationToken == null || continuationToken.trim().isEmpty()) {
+            logger.warn("⚠️  fetchNextPage received null or empty continuation token");
+            return "Error: Continuation token cannot be null or empty";
+        }
+
+        try {
+            CursorPage page = queryCursorService.fetchNextPage(continuationToken.trim(), pageSize);
+            logger.info("✅ Fetched page {} with {} rows", page.pageNumber(), page.result().getRowCount());
+            return toStructuredJson(page);
+        } catch (SQLException e) {
+            logger.error("❌ Failed to fetch next page", e);
+            return "SQL Error: " + e.getMessage();
+        } catch (IllegalArgumentException e) {
+            logger.warn("⚠️  Invalid continuation token: {}", e.getMessage());
+            return "Error: " + e.getMessage() + ". Run executeQueryPaged again to restart from the first page.";
+        } catch (IOException e) {
+            logger.error("Failed to serialize structured response", e);
+            return "Error serializing query result: " + e.getMessage();
+        }
+    }
+
+    /**
+     * Close a query cursor opened with executeQueryPaged before it is exhausted
+     * @param continuationToken The token of the cursor to close
+     * @return Status message
+     */
+    @Tool(description = "Close a paged query cursor that is no longer needed, releasing its database connection. Cursors close automatically when exhausted.")
+    public String closeQueryCursor(
+        @org.springframework.ai.tool.annotation.ToolParam(description = "The continuationToken of the cursor to close") String continuationToken) {
+        logger.info("🔧 MCP Tool called: closeQueryCursor()");
+        if (queryCursorService.closeCursor(continuationToken != null ? continuationToken.trim() : null)) {
+            return "Query cursor closed.";
+        }
+        return "No open query cursor found for that token; it may already be exhausted or expired.";
+    }
+
+    /**
+     * Submit a SQL SELECT query for asynchronous execution
+     * @param sql The SQL query to execute (must be a SELECT statement)
+     * @param maxRows Maximum number of rows to return (optional, defaults to 1000, max 10000)
+     * @return JSON string containing the job id and its initial status
+     */
+    @Tool(description = "Submit a SQL SELECT query to run in the background and return a jobId immediately. Use this for queries that may run for a long time (large scans, heavy joins). Poll getQueryStatus with the jobId until its state is SUCCEEDED, then call getQueryResult. cancelQuery stops a job that is no longer needed. As with executeQuery, very expensive queries run with a LIMIT (costGuard explains why) or are rejected.")
+    public String submitQuery(
+        @org.springframework.ai.tool.annotation.ToolParam(description = "The SQL SELECT query to execute") String sql,
+        @org.springframework.ai.tool.annotation.ToolParam(description = "Maximum number of rows to return (optional, default 1000, max 10000)") Integer maxRows) {
+        logger.info("🔧 MCP Tool called: submitQuery(sql='{}...', maxRows={})", 
+                   sql != null ? sql.substring(0, Math.min(50, sql.length())) : "null", maxRows);
+        
+        if (sql == null || sql.trim().isEmpty()) {
+            logger.warn("⚠️  submitQuery received null or empty SQL: '{}'", sql);
+            return "Error: SQL query cannot be null or empty";
+        }
+
+        try {
+            QueryCostGuard.Admission admission = queryCostGuard.admit(sql, maxRows);
+            if (admission.decision() == QueryCostGuard.Decision.REJECT) {
+                return "Error: " + admission.explanation();
+            }
+            QueryJobStatus status = queryJobService.submit(admission.sql(), maxRows);
+            logger.info("✅ Submitted query job {}", status.jobId());
+            if (admission.explanation() == null) {
+                return objectMapper.writeValueAsString(status);
+            }
+            ObjectNode json = objectMapper.valueToTree(status);
+            json.put("costGuard", admission.explanation());
+            return objectMapper.writeValueAsString(json);
+        } catch (SQLException e) {
+            logger.error("❌ Failed to submit query", e);
+            return "SQL Error: " + e.getMessage();
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            logger.warn("⚠️  Query job rejected: {}", e.getMessage());
+            return "Error: " + e.getMessage();
+        } catch (IOException e) {
+            logger.error("Failed to serialize query job status", e);
+            return "Error serializing query job status: " + e.getMessage();
+        }
+    }
+
+    /**
+     * Get the status of an asynchronous query job
+     * @param jobId The id returned by submitQuery
+     * @return JSON string containing the job status
+     */
+    @Tool(description = "Get the status of a query job started with submitQuery. The state is one of QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED or EXPIRED (result evicted from memory; submit again).")
+    public String getQueryStatus(
+        @org.springframework.ai.tool.annotation.ToolParam(description = "The jobId returned by submitQuery") String jobId) {
+        logger.info("🔧 MCP Tool called: getQueryStatus(jobId='{}')", jobId);
+        try {
+            return objectMapper.writeValueAsString(queryJobService.getStatus(jobId));
+        } catch (IllegalArgumentException e) {
+            logger.warn("⚠️  {}", e.getMessage());
+            return "Error: " + e.getMessage();
+        } catch (IOException e) {
+            logger.error("Failed to serialize query job status", e);
+            return "Error serializing query job status: " + e.getMessage();
+        }
+    }
+
+    /**
+     * Get the result of a succeeded asynchronous query job
+     * @param jobId The id returned by submitQuery
+     * @param format Output format: compact, csv, tsv, markdown or json (optional, defaults to the server's format)
+     * @return the columns, the first and last rows and a handle to the full result in the requested format
+     */
+    @Tool(description = "Get the result of a query job started with submitQuery once getQueryStatus reports SUCCEEDED. Returns the same result preview as executeQuery.")
+    public String getQueryResult(
+        @org.springframework.ai.tool.annotation.ToolParam(description = "The jobId returned by submitQuery") String jobId,
+        @org.springframework.ai.tool.annotation.ToolParam(description = "Output format: compact (default), csv, tsv, markdown or json (optional)") String format) {
+        logger.info("🔧 MCP Tool called: getQueryResult(jobId='{}', format={})", jobId, format);
+        try {
+            ResultEncoder encoder = resultEncoders.encoder(format);
+            QueryResult result = queryJobService.getResult(jobId);
+            logger.info("✅ Returning result of query job {} with {} rows", jobId, result.getRowCount());
+            return toPreview(result, Map.of("jobId", jobId.trim()), encoder);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            logger.warn("⚠️  {}", e.getMessage());
+            return "Error: " + e.getMessage();
+        }
+    }
+
+    /**
+     * Cancel an asynchronous query job
+     * @param jobId The id returned by submitQuery
+     * @return JSON string containing the job status after cancellation
+     */
+    @Tool(description = "Cancel a queued or running query job started with submitQuery. Running queries are cancelled on the database server.")
+    public String cancelQuery(
+        @org.springframework.ai.tool.annotation.ToolParam(description = "The jobId returned by submitQuery") String jobId) {
+        logger.info("🔧 MCP Tool called: cancelQuery(jobId='{}')", jobId);
+        try {
+            return objectMapper.writeValueAsString(queryJobService.cancel(jobId));
+        } catch (IllegalArgumentException e) {
+            logger.warn("⚠️  {}", e.getMessage());
+            return "Error: " + e.getMessage();
+        } catch (IOException e) {
+            logger.error("Failed to serialize query job status", e);
+            return "Error serializing query job status: " + e.getMessage();
+        }
+    }
+
+    /**
+     * Clear the query result cache
+     * @return Status message including cache statistics before the invalidation
+     */
+    @Tool(description = "Clear the executeQuery result cache and cached query plan estimates. Use this when the underlying data has changed and a repeated query must be re-run against the database rather than answered from cache.")
+    public String invalidateCache() {
+        logger.info("🔧 MCP Tool called: invalidateCache()");
+        Map<String, Object> stats = queryResultCache.getStats();
+        queryResultCache.invalidateAll();
+        queryCostGuard.invalidateAll();
+        return "Query result cache cleared. Entries removed: " + stats.get("entries")
+            + ", hits so far: " + stats.get("hits") + ", misses so far: " + stats.get("misses") + ".";
+    }
+
+    /**
+     * Get query result cache statistics
+     * @return JSON string containing hit/miss counters and cache size
+     */
+    @Tool(description = "Get executeQuery result cache statistics: entries, approximate bytes held, hits, misses, hit rate and evictions.")
+    public String getCacheStats() {
+        logger.info("🔧 MCP Tool called: getCacheStats()");
+        try {
+            return objectMapper.writeValueAsString(queryResultCache.getStats());
+        } catch (IOException e) {
+            logger.error("Failed to serialize cache statistics", e);
+            return "Error serializing cache statistics: " + e.getMessage();
+        }
+    }
+
+    /**
+     * Get per-query-shape latency statistics
+     * @param limit Number of query shapes to list in each ranking (optional, defaults to 10)
+     * @return JSON string containing the slowest and the most frequent query shapes
+     */
+    @Tool(description = "Get executeQuery latency statistics per query shape (queries that differ only in literal values share a shape): the slowest and the most frequently run shapes with execution count, errors, mean, max, p50 and p99 latency per phase (acquire, execute, fetch, serialize, total), rows and rows per second.")
+    public String getQueryStats(
+        @org.springframework.ai.tool.annotation.ToolParam(description = "Number of query shapes to list in each ranking (optional, default 10)") Integer limit) {
+        logger.info("🔧 MCP Tool called: getQueryStats(limit={})", limit);
+        try {
+            int effectiveLimit = limit == null || limit <= 0 ? 10 : limit;
+            return objectMapper.writeValueAsString(queryMetrics.getTopStats(effectiveLimit));
+        } catch (IOException e) {
+            logger.error("Failed to serialize query statistics", e);
+            return "Error serializing query statistics: " + e.getMessage();
+        }
+    }
+
+    /**
+     * Get connection pool statistics
+     * @return JSON string containing usage and settings of each connection pool
+     */
+    @Tool(description = "Get connection pool statistics for the interactive, long-running and metadata pools: active, idle and total connections, threads waiting for a connection, saturation, and each pool's size, connection timeout, statement timeout and fetch size.")
+    public String getConnectionPoolStats() {
+        logger.info("🔧 MCP Tool called: getConnectionPoolStats()");
+        try {
+            return objectMapper.writeValueAsString(connectionPools.getStats());
+        } catch (IOException e) {
+            logger.error("Failed to serialize connection pool statistics", e);
+            return "Error serializing connection pool statistics: " + e.getMessage();
+        }
+    }
+
+    private String toStructuredJson(CursorPage page) throws IOException {
+        Map<String, Object> paging = new LinkedHashMap<>();
+        paging.put("continuationToken", page.continuationToken());
+        paging.put("hasMore", page.hasMore());
+        paging.put("pageNumber", page.pageNumber());
+        paging.put("rowOffset", page.rowOffset());
+        return toStructuredJson(page.result(), paging);
+    }
+
+    private String toStructuredJson(QueryResult result, Map<String, Object> extraFields) throws IOException {
+        return toStructuredJson(result, extraFields, result.getRowCount(), JsonResultEncoder.queryMessage(result));
+    }
+
+    /**
+     * Stores the full result under a result handle and renders only a preview of it for the LLM.
+     * The chat client fetches the complete result by handle, so the tool output, and with it the
+     * prompt, stays within the token budget however many rows the query returned.
+     */
+    private String toPreview(QueryResult result, Map<String, Object> extraFields, ResultEncoder encoder) {
+        Map<String, Object> fields = new LinkedHashMap<>(extraFields);
+        fields.put("resultHandle", queryResultStore.put(result));
+        return resultEncoders.encode(encoder, result, fields, queryResultStore.getPreviewRows(),
+            "The full result is displayed to the user as a table; summarize it instead of repeating rows.");
+    }
+
+    /**
+     * Renders a query result as the structured {@code query_result} JSON consumed by the UI.
+     * Rows are written from the column vectors straight into the generator, so only the
+     * serialized output is built rather than a list copy of every row.
+     */
+    private String toStructuredJson(QueryResult result, Map<String, Object> extraFields, int maxRows,
+                                    String message) throws IOException {
+        StringWriter buffer = new StringWriter();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(buffer)) {
+            generator.writeStartObject();
+            generator.writeStringField("type", "query_result");
+            generator.writeNumberField("executionTimeMs", result.getExecutionTimeMs());
+            generator.writeNumberField("rowCount", result.getRowCount());
+            generator.writeStringField("message", message);
+            for (Map.Entry<String, Object> field : extraFields.entrySet()) {
+                generator.writeObjectField(field.getKey(), field.getValue());
+            }
+            QueryResultJsonWriter.writeHeader(result.getColumnNames(), result.getColumnMetadata(), generator);
+            QueryResultJsonWriter.writeRows(result.getData(), generator, maxRows);
+            generator.writeEndObject();
+        }
+        return buffer.toString();
+    }
+
+
     /**
      * Get the execution plan for a SQL SELECT query
      * @param sql The SQL query to explain (must be a SELECT statement)
-     * @return JSON string containing the query execution plan
+     * @param analyze Whether to execute the query for actual rows and timings (optional, defaults to false)
+     * @return JSON string with the plan tree and its hotspots, or the plan text on databases without JSON plans
      */
-    @Tool(description = "Get the execution plan for a SQL SELECT query using EXPLAIN. Shows how the database will execute the query, useful for performance analysis.")
+    @Tool(description = "Get the execution plan for a SQL SELECT query using EXPLAIN, useful for diagnosing slow queries. On PostgreSQL/Greenplum returns the plan tree with the nodes of highest cost, motions and slices, broadcast motions, and with analyze=true the nodes of highest time, row misestimates and segment skew. analyze=true executes the query (time-limited), so use it only when estimates are not enough.")
     public String explainQuery(
-        @org.springframework.ai.tool.annotation.ToolParam(description = "The SQL SELECT query to explain") String sql) {
-        logger.info("🔧 MCP Tool called: explainQuery(sql='{}...')", 
-                   sql != null ? sql.substring(0, Math.min(50, sql.length())) : "null");
+        @org.springframework.ai.tool.annotation.ToolParam(description = "The SQL SELECT query to explain") String sql,
+        @org.springframework.ai.tool.annotation.ToolParam(description = "Execute the query to report actual rows and timings (optional, default false)") Boolean analyze) {
+        logger.info("🔧 MCP Tool called: explainQuery(sql='{}...', analyze={})", 
+                   sql != null ? sql.substring(0, Math.min(50, sql.length())) : "null", analyze);
         
         if (sql == null || sql.trim().isEmpty()) {
             logger.warn("⚠️  explainQuery received null or empty SQL: '{}'", sql);
@@ -128,45 +453,37 @@ public class QueryToolsService {
         }
 
         try {
-            QueryResult result = queryExecutionService.explainQuery(sql.trim());
-            logger.info("✅ Successfully generated query plan in {} ms", result.getExecutionTimeMs());
-            
-            // Format the result in a human-readable way
-            StringBuilder response = new StringBuilder();
-            response.append("Query plan generated successfully!\n\n");
-            response.append("Execution time: ").append(result.getExecutionTimeMs()).append(" ms\n\n");
-            
-            if (result.getRowCount() > 0 && result.getRows() != null) {
-                response.append("Query Execution Plan:\n");
-                for (Map<String, Object> row : result.getRows()) {
-                    for (Map.Entry<String, Object> entry : row.entrySet()) {
-                        response.append(entry.getValue() != null ? entry.getValue().toString() : "NULL");
-                        response.append("\n");
-                    }
-                }
+            QueryPlanService.ExplainedPlan explained = queryPlanService.explain(sql.trim(), Boolean.TRUE.equals(analyze));
+            logger.info("✅ Successfully generated query plan in {} ms", explained.plan().getExecutionTimeMs());
+            if (explained.analysis() == null) {
+                return resultEncoders.encodePlan(explained.plan());
             }
-            
-            return response.toString();
+            return objectMapper.writeValueAsString(explained.analysis());
         } catch (SQLException e) {
             logger.error("❌ Failed to explain query", e);
             return "SQL Error: " + e.getMessage();
-        } catch (IllegalArgumentException e) {
+        } catch (IllegalArgumentException | IllegalStateException e) {
             logger.warn("⚠️  Invalid query for explain: {}", e.getMessage());
             return "Error: " + e.getMessage();
+        } catch (IOException e) {
+            logger.error("Failed to serialize query plan", e);
+            return "Error serializing query plan: " + e.getMessage();
         }
     }
 
     /**
-     * Execute a simple query to count rows in a table
-     * @param schemaName The schema containing the table
-     * @param tableName The name of the table to count
-     * @return JSON string containing the row count result
+     * Count rows in a table, exactly or from catalog statistics
+     * @param schemaName The schema name
+     * @param tableName The table name
+     * @param mode exact, estimate or auto (optional, defaults to auto)
+     * @return Row count result
      */
-    @Tool(description = "Count the number of rows in a specific table. Executes SELECT COUNT(*) FROM schema.table.")
+    @Tool(description = "Count the rows in a table. Mode 'estimate' reads catalog statistics and returns in milliseconds; 'exact' runs COUNT(*), as a background query job for large tables and tables without statistics; 'auto' (default) returns the estimate for large tables, an exact count for small ones, and only a note for tables without statistics.")
     public String countTableRows(
         @org.springframework.ai.tool.annotation.ToolParam(description = "The name of the database schema") String schemaName,
-        @org.springframework.ai.tool.annotation.ToolParam(description = "The name of the table") String tableName) {
-        logger.info("🔧 MCP Tool called: countTableRows(schemaName='{}', tableName='{}')", schemaName, tableName);
+        @org.springframework.ai.tool.annotation.ToolParam(description = "The name of the table") String tableName,
+        @org.springframework.ai.tool.annotation.ToolParam(description = "Count mode: exact, estimate or auto (optional, default auto)") String mode) {
+        logger.info("🔧 MCP Tool called: countTableRows(schemaName='{}', tableName='{}', mode='{}')", schemaName, tableName, mode);
         
         if (schemaName == null || schemaName.trim().isEmpty()) {
             logger.warn("⚠️  countTableRows received null or empty schemaName: '{}'", schemaName);
@@ -177,29 +494,40 @@ public class QueryToolsService {
             return "Error: Table name cannot be null or empty";
         }
 
-        String sql = String.format("SELECT COUNT(*) as row_count FROM %s.%s", 
-                                 schemaName.trim(), tableName.trim());
-        
         try {
-            QueryResult result = queryExecutionService.executeQuery(sql, 1);
-            logger.info("✅ Successfully counted rows for {}.{} in {} ms", 
-                       schemaName, tableName, result.getExecutionTimeMs());
-            
+            RowCountService.RowCount count = rowCountService.count(schemaName, tableName, RowCountService.Mode.parse(mode));
+            logger.info("✅ Counted rows for {}.{} ({}) in {} ms",
+                       count.schema(), count.table(), count.mode(), count.executionTimeMs());
+
             // Format the result in a human-readable way
             StringBuilder response = new StringBuilder();
-            response.append("Row count completed successfully!\n\n");
-            response.append("Table: ").append(schemaName).append(".").append(tableName).append("\n");
-            response.append("Execution time: ").append(result.getExecutionTimeMs()).append(" ms\n\n");
-            
-            if (result.getRowCount() > 0 && result.getRows() != null && !result.getRows().isEmpty()) {
-                Map<String, Object> firstRow = result.getRows().get(0);
-                Object count = firstRow.get("row_count");
-                response.append("Total rows: ").append(count != null ? count.toString() : "0").append("\n");
+            if (count.exactCount() != null) {
+                response.append("Row count completed successfully!\n\n");
+            } else if (count.jobId() != null) {
+                response.append("Row count started as a background query job.\n\n");
+            } else if (count.estimatedCount() != null) {
+                response.append("Row count estimated.\n\n");
             } else {
-                response.append("Total rows: 0\n");
+                response.append("No row count available.\n\n");
+            }
+            response.append("Table: ").append(count.schema()).append(".").append(count.table()).append("\n");
+            response.append("Execution time: ").append(count.executionTimeMs()).append(" ms\n\n");
+            if (count.exactCount() != null) {
+                response.append("Total rows: ").append(count.exactCount()).append("\n");
+            }
+            if (count.estimatedCount() != null) {
+                response.append("Estimated rows: ").append(count.estimatedCount()).append("\n");
+            }
+            if (count.jobId() != null) {
+                response.append("Job id: ").append(count.jobId()).append("\n");
+            }
+            if (count.note() != null) {
+                response.append("\n").append(count.note()).append("\n");
             }
-            
             return response.toString();
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            logger.warn("⚠️  countTableRows rejected: {}", e.getMessage());
+            return "Error: " + e.getMessage();
         } catch (SQLException e) {
             logger.error("❌ Failed to count rows for {}.{}", schemaName, tableName, e);
             return "SQL Error counting rows for '" + schemaName + "." + tableName + "': " + e.getMessage();
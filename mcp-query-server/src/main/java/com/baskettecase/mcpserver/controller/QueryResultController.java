@@ -0,0 +1,103 @@
+package com.baskettecase.mcpserver.controller;
+
+import com.baskettecase.mcpserver.model.QueryResult;
+import com.baskettecase.mcpserver.service.ArrowResultWriter;
+import com.baskettecase.mcpserver.service.QueryResultJsonWriter;
+import com.baskettecase.mcpserver.service.QueryResultStore;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import jakarta.annotation.PreDestroy;
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves full query results by result handle. The executeQuery tool only hands the LLM a preview;
+ * the chat client fetches the complete table from here and shows it to the user directly.
+ * Clients that accept {@value ArrowResultWriter#MEDIA_TYPE} get the result as an Arrow IPC stream
+ * instead of JSON.
+ */
+@RestController
+@RequestMapping("/api/results")
+public class QueryResultController {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryResultController.class);
+
+    private final QueryResultStore queryResultStore;
+    private final ArrowResultWriter arrowResultWriter;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ExecutorService writers = Executors.newVirtualThreadPerTaskExecutor();
+
+    public QueryResultController(QueryResultStore queryResultStore, ArrowResultWriter arrowResultWriter) {
+        this.queryResultStore = queryResultStore;
+        this.arrowResultWriter = arrowResultWriter;
+    }
+
+    @GetMapping(value = "/{handle}", produces = ArrowResultWriter.MEDIA_TYPE)
+    public ResponseEntity<Publisher<DataBuffer>> getArrowResult(@PathVariable String handle) {
+        QueryResult result = queryResultStore.get(handle);
+        if (result == null) {
+            logger.info("Result handle not found or expired");
+            return ResponseEntity.notFound().build();
+        }
+
+        logger.info("Serving result with {} rows as Arrow", result.getRowCount());
+        Publisher<DataBuffer> body = DataBufferUtils.outputStreamPublisher(out -> {
+            try {
+                arrowResultWriter.write(result.getData(), result.getColumnMetadata(), out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, DefaultDataBufferFactory.sharedInstance, writers);
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(ArrowResultWriter.MEDIA_TYPE)).body(body);
+    }
+
+    /**
+     * Writes the result as JSON straight into the response as it is generated, so serving a large
+     * result needs no buffer for the encoded document on top of the stored column vectors.
+     */
+    @GetMapping("/{handle}")
+    public ResponseEntity<Publisher<DataBuffer>> getResult(@PathVariable String handle) {
+        QueryResult result = queryResultStore.get(handle);
+        if (result == null) {
+            logger.info("Result handle not found or expired");
+            return ResponseEntity.notFound().build();
+        }
+
+        logger.info("Serving result with {} rows as JSON", result.getRowCount());
+        Publisher<DataBuffer> body = DataBufferUtils.outputStreamPublisher(out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.writeStartObject();
+                generator.writeStringField("type", "query_result");
+                generator.writeStringField("resultHandle", handle);
+                generator.writeNumberField("executionTimeMs", result.getExecutionTimeMs());
+                generator.writeNumberField("rowCount", result.getRowCount());
+                QueryResultJsonWriter.writeHeader(result.getColumnNames(), result.getColumnMetadata(), generator);
+                QueryResultJsonWriter.writeRows(result.getData(), generator);
+                generator.writeEndObject();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, DefaultDataBufferFactory.sharedInstance, writers);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writers.shutdownNow();
+    }
+}
@@ -0,0 +1,322 @@
+package com.baskettecase.mcpserver.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A single column of a {@link ColumnarResult}. Integral, floating point and boolean columns are
+ * kept in primitive arrays with a null bitmap, character columns are dictionary encoded, and
+ * everything else (numerics, temporals, arrays) falls back to an object array.
+ */
+public abstract sealed class ColumnVector {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private long[] nulls = new long[1];
+    protected int size;
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isNull(int row) {
+        checkIndex(row);
+        return (nulls[row >>> 6] & (1L << row)) != 0;
+    }
+
+    public void appendNull() {
+        ensureCapacity(size + 1);
+        markNull(size);
+        appendDefault();
+        size++;
+    }
+
+    /**
+     * Returns the value at {@code row} boxed, or {@code null}. Prefer the typed accessors on hot paths.
+     */
+    public abstract Object getValue(int row);
+
+    public abstract long estimatedSizeBytes();
+
+    protected abstract int capacity();
+
+    protected abstract void grow(int newCapacity);
+
+    protected abstract void appendDefault();
+
+    protected void ensureCapacity(int required) {
+        if (required > capacity()) {
+            grow(Math.max(required, capacity() * 2));
+        }
+        int words = (required + 63) >>> 6;
+        if (words > nulls.length) {
+            nulls = Arrays.copyOf(nulls, Math.max(words, nulls.length * 2));
+        }
+    }
+
+    protected long nullBitmapBytes() {
+        return 16L + nulls.length * 8L;
+    }
+
+    protected void checkIndex(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " out of bounds for column of size " + size);
+        }
+    }
+
+    private void markNull(int row) {
+        nulls[row >>> 6] |= 1L << row;
+    }
+
+    public static final class LongVector extends ColumnVector {
+        private long[] values = new long[INITIAL_CAPACITY];
+
+        public void append(long value) {
+            ensureCapacity(size + 1);
+            values[size++] = value;
+        }
+
+        public long getLong(int row) {
+            checkIndex(row);
+            return values[row];
+        }
+
+        @Override
+        public Object getValue(int row) {
+            return isNull(row) ? null : values[row];
+        }
+
+        @Override
+        public long estimatedSizeBytes() {
+            return 16L + values.length * 8L + nullBitmapBytes();
+        }
+
+        @Override
+        protected int capacity() {
+            return values.length;
+        }
+
+        @Override
+        protected void grow(int newCapacity) {
+            values = Arrays.copyOf(values, newCapacity);
+        }
+
+        @Override
+        protected void appendDefault() {
+            values[size] = 0L;
+        }
+    }
+
+    public static final class DoubleVector extends ColumnVector {
+        private final boolean singlePrecision;
+        private double[] values = new double[INITIAL_CAPACITY];
+
+        /**
+         * @param singlePrecision whether the source column is a {@code REAL}, so values are reported
+         *                        as floats and do not pick up widening noise when serialized
+         */
+        public DoubleVector(boolean singlePrecision) {
+            this.singlePrecision = singlePrecision;
+        }
+
+        public void append(double value) {
+            ensureCapacity(size + 1);
+            values[size++] = value;
+        }
+
+        public double getDouble(int row) {
+            checkIndex(row);
+            return values[row];
+        }
+
+        public boolean isSinglePrecision() {
+            return singlePrecision;
+        }
+
+        @Override
+        public Object getValue(int row) {
+            if (isNull(row)) {
+                return null;
+            }
+            return singlePrecision ? (Object) (float) values[row] : (Object) values[row];
+        }
+
+        @Override
+        public long estimatedSizeBytes() {
+            return 16L + values.length * 8L + nullBitmapBytes();
+        }
+
+        @Override
+        protected int capacity() {
+            return values.length;
+        }
+
+        @Override
+        protected void grow(int newCapacity) {
+            values = Arrays.copyOf(values, newCapacity);
+        }
+
+        @Override
+        protected void appendDefault() {
+            values[size] = 0d;
+        }
+    }
+
+    public static final class BooleanVector extends ColumnVector {
+        private boolean[] values = new boolean[INITIAL_CAPACITY];
+
+        public void append(boolean value) {
+            ensureCapacity(size + 1);
+            values[size++] = value;
+        }
+
+        public boolean getBoolean(int row) {
+            checkIndex(row);
+            return values[row];
+        }
+
+        @Override
+        public Object getValue(int row) {
+            return isNull(row) ? null : values[row];
+        }
+
+        @Override
+        public long estimatedSizeBytes() {
+            return 16L + values.length + nullBitmapBytes();
+        }
+
+        @Override
+        protected int capacity() {
+            return values.length;
+        }
+
+        @Override
+        protected void grow(int newCapacity) {
+            values = Arrays.copyOf(values, newCapacity);
+        }
+
+        @Override
+        protected void appendDefault() {
+            values[size] = false;
+        }
+    }
+
+    /**
+     * Dictionary-encoded strings. Once a column proves to be mostly distinct values the lookup map
+     * is dropped and new values are appended to the dictionary without de-duplication, so high
+     * cardinality columns do not pay for a hash map they get no benefit from.
+     */
+    public static final class StringVector extends ColumnVector {
+        private static final int CARDINALITY_SAMPLE_ROWS = 1024;
+
+        private int[] codes = new int[INITIAL_CAPACITY];
+        private final List<String> dictionary = new ArrayList<>();
+        private Map<String, Integer> lookup = new HashMap<>();
+        private long dictionaryChars;
+
+        public void append(String value) {
+            ensureCapacity(size + 1);
+            codes[size++] = encode(value);
+            if (lookup != null && size == CARDINALITY_SAMPLE_ROWS && dictionary.size() > size / 2) {
+                lookup = null;
+            }
+        }
+
+        public String getString(int row) {
+            checkIndex(row);
+            return isNull(row) ? null : dictionary.get(codes[row]);
+        }
+
+        public int getCode(int row) {
+            checkIndex(row);
+            return codes[row];
+        }
+
+        public List<String> getDictionary() {
+            return dictionary;
+        }
+
+        @Override
+        public Object getValue(int row) {
+            return getString(row);
+        }
+
+        @Override
+        public long estimatedSizeBytes() {
+            long lookupBytes = lookup != null ? lookup.size() * 48L : 0L;
+            return 16L + codes.length * 4L + dictionary.size() * 48L + dictionaryChars * 2L
+                    + lookupBytes + nullBitmapBytes();
+        }
+
+        @Override
+        protected int capacity() {
+            return codes.length;
+        }
+
+        @Override
+        protected void grow(int newCapacity) {
+            codes = Arrays.copyOf(codes, newCapacity);
+        }
+
+        @Override
+        protected void appendDefault() {
+            codes[size] = -1;
+        }
+
+        private int encode(String value) {
+            if (lookup != null) {
+                Integer existing = lookup.get(value);
+                if (existing != null) {
+                    return existing;
+                }
+                lookup.put(value, dictionary.size());
+            }
+            dictionary.add(value);
+            dictionaryChars += value.length();
+            return dictionary.size() - 1;
+        }
+    }
+
+    public static final class ObjectVector extends ColumnVector {
+        private Object[] values = new Object[INITIAL_CAPACITY];
+
+        public void append(Object value) {
+            if (value == null) {
+                appendNull();
+                return;
+            }
+            ensureCapacity(size + 1);
+            values[size++] = value;
+        }
+
+        @Override
+        public Object getValue(int row) {
+            checkIndex(row);
+            return values[row];
+        }
+
+        @Override
+        public long estimatedSizeBytes() {
+            // Object headers plus a typical payload for BigDecimal/Timestamp sized values
+            return 16L + values.length * 8L + size * 32L + nullBitmapBytes();
+        }
+
+        @Override
+        protected int capacity() {
+            return values.length;
+        }
+
+        @Override
+        protected void grow(int newCapacity) {
+            values = Arrays.copyOf(values, newCapacity);
+        }
+
+        @Override
+        protected void appendDefault() {
+            values[size] = null;
+        }
+    }
+}
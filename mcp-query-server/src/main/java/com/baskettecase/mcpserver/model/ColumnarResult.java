@@ -0,0 +1,64 @@
+package com.baskettecase.mcpserver.model;
+
+import java.util.List;
+
+/**
+ * Column-oriented query result data. Each column is held in a {@link ColumnVector} specialised for
+ * its SQL type, so numeric values are never boxed and rows do not carry a map of their own.
+ */
+public class ColumnarResult {
+
+    private final List<String> columnNames;
+    private final List<ColumnVector> columns;
+
+    public ColumnarResult(List<String> columnNames, List<ColumnVector> columns) {
+        if (columnNames.size() != columns.size()) {
+            throw new IllegalArgumentException("Expected " + columnNames.size() + " column vectors but got " + columns.size());
+        }
+        this.columnNames = List.copyOf(columnNames);
+        this.columns = List.copyOf(columns);
+    }
+
+    public List<String> getColumnNames() {
+        return columnNames;
+    }
+
+    public int getColumnCount() {
+        return columns.size();
+    }
+
+    public int getRowCount() {
+        return columns.isEmpty() ? 0 : columns.get(0).size();
+    }
+
+    public ColumnVector getColumn(int column) {
+        return columns.get(column);
+    }
+
+    public ColumnVector getColumn(String columnName) {
+        int index = columnNames.indexOf(columnName);
+        if (index < 0) {
+            throw new IllegalArgumentException("Unknown column: " + columnName);
+        }
+        return columns.get(index);
+    }
+
+    /**
+     * Returns a single cell boxed, or {@code null}. Intended for small results and tests; bulk
+     * readers should switch on the {@link ColumnVector} type and use its typed accessors.
+     */
+    public Object getValue(int row, int column) {
+        return columns.get(column).getValue(row);
+    }
+
+    /**
+     * Rough heap footprint of the column data, used to budget results held in memory.
+     */
+    public long estimatedSizeBytes() {
+        long total = 0;
+        for (ColumnVector column : columns) {
+            total += column.estimatedSizeBytes();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,19 @@
+package com.baskettecase.mcpserver.model;
+
+/**
+ * One page read from an open query cursor.
+ * @param continuationToken token for the next page, or {@code null} once the cursor is exhausted
+ * @param pageNumber 1-based page number within the cursor
+ * @param rowOffset number of rows returned by earlier pages
+ * @param result the rows of this page
+ */
+public record CursorPage(
+    String continuationToken,
+    int pageNumber,
+    long rowOffset,
+    QueryResult result
+) {
+    public boolean hasMore() {
+        return continuationToken != null;
+    }
+}
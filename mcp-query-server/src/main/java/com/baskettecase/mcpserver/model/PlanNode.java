@@ -0,0 +1,75 @@
+package com.baskettecase.mcpserver.model;
+
+import java.util.List;
+
+/**
+ * One node of a query plan read from {@code EXPLAIN (FORMAT JSON)}.
+ * @param id position of the node in a pre-order walk of the plan, the root being 0
+ * @param relation the scanned table, or {@code null} for nodes that do not scan one
+ * @param slice the Greenplum slice the node runs in, or {@code null} outside Greenplum
+ * @param senders number of segments sending into a Motion node, or {@code null} for other nodes
+ * @param receivers number of segments receiving from a Motion node, or {@code null} for other nodes
+ * @param actualRows rows per loop with ANALYZE, otherwise {@code null}
+ * @param actualLoops loops with ANALYZE, otherwise {@code null}
+ * @param actualTotalTimeMs time per loop until the last row with ANALYZE, otherwise {@code null}
+ * @param maxSegmentRows the most rows one segment or worker produced, where the plan reports it
+ * @param avgSegmentRows the mean rows per segment or worker, where the plan reports it
+ */
+public record PlanNode(
+    int id,
+    String nodeType,
+    String relation,
+    Integer slice,
+    Integer senders,
+    Integer receivers,
+    double startupCost,
+    double totalCost,
+    long planRows,
+    Double actualRows,
+    Long actualLoops,
+    Double actualTotalTimeMs,
+    Double maxSegmentRows,
+    Double avgSegmentRows,
+    List<PlanNode> children
+) {
+    public boolean isMotion() {
+        return nodeType.endsWith("Motion");
+    }
+
+    /**
+     * @return the node's cost without the cost of its inputs
+     */
+    public double selfCost() {
+        double childCost = 0;
+        for (PlanNode child : children) {
+            childCost += child.totalCost();
+        }
+        return Math.max(0, totalCost - childCost);
+    }
+
+    /**
+     * @return rows over all loops with ANALYZE, otherwise {@code null}
+     */
+    public Double actualRowsTotal() {
+        if (actualRows == null) {
+            return null;
+        }
+        return actualRows * (actualLoops != null ? actualLoops : 1);
+    }
+
+    /**
+     * @return time spent in the node itself over all loops with ANALYZE, otherwise {@code null}
+     */
+    public Double selfTimeMs() {
+        if (actualTotalTimeMs == null) {
+            return null;
+        }
+        double childTime = 0;
+        for (PlanNode child : children) {
+            if (child.actualTotalTimeMs() != null) {
+                childTime += child.actualTotalTimeMs() * (child.actualLoops() != null ? child.actualLoops() : 1);
+            }
+        }
+        return Math.max(0, actualTotalTimeMs * (actualLoops != null ? actualLoops : 1) - childTime);
+    }
+}
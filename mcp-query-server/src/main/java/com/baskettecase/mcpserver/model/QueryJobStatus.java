@@ -0,0 +1,31 @@
+package com.baskettecase.mcpserver.model;
+
+/**
+ * Point-in-time view of an asynchronous query job. Timestamps are epoch milliseconds and are
+ * {@code null} until the job reaches the corresponding stage.
+ */
+public record QueryJobStatus(
+    String jobId,
+    State state,
+    Long submittedAt,
+    Long startedAt,
+    Long finishedAt,
+    long elapsedMs,
+    Integer rowCount,
+    Long resultBytes,
+    String error
+) {
+    public enum State {
+        QUEUED,
+        RUNNING,
+        SUCCEEDED,
+        FAILED,
+        CANCELLED,
+        /** The job succeeded but its result was evicted to stay within the memory budget. */
+        EXPIRED;
+
+        public boolean isFinished() {
+            return this != QUEUED && this != RUNNING;
+        }
+    }
+}
@@ -6,7 +6,9 @@ import java.util.Map;
 public class QueryResult {
     private List<String> columnNames;
     private List<Map<String, Object>> columnMetadata;
+    // Row-oriented data is only used for plan output; query results are held in columnar form
     private List<Map<String, Object>> rows;
+    private ColumnarResult data;
     private int rowCount;
     private long executionTimeMs;
     private String message;
@@ -65,6 +67,14 @@ public class QueryResult {
         this.message = message;
     }
 
+    public ColumnarResult getData() {
+        return data;
+    }
+
+    public void setData(ColumnarResult data) {
+        this.data = data;
+    }
+
     public List<Map<String, Object>> getColumnMetadata() {
         return columnMetadata;
     }
@@ -0,0 +1,207 @@
+package com.baskettecase.mcpserver.service;
+
+import com.baskettecase.mcpserver.model.ColumnVector;
+import com.baskettecase.mcpserver.model.ColumnVector.BooleanVector;
+import com.baskettecase.mcpserver.model.ColumnVector.DoubleVector;
+import com.baskettecase.mcpserver.model.ColumnVector.LongVector;
+import com.baskettecase.mcpserver.model.ColumnVector.ObjectVector;
+import com.baskettecase.mcpserver.model.ColumnVector.StringVector;
+import com.baskettecase.mcpserver.model.ColumnarResult;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float4Vector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowStreamWriter;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes query results in the Apache Arrow IPC stream format.
+ *
+ * <p>Each {@link ColumnVector} maps onto the Arrow vector of the same shape: longs to
+ * {@code BigInt}, doubles to {@code Float4}/{@code Float8}, booleans to {@code Bit} and strings to
+ * {@code Utf8}, with each dictionary entry encoded to UTF-8 only once. Other values (numerics,
+ * temporals, arrays) are written as their text form. The database type name of every column is
+ * kept in the field metadata under {@link #SQL_TYPE_KEY}.
+ *
+ * <p>Results are written in record batches of {@code plumchat.query.arrow.batch-rows} rows, so only
+ * one batch of Arrow buffers is allocated at a time.
+ */
+@Service
+public class ArrowResultWriter implements DisposableBean {
+
+    public static final String MEDIA_TYPE = "application/vnd.apache.arrow.stream";
+    public static final String SQL_TYPE_KEY = "sqlType";
+
+    private final long maxAllocationBytes;
+    private final int batchRows;
+    private BufferAllocator allocator;
+
+    public ArrowResultWriter(@Value("${plumchat.query.arrow.max-allocation-bytes:268435456}") long maxAllocationBytes,
+                             @Value("${plumchat.query.arrow.batch-rows:8192}") int batchRows) {
+        this.maxAllocationBytes = maxAllocationBytes;
+        this.batchRows = batchRows;
+    }
+
+    /**
+     * Writes a result that is already in memory.
+     */
+    public void write(ColumnarResult data, List<Map<String, Object>> columnMetadata, OutputStream out) throws IOException {
+        try (VectorSchemaRoot root = VectorSchemaRoot.create(schemaOf(data, columnMetadata), allocator());
+             ArrowStreamWriter writer = new ArrowStreamWriter(root, null, Channels.newChannel(out))) {
+            writer.start();
+            int rowCount = data.getRowCount();
+            int offset = 0;
+            do {
+                fill(root, data, offset, Math.min(batchRows, rowCount - offset));
+                writer.writeBatch();
+                offset += batchRows;
+            } while (offset < rowCount);
+            writer.end();
+        }
+    }
+
+    private static Schema schemaOf(ColumnarResult data, List<Map<String, Object>> columnMetadata) {
+        List<Field> fields = new ArrayList<>(data.getColumnCount());
+        for (int column = 0; column < data.getColumnCount(); column++) {
+            Object sqlType = columnMetadata != null && column < columnMetadata.size()
+                ? columnMetadata.get(column).get("type") : null;
+            Map<String, String> metadata = sqlType != null ? Map.of(SQL_TYPE_KEY, sqlType.toString()) : null;
+            FieldType fieldType = new FieldType(true, arrowTypeOf(data.getColumn(column)), null, metadata);
+            fields.add(new Field(data.getColumnNames().get(column), fieldType, null));
+        }
+        return new Schema(fields);
+    }
+
+    private static ArrowType arrowTypeOf(ColumnVector column) {
+        return switch (column) {
+            case LongVector longs -> new ArrowType.Int(64, true);
+            case DoubleVector doubles -> new ArrowType.FloatingPoint(
+                doubles.isSinglePrecision() ? FloatingPointPrecision.SINGLE : FloatingPointPrecision.DOUBLE);
+            case BooleanVector booleans -> ArrowType.Bool.INSTANCE;
+            case StringVector strings -> ArrowType.Utf8.INSTANCE;
+            case ObjectVector objects -> ArrowType.Utf8.INSTANCE;
+        };
+    }
+
+    private static void fill(VectorSchemaRoot root, ColumnarResult data, int offset, int count) {
+        for (int column = 0; column < data.getColumnCount(); column++) {
+            ColumnVector source = data.getColumn(column);
+            FieldVector target = root.getVector(column);
+            target.allocateNew();
+            switch (source) {
+                case LongVector longs -> {
+                    BigIntVector vector = (BigIntVector) target;
+                    for (int i = 0; i < count; i++) {
+                        if (longs.isNull(offset + i)) {
+                            vector.setNull(i);
+                        } else {
+                            vector.setSafe(i, longs.getLong(offset + i));
+                        }
+                    }
+                }
+                case DoubleVector doubles when doubles.isSinglePrecision() -> {
+                    Float4Vector vector = (Float4Vector) target;
+                    for (int i = 0; i < count; i++) {
+                        if (doubles.isNull(offset + i)) {
+                            vector.setNull(i);
+                        } else {
+                            vector.setSafe(i, (float) doubles.getDouble(offset + i));
+                        }
+                    }
+                }
+                case DoubleVector doubles -> {
+                    Float8Vector vector = (Float8Vector) target;
+                    for (int i = 0; i < count; i++) {
+                        if (doubles.isNull(offset + i)) {
+                            vector.setNull(i);
+                        } else {
+                            vector.setSafe(i, doubles.getDouble(offset + i));
+                        }
+                    }
+                }
+                case BooleanVector booleans -> {
+                    BitVector vector = (BitVector) target;
+                    for (int i = 0; i < count; i++) {
+                        if (booleans.isNull(offset + i)) {
+                            vector.setNull(i);
+                        } else {
+                            vector.setSafe(i, booleans.getBoolean(offset + i) ? 1 : 0);
+                        }
+                    }
+                }
+                case StringVector strings -> {
+                    VarCharVector vector = (VarCharVector) target;
+                    byte[][] encoded = new byte[strings.getDictionary().size()][];
+                    for (int i = 0; i < count; i++) {
+                        if (strings.isNull(offset + i)) {
+                            vector.setNull(i);
+                            continue;
+                        }
+                        int code = strings.getCode(offset + i);
+                        if (encoded[code] == null) {
+                            encoded[code] = strings.getDictionary().get(code).getBytes(StandardCharsets.UTF_8);
+                        }
+                        vector.setSafe(i, encoded[code]);
+                    }
+                }
+                case ObjectVector objects -> {
+                    VarCharVector vector = (VarCharVector) target;
+                    for (int i = 0; i < count; i++) {
+                        Object value = objects.getValue(offset + i);
+                        if (value == null) {
+                            vector.setNull(i);
+                        } else {
+                            String text = value instanceof BigDecimal decimal ? decimal.toPlainString() : value.toString();
+                            vector.setSafe(i, text.getBytes(StandardCharsets.UTF_8));
+                        }
+                    }
+                }
+            }
+            target.setValueCount(count);
+        }
+        root.setRowCount(count);
+    }
+
+    /**
+     * Created on first use, so that a JVM started without {@code --add-opens=java.base/java.nio}
+     * still serves everything but Arrow results.
+     */
+    private synchronized BufferAllocator allocator() {
+        if (allocator == null) {
+            try {
+                allocator = new RootAllocator(maxAllocationBytes);
+            } catch (RuntimeException | LinkageError e) {
+                throw new IllegalStateException("Arrow memory is unavailable: " + e.getMessage(), e);
+            }
+        }
+        return allocator;
+    }
+
+    @Override
+    public synchronized void destroy() {
+        if (allocator != null) {
+            allocator.close();
+        }
+    }
+}
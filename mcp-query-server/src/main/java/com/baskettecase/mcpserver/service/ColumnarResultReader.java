@@ -0,0 +1,138 @@
+package com.baskettecase.mcpserver.service;
+
+import com.baskettecase.mcpserver.model.ColumnVector;
+import com.baskettecase.mcpserver.model.ColumnVector.BooleanVector;
+import com.baskettecase.mcpserver.model.ColumnVector.DoubleVector;
+import com.baskettecase.mcpserver.model.ColumnVector.LongVector;
+import com.baskettecase.mcpserver.model.ColumnVector.ObjectVector;
+import com.baskettecase.mcpserver.model.ColumnVector.StringVector;
+import com.baskettecase.mcpserver.model.ColumnarResult;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads a JDBC {@link ResultSet} into a {@link ColumnarResult}, choosing a vector type for each
+ * column from its {@link ResultSetMetaData}.
+ */
+public final class ColumnarResultReader {
+
+    private ColumnarResultReader() {
+    }
+
+    public static List<String> columnNames(ResultSetMetaData metaData) throws SQLException {
+        int columnCount = metaData.getColumnCount();
+        List<String> columnNames = new ArrayList<>(columnCount);
+        for (int i = 1; i <= columnCount; i++) {
+            columnNames.add(metaData.getColumnName(i));
+        }
+        return columnNames;
+    }
+
+    public static List<Map<String, Object>> columnMetadata(ResultSetMetaData metaData) throws SQLException {
+        int columnCount = metaData.getColumnCount();
+        List<Map<String, Object>> columnMetadata = new ArrayList<>(columnCount);
+        for (int i = 1; i <= columnCount; i++) {
+            Map<String, Object> colMeta = new LinkedHashMap<>();
+            colMeta.put("name", metaData.getColumnName(i));
+            colMeta.put("type", metaData.getColumnTypeName(i));
+            colMeta.put("nullable", metaData.isNullable(i) != ResultSetMetaData.columnNoNulls);
+            colMeta.put("precision", metaData.getPrecision(i));
+            colMeta.put("scale", metaData.getScale(i));
+            columnMetadata.add(colMeta);
+        }
+        return columnMetadata;
+    }
+
+    /**
+     * Reads up to {@code maxRows} rows from the current position of {@code resultSet}.
+     */
+    public static ColumnarResult read(ResultSet resultSet, int maxRows) throws SQLException {
+        return read(resultSet, maxRows, false);
+    }
+
+    /**
+     * Reads up to {@code maxRows} rows, starting with the row {@code resultSet} is positioned on when
+     * {@code includeCurrentRow} is set. Callers that advance one row ahead to detect the end of the
+     * result pass that row back in this way.
+     */
+    public static ColumnarResult read(ResultSet resultSet, int maxRows, boolean includeCurrentRow) throws SQLException {
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        int columnCount = metaData.getColumnCount();
+
+        ColumnVector[] vectors = new ColumnVector[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            vectors[i] = vectorFor(metaData, i + 1);
+        }
+
+        int rowCount = 0;
+        boolean onRow = includeCurrentRow;
+        while (rowCount < maxRows && (onRow || resultSet.next())) {
+            onRow = false;
+            for (int i = 0; i < columnCount; i++) {
+                append(vectors[i], resultSet, i + 1);
+            }
+            rowCount++;
+        }
+
+        return new ColumnarResult(columnNames(metaData), List.of(vectors));
+    }
+
+    static ColumnVector vectorFor(ResultSetMetaData metaData, int column) throws SQLException {
+        return switch (metaData.getColumnType(column)) {
+            case Types.TINYINT, Types.SMALLINT, Types.INTEGER, Types.BIGINT -> new LongVector();
+            case Types.REAL -> new DoubleVector(true);
+            case Types.FLOAT, Types.DOUBLE -> new DoubleVector(false);
+            case Types.BOOLEAN -> new BooleanVector();
+            // PostgreSQL reports boolean as BIT; wider bit strings are not booleans
+            case Types.BIT -> metaData.getPrecision(column) <= 1 ? new BooleanVector() : new ObjectVector();
+            case Types.CHAR, Types.VARCHAR, Types.LONGVARCHAR,
+                 Types.NCHAR, Types.NVARCHAR, Types.LONGNVARCHAR -> new StringVector();
+            default -> new ObjectVector();
+        };
+    }
+
+    private static void append(ColumnVector vector, ResultSet resultSet, int column) throws SQLException {
+        switch (vector) {
+            case LongVector longs -> {
+                long value = resultSet.getLong(column);
+                if (resultSet.wasNull()) {
+                    longs.appendNull();
+                } else {
+                    longs.append(value);
+                }
+            }
+            case DoubleVector doubles -> {
+                double value = resultSet.getDouble(column);
+                if (resultSet.wasNull()) {
+                    doubles.appendNull();
+                } else {
+                    doubles.append(value);
+                }
+            }
+            case BooleanVector booleans -> {
+                boolean value = resultSet.getBoolean(column);
+                if (resultSet.wasNull()) {
+                    booleans.appendNull();
+                } else {
+                    booleans.append(value);
+                }
+            }
+            case StringVector strings -> {
+                String value = resultSet.getString(column);
+                if (value == null) {
+                    strings.appendNull();
+                } else {
+                    strings.append(value);
+                }
+            }
+            case ObjectVector objects -> objects.append(resultSet.getObject(column));
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.baskettecase.mcpserver.service;
+
+import com.baskettecase.mcpserver.model.ColumnarResult;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Schema header followed by {@code |}-delimited rows, the most token-efficient format and the
+ * default. For example:
+ *
+ * <pre>
+ * query_result rowCount=250 executionTimeMs=4 resultHandle=... previewRowCount=8
+ * columns: ID:BIGINT|REGION:VARCHAR
+ * 1|north
+ * ...
+ * ... 242 rows omitted ...
+ * 250|NULL
+ * summary: ID min=1 max=250 mean=125.5; REGION nulls=83 distinct=2 top=north topCount=84
+ * note: Showing the first 6 and last 2 of 250 rows. ...
+ * </pre>
+ *
+ * Column names and types are written once instead of per row, and SQL NULL is written as
+ * {@code NULL}. Backslashes, {@code |} and line breaks inside values are escaped with a backslash.
+ */
+public class CompactResultEncoder implements ResultEncoder {
+
+    @Override
+    public String name() {
+        return "compact";
+    }
+
+    @Override
+    public String encode(ResultPreview preview) {
+        ColumnarResult data = preview.data();
+        StringBuilder out = new StringBuilder("query_result");
+        for (Map.Entry<String, Object> field : preview.header().entrySet()) {
+            out.append(' ').append(field.getKey()).append('=').append(field.getValue());
+        }
+
+        out.append("\ncolumns: ");
+        List<String> types = preview.columnTypes();
+        for (int column = 0; column < data.getColumnCount(); column++) {
+            if (column > 0) {
+                out.append('|');
+            }
+            out.append(escape(data.getColumnNames().get(column)));
+            if (types.get(column) != null) {
+                out.append(':').append(types.get(column));
+            }
+        }
+        out.append('\n');
+
+        int[] rows = preview.rowIndexes();
+        for (int i = 0; i < rows.length; i++) {
+            if (i == preview.headRows()) {
+                out.append("... ").append(preview.omittedRows()).append(" rows omitted ...\n");
+            }
+            for (int column = 0; column < data.getColumnCount(); column++) {
+                if (column > 0) {
+                    out.append('|');
+                }
+                String cell = ResultPreview.cellText(data.getColumn(column), rows[i]);
+                out.append(cell != null ? escape(cell) : "NULL");
+            }
+            out.append('\n');
+        }
+
+        if (preview.truncated()) {
+            if (preview.tailRows() == 0) {
+                out.append("... ").append(preview.omittedRows()).append(" rows omitted ...\n");
+            }
+            out.append("summary: ");
+            for (int i = 0; i < preview.columnSummaries().size(); i++) {
+                ResultPreview.ColumnSummary summary = preview.columnSummaries().get(i);
+                out.append(i > 0 ? "; " : "").append(summary.column()).append(' ').append(summary.toText());
+            }
+            out.append("\nnote: ").append(preview.truncationMessage()).append('\n');
+        }
+        return out.toString();
+    }
+
+    private static String escape(String text) {
+        if (text.indexOf('\\') < 0 && text.indexOf('|') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return text.replace("\\", "\\\\").replace("|", "\\|").replace("\n", "\\n").replace("\r", "\\r");
+    }
+}
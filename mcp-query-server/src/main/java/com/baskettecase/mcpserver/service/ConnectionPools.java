@@ -0,0 +1,183 @@
+package com.baskettecase.mcpserver.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Separate connection pools for interactive queries, long-running queries and metadata lookups.
+ *
+ * <p>With a single pool a few background jobs or open cursors can hold every connection, and a
+ * quick {@code explainQuery} or {@code countTableRows} then waits behind them. Each workload gets
+ * its own Hikari pool, built from the regular {@code spring.datasource.*} settings, with its own
+ * size, connection timeout, statement timeout and fetch size under
+ * {@code plumchat.pools.<workload>.*} ({@code interactive}, {@code long-running}, {@code metadata}).
+ * Tools pick the workload: {@code executeQuery} is interactive, query jobs and paged cursors are
+ * long-running, and catalog lookups and EXPLAIN use the metadata pool.
+ *
+ * <p>Every running query job and every open cursor holds a long-running connection, a cursor for
+ * up to its TTL, so the long-running pool defaults to {@code plumchat.query.jobs.max-concurrent}
+ * plus {@code plumchat.query.cursor.max-open} connections. A smaller {@code max-size} lets open
+ * cursors starve the job workers (or the reverse) and is logged as a warning.
+ *
+ * <p>The pools publish Hikari's {@code hikaricp.connections.*} metrics (active, idle, pending,
+ * acquire time, timeouts) tagged with the pool name.
+ */
+@Service
+public class ConnectionPools implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionPools.class);
+    // Defaults of plumchat.query.jobs.max-concurrent and plumchat.query.cursor.max-open
+    private static final int DEFAULT_MAX_JOBS = 4;
+    private static final int DEFAULT_MAX_CURSORS = 4;
+
+    public enum Workload {
+        INTERACTIVE("interactive", new PoolSettings(8, 5_000, 60, 500)),
+        LONG_RUNNING("long-running", new PoolSettings(DEFAULT_MAX_JOBS + DEFAULT_MAX_CURSORS, 30_000, 3_600, 2_000)),
+        METADATA("metadata", new PoolSettings(2, 2_000, 10, 100));
+
+        private final String key;
+        private final PoolSettings defaults;
+
+        Workload(String key, PoolSettings defaults) {
+            this.key = key;
+            this.defaults = defaults;
+        }
+
+        public String key() {
+            return key;
+        }
+    }
+
+    /**
+     * @param statementTimeoutSeconds query timeout set on every statement, 0 for none
+     */
+    public record PoolSettings(int maxSize, long connectionTimeoutMs, int statementTimeoutSeconds, int fetchSize) {
+
+        static PoolSettings from(Environment environment, Workload workload) {
+            String prefix = "plumchat.pools." + workload.key() + ".";
+            PoolSettings defaults = workload.defaults;
+            int defaultMaxSize = workload == Workload.LONG_RUNNING ? longRunningConnections(environment) : defaults.maxSize();
+            return new PoolSettings(
+                environment.getProperty(prefix + "max-size", Integer.class, defaultMaxSize),
+                environment.getProperty(prefix + "connection-timeout-ms", Long.class, defaults.connectionTimeoutMs()),
+                environment.getProperty(prefix + "statement-timeout-seconds", Integer.class, defaults.statementTimeoutSeconds()),
+                environment.getProperty(prefix + "fetch-size", Integer.class, defaults.fetchSize()));
+        }
+
+        /**
+         * @return the long-running connections needed for every query job worker and open cursor at once
+         */
+        static int longRunningConnections(Environment environment) {
+            return environment.getProperty("plumchat.query.jobs.max-concurrent", Integer.class, DEFAULT_MAX_JOBS)
+                + environment.getProperty("plumchat.query.cursor.max-open", Integer.class, DEFAULT_MAX_CURSORS);
+        }
+    }
+
+    private final Map<Workload, DataSource> dataSources = new EnumMap<>(Workload.class);
+    private final Map<Workload, PoolSettings> settings = new EnumMap<>(Workload.class);
+
+    @Autowired
+    public ConnectionPools(DataSourceProperties properties, Environment environment, MeterRegistry meterRegistry) {
+        for (Workload workload : Workload.values()) {
+            PoolSettings poolSettings = PoolSettings.from(environment, workload);
+            HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+            dataSource.setPoolName("plumchat-" + workload.key());
+            dataSource.setMaximumPoolSize(poolSettings.maxSize());
+            dataSource.setMinimumIdle(Math.min(2, poolSettings.maxSize()));
+            dataSource.setConnectionTimeout(poolSettings.connectionTimeoutMs());
+            dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            dataSources.put(workload, dataSource);
+            settings.put(workload, poolSettings);
+            logger.info("Connection pool {}: {}", dataSource.getPoolName(), poolSettings);
+        }
+        int longRunningConnections = PoolSettings.longRunningConnections(environment);
+        if (settings.get(Workload.LONG_RUNNING).maxSize() < longRunningConnections) {
+            logger.warn("Long-running pool has {} connections but query jobs and cursors can hold {}; "
+                + "jobs will wait for connections held by open cursors", settings.get(Workload.LONG_RUNNING).maxSize(),
+                longRunningConnections);
+        }
+    }
+
+    private ConnectionPools(DataSource dataSource) {
+        for (Workload workload : Workload.values()) {
+            dataSources.put(workload, dataSource);
+            settings.put(workload, workload.defaults);
+        }
+    }
+
+    /**
+     * One data source shared by every workload with the default statement settings, for services
+     * created outside Spring.
+     */
+    public static ConnectionPools shared(DataSource dataSource) {
+        return new ConnectionPools(dataSource);
+    }
+
+    public DataSource dataSource(Workload workload) {
+        return dataSources.get(workload);
+    }
+
+    public PoolSettings settings(Workload workload) {
+        return settings.get(workload);
+    }
+
+    /**
+     * Sets the workload's statement timeout and fetch size on {@code statement}, with the fetch
+     * size capped at {@code maxRows}.
+     */
+    public void applyDefaults(Statement statement, Workload workload, int maxRows) throws SQLException {
+        PoolSettings poolSettings = settings(workload);
+        statement.setQueryTimeout(poolSettings.statementTimeoutSeconds());
+        statement.setFetchSize(Math.min(poolSettings.fetchSize(), maxRows));
+    }
+
+    /**
+     * @return connection usage and waiting threads per pool, with the pool settings
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (Workload workload : Workload.values()) {
+            PoolSettings poolSettings = settings(workload);
+            Map<String, Object> pool = new LinkedHashMap<>();
+            if (dataSource(workload) instanceof HikariDataSource hikari && hikari.getHikariPoolMXBean() != null) {
+                HikariPoolMXBean mxBean = hikari.getHikariPoolMXBean();
+                pool.put("active", mxBean.getActiveConnections());
+                pool.put("idle", mxBean.getIdleConnections());
+                pool.put("total", mxBean.getTotalConnections());
+                pool.put("waiting", mxBean.getThreadsAwaitingConnection());
+                pool.put("saturation", (double) mxBean.getActiveConnections() / poolSettings.maxSize());
+            }
+            pool.put("maxSize", poolSettings.maxSize());
+            pool.put("connectionTimeoutMs", poolSettings.connectionTimeoutMs());
+            pool.put("statementTimeoutSeconds", poolSettings.statementTimeoutSeconds());
+            pool.put("fetchSize", poolSettings.fetchSize());
+            stats.put(workload.key(), pool);
+        }
+        return stats;
+    }
+
+    @Override
+    public void destroy() {
+        for (DataSource dataSource : dataSources.values()) {
+            if (dataSource instanceof HikariDataSource hikari) {
+                hikari.close();
+            }
+        }
+    }
+}
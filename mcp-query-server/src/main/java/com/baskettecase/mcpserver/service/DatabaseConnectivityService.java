@@ -81,9 +81,14 @@ public class DatabaseConnectivityService {
         
         logger.info("🌟 MCP Query Server initialization complete!");
         logger.info("📋 Available MCP tools:");
-        logger.info("   - executeQuery: Execute SELECT queries against the database");
-        logger.info("   - explainQuery: Get execution plan for a query");
-        logger.info("   - countTableRows: Count rows in a specified table");
+        logger.info("   - executeQuery: Execute SELECT queries against the database (compact, csv, tsv, markdown or json output)");
+        logger.info("   - executeQueryPaged / fetchNextPage / closeQueryCursor: Page through large results with a server-side cursor");
+        logger.info("   - submitQuery / getQueryStatus / getQueryResult / cancelQuery: Run long queries as background jobs");
+        logger.info("   - invalidateCache / getCacheStats: Manage the executeQuery result cache");
+        logger.info("   - getQueryStats: Latency percentiles of the slowest and most frequent query shapes");
+        logger.info("   - getConnectionPoolStats: Usage of the interactive, long-running and metadata connection pools");
+        logger.info("   - explainQuery: Get execution plan for a query, with cost hotspots, misestimates and skew");
+        logger.info("   - countTableRows: Count rows in a table (exact, estimated or auto)");
         logger.info("   - testConnection: Test database connectivity");
     }
 }
\ No newline at end of file
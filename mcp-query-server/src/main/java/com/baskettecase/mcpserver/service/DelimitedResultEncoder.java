@@ -0,0 +1,101 @@
+package com.baskettecase.mcpserver.service;
+
+import com.baskettecase.mcpserver.model.ColumnarResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * CSV or TSV: a {@code #} comment line with the header fields and one with the column types,
+ * then the column names and the rows. NULL is written as an empty cell. Omitted rows, column
+ * summaries and the truncation note follow as further comment lines.
+ */
+public class DelimitedResultEncoder implements ResultEncoder {
+
+    private final String name;
+    private final char delimiter;
+
+    private DelimitedResultEncoder(String name, char delimiter) {
+        this.name = name;
+        this.delimiter = delimiter;
+    }
+
+    public static DelimitedResultEncoder csv() {
+        return new DelimitedResultEncoder("csv", ',');
+    }
+
+    public static DelimitedResultEncoder tsv() {
+        return new DelimitedResultEncoder("tsv", '\t');
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public String encode(ResultPreview preview) {
+        ColumnarResult data = preview.data();
+        StringBuilder out = new StringBuilder();
+        out.append("#");
+        for (Map.Entry<String, Object> field : preview.header().entrySet()) {
+            out.append(' ').append(field.getKey()).append('=').append(field.getValue());
+        }
+        out.append("\n# types:");
+        for (String type : preview.columnTypes()) {
+            out.append(' ').append(type);
+        }
+        out.append('\n');
+        appendRow(out, data.getColumnNames());
+
+        int[] rows = preview.rowIndexes();
+        List<String> cells = new ArrayList<>(data.getColumnCount());
+        for (int i = 0; i < rows.length; i++) {
+            if (i == preview.headRows()) {
+                appendOmitted(out, preview);
+            }
+            cells.clear();
+            for (int column = 0; column < data.getColumnCount(); column++) {
+                String cell = ResultPreview.cellText(data.getColumn(column), rows[i]);
+                cells.add(cell != null ? cell : "");
+            }
+            appendRow(out, cells);
+        }
+
+        if (preview.truncated()) {
+            if (preview.tailRows() == 0) {
+                appendOmitted(out, preview);
+            }
+            for (ResultPreview.ColumnSummary summary : preview.columnSummaries()) {
+                out.append("# summary ").append(summary.column()).append(": ").append(summary.toText()).append('\n');
+            }
+            out.append("# ").append(preview.truncationMessage()).append('\n');
+        }
+        return out.toString();
+    }
+
+    private static void appendOmitted(StringBuilder out, ResultPreview preview) {
+        out.append("# ... ").append(preview.omittedRows()).append(" rows omitted ...\n");
+    }
+
+    private void appendRow(StringBuilder out, List<String> cells) {
+        for (int i = 0; i < cells.size(); i++) {
+            if (i > 0) {
+                out.append(delimiter);
+            }
+            out.append(escape(cells.get(i)));
+        }
+        out.append('\n');
+    }
+
+    private String escape(String cell) {
+        if (delimiter == '\t') {
+            return cell.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+        }
+        if (cell.indexOf(',') >= 0 || cell.indexOf('"') >= 0 || cell.indexOf('\n') >= 0 || cell.indexOf('\r') >= 0) {
+            return '"' + cell.replace("\"", "\"\"") + '"';
+        }
+        return cell;
+    }
+}
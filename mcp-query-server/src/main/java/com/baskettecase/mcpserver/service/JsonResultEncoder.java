@@ -0,0 +1,90 @@
+package com.baskettecase.mcpserver.service;
+
+import com.baskettecase.mcpserver.model.ColumnarResult;
+import com.baskettecase.mcpserver.model.QueryResult;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.Map;
+
+/**
+ * The structured {@code query_result} JSON object, with column metadata and one array per row.
+ * The most verbose format, kept for clients that parse the tool output. When rows are omitted
+ * the object also carries {@code omittedRows}, {@code omittedAfterRow} and {@code columnSummaries}.
+ */
+public class JsonResultEncoder implements ResultEncoder {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Override
+    public String name() {
+        return "json";
+    }
+
+    @Override
+    public String encode(ResultPreview preview) {
+        String message = queryMessage(preview.result());
+        if (preview.truncated()) {
+            message += "\n" + preview.truncationMessage();
+        }
+
+        StringWriter buffer = new StringWriter();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(buffer)) {
+            generator.writeStartObject();
+            generator.writeStringField("type", "query_result");
+            generator.writeNumberField("executionTimeMs", preview.result().getExecutionTimeMs());
+            generator.writeNumberField("rowCount", preview.rowCount());
+            generator.writeStringField("message", message);
+            for (Map.Entry<String, Object> field : preview.fields().entrySet()) {
+                generator.writeObjectField(field.getKey(), field.getValue());
+            }
+            generator.writeNumberField("previewRowCount", preview.shownRows());
+            QueryResultJsonWriter.writeHeader(preview.result().getColumnNames(),
+                preview.result().getColumnMetadata(), generator);
+
+            ColumnarResult data = preview.data();
+            generator.writeArrayFieldStart("rows");
+            for (int row : preview.rowIndexes()) {
+                generator.writeStartArray();
+                for (int column = 0; column < data.getColumnCount(); column++) {
+                    QueryResultJsonWriter.writeCell(data.getColumn(column), row, generator);
+                }
+                generator.writeEndArray();
+            }
+            generator.writeEndArray();
+
+            if (preview.truncated()) {
+                generator.writeNumberField("omittedRows", preview.omittedRows());
+                generator.writeNumberField("omittedAfterRow", preview.headRows());
+                generator.writeObjectFieldStart("columnSummaries");
+                for (ResultPreview.ColumnSummary summary : preview.columnSummaries()) {
+                    generator.writeObjectField(summary.column(), summary.stats());
+                }
+                generator.writeEndObject();
+            }
+            generator.writeEndObject();
+        } catch (IOException e) {
+            // Writing to a StringWriter does not fail on I/O
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toString();
+    }
+
+    public static String queryMessage(QueryResult result) {
+        // Human-readable message
+        StringBuilder message = new StringBuilder();
+        message.append("Query executed successfully!\n\n");
+        message.append("Execution time: ").append(result.getExecutionTimeMs()).append(" ms\n");
+        message.append("Rows returned: ").append(result.getRowCount()).append("\n");
+
+        if (result.getRowCount() > 0) {
+            message.append("\nFound ").append(result.getRowCount()).append(" results.");
+        } else {
+            message.append("\nNo rows returned.");
+        }
+        return message.toString();
+    }
+}
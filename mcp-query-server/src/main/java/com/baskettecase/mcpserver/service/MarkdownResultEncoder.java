@@ -0,0 +1,99 @@
+package com.baskettecase.mcpserver.service;
+
+import com.baskettecase.mcpserver.model.ColumnarResult;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A markdown table with columns padded to a common width, preceded by the header fields and
+ * followed by the column summaries and note when rows are omitted. Omitted rows are marked by a
+ * row of {@code ...} cells. Cells longer than {@value #MAX_CELL_WIDTH} characters are cut short,
+ * so one wide text column cannot stretch every row.
+ */
+public class MarkdownResultEncoder implements ResultEncoder {
+
+    private static final int MAX_CELL_WIDTH = 40;
+
+    @Override
+    public String name() {
+        return "markdown";
+    }
+
+    @Override
+    public String encode(ResultPreview preview) {
+        ColumnarResult data = preview.data();
+        int columnCount = data.getColumnCount();
+        int[] rows = preview.rowIndexes();
+
+        List<String[]> table = new ArrayList<>(rows.length + 2);
+        table.add(data.getColumnNames().stream().map(MarkdownResultEncoder::cell).toArray(String[]::new));
+        for (int i = 0; i < rows.length; i++) {
+            if (i == preview.headRows()) {
+                table.add(omittedRow(columnCount));
+            }
+            String[] cells = new String[columnCount];
+            for (int column = 0; column < columnCount; column++) {
+                String text = ResultPreview.cellText(data.getColumn(column), rows[i]);
+                cells[column] = text != null ? cell(text) : "NULL";
+            }
+            table.add(cells);
+        }
+        if (preview.truncated() && preview.tailRows() == 0) {
+            table.add(omittedRow(columnCount));
+        }
+
+        int[] widths = new int[columnCount];
+        for (String[] cells : table) {
+            for (int column = 0; column < columnCount; column++) {
+                widths[column] = Math.max(Math.max(widths[column], cells[column].length()), 3);
+            }
+        }
+
+        StringBuilder out = new StringBuilder();
+        for (Map.Entry<String, Object> field : preview.header().entrySet()) {
+            out.append(out.isEmpty() ? "" : " ").append(field.getKey()).append('=').append(field.getValue());
+        }
+        out.append("\n\n");
+        for (int i = 0; i < table.size(); i++) {
+            appendRow(out, table.get(i), widths);
+            if (i == 0) {
+                String[] rule = new String[columnCount];
+                for (int column = 0; column < columnCount; column++) {
+                    rule[column] = "-".repeat(widths[column]);
+                }
+                appendRow(out, rule, widths);
+            }
+        }
+
+        if (preview.truncated()) {
+            out.append("\nColumn summaries:\n");
+            for (ResultPreview.ColumnSummary summary : preview.columnSummaries()) {
+                out.append("- ").append(summary.column()).append(": ").append(summary.toText()).append('\n');
+            }
+            out.append('\n').append(preview.truncationMessage()).append('\n');
+        }
+        return out.toString();
+    }
+
+    private static String[] omittedRow(int columnCount) {
+        String[] cells = new String[columnCount];
+        Arrays.fill(cells, "...");
+        return cells;
+    }
+
+    private static void appendRow(StringBuilder out, String[] cells, int[] widths) {
+        out.append('|');
+        for (int column = 0; column < cells.length; column++) {
+            out.append(' ').append(cells[column]).append(" ".repeat(widths[column] - cells[column].length())).append(" |");
+        }
+        out.append('\n');
+    }
+
+    private static String cell(String text) {
+        String escaped = text.replace("|", "\\|").replace("\r", " ").replace("\n", " ");
+        return escaped.length() > MAX_CELL_WIDTH ? escaped.substring(0, MAX_CELL_WIDTH - 3) + "..." : escaped;
+    }
+}
@@ -0,0 +1,217 @@
+package com.baskettecase.mcpserver.service;
+
+import com.baskettecase.mcpserver.model.QueryResult;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Pre-flight check that runs EXPLAIN on a query before it is executed and decides from the
+ * planner's estimate whether to run it as written, run it with a LIMIT, or refuse it.
+ *
+ * <p>The estimate is the total cost and row count of the top plan node, as printed by PostgreSQL
+ * and Greenplum ({@code (cost=0.00..431.00 rows=1 width=8)}). A query at or above
+ * {@code plumchat.query.guard.downgrade-cost}, or expected to return
+ * {@code plumchat.query.guard.downgrade-rows} rows or more, is wrapped in a LIMIT of its row limit
+ * and explained again: a pipelined plan such as an accidental cross join then only computes its
+ * first rows and becomes cheap. If even the limited plan reaches
+ * {@code plumchat.query.guard.reject-cost}, the query is rejected with an explanation the LLM can
+ * act on. Databases whose EXPLAIN reports no cost, such as H2, are always allowed.
+ *
+ * <p>EXPLAIN runs on the interactive pool, next to the queries it guards, rather than on the small
+ * metadata pool, so catalog lookups cannot make query execution fail. If no connection is available
+ * in time the guard fails open and allows the query without an estimate.
+ *
+ * <p>Estimates are cached per normalized SQL text, so a repeated query is not explained again. The
+ * key keeps literals: a LIMIT value, a function argument or a selective filter constant can change
+ * the plan by orders of magnitude. The cache expires after
+ * {@code plumchat.query.guard.plan-ttl-seconds} so it follows changing table statistics.
+ */
+@Service
+public class QueryCostGuard {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryCostGuard.class);
+
+    private static final Pattern COST = Pattern.compile("cost=(\\d+(?:\\.\\d+)?)\\.\\.(\\d+(?:\\.\\d+)?) rows=(\\d+)");
+
+    public enum Decision { ALLOW, DOWNGRADE, REJECT }
+
+    /**
+     * The planner's estimate for the top plan node; cost and rows are {@code NaN} and {@code -1}
+     * when the plan carries no estimate.
+     */
+    public record PlanEstimate(double totalCost, long rows) {
+        static final PlanEstimate UNKNOWN = new PlanEstimate(Double.NaN, -1);
+
+        public boolean known() {
+            return !Double.isNaN(totalCost);
+        }
+    }
+
+    /**
+     * @param sql         the SQL to run: the query as given, or wrapped in a LIMIT when downgraded
+     * @param estimate    the estimate the decision was made on
+     * @param explanation why the query was downgraded or rejected, {@code null} when allowed
+     */
+    public record Admission(Decision decision, String sql, PlanEstimate estimate, String explanation) {
+    }
+
+    /**
+     * Returns the EXPLAIN output of a query, one plan line per element.
+     */
+    @FunctionalInterface
+    public interface PlanSource {
+        List<String> explain(String sql) throws SQLException;
+    }
+
+    private final PlanSource planSource;
+    private final boolean enabled;
+    private final double downgradeCost;
+    private final double rejectCost;
+    private final long downgradeRows;
+    private final Cache<String, PlanEstimate> plans;
+
+    @Autowired
+    public QueryCostGuard(QueryExecutionService queryExecutionService,
+                          @Value("${plumchat.query.guard.enabled:true}") boolean enabled,
+                          @Value("${plumchat.query.guard.downgrade-cost:1000000}") double downgradeCost,
+                          @Value("${plumchat.query.guard.reject-cost:100000000}") double rejectCost,
+                          @Value("${plumchat.query.guard.downgrade-rows:1000000}") long downgradeRows,
+                          @Value("${plumchat.query.guard.plan-cache-size:1000}") long planCacheSize,
+                          @Value("${plumchat.query.guard.plan-ttl-seconds:600}") long planTtlSeconds) {
+        this(sql -> planLines(queryExecutionService.explainQuery(sql, ConnectionPools.Workload.INTERACTIVE)), enabled, downgradeCost, rejectCost,
+            downgradeRows, planCacheSize, planTtlSeconds);
+    }
+
+    public QueryCostGuard(PlanSource planSource, boolean enabled, double downgradeCost, double rejectCost,
+                          long downgradeRows, long planCacheSize, long planTtlSeconds) {
+        this.planSource = planSource;
+        this.enabled = enabled;
+        this.downgradeCost = downgradeCost;
+        this.rejectCost = rejectCost;
+        this.downgradeRows = downgradeRows;
+        this.plans = Caffeine.newBuilder()
+            .maximumSize(planCacheSize)
+            .expireAfterWrite(Duration.ofSeconds(planTtlSeconds))
+            .build();
+    }
+
+    /**
+     * Decides how {@code sql} may run.
+     * @param maxRows the caller's row limit, used as the LIMIT of a downgraded query
+     * @throws IllegalArgumentException if {@code sql} is not a single read-only query
+     * @throws SQLException if the query cannot be explained, typically because it is invalid
+     */
+    public Admission admit(String sql, Integer maxRows) throws SQLException {
+        String trimmedSql = sql.trim();
+        QueryExecutionService.requireSelectQuery(trimmedSql, "Only SELECT queries are allowed for security reasons");
+        if (!enabled) {
+            return new Admission(Decision.ALLOW, trimmedSql, PlanEstimate.UNKNOWN, null);
+        }
+
+        PlanEstimate estimate;
+        try {
+            estimate = estimate(trimmedSql);
+        } catch (SQLTransientConnectionException e) {
+            logger.warn("⚠️  Cost guard could not get a connection to explain the query, allowing it: {}", e.getMessage());
+            return new Admission(Decision.ALLOW, trimmedSql, PlanEstimate.UNKNOWN, null);
+        }
+        if (!estimate.known() || (estimate.totalCost() < downgradeCost && estimate.rows() < downgradeRows)) {
+            return new Admission(Decision.ALLOW, trimmedSql, estimate, null);
+        }
+
+        int limit = QueryExecutionService.determineMaxRows(maxRows);
+        String limitedSql = withLimit(trimmedSql, limit);
+        PlanEstimate limited;
+        try {
+            limited = estimate(limitedSql);
+        } catch (SQLTransientConnectionException e) {
+            logger.warn("⚠️  Cost guard could not get a connection to explain the limited query: {}", e.getMessage());
+            limited = PlanEstimate.UNKNOWN;
+        }
+        if (!limited.known() || limited.totalCost() < rejectCost) {
+            String explanation = String.format(Locale.ROOT,
+                "An estimated cost of %,.0f with %,d rows reaches the guard threshold (cost %,.0f or %,d rows), so the result "
+                    + "was capped at %d rows. The query itself ran as written, including its aggregates and ORDER BY, and "
+                    + "these are exactly its first rows; add filters or aggregate in SQL if the remaining rows are needed.",
+                estimate.totalCost(), estimate.rows(), downgradeCost, downgradeRows, limit);
+            logger.info("Cost guard downgraded query (cost {}, rows {}) to LIMIT {}", estimate.totalCost(), estimate.rows(), limit);
+            return new Admission(Decision.DOWNGRADE, limitedSql, limited, explanation);
+        }
+
+        String explanation = String.format(Locale.ROOT,
+            "Query rejected by the cost guard: estimated cost %,.0f (%,.0f even with LIMIT %d) exceeds the limit "
+                + "of %,.0f, with about %,d rows. Check that every joined table has a join condition, filter on "
+                + "selective or partition columns, or aggregate in SQL, then run explainQuery to check the plan.",
+            estimate.totalCost(), limited.totalCost(), limit, rejectCost, estimate.rows());
+        logger.warn("⚠️  Cost guard rejected query (cost {}, limited cost {}, rows {})",
+            estimate.totalCost(), limited.totalCost(), estimate.rows());
+        return new Admission(Decision.REJECT, trimmedSql, estimate, explanation);
+    }
+
+    public void invalidateAll() {
+        plans.invalidateAll();
+    }
+
+    private PlanEstimate estimate(String sql) throws SQLException {
+        String key = QueryResultCache.normalize(sql);
+        PlanEstimate cached = plans.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        PlanEstimate estimate = parseEstimate(planSource.explain(sql));
+        plans.put(key, estimate);
+        return estimate;
+    }
+
+    /**
+     * @return the estimate of the first plan line with a cost, which is the top plan node
+     */
+    static PlanEstimate parseEstimate(List<String> planLines) {
+        for (String line : planLines) {
+            Matcher matcher = COST.matcher(line);
+            if (matcher.find()) {
+                return new PlanEstimate(Double.parseDouble(matcher.group(2)), Long.parseLong(matcher.group(3)));
+            }
+        }
+        return PlanEstimate.UNKNOWN;
+    }
+
+    /**
+     * Wraps {@code sql} in a LIMIT. The query goes on its own lines so that a trailing line
+     * comment cannot swallow the closing parenthesis.
+     */
+    static String withLimit(String sql, int limit) {
+        String query = sql.strip();
+        while (query.endsWith(";")) {
+            query = query.substring(0, query.length() - 1).strip();
+        }
+        return "SELECT * FROM (\n" + query + "\n) AS plumchat_guarded LIMIT " + limit;
+    }
+
+    private static List<String> planLines(QueryResult plan) {
+        List<String> lines = new ArrayList<>();
+        for (Map<String, Object> row : plan.getRows()) {
+            for (Object value : row.values()) {
+                if (value != null) {
+                    lines.addAll(value.toString().lines().toList());
+                }
+            }
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,299 @@
+package com.baskettecase.mcpserver.service;
+
+import com.baskettecase.mcpserver.model.ColumnarResult;
+import com.baskettecase.mcpserver.model.CursorPage;
+import com.baskettecase.mcpserver.model.QueryResult;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.security.SecureRandom;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps query cursors open between tool calls so a large result can be paged through with a single
+ * scan instead of re-running the query with different LIMITs.
+ *
+ * <p>Each cursor pins a connection with autocommit off and a fetch size equal to the page size; on
+ * PostgreSQL and Greenplum the driver backs this with a named server-side portal, so only one page
+ * is transferred per round trip. Cursors are addressed by an opaque random token and closed once
+ * they are exhausted, explicitly closed, or idle for longer than the configured TTL. Each page reads
+ * one row ahead, so a cursor whose rows end exactly on a page boundary is reported as exhausted
+ * with that page rather than with an extra empty one.
+ */
+@Service
+public class QueryCursorService {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryCursorService.class);
+    private static final int DEFAULT_PAGE_SIZE = 500;
+
+    private final ConnectionPools connectionPools;
+    private final Duration idleTtl;
+    private final int maxOpenCursors;
+    private final Semaphore openSlots;
+    private final Map<String, QueryCursor> cursors = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final ScheduledExecutorService reaper;
+
+    public QueryCursorService(DataSource dataSource, long idleTtlSeconds, int maxOpenCursors) {
+        this(ConnectionPools.shared(dataSource), idleTtlSeconds, maxOpenCursors);
+    }
+
+    /**
+     * Cursors pin their connection for minutes, so they come from the long-running pool.
+     */
+    @Autowired
+    public QueryCursorService(ConnectionPools connectionPools,
+                              @Value("${plumchat.query.cursor.idle-ttl-seconds:300}") long idleTtlSeconds,
+                              @Value("${plumchat.query.cursor.max-open:4}") int maxOpenCursors) {
+        this.connectionPools = connectionPools;
+        this.idleTtl = Duration.ofSeconds(idleTtlSeconds);
+        this.maxOpenCursors = maxOpenCursors;
+        this.openSlots = new Semaphore(maxOpenCursors);
+        this.reaper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "query-cursor-reaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long sweepSeconds = Math.max(1, Math.min(30, idleTtlSeconds));
+        reaper.scheduleWithFixedDelay(this::closeIdleCursors, sweepSeconds, sweepSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Executes a SELECT query, keeps its cursor open and returns the first page.
+     */
+    public CursorPage openCursor(String sql, Integer pageSize) throws SQLException {
+        if (sql == null || sql.trim().isEmpty()) {
+            throw new IllegalArgumentException("SQL query cannot be null or empty");
+        }
+
+        String trimmedSql = sql.trim();
+        QueryExecutionService.requireSelectQuery(trimmedSql, "Only SELECT queries are allowed for security reasons");
+
+        closeIdleCursors();
+        // Taken before the connection and released when the cursor closes, so the cap holds under concurrent opens
+        if (!openSlots.tryAcquire()) {
+            throw new IllegalStateException("Too many open query cursors (" + maxOpenCursors
+                + "); close an existing cursor or wait for idle cursors to expire");
+        }
+
+        int effectivePageSize = determinePageSize(pageSize);
+        long startTime = System.currentTimeMillis();
+
+        Connection connection;
+        try {
+            connection = connectionPools.dataSource(ConnectionPools.Workload.LONG_RUNNING).getConnection();
+        } catch (SQLException | RuntimeException e) {
+            openSlots.release();
+            throw e;
+        }
+        QueryCursor cursor = null;
+        try {
+            // Read-only, so the database rejects writes the SQL check might have missed
+            connection.setReadOnly(true);
+            connection.setAutoCommit(false);
+            Statement statement = connection.createStatement();
+            statement.setQueryTimeout(connectionPools.settings(ConnectionPools.Workload.LONG_RUNNING).statementTimeoutSeconds());
+            statement.setFetchSize(effectivePageSize);
+
+            logger.info("Opening query cursor with page size {}: {}", effectivePageSize, trimmedSql.substring(0, Math.min(100, trimmedSql.length())));
+            ResultSet resultSet = statement.executeQuery(trimmedSql);
+
+            String token = newToken();
+            cursor = new QueryCursor(token, connection, statement, resultSet,
+                ColumnarResultReader.columnMetadata(resultSet.getMetaData()));
+            cursors.put(token, cursor);
+            return readPage(cursor, effectivePageSize, startTime);
+        } catch (SQLException | RuntimeException e) {
+            if (cursor != null) {
+                closeCursor(cursor.token);
+            } else {
+                closeQuietly(connection);
+                openSlots.release();
+            }
+            long executionTime = System.currentTimeMillis() - startTime;
+            logger.error("Opening query cursor failed after {} ms: {}", executionTime, e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the next page from the cursor identified by {@code token}.
+     */
+    public CursorPage fetchNextPage(String token, Integer pageSize) throws SQLException {
+        QueryCursor cursor = token != null ? cursors.get(token) : null;
+        if (cursor == null) {
+            throw new IllegalArgumentException("Unknown or expired continuation token");
+        }
+        return readPage(cursor, determinePageSize(pageSize), System.currentTimeMillis());
+    }
+
+    /**
+     * Closes the cursor identified by {@code token}.
+     * @return whether an open cursor was found
+     */
+    public boolean closeCursor(String token) {
+        QueryCursor cursor = token != null ? cursors.remove(token) : null;
+        if (cursor == null) {
+            return false;
+        }
+        close(cursor);
+        return true;
+    }
+
+    public int getOpenCursorCount() {
+        return cursors.size();
+    }
+
+    void closeIdleCursors() {
+        long cutoff = System.currentTimeMillis() - idleTtl.toMillis();
+        for (QueryCursor cursor : cursors.values()) {
+            if (cursor.lastAccessMs < cutoff && cursors.remove(cursor.token, cursor)) {
+                logger.info("Closing query cursor idle for more than {} s after {} rows", idleTtl.toSeconds(), cursor.rowsRead);
+                close(cursor);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reaper.shutdownNow();
+        cursors.values().forEach(this::close);
+        cursors.clear();
+    }
+
+    private void close(QueryCursor cursor) {
+        if (cursor.close()) {
+            openSlots.release();
+        }
+    }
+
+    private CursorPage readPage(QueryCursor cursor, int pageSize, long startTime) throws SQLException {
+        cursor.lock.lock();
+        try {
+            if (cursor.closed) {
+                throw new IllegalArgumentException("Unknown or expired continuation token");
+            }
+            cursor.lastAccessMs = System.currentTimeMillis();
+
+            ColumnarResult data;
+            try {
+                data = ColumnarResultReader.read(cursor.resultSet, pageSize, cursor.onUnreadRow);
+                // Step onto the first row of the next page, which is only read with that page
+                cursor.onUnreadRow = data.getRowCount() == pageSize && cursor.resultSet.next();
+            } catch (SQLException e) {
+                closeCursor(cursor.token);
+                throw e;
+            }
+
+            long rowOffset = cursor.rowsRead;
+            cursor.rowsRead += data.getRowCount();
+            cursor.pagesRead++;
+            boolean exhausted = !cursor.onUnreadRow;
+            if (exhausted) {
+                closeCursor(cursor.token);
+            }
+
+            long executionTime = System.currentTimeMillis() - startTime;
+            logger.info("Read page {} of query cursor: {} rows in {} ms{}", cursor.pagesRead, data.getRowCount(), executionTime,
+                exhausted ? " (cursor exhausted)" : "");
+
+            QueryResult result = new QueryResult(data.getColumnNames(), null, data.getRowCount(), executionTime);
+            result.setColumnMetadata(cursor.columnMetadata);
+            result.setData(data);
+            return new CursorPage(exhausted ? null : cursor.token, cursor.pagesRead, rowOffset, result);
+        } finally {
+            cursor.lock.unlock();
+        }
+    }
+
+    private int determinePageSize(Integer pageSize) {
+        if (pageSize == null || pageSize <= 0) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.min(pageSize, QueryExecutionService.ABSOLUTE_MAX_ROWS);
+    }
+
+    private String newToken() {
+        byte[] bytes = new byte[18];
+        random.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.rollback();
+            connection.setReadOnly(false);
+        } catch (SQLException e) {
+            logger.debug("Rollback of cursor connection failed: {}", e.getMessage());
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            logger.debug("Closing cursor connection failed: {}", e.getMessage());
+        }
+    }
+
+    private static final class QueryCursor {
+        private final String token;
+        private final Connection connection;
+        private final Statement statement;
+        private final ResultSet resultSet;
+        private final List<Map<String, Object>> columnMetadata;
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile long lastAccessMs = System.currentTimeMillis();
+        private long rowsRead;
+        private int pagesRead;
+        private boolean onUnreadRow;
+        private boolean closed;
+
+        private QueryCursor(String token, Connection connection, Statement statement, ResultSet resultSet,
+                            List<Map<String, Object>> columnMetadata) {
+            this.token = token;
+            this.connection = connection;
+            this.statement = statement;
+            this.resultSet = resultSet;
+            this.columnMetadata = columnMetadata;
+        }
+
+        /**
+         * @return whether this call closed the cursor, {@code false} if it was already closed
+         */
+        private boolean close() {
+            lock.lock();
+            try {
+                if (closed) {
+                    return false;
+                }
+                closed = true;
+                try {
+                    resultSet.close();
+                    statement.close();
+                } catch (SQLException e) {
+                    logger.debug("Closing query cursor failed: {}", e.getMessage());
+                }
+                closeQuietly(connection);
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -1,91 +1,107 @@
 package com.baskettecase.mcpserver.service;
 
+import com.baskettecase.mcpserver.model.ColumnarResult;
 import com.baskettecase.mcpserver.model.QueryResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import javax.sql.DataSource;
 import java.sql.*;
 import java.util.*;
+import java.util.function.Consumer;
 
 @Service
 public class QueryExecutionService {
 
     private static final Logger logger = LoggerFactory.getLogger(QueryExecutionService.class);
     private static final int DEFAULT_MAX_ROWS = 1000;
-    private static final int ABSOLUTE_MAX_ROWS = 10000;
+    static final int ABSOLUTE_MAX_ROWS = 10000;
 
-    private final DataSource dataSource;
+    private final ConnectionPools connectionPools;
+    private final QueryMetrics queryMetrics;
+    private volatile Boolean jsonPlans;
 
     public QueryExecutionService(DataSource dataSource) {
-        this.dataSource = dataSource;
+        this(dataSource, QueryMetrics.unpublished());
+    }
+
+    public QueryExecutionService(DataSource dataSource, QueryMetrics queryMetrics) {
+        this(ConnectionPools.shared(dataSource), queryMetrics);
+    }
+
+    @Autowired
+    public QueryExecutionService(ConnectionPools connectionPools, QueryMetrics queryMetrics) {
+        this.connectionPools = connectionPools;
+        this.queryMetrics = queryMetrics;
     }
 
     public QueryResult executeQuery(String sql, Integer maxRows) throws SQLException {
+        return executeQuery(sql, maxRows, ConnectionPools.Workload.INTERACTIVE, null);
+    }
+
+    /**
+     * Executes a SELECT query on the pool of {@code workload}, handing the JDBC statement to
+     * {@code statementListener} before it runs so that callers on other threads can
+     * {@link Statement#cancel() cancel} it.
+     */
+    public QueryResult executeQuery(String sql, Integer maxRows, ConnectionPools.Workload workload,
+                                    Consumer<Statement> statementListener) throws SQLException {
         if (sql == null || sql.trim().isEmpty()) {
             throw new IllegalArgumentException("SQL query cannot be null or empty");
         }
 
         String trimmedSql = sql.trim();
-        if (!isSelectQuery(trimmedSql)) {
-            throw new IllegalArgumentException("Only SELECT queries are allowed for security reasons");
-        }
+        SqlAnalyzer.SqlAnalysis query = requireSelectQuery(trimmedSql, "Only SELECT queries are allowed for security reasons");
 
         int effectiveMaxRows = determineMaxRows(maxRows);
         long startTime = System.currentTimeMillis();
-
-        try (Connection connection = dataSource.getConnection();
-             Statement statement = connection.createStatement()) {
-
-            statement.setMaxRows(effectiveMaxRows);
-            
-            logger.info("Executing query with max rows {}: {}", effectiveMaxRows, trimmedSql.substring(0, Math.min(100, trimmedSql.length())));
-
-            try (ResultSet resultSet = statement.executeQuery(trimmedSql)) {
-                ResultSetMetaData metaData = resultSet.getMetaData();
-                int columnCount = metaData.getColumnCount();
-
-                List<String> columnNames = new ArrayList<>();
-                List<Map<String, Object>> columnMetadata = new ArrayList<>();
-                
-                for (int i = 1; i <= columnCount; i++) {
-                    String columnName = metaData.getColumnName(i);
-                    columnNames.add(columnName);
-                    
-                    // Collect column metadata
-                    Map<String, Object> colMeta = new LinkedHashMap<>();
-                    colMeta.put("name", columnName);
-                    colMeta.put("type", metaData.getColumnTypeName(i));
-                    colMeta.put("nullable", metaData.isNullable(i) != ResultSetMetaData.columnNoNulls);
-                    colMeta.put("precision", metaData.getPrecision(i));
-                    colMeta.put("scale", metaData.getScale(i));
-                    
-                    columnMetadata.add(colMeta);
+        long startNanos = System.nanoTime();
+
+        try (Connection connection = connectionPools.dataSource(workload).getConnection()) {
+            long acquiredNanos = System.nanoTime();
+            queryMetrics.recordPhase(query, QueryMetrics.Phase.ACQUIRE, acquiredNanos - startNanos);
+            // The PostgreSQL driver only honours the fetch size inside a transaction;
+            // with autocommit on it buffers the entire result set in memory. The transaction is
+            // read-only, so the database rejects writes the SQL check might have missed.
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setReadOnly(true);
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                statement.setMaxRows(effectiveMaxRows);
+                connectionPools.applyDefaults(statement, workload, effectiveMaxRows);
+                logger.info("Executing query with max rows {}: {}", effectiveMaxRows, trimmedSql.substring(0, Math.min(100, trimmedSql.length())));
+                // Last step before execution; the listener may throw to abort the query
+                if (statementListener != null) {
+                    statementListener.accept(statement);
                 }
 
-                List<Map<String, Object>> rows = new ArrayList<>();
-                int rowCount = 0;
-
-                while (resultSet.next() && rowCount < effectiveMaxRows) {
-                    Map<String, Object> row = new LinkedHashMap<>();
-                    for (int i = 1; i <= columnCount; i++) {
-                        String columnName = metaData.getColumnName(i);
-                        Object value = resultSet.getObject(i);
-                        row.put(columnName, value);
-                    }
-                    rows.add(row);
-                    rowCount++;
+                try (ResultSet resultSet = statement.executeQuery(trimmedSql)) {
+                    long executedNanos = System.nanoTime();
+                    queryMetrics.recordPhase(query, QueryMetrics.Phase.EXECUTE, executedNanos - acquiredNanos);
+                    List<Map<String, Object>> columnMetadata = ColumnarResultReader.columnMetadata(resultSet.getMetaData());
+                    ColumnarResult data = ColumnarResultReader.read(resultSet, effectiveMaxRows);
+                    long fetchedNanos = System.nanoTime();
+                    queryMetrics.recordPhase(query, QueryMetrics.Phase.FETCH, fetchedNanos - executedNanos);
+                    queryMetrics.recordPhase(query, QueryMetrics.Phase.TOTAL, fetchedNanos - startNanos);
+                    queryMetrics.recordRows(query, data.getRowCount());
+
+                    long executionTime = System.currentTimeMillis() - startTime;
+                    logger.info("Query executed successfully. Returned {} rows in {} ms", data.getRowCount(), executionTime);
+
+                    QueryResult queryResult = new QueryResult(data.getColumnNames(), null, data.getRowCount(), executionTime);
+                    queryResult.setColumnMetadata(columnMetadata);
+                    queryResult.setData(data);
+                    return queryResult;
                 }
-
-                long executionTime = System.currentTimeMillis() - startTime;
-                logger.info("Query executed successfully. Returned {} rows in {} ms", rowCount, executionTime);
-
-                QueryResult queryResult = new QueryResult(columnNames, rows, rowCount, executionTime);
-                queryResult.setColumnMetadata(columnMetadata);
-                return queryResult;
+            } finally {
+                connection.rollback();
+                connection.setAutoCommit(autoCommit);
+                connection.setReadOnly(false);
             }
         } catch (SQLException e) {
+            queryMetrics.recordError(query);
             long executionTime = System.currentTimeMillis() - startTime;
             logger.error("Query execution failed after {} ms: {}", executionTime, e.getMessage());
             throw e;
@@ -93,35 +109,77 @@ public class QueryExecutionService {
     }
 
     public QueryResult explainQuery(String sql) throws SQLException {
+        return explainQuery(sql, false, false, 0);
+    }
+
+    /**
+     * Runs EXPLAIN on a SELECT query, one plan line per row, or with {@code json} a single row
+     * holding the {@code FORMAT JSON} plan (see {@link #supportsJsonPlans()}).
+     *
+     * <p>With {@code analyze} the query is actually executed so the plan carries actual rows and
+     * timings. It then runs on the long-running pool, is cancelled after {@code timeoutSeconds}
+     * and is rolled back afterwards.
+     */
+    public QueryResult explainQuery(String sql, boolean analyze, boolean json, int timeoutSeconds) throws SQLException {
+        return explainQuery(sql, analyze, json, timeoutSeconds,
+            analyze ? ConnectionPools.Workload.LONG_RUNNING : ConnectionPools.Workload.METADATA);
+    }
+
+    /**
+     * Runs a plain EXPLAIN on a connection of {@code workload}'s pool, for callers on the path of
+     * a query about to run there, such as the cost guard.
+     */
+    public QueryResult explainQuery(String sql, ConnectionPools.Workload workload) throws SQLException {
+        return explainQuery(sql, false, false, 0, workload);
+    }
+
+    private QueryResult explainQuery(String sql, boolean analyze, boolean json, int timeoutSeconds,
+                                     ConnectionPools.Workload workload) throws SQLException {
         if (sql == null || sql.trim().isEmpty()) {
             throw new IllegalArgumentException("SQL query cannot be null or empty");
         }
 
         String trimmedSql = sql.trim();
-        if (!isSelectQuery(trimmedSql)) {
-            throw new IllegalArgumentException("Only SELECT queries can be explained");
-        }
+        requireSelectQuery(trimmedSql, "Only SELECT queries can be explained");
 
-        String explainSql = "EXPLAIN " + trimmedSql;
+        String explainSql;
+        if (json) {
+            explainSql = (analyze ? "EXPLAIN (FORMAT JSON, ANALYZE) " : "EXPLAIN (FORMAT JSON) ") + trimmedSql;
+        } else {
+            explainSql = (analyze ? "EXPLAIN ANALYZE " : "EXPLAIN ") + trimmedSql;
+        }
         long startTime = System.currentTimeMillis();
 
-        try (Connection connection = dataSource.getConnection();
-             Statement statement = connection.createStatement();
-             ResultSet resultSet = statement.executeQuery(explainSql)) {
+        try (Connection connection = connectionPools.dataSource(workload).getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setReadOnly(true);
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                connectionPools.applyDefaults(statement, workload, Integer.MAX_VALUE);
+                if (analyze) {
+                    statement.setQueryTimeout(timeoutSeconds);
+                }
 
-            List<String> columnNames = Arrays.asList("QUERY PLAN");
-            List<Map<String, Object>> rows = new ArrayList<>();
+                List<String> columnNames = Arrays.asList("QUERY PLAN");
+                List<Map<String, Object>> rows = new ArrayList<>();
 
-            while (resultSet.next()) {
-                Map<String, Object> row = new LinkedHashMap<>();
-                row.put("QUERY PLAN", resultSet.getString(1));
-                rows.add(row);
-            }
+                try (ResultSet resultSet = statement.executeQuery(explainSql)) {
+                    while (resultSet.next()) {
+                        Map<String, Object> row = new LinkedHashMap<>();
+                        row.put("QUERY PLAN", resultSet.getString(1));
+                        rows.add(row);
+                    }
+                }
 
-            long executionTime = System.currentTimeMillis() - startTime;
-            logger.info("Query plan generated in {} ms", executionTime);
+                long executionTime = System.currentTimeMillis() - startTime;
+                logger.info("Query plan generated in {} ms", executionTime);
 
-            return new QueryResult(columnNames, rows, rows.size(), executionTime);
+                return new QueryResult(columnNames, rows, rows.size(), executionTime);
+            } finally {
+                connection.rollback();
+                connection.setAutoCommit(autoCommit);
+                connection.setReadOnly(false);
+            }
         } catch (SQLException e) {
             long executionTime = System.currentTimeMillis() - startTime;
             logger.error("Query explain failed after {} ms: {}", executionTime, e.getMessage());
@@ -129,12 +187,38 @@ public class QueryExecutionService {
         }
     }
 
-    private boolean isSelectQuery(String sql) {
-        String upperCaseSql = sql.toUpperCase().trim();
-        return upperCaseSql.startsWith("SELECT") || upperCaseSql.startsWith("WITH");
+    /**
+     * @return whether the database accepts {@code EXPLAIN (FORMAT JSON)}: PostgreSQL and
+     *         Greenplum, which reports itself as PostgreSQL
+     */
+    public boolean supportsJsonPlans() throws SQLException {
+        Boolean supported = jsonPlans;
+        if (supported == null) {
+            try (Connection connection = connectionPools.dataSource(ConnectionPools.Workload.METADATA).getConnection()) {
+                String product = connection.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT);
+                supported = product.contains("postgres") || product.contains("greenplum");
+            }
+            jsonPlans = supported;
+        }
+        return supported;
+    }
+
+    static boolean isSelectQuery(String sql) {
+        return SqlAnalyzer.analyze(sql).readOnly();
+    }
+
+    /**
+     * @throws IllegalArgumentException naming the reason if {@code sql} is not a single read-only query
+     */
+    static SqlAnalyzer.SqlAnalysis requireSelectQuery(String sql, String message) {
+        SqlAnalyzer.SqlAnalysis analysis = SqlAnalyzer.analyze(sql);
+        if (!analysis.readOnly()) {
+            throw new IllegalArgumentException(message + ": " + analysis.rejectionReason());
+        }
+        return analysis;
     }
 
-    private int determineMaxRows(Integer maxRows) {
+    static int determineMaxRows(Integer maxRows) {
         if (maxRows == null) {
             return DEFAULT_MAX_ROWS;
         }
@@ -0,0 +1,349 @@
+package com.baskettecase.mcpserver.service;
+
+import com.baskettecase.mcpserver.model.QueryJobStatus;
+import com.baskettecase.mcpserver.model.QueryJobStatus.State;
+import com.baskettecase.mcpserver.model.QueryResult;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs queries in the background so long Greenplum scans do not hold an MCP request open.
+ *
+ * <p>Jobs run on a bounded executor, at most {@code plumchat.query.jobs.max-active} jobs may be queued
+ * or running at once, and completed results are kept in memory within a byte budget. The limit is
+ * global: the MCP tools carry no caller identity the server could trust, so a per-user limit keyed
+ * on a tool argument would be trivially bypassed. When the budget is exceeded
+ * the results of the oldest finished jobs are evicted first; finished jobs are forgotten entirely
+ * after the retention period.
+ */
+@Service
+public class QueryJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryJobService.class);
+
+    private final QueryExecutionService queryExecutionService;
+    private final int maxActiveJobs;
+    private final Semaphore activeSlots;
+    private final long resultBudgetBytes;
+    private final long retentionMs;
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService janitor;
+    private final Map<String, QueryJob> jobs = new ConcurrentHashMap<>();
+    private long retainedResultBytes;
+
+    public QueryJobService(QueryExecutionService queryExecutionService,
+                           @Value("${plumchat.query.jobs.max-concurrent:4}") int maxConcurrentJobs,
+                           @Value("${plumchat.query.jobs.queue-capacity:32}") int queueCapacity,
+                           @Value("${plumchat.query.jobs.max-active:8}") int maxActiveJobs,
+                           @Value("${plumchat.query.jobs.result-budget-bytes:268435456}") long resultBudgetBytes,
+                           @Value("${plumchat.query.jobs.retention-seconds:1800}") long retentionSeconds) {
+        this.queryExecutionService = queryExecutionService;
+        this.maxActiveJobs = maxActiveJobs;
+        this.activeSlots = new Semaphore(maxActiveJobs);
+        this.resultBudgetBytes = resultBudgetBytes;
+        this.retentionMs = TimeUnit.SECONDS.toMillis(retentionSeconds);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(maxConcurrentJobs, maxConcurrentJobs, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                Thread thread = new Thread(runnable, "query-job-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        this.janitor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "query-job-janitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        janitor.scheduleWithFixedDelay(this::purgeExpiredJobs, 60, 60, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Queues a SELECT query for background execution.
+     * @return the status of the new job
+     * @throws IllegalStateException if too many jobs are already active or the queue is full
+     */
+    public QueryJobStatus submit(String sql, Integer maxRows) {
+        if (sql == null || sql.trim().isEmpty()) {
+            throw new IllegalArgumentException("SQL query cannot be null or empty");
+        }
+        String trimmedSql = sql.trim();
+        QueryExecutionService.requireSelectQuery(trimmedSql, "Only SELECT queries are allowed for security reasons");
+
+        if (!activeSlots.tryAcquire()) {
+            throw new IllegalStateException(maxActiveJobs + " query jobs are already queued or running (the limit); "
+                + "wait for one to finish or cancel one");
+        }
+        QueryJob job = new QueryJob(UUID.randomUUID().toString(), trimmedSql, maxRows);
+
+        jobs.put(job.id, job);
+        try {
+            executor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            releaseSlot(job);
+            throw new IllegalStateException("The query job queue is full; try again shortly");
+        }
+
+        logger.info("Submitted query job {}", job.id);
+        return job.status();
+    }
+
+    public QueryJobStatus getStatus(String jobId) {
+        return requireJob(jobId).status();
+    }
+
+    /**
+     * Returns the result of a succeeded job.
+     * @throws IllegalStateException if the job has not succeeded or its result was evicted
+     */
+    public QueryResult getResult(String jobId) {
+        QueryJob job = requireJob(jobId);
+        synchronized (job) {
+            if (job.state != State.SUCCEEDED) {
+                throw new IllegalStateException("Query job " + jobId + " is " + job.state
+                    + (job.error != null ? ": " + job.error : ""));
+            }
+            return job.result;
+        }
+    }
+
+    /**
+     * Cancels a queued or running job. Running jobs are cancelled through {@link Statement#cancel()}.
+     * @return the status after the cancellation request
+     */
+    public QueryJobStatus cancel(String jobId) {
+        QueryJob job = requireJob(jobId);
+        Statement statement;
+        synchronized (job) {
+            if (job.state.isFinished()) {
+                return job.status();
+            }
+            job.cancelRequested = true;
+            if (job.state == State.QUEUED) {
+                job.finish(State.CANCELLED, null, null);
+                releaseSlot(job);
+                logger.info("Cancelled queued query job {}", jobId);
+                return job.status();
+            }
+            statement = job.statement;
+        }
+
+        if (statement != null) {
+            try {
+                statement.cancel();
+                logger.info("Sent cancel to running query job {}", jobId);
+            } catch (SQLException e) {
+                logger.warn("Failed to cancel statement for query job {}: {}", jobId, e.getMessage());
+            }
+        }
+        return job.status();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        janitor.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    void purgeExpiredJobs() {
+        long cutoff = System.currentTimeMillis() - retentionMs;
+        // Lock order is always the jobs monitor before an individual job
+        synchronized (jobs) {
+            for (QueryJob job : jobs.values()) {
+                synchronized (job) {
+                    if (job.state.isFinished() && job.finishedAt != null && job.finishedAt < cutoff) {
+                        jobs.remove(job.id);
+                        if (job.result != null) {
+                            retainedResultBytes -= job.resultBytes;
+                            job.result = null;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    long getRetainedResultBytes() {
+        synchronized (jobs) {
+            return retainedResultBytes;
+        }
+    }
+
+    private void run(QueryJob job) {
+        synchronized (job) {
+            if (job.state != State.QUEUED) {
+                return;
+            }
+            job.state = State.RUNNING;
+            job.startedAt = System.currentTimeMillis();
+        }
+
+        try {
+            QueryResult result = queryExecutionService.executeQuery(job.sql, job.maxRows,
+                ConnectionPools.Workload.LONG_RUNNING, job::attachStatement);
+            storeResult(job, result);
+        } catch (SQLException e) {
+            synchronized (job) {
+                if (job.cancelRequested) {
+                    job.finish(State.CANCELLED, null, null);
+                    logger.info("Query job {} cancelled", job.id);
+                } else {
+                    job.finish(State.FAILED, null, "SQL Error: " + e.getMessage());
+                    logger.warn("Query job {} failed: {}", job.id, e.getMessage());
+                }
+            }
+        } catch (CancellationException e) {
+            synchronized (job) {
+                job.finish(State.CANCELLED, null, null);
+            }
+            logger.info("Query job {} cancelled before execution", job.id);
+        } catch (RuntimeException e) {
+            synchronized (job) {
+                job.finish(State.FAILED, null, e.getMessage());
+            }
+            logger.error("Query job {} failed unexpectedly", job.id, e);
+        } finally {
+            releaseSlot(job);
+        }
+    }
+
+    private void storeResult(QueryJob job, QueryResult result) {
+        long bytes = result.getData() != null ? result.getData().estimatedSizeBytes() : 0L;
+        if (bytes > resultBudgetBytes) {
+            synchronized (job) {
+                job.finish(State.FAILED, null, "Result of ~" + bytes / (1024 * 1024) + " MB exceeds the "
+                    + resultBudgetBytes / (1024 * 1024) + " MB result budget; lower maxRows or use executeQueryPaged");
+            }
+            return;
+        }
+
+        synchronized (jobs) {
+            evictResultsFor(bytes);
+            synchronized (job) {
+                if (job.cancelRequested) {
+                    job.finish(State.CANCELLED, null, null);
+                    return;
+                }
+                job.resultBytes = bytes;
+                job.finish(State.SUCCEEDED, result, null);
+            }
+            retainedResultBytes += bytes;
+        }
+        logger.info("Query job {} succeeded with {} rows (~{} KB retained)", job.id, result.getRowCount(), bytes / 1024);
+    }
+
+    /**
+     * Evicts results of the oldest finished jobs until {@code incomingBytes} fits in the budget.
+     * Caller must hold the {@code jobs} monitor.
+     */
+    private void evictResultsFor(long incomingBytes) {
+        if (retainedResultBytes + incomingBytes <= resultBudgetBytes) {
+            return;
+        }
+        var candidates = jobs.values().stream()
+            .filter(job -> job.result != null)
+            .sorted(Comparator.comparingLong(job -> job.finishedAt))
+            .toList();
+        for (QueryJob candidate : candidates) {
+            if (retainedResultBytes + incomingBytes <= resultBudgetBytes) {
+                break;
+            }
+            synchronized (candidate) {
+                if (candidate.result != null) {
+                    retainedResultBytes -= candidate.resultBytes;
+                    candidate.result = null;
+                    candidate.state = State.EXPIRED;
+                    candidate.error = "Result evicted to stay within the memory budget; submit the query again";
+                    logger.info("Evicted result of query job {} (~{} KB)", candidate.id, candidate.resultBytes / 1024);
+                }
+            }
+        }
+    }
+
+    private void releaseSlot(QueryJob job) {
+        if (job.slotReleased.compareAndSet(false, true)) {
+            activeSlots.release();
+        }
+    }
+
+    private QueryJob requireJob(String jobId) {
+        QueryJob job = jobId != null ? jobs.get(jobId.trim()) : null;
+        if (job == null) {
+            throw new IllegalArgumentException("Unknown query job: " + jobId);
+        }
+        return job;
+    }
+
+    private static final class QueryJob {
+        private final String id;
+        private final String sql;
+        private final Integer maxRows;
+        private final long submittedAt = System.currentTimeMillis();
+        private final AtomicBoolean slotReleased = new AtomicBoolean();
+        private State state = State.QUEUED;
+        private Long startedAt;
+        private Long finishedAt;
+        private Statement statement;
+        private boolean cancelRequested;
+        private QueryResult result;
+        private long resultBytes;
+        private String error;
+
+        private QueryJob(String id, String sql, Integer maxRows) {
+            this.id = id;
+            this.sql = sql;
+            this.maxRows = maxRows;
+        }
+
+        /**
+         * Called before the statement executes. A cancel requested by then would be a no-op on the
+         * JDBC side, so the execution is aborted here instead of running to completion.
+         */
+        private void attachStatement(Statement statement) {
+            synchronized (this) {
+                if (cancelRequested) {
+                    throw new CancellationException("Query job " + id + " was cancelled before it started executing");
+                }
+                this.statement = statement;
+            }
+        }
+
+        private void finish(State finalState, QueryResult finalResult, String finalError) {
+            state = finalState;
+            result = finalResult;
+            error = finalError;
+            statement = null;
+            finishedAt = System.currentTimeMillis();
+        }
+
+        private synchronized QueryJobStatus status() {
+            long end = finishedAt != null ? finishedAt : System.currentTimeMillis();
+            long elapsed = startedAt != null ? end - startedAt : 0L;
+            return new QueryJobStatus(id, state, submittedAt, startedAt, finishedAt, elapsed,
+                result != null ? result.getRowCount() : null,
+                result != null ? resultBytes : null,
+                error);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.baskettecase.mcpserver.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Records query latency per phase and per query shape.
+ *
+ * <p>Each phase (connection acquire, execute, fetch, serialize) and the total are Micrometer timers
+ * with percentile histograms, tagged by the phase and the {@link SqlAnalyzer} fingerprint id, so
+ * Prometheus can aggregate p50/p99 per query shape. Rows fetched and bytes serialized are
+ * distribution summaries with the same tag. To bound tag cardinality only the first
+ * {@code max-fingerprints} query shapes get their own tag; later ones are tagged {@code other}.
+ *
+ * <p>The same measurements are aggregated per fingerprint in memory for the {@code getQueryStats}
+ * tool, where shapes beyond the limit are likewise folded into a single {@code other} entry, so
+ * memory stays bounded however many distinct queries arrive.
+ */
+@Service
+public class QueryMetrics {
+
+    public enum Phase {
+        ACQUIRE, EXECUTE, FETCH, SERIALIZE, TOTAL;
+
+        String tag() {
+            return name().toLowerCase();
+        }
+    }
+
+    private static final String OTHER_FINGERPRINT = "other";
+
+    private final MeterRegistry meterRegistry;
+    private final int maxFingerprints;
+    private final Map<String, FingerprintStats> stats = new ConcurrentHashMap<>();
+
+    public QueryMetrics(MeterRegistry meterRegistry,
+                        @Value("${plumchat.query.metrics.max-fingerprints:100}") int maxFingerprints) {
+        this.meterRegistry = meterRegistry;
+        this.maxFingerprints = maxFingerprints;
+    }
+
+    /**
+     * Metrics that are recorded but not published anywhere, for services created outside Spring.
+     */
+    public static QueryMetrics unpublished() {
+        return new QueryMetrics(new SimpleMeterRegistry(), 100);
+    }
+
+    public void recordPhase(SqlAnalyzer.SqlAnalysis query, Phase phase, long nanos) {
+        FingerprintStats fingerprintStats = statsFor(query);
+        fingerprintStats.timer(phase).record(nanos, TimeUnit.NANOSECONDS);
+        if (phase == Phase.TOTAL) {
+            fingerprintStats.count.increment();
+            fingerprintStats.totalNanos.add(nanos);
+            fingerprintStats.maxNanos.accumulate(nanos);
+        }
+    }
+
+    public void recordRows(SqlAnalyzer.SqlAnalysis query, long rows) {
+        FingerprintStats fingerprintStats = statsFor(query);
+        fingerprintStats.rows.add(rows);
+        fingerprintStats.rowsSummary.record(rows);
+    }
+
+    public void recordSerializedBytes(SqlAnalyzer.SqlAnalysis query, long bytes) {
+        statsFor(query).bytesSummary.record(bytes);
+    }
+
+    public void recordError(SqlAnalyzer.SqlAnalysis query) {
+        statsFor(query).errors.increment();
+    }
+
+    /**
+     * @return the {@code limit} query shapes with the highest mean latency and the {@code limit}
+     * most frequently executed ones
+     */
+    public Map<String, Object> getTopStats(int limit) {
+        List<FingerprintStats> executed = stats.values().stream()
+            .filter(s -> s.count.sum() > 0 || s.errors.sum() > 0)
+            .toList();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("queryShapes", executed.size());
+        result.put("slowest", executed.stream()
+            .sorted(Comparator.comparingDouble(FingerprintStats::meanMs).reversed())
+            .limit(limit)
+            .map(FingerprintStats::toMap)
+            .toList());
+        result.put("mostFrequent", executed.stream()
+            .sorted(Comparator.comparingLong((FingerprintStats s) -> s.count.sum() + s.errors.sum()).reversed())
+            .limit(limit)
+            .map(FingerprintStats::toMap)
+            .toList());
+        return result;
+    }
+
+    private FingerprintStats statsFor(SqlAnalyzer.SqlAnalysis query) {
+        FingerprintStats existing = stats.get(query.fingerprintId());
+        if (existing != null) {
+            return existing;
+        }
+        // Racy by a few entries at most, which is fine for a cardinality limit
+        if (stats.size() < maxFingerprints) {
+            return stats.computeIfAbsent(query.fingerprintId(), id -> new FingerprintStats(id, query.fingerprint()));
+        }
+        return stats.computeIfAbsent(OTHER_FINGERPRINT, id -> new FingerprintStats(id,
+            "(query shapes beyond the first " + maxFingerprints + ")"));
+    }
+
+    private final class FingerprintStats {
+
+        private final String fingerprintId;
+        private final String fingerprint;
+        private final Map<Phase, Timer> timers = new ConcurrentHashMap<>();
+        private final DistributionSummary rowsSummary;
+        private final DistributionSummary bytesSummary;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder rows = new LongAdder();
+
+        private FingerprintStats(String fingerprintId, String fingerprint) {
+            this.fingerprintId = fingerprintId;
+            this.fingerprint = fingerprint;
+            this.rowsSummary = DistributionSummary.builder("plumchat.query.rows")
+                .description("Rows fetched per query")
+                .tag("fingerprint", fingerprintId)
+                .register(meterRegistry);
+            this.bytesSummary = DistributionSummary.builder("plumchat.query.serialized")
+                .description("Bytes of JSON serialized per query result")
+                .baseUnit("bytes")
+                .tag("fingerprint", fingerprintId)
+                .register(meterRegistry);
+        }
+
+        private Timer timer(Phase phase) {
+            return timers.computeIfAbsent(phase, p -> Timer.builder("plumchat.query.latency")
+                .description("Query latency by phase")
+                .tag("phase", p.tag())
+                .tag("fingerprint", fingerprintId)
+                .publishPercentileHistogram()
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry));
+        }
+
+        private double meanMs() {
+            long executions = count.sum();
+            return executions == 0 ? 0 : totalNanos.sum() / 1_000_000.0 / executions;
+        }
+
+        private Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            long executions = count.sum();
+            map.put("fingerprintId", fingerprintId);
+            map.put("fingerprint", fingerprint.length() > 500 ? fingerprint.substring(0, 500) + "…" : fingerprint);
+            map.put("executions", executions);
+            map.put("errors", errors.sum());
+            map.put("meanMs", round(meanMs()));
+            map.put("maxMs", round(maxNanos.get() / 1_000_000.0));
+            Map<String, Object> phases = new LinkedHashMap<>();
+            for (Map.Entry<Phase, Timer> entry : timers.entrySet()) {
+                Map<String, Object> phase = new LinkedHashMap<>();
+                for (ValueAtPercentile percentile : entry.getValue().takeSnapshot().percentileValues()) {
+                    phase.put("p" + Math.round(percentile.percentile() * 100) + "Ms",
+                        round(percentile.value(TimeUnit.MILLISECONDS)));
+                }
+                phases.put(entry.getKey().tag(), phase);
+            }
+            map.put("phases", phases);
+            long totalRows = rows.sum();
+            map.put("rows", totalRows);
+            map.put("rowsPerSecond", totalNanos.sum() == 0 ? 0 : Math.round(totalRows / (totalNanos.sum() / 1e9)));
+            map.put("avgSerializedBytes", Math.round(bytesSummary.mean()));
+            return map;
+        }
+
+        private static double round(double value) {
+            return Math.round(value * 100) / 100.0;
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package com.baskettecase.mcpserver.service;
+
+import com.baskettecase.mcpserver.model.PlanNode;
+import com.baskettecase.mcpserver.model.QueryResult;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Explains queries as a typed plan tree and points out where the time goes.
+ *
+ * <p>On PostgreSQL and Greenplum the plan is read with {@code EXPLAIN (FORMAT JSON)} into
+ * {@link PlanNode}s, Motion nodes and slices included, and summarized: the nodes with the highest
+ * cost of their own, broadcast motions, and with ANALYZE the nodes whose row estimate is off by
+ * {@code plumchat.query.explain.misestimate-factor} or more and the nodes whose busiest segment or
+ * worker handled {@code plumchat.query.explain.skew-ratio} times the average rows. ANALYZE executes
+ * the query, so it is cancelled after {@code plumchat.query.explain.analyze-timeout-seconds}.
+ *
+ * <p>Other databases have no JSON plans; their plan text is returned as it is.
+ */
+@Service
+public class QueryPlanService {
+
+    private static final int MAX_OUTLINE_NODES = 60;
+
+    // Greenplum's per-node executor statistics, e.g. "Avg 250.0 rows x 4 workers.  Max 610 rows (seg2)"
+    private static final Pattern SEGMENT_ROWS = Pattern.compile(
+        "Avg (\\d+(?:\\.\\d+)?) rows x \\d+ workers\\.?\\s+Max (\\d+(?:\\.\\d+)?) rows");
+
+    /**
+     * @param plan     the raw EXPLAIN output
+     * @param analysis the plan summary, or {@code null} when the database has no JSON plans
+     */
+    public record ExplainedPlan(QueryResult plan, Map<String, Object> analysis) {
+    }
+
+    /**
+     * A parsed plan with the timings reported next to it by ANALYZE.
+     */
+    record PlanTree(PlanNode root, Double planningTimeMs, Double executionTimeMs) {
+    }
+
+    private final QueryExecutionService queryExecutionService;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final int analyzeTimeoutSeconds;
+    private final int topNodes;
+    private final double misestimateFactor;
+    private final double skewRatio;
+
+    @Autowired
+    public QueryPlanService(QueryExecutionService queryExecutionService,
+                            @Value("${plumchat.query.explain.analyze-timeout-seconds:60}") int analyzeTimeoutSeconds,
+                            @Value("${plumchat.query.explain.top-nodes:5}") int topNodes,
+                            @Value("${plumchat.query.explain.misestimate-factor:10}") double misestimateFactor,
+                            @Value("${plumchat.query.explain.skew-ratio:2}") double skewRatio) {
+        this.queryExecutionService = queryExecutionService;
+        this.analyzeTimeoutSeconds = analyzeTimeoutSeconds;
+        this.topNodes = topNodes;
+        this.misestimateFactor = misestimateFactor;
+        this.skewRatio = skewRatio;
+    }
+
+    /**
+     * @param analyze whether to execute the query for actual rows and timings
+     */
+    public ExplainedPlan explain(String sql, boolean analyze) throws SQLException {
+        if (!queryExecutionService.supportsJsonPlans()) {
+            return new ExplainedPlan(queryExecutionService.explainQuery(sql, analyze, false, analyzeTimeoutSeconds), null);
+        }
+        QueryResult plan = queryExecutionService.explainQuery(sql, analyze, true, analyzeTimeoutSeconds);
+        StringBuilder json = new StringBuilder();
+        for (Map<String, Object> row : plan.getRows()) {
+            json.append(row.get("QUERY PLAN"));
+        }
+        return new ExplainedPlan(plan, analyze(parse(json.toString()), analyze, plan.getExecutionTimeMs()));
+    }
+
+    /**
+     * Reads the output of {@code EXPLAIN (FORMAT JSON)}.
+     * @throws IllegalStateException if {@code json} is not a JSON plan
+     */
+    PlanTree parse(String json) {
+        JsonNode document;
+        try {
+            document = objectMapper.readTree(json);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable JSON plan: " + e.getOriginalMessage(), e);
+        }
+        JsonNode top = document.isArray() ? document.path(0) : document;
+        if (!top.has("Plan")) {
+            throw new IllegalStateException("JSON plan has no Plan node");
+        }
+        PlanNode root = parseNode(top.get("Plan"), new int[1], null);
+        return new PlanTree(root, optionalDouble(top, "Planning Time"), optionalDouble(top, "Execution Time"));
+    }
+
+    private static PlanNode parseNode(JsonNode node, int[] nextId, Integer parentSlice) {
+        int id = nextId[0]++;
+        String nodeType = node.path("Node Type").asText("Unknown");
+        if (nodeType.equals("Motion") && node.has("Motion Type")) {
+            nodeType = node.get("Motion Type").asText() + " Motion";
+        }
+        Integer slice = node.has("Slice") ? Integer.valueOf(node.get("Slice").asInt()) : parentSlice;
+
+        List<PlanNode> children = new ArrayList<>();
+        for (JsonNode child : node.path("Plans")) {
+            children.add(parseNode(child, nextId, slice));
+        }
+
+        Double maxSegmentRows = null;
+        Double avgSegmentRows = null;
+        JsonNode workers = node.path("Workers");
+        if (workers.isArray() && !workers.isEmpty()) {
+            double max = 0;
+            double sum = 0;
+            for (JsonNode worker : workers) {
+                double rows = worker.path("Actual Rows").asDouble() * worker.path("Actual Loops").asDouble(1);
+                max = Math.max(max, rows);
+                sum += rows;
+            }
+            maxSegmentRows = max;
+            avgSegmentRows = sum / workers.size();
+        } else {
+            for (Map.Entry<String, JsonNode> field : node.properties()) {
+                if (!field.getValue().isTextual()) {
+                    continue;
+                }
+                Matcher matcher = SEGMENT_ROWS.matcher(field.getValue().textValue());
+                if (matcher.find()) {
+                    avgSegmentRows = Double.parseDouble(matcher.group(1));
+                    maxSegmentRows = Double.parseDouble(matcher.group(2));
+                    break;
+                }
+            }
+        }
+
+        return new PlanNode(id, nodeType, node.path("Relation Name").textValue(), slice,
+            optionalInt(node, "Senders"), optionalInt(node, "Receivers"),
+            node.path("Startup Cost").asDouble(), node.path("Total Cost").asDouble(), node.path("Plan Rows").asLong(),
+            optionalDouble(node, "Actual Rows"), node.has("Actual Loops") ? node.get("Actual Loops").asLong() : null,
+            optionalDouble(node, "Actual Total Time"), maxSegmentRows, avgSegmentRows, children);
+    }
+
+    Map<String, Object> analyze(PlanTree tree, boolean analyzed, long explainTimeMs) {
+        PlanNode root = tree.root();
+        List<PlanNode> nodes = new ArrayList<>();
+        List<String> outline = new ArrayList<>();
+        walk(root, 0, nodes, outline);
+
+        Map<String, Object> analysis = new LinkedHashMap<>();
+        analysis.put("type", "query_plan");
+        analysis.put("analyzed", analyzed);
+        analysis.put("explainTimeMs", explainTimeMs);
+        if (tree.planningTimeMs() != null) {
+            analysis.put("planningTimeMs", tree.planningTimeMs());
+        }
+        if (tree.executionTimeMs() != null) {
+            analysis.put("executionTimeMs", tree.executionTimeMs());
+        }
+        analysis.put("totalCost", root.totalCost());
+        analysis.put("planRows", root.planRows());
+        analysis.put("nodeCount", nodes.size());
+
+        Map<String, Integer> motions = new TreeMap<>();
+        for (PlanNode node : nodes) {
+            if (node.isMotion()) {
+                motions.merge(node.nodeType(), 1, Integer::sum);
+            }
+        }
+        if (!motions.isEmpty()) {
+            // Every motion starts a slice below the top slice
+            analysis.put("slices", motions.values().stream().mapToInt(Integer::intValue).sum() + 1);
+            analysis.put("motions", motions);
+        }
+
+        analysis.put("topCostNodes", nodes.stream()
+            .sorted(Comparator.comparingDouble(PlanNode::selfCost).reversed())
+            .limit(topNodes)
+            .map(node -> {
+                Map<String, Object> summary = describe(node);
+                summary.put("selfCost", round(node.selfCost()));
+                summary.put("costShare", root.totalCost() > 0 ? round(node.selfCost() / root.totalCost()) : 0);
+                return summary;
+            })
+            .toList());
+
+        if (analyzed) {
+            analysis.put("topTimeNodes", nodes.stream()
+                .filter(node -> node.selfTimeMs() != null)
+                .sorted(Comparator.comparingDouble(PlanNode::selfTimeMs).reversed())
+                .limit(topNodes)
+                .map(node -> {
+                    Map<String, Object> summary = describe(node);
+                    summary.put("selfTimeMs", round(node.selfTimeMs()));
+                    return summary;
+                })
+                .toList());
+            analysis.put("misestimates", misestimates(nodes));
+        }
+
+        List<Map<String, Object>> broadcasts = new ArrayList<>();
+        for (PlanNode node : nodes) {
+            if (node.nodeType().startsWith("Broadcast")) {
+                Map<String, Object> summary = describe(node);
+                summary.put("senders", node.senders());
+                summary.put("receivers", node.receivers());
+                broadcasts.add(summary);
+            }
+        }
+        analysis.put("broadcastMotions", broadcasts);
+
+        List<Map<String, Object>> skewed = new ArrayList<>();
+        for (PlanNode node : nodes) {
+            if (node.avgSegmentRows() != null && node.avgSegmentRows() > 0
+                && node.maxSegmentRows() / node.avgSegmentRows() >= skewRatio) {
+                Map<String, Object> summary = describe(node);
+                summary.put("maxSegmentRows", node.maxSegmentRows());
+                summary.put("avgSegmentRows", node.avgSegmentRows());
+                summary.put("skewRatio", round(node.maxSegmentRows() / node.avgSegmentRows()));
+                skewed.add(summary);
+            }
+        }
+        analysis.put("skew", skewed);
+
+        if (!analyzed) {
+            analysis.put("note", "Estimates only. Explain with analyze=true to compare estimates with actual rows "
+                + "and find skew; the query is then executed, for at most " + analyzeTimeoutSeconds + " seconds.");
+        }
+        if (nodes.size() > MAX_OUTLINE_NODES) {
+            outline.add("... " + (nodes.size() - MAX_OUTLINE_NODES) + " more nodes");
+        }
+        analysis.put("plan", outline);
+        return analysis;
+    }
+
+    private List<Map<String, Object>> misestimates(List<PlanNode> nodes) {
+        List<Map<String, Object>> misestimates = new ArrayList<>();
+        for (PlanNode node : nodes) {
+            if (node.actualRows() == null || node.actualLoops() == null || node.actualLoops() == 0) {
+                // Never executed, so there is nothing to compare
+                continue;
+            }
+            double estimated = Math.max(node.planRows(), 1);
+            double actual = Math.max(node.actualRows(), 1);
+            double factor = Math.max(estimated, actual) / Math.min(estimated, actual);
+            if (factor >= misestimateFactor) {
+                Map<String, Object> summary = describe(node);
+                summary.put("actualRows", node.actualRows());
+                summary.put("factor", round(factor));
+                summary.put("direction", actual > estimated ? "underestimated" : "overestimated");
+                misestimates.add(summary);
+            }
+        }
+        misestimates.sort(Comparator.comparingDouble((Map<String, Object> summary) -> (Double) summary.get("factor")).reversed());
+        return misestimates.size() > topNodes ? misestimates.subList(0, topNodes) : misestimates;
+    }
+
+    private static void walk(PlanNode node, int depth, List<PlanNode> nodes, List<String> outline) {
+        nodes.add(node);
+        if (outline.size() < MAX_OUTLINE_NODES) {
+            StringBuilder line = new StringBuilder("  ".repeat(depth)).append('#').append(node.id()).append(' ')
+                .append(node.nodeType());
+            if (node.relation() != null) {
+                line.append(" on ").append(node.relation());
+            }
+            if (node.slice() != null) {
+                line.append(" [slice").append(node.slice()).append(']');
+            }
+            line.append(" cost=").append(round(node.startupCost())).append("..").append(round(node.totalCost()))
+                .append(" rows=").append(node.planRows());
+            if (node.actualRows() != null) {
+                line.append(" actual rows=").append(round(node.actualRows())).append(" loops=").append(node.actualLoops());
+                if (node.actualTotalTimeMs() != null) {
+                    line.append(" time=").append(round(node.actualTotalTimeMs())).append("ms");
+                }
+            }
+            outline.add(line.toString());
+        }
+        for (PlanNode child : node.children()) {
+            walk(child, depth + 1, nodes, outline);
+        }
+    }
+
+    private static Map<String, Object> describe(PlanNode node) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("id", node.id());
+        summary.put("nodeType", node.nodeType());
+        if (node.relation() != null) {
+            summary.put("relation", node.relation());
+        }
+        if (node.slice() != null) {
+            summary.put("slice", node.slice());
+        }
+        summary.put("totalCost", round(node.totalCost()));
+        summary.put("planRows", node.planRows());
+        return summary;
+    }
+
+    private static Double optionalDouble(JsonNode node, String field) {
+        return node.hasNonNull(field) ? node.get(field).asDouble() : null;
+    }
+
+    private static Integer optionalInt(JsonNode node, String field) {
+        return node.hasNonNull(field) ? node.get(field).asInt() : null;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+}
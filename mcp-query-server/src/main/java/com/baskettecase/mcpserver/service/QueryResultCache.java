@@ -0,0 +1,198 @@
+package com.baskettecase.mcpserver.service;
+
+import com.baskettecase.mcpserver.model.QueryResult;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Caches query results keyed on normalized SQL text plus the effective row limit, so the same
+ * query repeated within a conversation is answered from memory instead of hitting Greenplum again.
+ *
+ * <p>Backed by Caffeine, whose W-TinyLFU admission keeps frequently repeated queries in preference
+ * to one-off scans. The cache is bounded by the estimated size of the cached column data and every
+ * entry expires after the configured TTL. Queries that call volatile functions such as
+ * {@code now()} or {@code random()} are never cached.
+ *
+ * <p>Identical queries that arrive while one is still running are coalesced through a
+ * {@link SingleFlight} on the same key: they wait for the running execution and share its result,
+ * so a burst of the same dashboard query runs once on the warehouse. Coalescing applies with the
+ * cache disabled too, and can be turned off with {@code plumchat.query.coalesce.enabled}.
+ */
+@Service
+public class QueryResultCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryResultCache.class);
+
+    private static final Pattern VOLATILE_FUNCTIONS = Pattern.compile(
+        "\\b(random|now|clock_timestamp|statement_timestamp|timeofday|current_timestamp|current_date|current_time"
+            + "|localtimestamp|localtime|nextval|currval|txid_current|gen_random_uuid|uuid_generate_v4)\\b",
+        Pattern.CASE_INSENSITIVE);
+
+    private final boolean enabled;
+    private final boolean coalesce;
+    private final Cache<CacheKey, QueryResult> cache;
+    private final SingleFlight<CacheKey, QueryResult> inFlight = new SingleFlight<>();
+
+    public QueryResultCache(boolean enabled, long maxBytes, long ttlSeconds) {
+        this(enabled, maxBytes, ttlSeconds, true);
+    }
+
+    @Autowired
+    public QueryResultCache(@Value("${plumchat.query.cache.enabled:true}") boolean enabled,
+                            @Value("${plumchat.query.cache.max-bytes:67108864}") long maxBytes,
+                            @Value("${plumchat.query.cache.ttl-seconds:300}") long ttlSeconds,
+                            @Value("${plumchat.query.coalesce.enabled:true}") boolean coalesce) {
+        this.enabled = enabled;
+        this.coalesce = coalesce;
+        this.cache = Caffeine.newBuilder()
+            .maximumWeight(maxBytes)
+            .weigher((CacheKey key, QueryResult result) -> weigh(key, result))
+            .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+            .recordStats()
+            .build();
+    }
+
+    /**
+     * Loads a query result, answering from the cache when an identical query was run recently.
+     */
+    public CachedResult getOrLoad(String sql, Integer maxRows, QueryLoader loader) throws SQLException {
+        return getOrLoad(sql, maxRows, statementListener -> loader.load());
+    }
+
+    /**
+     * Loads a query result, answering from the cache when an identical query was run recently and
+     * sharing the execution of an identical query that is still running. {@code loader} receives
+     * the statement so that a shared execution can be cancelled once every caller has gone.
+     */
+    public CachedResult getOrLoad(String sql, Integer maxRows, SingleFlight.Execution<QueryResult> loader)
+            throws SQLException {
+        if (!isCacheable(sql) || (!enabled && !coalesce)) {
+            return new CachedResult(loader.run(null), false, false);
+        }
+
+        CacheKey key = new CacheKey(normalize(sql), QueryExecutionService.determineMaxRows(maxRows));
+        if (enabled) {
+            QueryResult cached = cache.getIfPresent(key);
+            if (cached != null) {
+                logger.info("Query result cache hit ({} rows)", cached.getRowCount());
+                return new CachedResult(cached, true, false);
+            }
+        }
+
+        // Loaded outside the cache's compute lock so a slow query cannot block other keys
+        SingleFlight.Execution<QueryResult> load = statementListener -> {
+            QueryResult result = loader.run(statementListener);
+            if (enabled) {
+                cache.put(key, result);
+            }
+            return result;
+        };
+        if (!coalesce) {
+            return new CachedResult(load.run(null), false, false);
+        }
+        SingleFlight.Outcome<QueryResult> outcome = inFlight.execute(key, load);
+        return new CachedResult(outcome.value(), false, outcome.shared());
+    }
+
+    public void invalidateAll() {
+        long entries = cache.estimatedSize();
+        cache.invalidateAll();
+        logger.info("Invalidated query result cache ({} entries)", entries);
+    }
+
+    public Map<String, Object> getStats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("enabled", enabled);
+        summary.put("entries", cache.estimatedSize());
+        summary.put("weightedBytes", cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L));
+        summary.put("hits", stats.hitCount());
+        summary.put("misses", stats.missCount());
+        summary.put("hitRate", stats.hitRate());
+        summary.put("evictions", stats.evictionCount());
+        summary.put("coalescingEnabled", coalesce);
+        summary.put("inFlight", inFlight.inFlight());
+        summary.put("coalesced", inFlight.coalescedCount());
+        summary.put("cancelledExecutions", inFlight.cancelledCount());
+        return summary;
+    }
+
+    static boolean isCacheable(String sql) {
+        return !VOLATILE_FUNCTIONS.matcher(sql).find();
+    }
+
+    /**
+     * Collapses whitespace runs outside quoted literals and identifiers and drops trailing semicolons,
+     * so formatting differences do not produce distinct cache entries.
+     */
+    static String normalize(String sql) {
+        StringBuilder normalized = new StringBuilder(sql.length());
+        char quote = 0;
+        boolean pendingSpace = false;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (quote != 0) {
+                normalized.append(c);
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (Character.isWhitespace(c)) {
+                pendingSpace = normalized.length() > 0;
+            } else {
+                if (pendingSpace) {
+                    normalized.append(' ');
+                    pendingSpace = false;
+                }
+                if (c == '\'' || c == '"') {
+                    quote = c;
+                }
+                normalized.append(c);
+            }
+        }
+        int end = normalized.length();
+        while (end > 0 && (normalized.charAt(end - 1) == ';' || normalized.charAt(end - 1) == ' ')) {
+            end--;
+        }
+        normalized.setLength(end);
+        return normalized.toString();
+    }
+
+    private static int weigh(CacheKey key, QueryResult result) {
+        long bytes = key.sql().length() * 2L + 64L;
+        if (result.getData() != null) {
+            bytes += result.getData().estimatedSizeBytes();
+        }
+        return (int) Math.min(Integer.MAX_VALUE, bytes);
+    }
+
+    void cleanUp() {
+        cache.cleanUp();
+    }
+
+    @FunctionalInterface
+    public interface QueryLoader {
+        QueryResult load() throws SQLException;
+    }
+
+    /**
+     * @param coalesced whether the result came from the execution of an identical query that was
+     *                  already running when this one arrived
+     */
+    public record CachedResult(QueryResult result, boolean cacheHit, boolean coalesced) {
+    }
+
+    private record CacheKey(String sql, int maxRows) {
+    }
+}
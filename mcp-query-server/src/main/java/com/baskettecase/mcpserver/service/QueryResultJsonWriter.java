@@ -0,0 +1,86 @@
+package com.baskettecase.mcpserver.service;
+
+import com.baskettecase.mcpserver.model.ColumnVector;
+import com.baskettecase.mcpserver.model.ColumnVector.BooleanVector;
+import com.baskettecase.mcpserver.model.ColumnVector.DoubleVector;
+import com.baskettecase.mcpserver.model.ColumnVector.LongVector;
+import com.baskettecase.mcpserver.model.ColumnVector.ObjectVector;
+import com.baskettecase.mcpserver.model.ColumnVector.StringVector;
+import com.baskettecase.mcpserver.model.ColumnarResult;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes query results straight into a Jackson {@link JsonGenerator} in column-array form.
+ * Cells are written from the typed column vectors, so rows are never materialized as maps or lists.
+ */
+public final class QueryResultJsonWriter {
+
+    private QueryResultJsonWriter() {
+    }
+
+    /**
+     * Writes the {@code columnNames} and {@code columnMetadata} fields into the current JSON object.
+     */
+    public static void writeHeader(List<String> columnNames, List<Map<String, Object>> columnMetadata,
+                                   JsonGenerator generator) throws IOException {
+        generator.writeArrayFieldStart("columnNames");
+        for (String columnName : columnNames) {
+            generator.writeString(columnName);
+        }
+        generator.writeEndArray();
+
+        if (columnMetadata != null) {
+            generator.writeFieldName("columnMetadata");
+            generator.writeObject(columnMetadata);
+        }
+    }
+
+    /**
+     * Writes every row of {@code data} as a {@code rows} array field, one JSON array per row.
+     */
+    public static void writeRows(ColumnarResult data, JsonGenerator generator) throws IOException {
+        writeRows(data, generator, data.getRowCount());
+    }
+
+    /**
+     * Writes the first {@code maxRows} rows of {@code data} as a {@code rows} array field.
+     */
+    public static void writeRows(ColumnarResult data, JsonGenerator generator, int maxRows) throws IOException {
+        int rowCount = Math.min(maxRows, data.getRowCount());
+        int columnCount = data.getColumnCount();
+
+        generator.writeArrayFieldStart("rows");
+        for (int row = 0; row < rowCount; row++) {
+            generator.writeStartArray();
+            for (int column = 0; column < columnCount; column++) {
+                writeCell(data.getColumn(column), row, generator);
+            }
+            generator.writeEndArray();
+        }
+        generator.writeEndArray();
+    }
+
+    static void writeCell(ColumnVector column, int row, JsonGenerator generator) throws IOException {
+        if (column.isNull(row)) {
+            generator.writeNull();
+            return;
+        }
+        switch (column) {
+            case LongVector longs -> generator.writeNumber(longs.getLong(row));
+            case DoubleVector doubles -> {
+                if (doubles.isSinglePrecision()) {
+                    generator.writeNumber((float) doubles.getDouble(row));
+                } else {
+                    generator.writeNumber(doubles.getDouble(row));
+                }
+            }
+            case BooleanVector booleans -> generator.writeBoolean(booleans.getBoolean(row));
+            case StringVector strings -> generator.writeString(strings.getString(row));
+            case ObjectVector objects -> generator.writeObject(objects.getValue(row));
+        }
+    }
+}
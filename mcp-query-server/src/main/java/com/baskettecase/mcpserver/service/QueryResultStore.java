@@ -0,0 +1,78 @@
+package com.baskettecase.mcpserver.service;
+
+import com.baskettecase.mcpserver.model.QueryResult;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+
+/**
+ * Holds full query results under opaque result handles so the chat client can fetch them over
+ * HTTP while the LLM only sees a compact preview.
+ *
+ * <p>Results are bounded by their estimated size and expire once they have not been read for the
+ * configured TTL; an expired handle simply resolves to nothing.
+ */
+@Service
+public class QueryResultStore {
+
+    private final Cache<String, QueryResult> results;
+    private final int previewRows;
+    private final SecureRandom random = new SecureRandom();
+
+    public QueryResultStore(@Value("${plumchat.query.results.max-bytes:268435456}") long maxBytes,
+                            @Value("${plumchat.query.results.ttl-seconds:900}") long ttlSeconds,
+                            @Value("${plumchat.query.results.preview-rows:20}") int previewRows) {
+        this.previewRows = previewRows;
+        this.results = Caffeine.newBuilder()
+            .maximumWeight(maxBytes)
+            .weigher((String handle, QueryResult result) -> weigh(result))
+            .expireAfterAccess(Duration.ofSeconds(ttlSeconds))
+            .build();
+    }
+
+    /**
+     * Stores a result and returns the handle it can be fetched with.
+     */
+    public String put(QueryResult result) {
+        String handle = newHandle();
+        results.put(handle, result);
+        return handle;
+    }
+
+    /**
+     * @return the stored result, or {@code null} if the handle is unknown or has expired
+     */
+    public QueryResult get(String handle) {
+        return handle != null ? results.getIfPresent(handle) : null;
+    }
+
+    /**
+     * Number of leading rows included in the tool output the LLM sees.
+     */
+    public int getPreviewRows() {
+        return previewRows;
+    }
+
+    public long size() {
+        return results.estimatedSize();
+    }
+
+    private static int weigh(QueryResult result) {
+        long bytes = 128L;
+        if (result.getData() != null) {
+            bytes += result.getData().estimatedSizeBytes();
+        }
+        return (int) Math.min(Integer.MAX_VALUE, bytes);
+    }
+
+    private String newHandle() {
+        byte[] bytes = new byte[18];
+        random.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
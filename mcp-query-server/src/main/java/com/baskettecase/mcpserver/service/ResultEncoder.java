@@ -0,0 +1,16 @@
+package com.baskettecase.mcpserver.service;
+
+/**
+ * Renders a {@link ResultPreview} as the text a query tool returns to the LLM. Spring beans
+ * implementing this interface are registered with {@link ResultEncoders} next to the built-in
+ * formats and can be selected by {@link #name()}.
+ */
+public interface ResultEncoder {
+
+    /**
+     * @return the format name accepted by the tools' {@code format} argument
+     */
+    String name();
+
+    String encode(ResultPreview preview);
+}
@@ -0,0 +1,179 @@
+package com.baskettecase.mcpserver.service;
+
+import com.baskettecase.mcpserver.model.QueryResult;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The result formats available to the query tools, and the token budget their output is fitted to.
+ *
+ * <p>Built in are {@code compact} (schema header and {@code |}-delimited rows), {@code csv},
+ * {@code tsv}, {@code markdown} and {@code json}; further {@link ResultEncoder} beans are added by
+ * name. Tools use {@code plumchat.query.result-format} unless the caller asks for a format.
+ *
+ * <p>Output is kept within {@code plumchat.query.result-token-budget} estimated tokens. When the
+ * preview rows do not fit, or the result has more rows than the preview, rows are dropped from
+ * the middle: the first and last rows are kept and every column is summarized over the full result.
+ */
+@Service
+public class ResultEncoders {
+
+    public static final String DEFAULT_FORMAT = "compact";
+    public static final int DEFAULT_TOKEN_BUDGET = 1500;
+    private static final int CHARS_PER_TOKEN = 4;
+
+    private final Map<String, ResultEncoder> encoders = new LinkedHashMap<>();
+    private final ResultEncoder defaultEncoder;
+    private final int tokenBudget;
+
+    @Autowired
+    public ResultEncoders(ObjectProvider<ResultEncoder> customEncoders,
+                          @Value("${plumchat.query.result-format:compact}") String defaultFormat,
+                          @Value("${plumchat.query.result-token-budget:1500}") int tokenBudget) {
+        this(customEncoders.orderedStream().toList(), defaultFormat, tokenBudget);
+    }
+
+    public ResultEncoders(List<ResultEncoder> customEncoders, String defaultFormat, int tokenBudget) {
+        List<ResultEncoder> all = new ArrayList<>(List.of(new CompactResultEncoder(), DelimitedResultEncoder.csv(),
+            DelimitedResultEncoder.tsv(), new MarkdownResultEncoder(), new JsonResultEncoder()));
+        all.addAll(customEncoders);
+        for (ResultEncoder encoder : all) {
+            encoders.put(encoder.name().toLowerCase(Locale.ROOT), encoder);
+        }
+        this.defaultEncoder = encoder(defaultFormat);
+        this.tokenBudget = tokenBudget;
+    }
+
+    /**
+     * The built-in formats with the default format and token budget, for services created outside Spring.
+     */
+    public static ResultEncoders defaults() {
+        return new ResultEncoders(List.of(), DEFAULT_FORMAT, DEFAULT_TOKEN_BUDGET);
+    }
+
+    /**
+     * @param format a format name, or {@code null} or blank for the configured default
+     * @throws IllegalArgumentException if no encoder has that name
+     */
+    public ResultEncoder encoder(String format) {
+        if (format == null || format.isBlank()) {
+            return defaultEncoder;
+        }
+        ResultEncoder encoder = encoders.get(format.trim().toLowerCase(Locale.ROOT));
+        if (encoder == null) {
+            throw new IllegalArgumentException("Unknown result format '" + format.trim() + "'; expected one of "
+                + String.join(", ", encoders.keySet()));
+        }
+        return encoder;
+    }
+
+    /**
+     * Encodes at most {@code maxRows} rows of {@code result}, fewer if they do not fit the token budget.
+     * @param fields tool-specific fields for the result header
+     * @param note   guidance for the LLM, included when rows are omitted
+     */
+    public String encode(ResultEncoder encoder, QueryResult result, Map<String, Object> fields, int maxRows,
+                         String note) {
+        int rowCount = result.getRowCount();
+        int maxShown = Math.max(0, Math.min(rowCount, maxRows));
+        List<ResultPreview.ColumnSummary> summaries = maxShown < rowCount
+            ? ResultPreview.ColumnSummary.of(result.getData()) : List.of();
+
+        String encoded = encoder.encode(preview(result, fields, maxShown, summaries, note));
+        if (estimateTokens(encoded) <= tokenBudget || maxShown == 0) {
+            return encoded;
+        }
+        if (summaries.isEmpty()) {
+            summaries = ResultPreview.ColumnSummary.of(result.getData());
+        }
+
+        // Output grows with the number of rows shown, so search for the largest count that fits
+        String best = encoder.encode(preview(result, fields, 0, summaries, note));
+        int low = 1;
+        int high = maxShown - 1;
+        while (low <= high) {
+            int shown = (low + high) >>> 1;
+            String candidate = encoder.encode(preview(result, fields, shown, summaries, note));
+            if (estimateTokens(candidate) <= tokenBudget) {
+                best = candidate;
+                low = shown + 1;
+            } else {
+                high = shown - 1;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Renders EXPLAIN output as one plan line per row. Plans that exceed the token budget keep their
+     * first and last lines: the root and the scans, which is where costs and row estimates are read.
+     */
+    public String encodePlan(QueryResult plan) {
+        List<String> lines = new ArrayList<>();
+        if (plan.getRows() != null) {
+            for (Map<String, Object> row : plan.getRows()) {
+                for (Object value : row.values()) {
+                    lines.addAll((value != null ? value.toString() : "NULL").lines().toList());
+                }
+            }
+        }
+
+        StringBuilder out = new StringBuilder("Query plan (").append(plan.getExecutionTimeMs()).append(" ms):\n");
+        int budgetChars = tokenBudget * CHARS_PER_TOKEN - out.length();
+        int totalChars = lines.stream().mapToInt(line -> line.length() + 1).sum();
+        if (totalChars <= budgetChars) {
+            lines.forEach(line -> out.append(line).append('\n'));
+            return out.toString();
+        }
+
+        int head = 0;
+        int tail = 0;
+        int used = 0;
+        // Three head lines for every tail line, while both fit
+        while (head + tail < lines.size()) {
+            boolean takeTail = tail * 3 < head;
+            String line = takeTail ? lines.get(lines.size() - 1 - tail) : lines.get(head);
+            if (used + line.length() + 1 > budgetChars) {
+                break;
+            }
+            used += line.length() + 1;
+            if (takeTail) {
+                tail++;
+            } else {
+                head++;
+            }
+        }
+        lines.subList(0, head).forEach(line -> out.append(line).append('\n'));
+        out.append("... ").append(lines.size() - head - tail).append(" plan lines omitted ...\n");
+        lines.subList(lines.size() - tail, lines.size()).forEach(line -> out.append(line).append('\n'));
+        return out.toString();
+    }
+
+    /**
+     * Rough token count of {@code text}: about four characters per token for the identifiers,
+     * numbers and punctuation query results consist of. No tokenizer is needed to stay within a budget.
+     */
+    public static int estimateTokens(CharSequence text) {
+        return (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+
+    /**
+     * Splits {@code shown} rows into the first three quarters and the last quarter of the result.
+     */
+    private static ResultPreview preview(QueryResult result, Map<String, Object> fields, int shown,
+                                         List<ResultPreview.ColumnSummary> summaries, String note) {
+        if (shown >= result.getRowCount()) {
+            return new ResultPreview(result, fields, result.getRowCount(), 0, List.of(), note);
+        }
+        int tail = shown / 4;
+        return new ResultPreview(result, fields, shown - tail, tail, summaries, note);
+    }
+}
@@ -0,0 +1,287 @@
+package com.baskettecase.mcpserver.service;
+
+import com.baskettecase.mcpserver.model.ColumnVector;
+import com.baskettecase.mcpserver.model.ColumnVector.BooleanVector;
+import com.baskettecase.mcpserver.model.ColumnVector.DoubleVector;
+import com.baskettecase.mcpserver.model.ColumnVector.LongVector;
+import com.baskettecase.mcpserver.model.ColumnVector.ObjectVector;
+import com.baskettecase.mcpserver.model.ColumnVector.StringVector;
+import com.baskettecase.mcpserver.model.ColumnarResult;
+import com.baskettecase.mcpserver.model.QueryResult;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The part of a query result shown to the LLM: the first {@code headRows} and last
+ * {@code tailRows} rows, and, when rows in between are left out, a summary of every column over
+ * the full result so the omitted rows are still accounted for.
+ *
+ * @param fields           tool-specific fields rendered in the result header, such as the result handle
+ * @param columnSummaries  one summary per column, empty when every row is shown
+ * @param note             guidance appended when rows are omitted
+ */
+public record ResultPreview(QueryResult result, Map<String, Object> fields, int headRows, int tailRows,
+                            List<ColumnSummary> columnSummaries, String note) {
+
+    public int rowCount() {
+        return result.getRowCount();
+    }
+
+    public int shownRows() {
+        return headRows + tailRows;
+    }
+
+    public int omittedRows() {
+        return rowCount() - shownRows();
+    }
+
+    public boolean truncated() {
+        return omittedRows() > 0;
+    }
+
+    public ColumnarResult data() {
+        return result.getData();
+    }
+
+    /**
+     * @return the header fields: row count, execution time, the tool's own fields and the number
+     *         of rows shown
+     */
+    public Map<String, Object> header() {
+        Map<String, Object> header = new LinkedHashMap<>();
+        header.put("rowCount", rowCount());
+        header.put("executionTimeMs", result.getExecutionTimeMs());
+        header.putAll(fields);
+        header.put("previewRowCount", shownRows());
+        return header;
+    }
+
+    /**
+     * @return the index of every shown row, head rows first
+     */
+    public int[] rowIndexes() {
+        int[] indexes = new int[shownRows()];
+        for (int i = 0; i < headRows; i++) {
+            indexes[i] = i;
+        }
+        for (int i = 0; i < tailRows; i++) {
+            indexes[headRows + i] = rowCount() - tailRows + i;
+        }
+        return indexes;
+    }
+
+    /**
+     * @return the database type name of each column, or {@code null} where unknown
+     */
+    public List<String> columnTypes() {
+        List<String> types = new ArrayList<>();
+        List<Map<String, Object>> metadata = result.getColumnMetadata();
+        for (int column = 0; column < data().getColumnCount(); column++) {
+            Object type = metadata != null && column < metadata.size() ? metadata.get(column).get("type") : null;
+            types.add(type != null ? type.toString() : null);
+        }
+        return types;
+    }
+
+    /**
+     * @return which rows are shown followed by the note, or {@code null} when nothing is omitted
+     */
+    public String truncationMessage() {
+        if (!truncated()) {
+            return null;
+        }
+        String shown = tailRows > 0
+            ? "the first " + headRows + " and last " + tailRows
+            : "the first " + headRows;
+        return "Showing " + shown + " of " + rowCount() + " rows. " + note;
+    }
+
+    /**
+     * @return the text of a cell, or {@code null} for SQL NULL
+     */
+    public static String cellText(ColumnVector column, int row) {
+        if (column.isNull(row)) {
+            return null;
+        }
+        return switch (column) {
+            case LongVector longs -> Long.toString(longs.getLong(row));
+            case DoubleVector doubles -> doubles.isSinglePrecision()
+                ? Float.toString((float) doubles.getDouble(row)) : Double.toString(doubles.getDouble(row));
+            case BooleanVector booleans -> Boolean.toString(booleans.getBoolean(row));
+            case StringVector strings -> strings.getString(row);
+            case ObjectVector objects -> {
+                Object value = objects.getValue(row);
+                yield value instanceof BigDecimal decimal ? decimal.toPlainString() : value.toString();
+            }
+        };
+    }
+
+    /**
+     * Statistics of one column over the full result: null count, then min, max and mean for
+     * numbers, min and max for other comparable values, and distinct count and most frequent
+     * value for strings.
+     */
+    public record ColumnSummary(String column, Map<String, Object> stats) {
+
+        private static final MathContext MEAN_PRECISION = new MathContext(6);
+
+        public static List<ColumnSummary> of(ColumnarResult data) {
+            List<ColumnSummary> summaries = new ArrayList<>(data.getColumnCount());
+            for (int column = 0; column < data.getColumnCount(); column++) {
+                summaries.add(new ColumnSummary(data.getColumnNames().get(column), statsOf(data.getColumn(column))));
+            }
+            return summaries;
+        }
+
+        /**
+         * @return the statistics as {@code name=value} pairs separated by spaces
+         */
+        public String toText() {
+            StringBuilder text = new StringBuilder();
+            for (Map.Entry<String, Object> stat : stats.entrySet()) {
+                if (!text.isEmpty()) {
+                    text.append(' ');
+                }
+                text.append(stat.getKey()).append('=').append(stat.getValue());
+            }
+            return text.toString();
+        }
+
+        private static Map<String, Object> statsOf(ColumnVector column) {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            int nulls = 0;
+            for (int row = 0; row < column.size(); row++) {
+                if (column.isNull(row)) {
+                    nulls++;
+                }
+            }
+            if (nulls > 0) {
+                stats.put("nulls", nulls);
+            }
+            if (nulls == column.size()) {
+                return stats;
+            }
+
+            switch (column) {
+                case LongVector longs -> {
+                    long min = Long.MAX_VALUE;
+                    long max = Long.MIN_VALUE;
+                    double sum = 0;
+                    for (int row = 0; row < longs.size(); row++) {
+                        if (!longs.isNull(row)) {
+                            long value = longs.getLong(row);
+                            min = Math.min(min, value);
+                            max = Math.max(max, value);
+                            sum += value;
+                        }
+                    }
+                    stats.put("min", min);
+                    stats.put("max", max);
+                    stats.put("mean", round(sum / (longs.size() - nulls)));
+                }
+                case DoubleVector doubles -> {
+                    double min = Double.POSITIVE_INFINITY;
+                    double max = Double.NEGATIVE_INFINITY;
+                    double sum = 0;
+                    for (int row = 0; row < doubles.size(); row++) {
+                        if (!doubles.isNull(row)) {
+                            double value = doubles.getDouble(row);
+                            min = Math.min(min, value);
+                            max = Math.max(max, value);
+                            sum += value;
+                        }
+                    }
+                    stats.put("min", round(min));
+                    stats.put("max", round(max));
+                    stats.put("mean", round(sum / (doubles.size() - nulls)));
+                }
+                case BooleanVector booleans -> {
+                    int trueCount = 0;
+                    for (int row = 0; row < booleans.size(); row++) {
+                        if (!booleans.isNull(row) && booleans.getBoolean(row)) {
+                            trueCount++;
+                        }
+                    }
+                    stats.put("true", trueCount);
+                    stats.put("false", booleans.size() - nulls - trueCount);
+                }
+                case StringVector strings -> putStringStats(strings, stats);
+                case ObjectVector objects -> putObjectStats(objects, stats);
+            }
+            return stats;
+        }
+
+        private static void putStringStats(StringVector strings, Map<String, Object> stats) {
+            // Count by dictionary code; high cardinality columns may hold a value under several codes
+            int[] codeCounts = new int[strings.getDictionary().size()];
+            BitSet used = new BitSet(codeCounts.length);
+            for (int row = 0; row < strings.size(); row++) {
+                if (!strings.isNull(row)) {
+                    codeCounts[strings.getCode(row)]++;
+                    used.set(strings.getCode(row));
+                }
+            }
+            Map<String, Integer> counts = new HashMap<>();
+            for (int code = used.nextSetBit(0); code >= 0; code = used.nextSetBit(code + 1)) {
+                counts.merge(strings.getDictionary().get(code), codeCounts[code], Integer::sum);
+            }
+            stats.put("distinct", counts.size());
+            Map.Entry<String, Integer> top = null;
+            for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+                if (top == null || entry.getValue() > top.getValue()) {
+                    top = entry;
+                }
+            }
+            if (top != null && top.getValue() > 1) {
+                stats.put("top", top.getKey());
+                stats.put("topCount", top.getValue());
+            }
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static void putObjectStats(ObjectVector objects, Map<String, Object> stats) {
+            Comparable min = null;
+            Comparable max = null;
+            BigDecimal sum = BigDecimal.ZERO;
+            int count = 0;
+            boolean numeric = true;
+            for (int row = 0; row < objects.size(); row++) {
+                Object value = objects.getValue(row);
+                if (value == null) {
+                    continue;
+                }
+                if (!(value instanceof Comparable comparable) || (min != null && min.getClass() != value.getClass())) {
+                    // Arrays, LOBs and mixed types have no meaningful order
+                    return;
+                }
+                min = min == null || comparable.compareTo(min) < 0 ? comparable : min;
+                max = max == null || comparable.compareTo(max) > 0 ? comparable : max;
+                if (value instanceof BigDecimal decimal) {
+                    sum = sum.add(decimal);
+                    count++;
+                } else {
+                    numeric = false;
+                }
+            }
+            stats.put("min", min instanceof BigDecimal decimal ? decimal.toPlainString() : String.valueOf(min));
+            stats.put("max", max instanceof BigDecimal decimal ? decimal.toPlainString() : String.valueOf(max));
+            if (numeric && count > 0) {
+                stats.put("mean", sum.divide(BigDecimal.valueOf(count), MEAN_PRECISION).toPlainString());
+            }
+        }
+
+        private static double round(double value) {
+            if (Double.isNaN(value) || Double.isInfinite(value)) {
+                return value;
+            }
+            return new BigDecimal(value).round(MEAN_PRECISION).doubleValue();
+        }
+    }
+}
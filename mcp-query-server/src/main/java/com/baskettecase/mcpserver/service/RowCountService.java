@@ -0,0 +1,255 @@
+package com.baskettecase.mcpserver.service;
+
+import com.baskettecase.mcpserver.model.QueryJobStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Counts table rows, exactly or from catalog statistics.
+ *
+ * <p>Schema and table names are resolved against the JDBC catalog before anything runs, and only
+ * the catalog's own names are used, quoted, in the count statement, so identifiers can never
+ * inject SQL. On PostgreSQL and Greenplum the estimate is the sum of {@code pg_class.reltuples}
+ * over the table and its partitions, which costs a single catalog lookup. In {@link Mode#AUTO}
+ * the estimate is returned for tables above the configured threshold, and an exact count of such
+ * a table runs as a background query job instead of holding the tool call open. A table without
+ * statistics (or on a database other than PostgreSQL) is treated as possibly large: auto only
+ * reports that there is no estimate, and an exact count runs as a background job. Concurrent
+ * inline exact counts of the same table share one COUNT(*) through a {@link SingleFlight}.
+ */
+@Service
+public class RowCountService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RowCountService.class);
+
+    private static final String ESTIMATE_SQL =
+        "WITH RECURSIVE parts AS ("
+            + "SELECT c.oid FROM pg_catalog.pg_class c "
+            + "JOIN pg_catalog.pg_namespace n ON n.oid = c.relnamespace "
+            + "WHERE n.nspname = ? AND c.relname = ? "
+            + "UNION ALL SELECT i.inhrelid FROM pg_catalog.pg_inherits i JOIN parts p ON i.inhparent = p.oid) "
+            + "SELECT COALESCE(SUM(CASE WHEN c.reltuples > 0 THEN c.reltuples ELSE 0 END), 0)::bigint, "
+            + "SUM(CASE WHEN c.reltuples >= 0 AND c.relpages > 0 THEN 1 ELSE 0 END) "
+            + "FROM pg_catalog.pg_class c JOIN parts p ON p.oid = c.oid";
+
+    public enum Mode {
+        EXACT, ESTIMATE, AUTO;
+
+        /**
+         * @throws IllegalArgumentException for anything but exact, estimate, auto or blank (auto)
+         */
+        public static Mode parse(String mode) {
+            if (mode == null || mode.isBlank()) {
+                return AUTO;
+            }
+            try {
+                return valueOf(mode.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown count mode '" + mode + "'; use exact, estimate or auto");
+            }
+        }
+    }
+
+    /**
+     * Outcome of a count. Exactly one of {@code exactCount}, {@code estimatedCount} or
+     * {@code jobId} is usually set; {@code estimatedCount} may accompany a {@code jobId}.
+     */
+    public record RowCount(String schema, String table, Mode mode, Long exactCount, Long estimatedCount,
+                           String jobId, long executionTimeMs, String note) {
+    }
+
+    private final ConnectionPools connectionPools;
+    private final QueryJobService queryJobService;
+    private final long autoExactThreshold;
+    private final boolean coalesce;
+    private final SingleFlight<String, Long> exactCounts = new SingleFlight<>();
+
+    public RowCountService(DataSource dataSource, QueryJobService queryJobService, long autoExactThreshold) {
+        this(ConnectionPools.shared(dataSource), queryJobService, autoExactThreshold, true);
+    }
+
+    @Autowired
+    public RowCountService(ConnectionPools connectionPools, QueryJobService queryJobService,
+                           @Value("${plumchat.query.count.auto-exact-threshold:1000000}") long autoExactThreshold,
+                           @Value("${plumchat.query.coalesce.enabled:true}") boolean coalesce) {
+        this.connectionPools = connectionPools;
+        this.queryJobService = queryJobService;
+        this.autoExactThreshold = autoExactThreshold;
+        this.coalesce = coalesce;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the table does not exist
+     */
+    public RowCount count(String schemaName, String tableName, Mode mode) throws SQLException {
+        long startTime = System.currentTimeMillis();
+        // Catalog lookups are quick and use the metadata pool; an exact count is a real query, so
+        // the metadata connection is returned before it runs
+        TableRef table;
+        Long estimate;
+        try (Connection connection = connectionPools.dataSource(ConnectionPools.Workload.METADATA).getConnection()) {
+            table = resolveTable(connection, schemaName.trim(), tableName.trim());
+            estimate = estimate(connection, table,
+                connectionPools.settings(ConnectionPools.Workload.METADATA).statementTimeoutSeconds());
+        }
+
+        if (mode == Mode.ESTIMATE) {
+            return new RowCount(table.schema(), table.table(), mode, null, estimate, null,
+                System.currentTimeMillis() - startTime,
+                estimate != null ? "Estimated from catalog statistics (pg_class.reltuples)"
+                    : "No statistics available for this table; run ANALYZE or count with mode 'exact'");
+        }
+
+        // Without statistics the table may be huge, so it is never scanned inline
+        boolean large = estimate == null || estimate >= autoExactThreshold;
+        if (mode == Mode.AUTO && estimate == null) {
+            return new RowCount(table.schema(), table.table(), mode, null, null, null,
+                System.currentTimeMillis() - startTime,
+                "No statistics available for this table, so its size is unknown. Run ANALYZE, or call "
+                    + "countTableRows with mode 'exact' to count it as a background query job");
+        }
+        if (mode == Mode.AUTO && large) {
+            return new RowCount(table.schema(), table.table(), mode, null, estimate, null,
+                System.currentTimeMillis() - startTime,
+                "Estimated from catalog statistics. For an exact count call countTableRows with mode 'exact'; "
+                    + "it runs as a background query job because the table is large");
+        }
+        if (mode == Mode.EXACT && large) {
+            QueryJobStatus job = queryJobService.submit(table.countSql(), 1);
+            logger.info("Counting {} ({} rows) in background job {}", table,
+                estimate != null ? "about " + estimate : "unknown number of", job.jobId());
+            return new RowCount(table.schema(), table.table(), mode, null, estimate, job.jobId(),
+                System.currentTimeMillis() - startTime,
+                "Exact count is running as background query job " + job.jobId()
+                    + "; poll getQueryStatus and read the count with getQueryResult");
+        }
+
+        long count;
+        if (coalesce) {
+            SingleFlight.Outcome<Long> outcome = exactCounts.execute(table.countSql(),
+                statementListener -> exactCount(table, statementListener));
+            if (outcome.shared()) {
+                logger.info("Shared the running exact count of {}", table);
+            }
+            count = outcome.value();
+        } else {
+            count = exactCount(table, null);
+        }
+        return new RowCount(table.schema(), table.table(), mode, count, estimate, null,
+            System.currentTimeMillis() - startTime, null);
+    }
+
+    private long exactCount(TableRef table, Consumer<Statement> statementListener) throws SQLException {
+        try (Connection connection = connectionPools.dataSource(ConnectionPools.Workload.INTERACTIVE).getConnection();
+             PreparedStatement statement = connection.prepareStatement(table.countSql())) {
+            statement.setQueryTimeout(connectionPools.settings(ConnectionPools.Workload.INTERACTIVE).statementTimeoutSeconds());
+            if (statementListener != null) {
+                statementListener.accept(statement);
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getLong(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * Looks the table up in the catalog, trying the name as given and in the case the database
+     * folds unquoted identifiers to.
+     */
+    static TableRef resolveTable(Connection connection, String schemaName, String tableName) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        String escape = metaData.getSearchStringEscape();
+        for (String schema : caseVariants(schemaName, metaData)) {
+            for (String table : caseVariants(tableName, metaData)) {
+                try (ResultSet tables = metaData.getTables(null, escapePattern(schema, escape),
+                        escapePattern(table, escape), null)) {
+                    while (tables.next()) {
+                        // The escaped pattern can still match case-insensitively on some drivers
+                        if (schema.equals(tables.getString("TABLE_SCHEM")) && table.equals(tables.getString("TABLE_NAME"))) {
+                            return new TableRef(schema, table, metaData.getIdentifierQuoteString());
+                        }
+                    }
+                }
+            }
+        }
+        throw new IllegalArgumentException("Table '" + schemaName + "." + tableName + "' does not exist");
+    }
+
+    private static Long estimate(Connection connection, TableRef table, int timeoutSeconds) {
+        try {
+            if (!isPostgres(connection)) {
+                return null;
+            }
+            try (PreparedStatement statement = connection.prepareStatement(ESTIMATE_SQL)) {
+                statement.setQueryTimeout(timeoutSeconds);
+                statement.setString(1, table.schema());
+                statement.setString(2, table.table());
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    if (resultSet.next() && resultSet.getLong(2) > 0) {
+                        return resultSet.getLong(1);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            logger.warn("Could not read row estimate for {}: {}", table, e.getMessage());
+        }
+        return null;
+    }
+
+    private static boolean isPostgres(Connection connection) throws SQLException {
+        // Greenplum reports itself as PostgreSQL
+        return "PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName());
+    }
+
+    private static List<String> caseVariants(String name, DatabaseMetaData metaData) throws SQLException {
+        Set<String> variants = new LinkedHashSet<>();
+        variants.add(name);
+        if (metaData.storesLowerCaseIdentifiers()) {
+            variants.add(name.toLowerCase(Locale.ROOT));
+        } else if (metaData.storesUpperCaseIdentifiers()) {
+            variants.add(name.toUpperCase(Locale.ROOT));
+        }
+        return new ArrayList<>(variants);
+    }
+
+    private static String escapePattern(String name, String escape) {
+        if (escape == null || escape.isEmpty()) {
+            return name;
+        }
+        return name.replace(escape, escape + escape).replace("_", escape + "_").replace("%", escape + "%");
+    }
+
+    record TableRef(String schema, String table, String quote) {
+
+        String countSql() {
+            return "SELECT COUNT(*) AS row_count FROM " + quote(schema) + "." + quote(table);
+        }
+
+        private String quote(String identifier) {
+            String q = quote == null || quote.isBlank() ? "\"" : quote;
+            return q + identifier.replace(q, q + q) + q;
+        }
+
+        @Override
+        public String toString() {
+            return schema + "." + table;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.baskettecase.mcpserver.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Coalesces concurrent executions of the same query. The first caller for a key starts the
+ * execution; callers arriving while it runs wait on the same future and share its result or
+ * error instead of taking another connection and running the query again.
+ *
+ * <p>Executions run on a virtual thread of their own rather than on the first caller's thread,
+ * so every caller is just a waiter. A waiter that is interrupted stops waiting without affecting
+ * the others, and the JDBC statement is cancelled only once the last waiter has gone. A caller
+ * arriving after that starts a new execution.
+ */
+public class SingleFlight<K, V> {
+
+    private static final Logger logger = LoggerFactory.getLogger(SingleFlight.class);
+
+    // SQLSTATE query_canceled
+    private static final String QUERY_CANCELED = "57014";
+
+    /**
+     * Runs the query, handing its JDBC statement to {@code statementListener} before it executes
+     * so that it can be cancelled once nobody waits for it.
+     */
+    @FunctionalInterface
+    public interface Execution<V> {
+        V run(Consumer<Statement> statementListener) throws SQLException;
+    }
+
+    /**
+     * @param shared whether the value came from an execution another caller had already started
+     */
+    public record Outcome<V>(V value, boolean shared) {
+    }
+
+    private final ConcurrentHashMap<K, Flight<V>> flights = new ConcurrentHashMap<>();
+    private final Executor executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+
+    /**
+     * Runs {@code execution}, or waits for the running execution of the same key.
+     * @throws SQLException if the execution failed, or the caller was interrupted while waiting
+     */
+    public Outcome<V> execute(K key, Execution<V> execution) throws SQLException {
+        while (true) {
+            Flight<V> started = new Flight<>();
+            Flight<V> running = flights.putIfAbsent(key, started);
+            Flight<V> flight = running != null ? running : started;
+            if (!flight.join()) {
+                // Its last waiter left and cancelled it; it is about to leave the map
+                flights.remove(key, flight);
+                continue;
+            }
+            if (running == null) {
+                executor.execute(() -> started.run(execution, () -> flights.remove(key, started)));
+            } else {
+                coalesced.increment();
+                logger.info("Joined the running execution of an identical query");
+            }
+            return new Outcome<>(await(key, flight), running != null);
+        }
+    }
+
+    public int inFlight() {
+        return flights.size();
+    }
+
+    public long coalescedCount() {
+        return coalesced.sum();
+    }
+
+    public long cancelledCount() {
+        return cancelled.sum();
+    }
+
+    private V await(K key, Flight<V> flight) throws SQLException {
+        try {
+            return flight.future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (flight.leave()) {
+                flights.remove(key, flight);
+                cancelled.increment();
+                logger.info("Cancelled query execution after its last waiter left");
+            }
+            throw new SQLException("Interrupted while waiting for the query result", QUERY_CANCELED, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new SQLException(cause);
+        }
+    }
+
+    private static final class Flight<V> {
+        private final CompletableFuture<V> future = new CompletableFuture<>();
+        private int waiters;
+        private boolean abandoned;
+        private Statement statement;
+
+        private synchronized boolean join() {
+            if (abandoned) {
+                return false;
+            }
+            waiters++;
+            return true;
+        }
+
+        /**
+         * @return whether this was the last waiter of an unfinished execution, which is then cancelled
+         */
+        private boolean leave() {
+            Statement running;
+            synchronized (this) {
+                waiters--;
+                if (waiters > 0 || future.isDone()) {
+                    return false;
+                }
+                abandoned = true;
+                running = statement;
+            }
+            cancel(running);
+            return true;
+        }
+
+        private void run(Execution<V> execution, Runnable onDone) {
+            synchronized (this) {
+                if (abandoned) {
+                    return;
+                }
+            }
+            // Leaves the map before completing, so later callers start a new execution
+            try {
+                V value = execution.run(this::attachStatement);
+                onDone.run();
+                future.complete(value);
+            } catch (Throwable e) {
+                onDone.run();
+                future.completeExceptionally(e);
+            }
+        }
+
+        private void attachStatement(Statement running) {
+            boolean cancelNow;
+            synchronized (this) {
+                statement = running;
+                cancelNow = abandoned;
+            }
+            if (cancelNow) {
+                cancel(running);
+            }
+        }
+
+        private static void cancel(Statement running) {
+            if (running == null) {
+                return;
+            }
+            try {
+                running.cancel();
+            } catch (SQLException e) {
+                logger.debug("Cancel of abandoned query execution failed: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,476 @@
+package com.baskettecase.mcpserver.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Parses SQL just far enough to decide whether it is a single read-only query, and to fingerprint it.
+ *
+ * <p>The SQL is tokenized (PostgreSQL lexical rules: nested block comments, escape and
+ * dollar-quoted strings, quoted identifiers) and the tokens are arranged into a tree of
+ * parenthesized groups per statement. A query is read-only if it is a single statement starting
+ * with {@code SELECT}, {@code WITH}, {@code VALUES} or {@code TABLE} (possibly parenthesized), and
+ * no group in it starts a data-modifying or DDL statement (as in {@code WITH d AS (DELETE ...)}),
+ * selects {@code INTO} a table, locks rows with {@code FOR UPDATE/SHARE} or calls a function with
+ * side effects.
+ *
+ * <p>The fingerprint is the token stream with comments and whitespace dropped, unquoted words
+ * upper-cased and literals replaced by {@code ?} (lists of literals collapse to one), so queries
+ * that differ only in their constants share it. Analyses are kept in a bounded cache keyed on the
+ * SQL text, so a repeated query costs one cache lookup.
+ */
+public final class SqlAnalyzer {
+
+    private static final int CACHE_SIZE = 10_000;
+
+    private static final Set<String> READ_ONLY_STARTS = Set.of("SELECT", "WITH", "VALUES", "TABLE");
+
+    private static final Set<String> MODIFYING_STARTS = Set.of(
+        "INSERT", "UPDATE", "DELETE", "MERGE", "UPSERT", "CREATE", "DROP", "ALTER", "TRUNCATE", "GRANT",
+        "REVOKE", "COPY", "CALL", "DO", "LOCK", "VACUUM", "ANALYZE", "REFRESH", "REINDEX", "CLUSTER",
+        "COMMENT", "SET", "RESET", "EXECUTE", "PREPARE", "DEALLOCATE", "LISTEN", "NOTIFY", "DISCARD");
+
+    private static final Set<String> SIDE_EFFECT_FUNCTIONS = Set.of(
+        "pg_terminate_backend", "pg_cancel_backend", "pg_reload_conf", "pg_rotate_logfile",
+        "pg_read_file", "pg_read_binary_file", "pg_ls_dir", "pg_stat_file", "lo_import", "lo_export",
+        "lo_unlink", "set_config", "nextval", "setval", "dblink_exec", "pg_advisory_lock",
+        "pg_advisory_xact_lock", "pg_sleep", "pg_create_restore_point", "pg_switch_wal", "txid_current",
+        "pg_notify", "lo_from_bytea");
+
+    private static final Cache<String, SqlAnalysis> CACHE = Caffeine.newBuilder()
+        .maximumSize(CACHE_SIZE)
+        .build();
+
+    /**
+     * Result of analyzing one SQL string.
+     * @param readOnly whether the SQL is a single read-only query
+     * @param rejectionReason why it is not read-only, or {@code null}
+     * @param statementType the leading keyword of the (first) statement, upper-cased
+     * @param fingerprint the normalized SQL with literals stripped
+     * @param fingerprintId a short, stable hash of the fingerprint
+     */
+    public record SqlAnalysis(boolean readOnly, String rejectionReason, String statementType,
+                              String fingerprint, String fingerprintId) {
+    }
+
+    private SqlAnalyzer() {
+    }
+
+    public static SqlAnalysis analyze(String sql) {
+        if (sql == null) {
+            return new SqlAnalysis(false, "SQL is empty", null, "", fingerprintId(""));
+        }
+        return CACHE.get(sql, SqlAnalyzer::parse);
+    }
+
+    static SqlAnalysis parse(String sql) {
+        List<Token> tokens;
+        try {
+            tokens = tokenize(sql);
+        } catch (IllegalArgumentException e) {
+            return new SqlAnalysis(false, e.getMessage(), null, sql.trim(), fingerprintId(sql.trim()));
+        }
+
+        List<Group> statements;
+        try {
+            statements = buildTree(tokens);
+        } catch (IllegalArgumentException e) {
+            String fingerprint = fingerprint(tokens);
+            return new SqlAnalysis(false, e.getMessage(), null, fingerprint, fingerprintId(fingerprint));
+        }
+
+        StringBuilder fingerprint = new StringBuilder();
+        for (Group statement : statements) {
+            if (!fingerprint.isEmpty()) {
+                fingerprint.append(" ; ");
+            }
+            appendFingerprint(statement, fingerprint);
+        }
+        String fingerprintText = fingerprint.toString();
+        String statementType = statements.isEmpty() ? null : leadingWord(statements.get(0));
+        String rejection = checkReadOnly(statements, statementType);
+        return new SqlAnalysis(rejection == null, rejection, statementType, fingerprintText, fingerprintId(fingerprintText));
+    }
+
+    private static String checkReadOnly(List<Group> statements, String statementType) {
+        if (statements.isEmpty()) {
+            return "SQL is empty";
+        }
+        if (statements.size() > 1) {
+            return "Multiple statements are not allowed";
+        }
+        if (statementType == null || !READ_ONLY_STARTS.contains(statementType)) {
+            return "Statement starts with " + (statementType != null ? statementType : "no keyword")
+                + "; only SELECT, WITH, VALUES and TABLE queries are allowed";
+        }
+        return checkGroup(statements.get(0));
+    }
+
+    private static String checkGroup(Group group) {
+        String leading = leadingWord(group);
+        if (leading != null && MODIFYING_STARTS.contains(leading)) {
+            return leading + " statements are not allowed, including inside WITH";
+        }
+        if ("WITH".equals(leading)) {
+            String mainStatement = withMainStatement(group);
+            if (mainStatement != null && MODIFYING_STARTS.contains(mainStatement)) {
+                return mainStatement + " statements are not allowed, including after WITH";
+            }
+        }
+        List<Element> elements = group.elements;
+        for (int i = 0; i < elements.size(); i++) {
+            Element element = elements.get(i);
+            if (element instanceof Group child) {
+                String rejection = checkGroup(child);
+                if (rejection != null) {
+                    return rejection;
+                }
+            } else if (element instanceof Token token && token.type == TokenType.QUOTED_IDENTIFIER) {
+                if (i + 1 < elements.size() && elements.get(i + 1) instanceof Group
+                        && SIDE_EFFECT_FUNCTIONS.contains(token.unquoted().toLowerCase(Locale.ROOT))) {
+                    return "Function " + token.unquoted() + " has side effects and is not allowed";
+                }
+            } else if (element instanceof Token token && token.type == TokenType.WORD) {
+                String word = token.upper();
+                if (word.equals("INTO")) {
+                    return "SELECT INTO creates a table and is not allowed";
+                }
+                if (word.equals("FOR") && i + 1 < elements.size() && elements.get(i + 1) instanceof Token next
+                        && next.type == TokenType.WORD
+                        && Set.of("UPDATE", "SHARE", "NO", "KEY").contains(next.upper())) {
+                    return "Row locking clauses (FOR UPDATE/SHARE) are not allowed";
+                }
+                if (i + 1 < elements.size() && elements.get(i + 1) instanceof Group
+                        && SIDE_EFFECT_FUNCTIONS.contains(token.text.toLowerCase(Locale.ROOT))) {
+                    return "Function " + token.text + " has side effects and is not allowed";
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The keyword of the statement following the CTE list of a {@code WITH} group: the first word
+     * directly after a CTE body that doesn't continue the CTE definition.
+     */
+    private static String withMainStatement(Group group) {
+        List<Element> elements = group.elements;
+        for (int i = 1; i < elements.size(); i++) {
+            if (elements.get(i - 1) instanceof Group && elements.get(i) instanceof Token token
+                    && token.type == TokenType.WORD) {
+                String word = token.upper();
+                if (!Set.of("AS", "MATERIALIZED", "NOT", "SEARCH", "CYCLE").contains(word)) {
+                    return word;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The first keyword of a statement or group, looking through leading parentheses.
+     */
+    private static String leadingWord(Group group) {
+        for (Element element : group.elements) {
+            if (element instanceof Group child) {
+                return leadingWord(child);
+            }
+            Token token = (Token) element;
+            return token.type == TokenType.WORD ? token.upper() : null;
+        }
+        return null;
+    }
+
+    private static void appendFingerprint(Group group, StringBuilder out) {
+        boolean first = true;
+        for (Element element : group.elements) {
+            if (!first) {
+                out.append(' ');
+            }
+            first = false;
+            if (element instanceof Group child) {
+                if (isLiteralList(child)) {
+                    out.append("(?)");
+                } else {
+                    out.append('(');
+                    appendFingerprint(child, out);
+                    out.append(')');
+                }
+            } else {
+                out.append(((Token) element).fingerprintText());
+            }
+        }
+    }
+
+    private static boolean isLiteralList(Group group) {
+        if (group.elements.isEmpty()) {
+            return false;
+        }
+        for (Element element : group.elements) {
+            if (!(element instanceof Token token) || !(token.isLiteral() || token.type == TokenType.COMMA
+                    || (token.type == TokenType.OPERATOR && token.text.equals("-")))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String fingerprint(List<Token> tokens) {
+        StringBuilder out = new StringBuilder();
+        for (Token token : tokens) {
+            if (!out.isEmpty()) {
+                out.append(' ');
+            }
+            out.append(token.fingerprintText());
+        }
+        return out.toString();
+    }
+
+    private static String fingerprintId(String fingerprint) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(fingerprint.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(fingerprint.hashCode());
+        }
+    }
+
+    /**
+     * Splits tokens into statements at top-level semicolons and nests parenthesized groups.
+     * @throws IllegalArgumentException if parentheses are unbalanced
+     */
+    private static List<Group> buildTree(List<Token> tokens) {
+        List<Group> statements = new ArrayList<>();
+        List<Group> stack = new ArrayList<>();
+        Group current = new Group();
+        for (Token token : tokens) {
+            switch (token.type) {
+                case OPEN -> {
+                    Group child = new Group();
+                    current.elements.add(child);
+                    stack.add(current);
+                    current = child;
+                }
+                case CLOSE -> {
+                    if (stack.isEmpty()) {
+                        throw new IllegalArgumentException("Unbalanced parentheses");
+                    }
+                    current = stack.remove(stack.size() - 1);
+                }
+                case SEMICOLON -> {
+                    if (!stack.isEmpty()) {
+                        throw new IllegalArgumentException("Semicolon inside parentheses");
+                    }
+                    if (!current.elements.isEmpty()) {
+                        statements.add(current);
+                    }
+                    current = new Group();
+                }
+                default -> current.elements.add(token);
+            }
+        }
+        if (!stack.isEmpty()) {
+            throw new IllegalArgumentException("Unbalanced parentheses");
+        }
+        if (!current.elements.isEmpty()) {
+            statements.add(current);
+        }
+        return statements;
+    }
+
+    /**
+     * @throws IllegalArgumentException for unterminated strings, identifiers or comments
+     */
+    static List<Token> tokenize(String sql) {
+        List<Token> tokens = new ArrayList<>();
+        int length = sql.length();
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+                while (i < length && sql.charAt(i) != '\n') {
+                    i++;
+                }
+            } else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                i = skipBlockComment(sql, i);
+            } else if (c == '\'') {
+                int end = skipQuoted(sql, i, '\'', false);
+                tokens.add(new Token(TokenType.STRING, sql.substring(i, end)));
+                i = end;
+            } else if ((c == 'E' || c == 'e') && i + 1 < length && sql.charAt(i + 1) == '\'') {
+                int end = skipQuoted(sql, i + 1, '\'', true);
+                tokens.add(new Token(TokenType.STRING, sql.substring(i, end)));
+                i = end;
+            } else if ((c == 'B' || c == 'b' || c == 'X' || c == 'x' || c == 'N' || c == 'n')
+                    && i + 1 < length && sql.charAt(i + 1) == '\'') {
+                int end = skipQuoted(sql, i + 1, '\'', false);
+                tokens.add(new Token(TokenType.STRING, sql.substring(i, end)));
+                i = end;
+            } else if (c == '"') {
+                int end = skipQuoted(sql, i, '"', false);
+                tokens.add(new Token(TokenType.QUOTED_IDENTIFIER, sql.substring(i, end)));
+                i = end;
+            } else if (c == '$') {
+                i = readDollar(sql, i, tokens);
+            } else if (Character.isDigit(c) || (c == '.' && i + 1 < length && Character.isDigit(sql.charAt(i + 1)))) {
+                int end = i;
+                while (end < length && (Character.isLetterOrDigit(sql.charAt(end)) || sql.charAt(end) == '.'
+                        || ((sql.charAt(end) == '+' || sql.charAt(end) == '-')
+                            && (sql.charAt(end - 1) == 'e' || sql.charAt(end - 1) == 'E')))) {
+                    end++;
+                }
+                tokens.add(new Token(TokenType.NUMBER, sql.substring(i, end)));
+                i = end;
+            } else if (Character.isLetter(c) || c == '_') {
+                int end = i + 1;
+                while (end < length && (Character.isLetterOrDigit(sql.charAt(end)) || sql.charAt(end) == '_'
+                        || sql.charAt(end) == '$')) {
+                    end++;
+                }
+                tokens.add(new Token(TokenType.WORD, sql.substring(i, end)));
+                i = end;
+            } else if (c == '(') {
+                tokens.add(new Token(TokenType.OPEN, "("));
+                i++;
+            } else if (c == ')') {
+                tokens.add(new Token(TokenType.CLOSE, ")"));
+                i++;
+            } else if (c == ',') {
+                tokens.add(new Token(TokenType.COMMA, ","));
+                i++;
+            } else if (c == ';') {
+                tokens.add(new Token(TokenType.SEMICOLON, ";"));
+                i++;
+            } else if (isOperatorChar(c)) {
+                int end = i + 1;
+                while (end < length && isOperatorChar(sql.charAt(end))
+                        && !sql.startsWith("--", end) && !sql.startsWith("/*", end)) {
+                    end++;
+                }
+                tokens.add(new Token(TokenType.OPERATOR, sql.substring(i, end)));
+                i = end;
+            } else {
+                tokens.add(new Token(TokenType.OPERATOR, String.valueOf(c)));
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    private static int skipBlockComment(String sql, int start) {
+        int depth = 0;
+        int i = start;
+        while (i < sql.length()) {
+            if (sql.startsWith("/*", i)) {
+                depth++;
+                i += 2;
+            } else if (sql.startsWith("*/", i)) {
+                depth--;
+                i += 2;
+                if (depth == 0) {
+                    return i;
+                }
+            } else {
+                i++;
+            }
+        }
+        throw new IllegalArgumentException("Unterminated comment");
+    }
+
+    private static int skipQuoted(String sql, int start, char quote, boolean backslashEscapes) {
+        int i = start + 1;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (backslashEscapes && c == '\\') {
+                i += 2;
+            } else if (c == quote) {
+                if (i + 1 < sql.length() && sql.charAt(i + 1) == quote) {
+                    i += 2;
+                } else {
+                    return i + 1;
+                }
+            } else {
+                i++;
+            }
+        }
+        throw new IllegalArgumentException(quote == '"' ? "Unterminated quoted identifier" : "Unterminated string literal");
+    }
+
+    /**
+     * Reads a positional parameter ({@code $1}) or a dollar-quoted string ({@code $tag$...$tag$}).
+     */
+    private static int readDollar(String sql, int start, List<Token> tokens) {
+        int i = start + 1;
+        if (i < sql.length() && Character.isDigit(sql.charAt(i))) {
+            while (i < sql.length() && Character.isDigit(sql.charAt(i))) {
+                i++;
+            }
+            tokens.add(new Token(TokenType.PARAMETER, sql.substring(start, i)));
+            return i;
+        }
+        while (i < sql.length() && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i) == '_')) {
+            i++;
+        }
+        if (i >= sql.length() || sql.charAt(i) != '$') {
+            tokens.add(new Token(TokenType.OPERATOR, "$"));
+            return start + 1;
+        }
+        String tag = sql.substring(start, i + 1);
+        int end = sql.indexOf(tag, i + 1);
+        if (end < 0) {
+            throw new IllegalArgumentException("Unterminated dollar-quoted string");
+        }
+        tokens.add(new Token(TokenType.STRING, sql.substring(start, end + tag.length())));
+        return end + tag.length();
+    }
+
+    private static boolean isOperatorChar(char c) {
+        return "+-*/<>=~!@#%^&|`?:.[]".indexOf(c) >= 0;
+    }
+
+    enum TokenType { WORD, QUOTED_IDENTIFIER, STRING, NUMBER, PARAMETER, OPEN, CLOSE, COMMA, SEMICOLON, OPERATOR }
+
+    private sealed interface Element permits Token, Group {
+    }
+
+    record Token(TokenType type, String text) implements Element {
+
+        String upper() {
+            return text.toUpperCase(Locale.ROOT);
+        }
+
+        /**
+         * The name of a quoted identifier without its quotes; {@code ""} inside it stands for {@code "}.
+         */
+        String unquoted() {
+            int end = text.length() > 1 && text.endsWith("\"") ? text.length() - 1 : text.length();
+            return text.substring(1, end).replace("\"\"", "\"");
+        }
+
+        boolean isLiteral() {
+            return type == TokenType.STRING || type == TokenType.NUMBER || type == TokenType.PARAMETER;
+        }
+
+        String fingerprintText() {
+            if (isLiteral()) {
+                return "?";
+            }
+            return type == TokenType.WORD ? upper() : text;
+        }
+    }
+
+    private static final class Group implements Element {
+        private final List<Element> elements = new ArrayList<>();
+    }
+}
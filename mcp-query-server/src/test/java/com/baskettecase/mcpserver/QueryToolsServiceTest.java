@@ -1,10 +1,23 @@
 package com.baskettecase.mcpserver;
 
+import com.baskettecase.mcpserver.controller.QueryResultController;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowStreamReader;
 import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.ActiveProfiles;
 
+import java.io.ByteArrayInputStream;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 @SpringBootTest
@@ -14,6 +27,9 @@ class QueryToolsServiceTest {
     @Autowired
     private QueryToolsService queryToolsService;
 
+    @Autowired
+    private QueryResultController queryResultController;
+
     @Test
     void testConnectionShouldWork() {
         String result = queryToolsService.testConnection();
@@ -23,45 +39,185 @@ class QueryToolsServiceTest {
 
     @Test
     void testExecuteQueryWithNullSql() {
-        String result = queryToolsService.executeQuery(null, null);
+        String result = queryToolsService.executeQuery(null, null, null);
         assertTrue(result.contains("Error: SQL query cannot be null or empty"));
     }
 
     @Test
     void testExecuteQueryWithEmptySql() {
-        String result = queryToolsService.executeQuery("", null);
+        String result = queryToolsService.executeQuery("", null, null);
         assertTrue(result.contains("Error: SQL query cannot be null or empty"));
     }
 
     @Test
     void testExecuteValidSelectQuery() {
-        String result = queryToolsService.executeQuery("SELECT 1 as test_column", 10);
+        String result = queryToolsService.executeQuery("SELECT 1 as test_column", 10, "json");
         assertNotNull(result);
         assertTrue(result.contains("test_column") || result.contains("\"columnNames\""));
     }
 
+    @Test
+    void testExecuteQueryStreamsRowsAsColumnArrays() throws Exception {
+        String result = queryToolsService.executeQuery("SELECT X AS n, 'row' || X AS label FROM SYSTEM_RANGE(1, 25)", 10, "json");
+        JsonNode json = new ObjectMapper().readTree(result);
+
+        assertEquals("query_result", json.get("type").asText());
+        assertEquals(10, json.get("rowCount").asInt());
+        assertEquals(2, json.get("columnNames").size());
+        assertEquals(2, json.get("columnMetadata").size());
+        assertEquals(10, json.get("rows").size());
+        assertEquals(1, json.get("rows").get(0).get(0).asInt());
+        assertEquals("row1", json.get("rows").get(0).get(1).asText());
+    }
+
+    @Test
+    void testExecuteQueryReturnsPreviewAndResultHandle() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        JsonNode preview = mapper.readTree(
+            queryToolsService.executeQuery("SELECT X AS n FROM SYSTEM_RANGE(1, 250)", 1000, "json"));
+
+        assertEquals(250, preview.get("rowCount").asInt());
+        assertEquals(20, preview.get("previewRowCount").asInt());
+        assertEquals(20, preview.get("rows").size());
+        assertTrue(preview.get("message").asText().contains("first 15 and last 5 of 250"));
+        assertEquals(250, preview.get("rows").get(19).get(0).asInt());
+        assertEquals(230, preview.get("omittedRows").asInt());
+        assertEquals(125.5, preview.get("columnSummaries").get("X").get("mean").asDouble());
+
+        ResponseEntity<Publisher<DataBuffer>> response = queryResultController.getResult(preview.get("resultHandle").asText());
+        DataBuffer body = DataBufferUtils.join(response.getBody()).block();
+        JsonNode full = mapper.readTree(body.asInputStream());
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(250, full.get("rows").size());
+        assertEquals(250, full.get("rows").get(249).get(0).asInt());
+
+        assertEquals(HttpStatus.NOT_FOUND, queryResultController.getResult("unknown-handle").getStatusCode());
+    }
+
+    @Test
+    void testExecuteQueryDefaultsToCompactFormat() {
+        String result = queryToolsService.executeQuery("SELECT X AS n, 'row' || X AS label FROM SYSTEM_RANGE(1, 250)", 1000, null);
+
+        assertTrue(result.startsWith("query_result rowCount=250 "), result);
+        assertTrue(result.contains("\ncolumns: X:BIGINT|LABEL:"), result);
+        assertTrue(result.contains("\n1|row1\n"), result);
+        assertTrue(result.contains("\n250|row250\n"), result);
+        assertTrue(result.contains("... 230 rows omitted ..."), result);
+        assertTrue(result.contains("summary: X min=1 max=250 mean=125.5; LABEL distinct=250"), result);
+
+        assertTrue(queryToolsService.executeQuery("SELECT 1", 1, "yaml").startsWith("Error: Unknown result format 'yaml'"));
+    }
+
+    @Test
+    void testExecuteQueryPagedWalksThroughCursor() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        JsonNode first = mapper.readTree(queryToolsService.executeQueryPaged("SELECT X FROM SYSTEM_RANGE(1, 25)", 10));
+        assertEquals(10, first.get("rows").size());
+        assertTrue(first.get("hasMore").asBoolean());
+
+        String token = first.get("continuationToken").asText();
+        JsonNode second = mapper.readTree(queryToolsService.fetchNextPage(token, 10));
+        assertEquals(2, second.get("pageNumber").asInt());
+        assertEquals(10, second.get("rowOffset").asLong());
+        assertEquals(11, second.get("rows").get(0).get(0).asInt());
+
+        JsonNode last = mapper.readTree(queryToolsService.fetchNextPage(token, 10));
+        assertEquals(5, last.get("rows").size());
+        assertFalse(last.get("hasMore").asBoolean());
+        assertTrue(last.get("continuationToken").isNull());
+
+        assertTrue(queryToolsService.fetchNextPage(token, 10).startsWith("Error: Unknown or expired continuation token"));
+    }
+
     @Test
     void testExecuteInvalidQuery() {
-        String result = queryToolsService.executeQuery("INSERT INTO test VALUES (1)", null);
+        String result = queryToolsService.executeQuery("INSERT INTO test VALUES (1)", null, null);
         assertTrue(result.contains("Only SELECT queries are allowed"));
     }
 
     @Test
     void testExplainQuery() {
-        String result = queryToolsService.explainQuery("SELECT 1");
+        String result = queryToolsService.explainQuery("SELECT 1", null);
         assertNotNull(result);
         assertTrue(result.contains("QUERY PLAN") || result.contains("plan"));
+
+        String analyzed = queryToolsService.explainQuery("SELECT X FROM SYSTEM_RANGE(1, 10)", true);
+        assertTrue(analyzed.startsWith("Query plan"), analyzed);
+        assertTrue(analyzed.contains("scanCount"), analyzed);
+    }
+
+    @Test
+    void testCountTableRows() {
+        // H2 has no catalog statistics, so auto does not scan and exact runs as a background job
+        String result = queryToolsService.countTableRows("INFORMATION_SCHEMA", "TABLES", null);
+        assertTrue(result.contains("No row count available"), result);
+        assertTrue(result.contains("mode 'exact'"), result);
+
+        String exact = queryToolsService.countTableRows("INFORMATION_SCHEMA", "TABLES", "exact");
+        assertTrue(exact.contains("Row count started as a background query job"), exact);
+        assertTrue(exact.contains("Job id: "), exact);
     }
 
     @Test
     void testCountTableRowsWithNullSchema() {
-        String result = queryToolsService.countTableRows(null, "test_table");
+        String result = queryToolsService.countTableRows(null, "test_table", null);
         assertTrue(result.contains("Error: Schema name cannot be null or empty"));
     }
 
     @Test
     void testCountTableRowsWithNullTable() {
-        String result = queryToolsService.countTableRows("test_schema", null);
+        String result = queryToolsService.countTableRows("test_schema", null, null);
         assertTrue(result.contains("Error: Table name cannot be null or empty"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testCountTableRowsRejectsUnknownTableAndMode() {
+        String injected = queryToolsService.countTableRows("INFORMATION_SCHEMA", "TABLES; DROP TABLE x", "exact");
+        assertTrue(injected.startsWith("Error:"), injected);
+
+        String badMode = queryToolsService.countTableRows("INFORMATION_SCHEMA", "TABLES", "roughly");
+        assertTrue(badMode.contains("Unknown count mode"), badMode);
+    }
+
+    @Test
+    void testWorkloadsUseSeparateConnectionPools() throws Exception {
+        queryToolsService.executeQuery("SELECT 1", 1, null);
+        queryToolsService.explainQuery("SELECT 1", null);
+
+        JsonNode pools = new ObjectMapper().readTree(queryToolsService.getConnectionPoolStats());
+        for (String pool : new String[] {"interactive", "long-running", "metadata"}) {
+            assertTrue(pools.has(pool), pool);
+            assertTrue(pools.get(pool).get("maxSize").asInt() > 0, pool);
+        }
+        assertTrue(pools.get("interactive").get("total").asInt() > 0);
+        assertTrue(pools.get("metadata").get("total").asInt() > 0);
+        assertEquals(0, pools.get("interactive").get("waiting").asInt());
+    }
+
+    @Test
+    void testResultHandleServesArrowStream() throws Exception {
+        JsonNode preview = new ObjectMapper().readTree(
+            queryToolsService.executeQuery("SELECT X AS n, 'row' || X AS label FROM SYSTEM_RANGE(1, 250)", 1000, "json"));
+
+        ResponseEntity<Publisher<DataBuffer>> response =
+            queryResultController.getArrowResult(preview.get("resultHandle").asText());
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        DataBuffer body = DataBufferUtils.join(response.getBody()).block();
+        byte[] bytes = new byte[body.readableByteCount()];
+        body.read(bytes);
+
+        int rows = 0;
+        try (RootAllocator allocator = new RootAllocator();
+             ArrowStreamReader reader = new ArrowStreamReader(new ByteArrayInputStream(bytes), allocator)) {
+            while (reader.loadNextBatch()) {
+                VectorSchemaRoot root = reader.getVectorSchemaRoot();
+                for (int i = 0; i < root.getRowCount(); i++) {
+                    rows++;
+                    assertEquals("row" + rows, root.getVector("LABEL").getObject(i).toString());
+                }
+            }
+        }
+        assertEquals(250, rows);
+        assertEquals(HttpStatus.NOT_FOUND, queryResultController.getArrowResult("unknown-handle").getStatusCode());
+    }
+}
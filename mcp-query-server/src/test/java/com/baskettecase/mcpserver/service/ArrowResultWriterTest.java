@@ -0,0 +1,105 @@
+package com.baskettecase.mcpserver.service;
+
+import com.baskettecase.mcpserver.model.QueryResult;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowStreamReader;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArrowResultWriterTest {
+
+    private QueryExecutionService queryExecutionService;
+    private ArrowResultWriter arrowResultWriter;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        DataSource dataSource = org.springframework.boot.jdbc.DataSourceBuilder.create()
+            .url("jdbc:h2:mem:arrowtest;DB_CLOSE_DELAY=-1")
+            .username("sa")
+            .password("")
+            .driverClassName("org.h2.Driver")
+            .build();
+        queryExecutionService = new QueryExecutionService(dataSource);
+        arrowResultWriter = new ArrowResultWriter(64L * 1024 * 1024, 100);
+
+        try (Connection connection = dataSource.getConnection();
+             Statement stmt = connection.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS facts");
+            stmt.execute("CREATE TABLE facts (id BIGINT, region VARCHAR(20), amount DECIMAL(10,2))");
+            stmt.execute("INSERT INTO facts SELECT X, CASE WHEN MOD(X, 3) = 0 THEN NULL ELSE 'r' || MOD(X, 2) END, X / 4.0 "
+                + "FROM SYSTEM_RANGE(1, 250)");
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        arrowResultWriter.destroy();
+    }
+
+    @Test
+    void testStoredResultRoundTrips() throws Exception {
+        QueryResult result = queryExecutionService.executeQuery("SELECT id, region, amount FROM facts ORDER BY id", 1000);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        arrowResultWriter.write(result.getData(), result.getColumnMetadata(), out);
+
+        assertEquals(250, readBack(out.toByteArray(), 3));
+    }
+
+    @Test
+    void testResultIsWrittenInBatches() throws Exception {
+        QueryResult result = queryExecutionService.executeQuery("SELECT id, region, amount FROM facts ORDER BY id", 150);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        arrowResultWriter.write(result.getData(), result.getColumnMetadata(), out);
+
+        assertEquals(150, readBack(out.toByteArray(), 2));
+    }
+
+    /**
+     * Reads the stream back, checking values row by row.
+     * @return the number of rows read
+     */
+    private static long readBack(byte[] bytes, int expectedBatches) throws IOException {
+        long rows = 0;
+        int batches = 0;
+        try (RootAllocator allocator = new RootAllocator();
+             ArrowStreamReader reader = new ArrowStreamReader(new ByteArrayInputStream(bytes), allocator)) {
+            VectorSchemaRoot root = reader.getVectorSchemaRoot();
+            assertEquals(new ArrowType.Int(64, true), root.getSchema().getFields().get(0).getType());
+            assertEquals("DECIMAL", root.getSchema().getFields().get(2).getMetadata().get(ArrowResultWriter.SQL_TYPE_KEY));
+
+            while (reader.loadNextBatch()) {
+                batches++;
+                BigIntVector ids = (BigIntVector) root.getVector("ID");
+                VarCharVector regions = (VarCharVector) root.getVector("REGION");
+                VarCharVector amounts = (VarCharVector) root.getVector("AMOUNT");
+                for (int i = 0; i < root.getRowCount(); i++) {
+                    long id = ids.get(i);
+                    assertEquals(++rows, id);
+                    if (id % 3 == 0) {
+                        assertTrue(regions.isNull(i));
+                    } else {
+                        assertEquals("r" + id % 2, regions.getObject(i).toString());
+                    }
+                    assertEquals(id / 4.0, Double.parseDouble(amounts.getObject(i).toString()));
+                }
+            }
+        }
+        assertEquals(expectedBatches, batches);
+        return rows;
+    }
+}
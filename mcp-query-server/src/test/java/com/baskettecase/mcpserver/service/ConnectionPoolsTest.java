@@ -0,0 +1,32 @@
+package com.baskettecase.mcpserver.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionPoolsTest {
+
+    @Test
+    void testLongRunningPoolFitsEveryJobAndCursor() {
+        MockEnvironment environment = new MockEnvironment();
+
+        assertEquals(8, ConnectionPools.PoolSettings.from(environment, ConnectionPools.Workload.LONG_RUNNING).maxSize());
+
+        environment.setProperty("plumchat.query.jobs.max-concurrent", "6");
+        environment.setProperty("plumchat.query.cursor.max-open", "10");
+        assertEquals(16, ConnectionPools.PoolSettings.from(environment, ConnectionPools.Workload.LONG_RUNNING).maxSize());
+    }
+
+    @Test
+    void testExplicitPoolSizeWins() {
+        MockEnvironment environment = new MockEnvironment()
+            .withProperty("plumchat.query.cursor.max-open", "10")
+            .withProperty("plumchat.pools.long-running.max-size", "3")
+            .withProperty("plumchat.pools.interactive.max-size", "12");
+
+        assertEquals(3, ConnectionPools.PoolSettings.from(environment, ConnectionPools.Workload.LONG_RUNNING).maxSize());
+        assertEquals(12, ConnectionPools.PoolSettings.from(environment, ConnectionPools.Workload.INTERACTIVE).maxSize());
+        assertEquals(2, ConnectionPools.PoolSettings.from(environment, ConnectionPools.Workload.METADATA).maxSize());
+    }
+}
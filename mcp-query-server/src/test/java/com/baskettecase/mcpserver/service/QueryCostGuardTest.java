@@ -0,0 +1,124 @@
+package com.baskettecase.mcpserver.service;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryCostGuardTest {
+
+    private static final List<String> CROSS_JOIN_PLAN = List.of(
+        "Gather Motion 4:1  (slice2; segments: 4)  (cost=0.00..2500000000.00 rows=9000000000 width=16)",
+        "  ->  Nested Loop  (cost=0.00..1500000000.00 rows=2250000000 width=16)",
+        "        ->  Seq Scan on orders  (cost=0.00..1200.00 rows=25000 width=8)");
+    private static final List<String> LIMITED_PLAN = List.of(
+        "Limit  (cost=0.00..435.10 rows=1000 width=16)",
+        "  ->  Gather Motion 4:1  (slice2; segments: 4)  (cost=0.00..2500000000.00 rows=9000000000 width=16)");
+    private static final List<String> SORTED_LIMITED_PLAN = List.of(
+        "Limit  (cost=900000000.00..900000010.00 rows=1000 width=16)",
+        "  ->  Sort  (cost=900000000.00..2500000000.00 rows=9000000000 width=16)");
+
+    @Test
+    void testParsesTopPlanNodeEstimate() {
+        QueryCostGuard.PlanEstimate estimate = QueryCostGuard.parseEstimate(CROSS_JOIN_PLAN);
+        assertEquals(2_500_000_000d, estimate.totalCost());
+        assertEquals(9_000_000_000L, estimate.rows());
+
+        assertFalse(QueryCostGuard.parseEstimate(List.of("SELECT 1 /* no cost here */")).known());
+    }
+
+    @Test
+    void testCheapQueryIsAllowed() throws SQLException {
+        QueryCostGuard guard = new QueryCostGuard(sql -> List.of("Seq Scan on t  (cost=0.00..35.50 rows=2550 width=4)"),
+            true, 1_000_000, 100_000_000, 1_000_000, 100, 60);
+
+        QueryCostGuard.Admission admission = guard.admit("SELECT a FROM t", 100);
+        assertEquals(QueryCostGuard.Decision.ALLOW, admission.decision());
+        assertEquals("SELECT a FROM t", admission.sql());
+        assertNull(admission.explanation());
+    }
+
+    @Test
+    void testExpensivePipelinedQueryIsLimited() throws SQLException {
+        List<String> explained = new ArrayList<>();
+        QueryCostGuard guard = new QueryCostGuard(sql -> {
+            explained.add(sql);
+            return sql.contains("LIMIT") ? LIMITED_PLAN : CROSS_JOIN_PLAN;
+        }, true, 1_000_000, 100_000_000, 1_000_000, 100, 60);
+
+        QueryCostGuard.Admission admission = guard.admit("SELECT * FROM orders o, lineitem l WHERE o.id > 10;", 1000);
+        assertEquals(QueryCostGuard.Decision.DOWNGRADE, admission.decision());
+        assertTrue(admission.sql().endsWith("\n) AS plumchat_guarded LIMIT 1000"), admission.sql());
+        assertTrue(admission.explanation().contains("capped at 1000 rows"), admission.explanation());
+
+        // Same query formatted differently: answered from the plan cache
+        guard.admit("SELECT *\n  FROM orders o,  lineitem l WHERE o.id > 10", 1000);
+        assertEquals(2, explained.size());
+
+        // Other literals can have another plan, so they are explained again
+        guard.admit("SELECT * FROM orders o, lineitem l WHERE o.id > 99", 1000);
+        assertEquals(4, explained.size());
+    }
+
+    @Test
+    void testQueryThatStaysExpensiveWithLimitIsRejected() throws SQLException {
+        QueryCostGuard guard = new QueryCostGuard(sql -> sql.contains("LIMIT") ? SORTED_LIMITED_PLAN : CROSS_JOIN_PLAN,
+            true, 1_000_000, 100_000_000, 1_000_000, 100, 60);
+
+        QueryCostGuard.Admission admission = guard.admit("SELECT * FROM orders, lineitem ORDER BY 1", 1000);
+        assertEquals(QueryCostGuard.Decision.REJECT, admission.decision());
+        assertTrue(admission.explanation().startsWith("Query rejected by the cost guard"), admission.explanation());
+        assertTrue(admission.explanation().contains("join condition"));
+
+        assertThrows(IllegalArgumentException.class, () -> guard.admit("DELETE FROM orders", 10));
+    }
+
+    @Test
+    void testGuardFailsOpenWithoutAConnection() throws SQLException {
+        List<String> explained = new ArrayList<>();
+        QueryCostGuard guard = new QueryCostGuard(sql -> {
+            explained.add(sql);
+            if (explained.size() == 1) {
+                throw new SQLTransientConnectionException("plumchat-interactive - Connection is not available");
+            }
+            return CROSS_JOIN_PLAN;
+        }, true, 1_000_000, 100_000_000, 1_000_000, 100, 60);
+
+        QueryCostGuard.Admission admission = guard.admit("SELECT * FROM orders, lineitem", 1000);
+        assertEquals(QueryCostGuard.Decision.ALLOW, admission.decision());
+        assertFalse(admission.estimate().known());
+
+        // The failure is not cached: the next call explains the query again
+        guard.admit("SELECT * FROM orders, lineitem", 1000);
+        assertEquals("SELECT * FROM orders, lineitem", explained.get(1));
+
+        // Other SQL errors, such as an unknown table, still fail the query
+        QueryCostGuard failing = new QueryCostGuard(sql -> {
+            throw new SQLException("relation \"nope\" does not exist", "42P01");
+        }, true, 1_000_000, 100_000_000, 1_000_000, 100, 60);
+        assertThrows(SQLException.class, () -> failing.admit("SELECT * FROM nope", 10));
+    }
+
+    @Test
+    void testLimitedQueryRunsOnDatabase() throws SQLException {
+        DataSource dataSource = org.springframework.boot.jdbc.DataSourceBuilder.create()
+            .url("jdbc:h2:mem:guardtest;DB_CLOSE_DELAY=-1")
+            .username("sa")
+            .password("")
+            .driverClassName("org.h2.Driver")
+            .build();
+        QueryExecutionService queryExecutionService = new QueryExecutionService(dataSource);
+
+        String limited = QueryCostGuard.withLimit("SELECT X FROM SYSTEM_RANGE(1, 50) -- trailing comment", 7);
+        assertEquals(7, queryExecutionService.executeQuery(limited, 100).getRowCount());
+
+        // H2 plans carry no cost, so the guard lets everything through
+        QueryCostGuard guard = new QueryCostGuard(queryExecutionService, true, 1_000_000, 100_000_000, 1_000_000, 100, 60);
+        assertEquals(QueryCostGuard.Decision.ALLOW, guard.admit("SELECT X FROM SYSTEM_RANGE(1, 50)", 10).decision());
+    }
+}
@@ -0,0 +1,99 @@
+package com.baskettecase.mcpserver.service;
+
+import com.baskettecase.mcpserver.model.CursorPage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryCursorServiceTest {
+
+    private QueryCursorService queryCursorService;
+
+    @BeforeEach
+    void setUp() {
+        DataSource dataSource = org.springframework.boot.jdbc.DataSourceBuilder.create()
+            .url("jdbc:h2:mem:cursortest;DB_CLOSE_DELAY=-1")
+            .username("sa")
+            .password("")
+            .driverClassName("org.h2.Driver")
+            .build();
+        queryCursorService = new QueryCursorService(dataSource, 0, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        queryCursorService.shutdown();
+    }
+
+    @Test
+    void testExhaustedCursorIsClosed() throws SQLException {
+        CursorPage page = queryCursorService.openCursor("SELECT X FROM SYSTEM_RANGE(1, 3)", 10);
+
+        assertEquals(3, page.result().getRowCount());
+        assertFalse(page.hasMore());
+        assertEquals(0, queryCursorService.getOpenCursorCount());
+    }
+
+    @Test
+    void testResultEndingOnPageBoundaryHasNoEmptyLastPage() throws SQLException {
+        CursorPage first = queryCursorService.openCursor("SELECT X FROM SYSTEM_RANGE(1, 20)", 10);
+        assertTrue(first.hasMore());
+
+        CursorPage second = queryCursorService.fetchNextPage(first.continuationToken(), 10);
+        assertEquals(10, second.result().getRowCount());
+        assertEquals(10, second.rowOffset());
+        assertEquals(11L, second.result().getData().getColumn(0).getValue(0));
+        assertEquals(20L, second.result().getData().getColumn(0).getValue(9));
+        assertFalse(second.hasMore());
+        assertEquals(0, queryCursorService.getOpenCursorCount());
+    }
+
+    @Test
+    void testIdleCursorsAreClosed() throws Exception {
+        CursorPage page = queryCursorService.openCursor("SELECT X FROM SYSTEM_RANGE(1, 100)", 10);
+        assertTrue(page.hasMore());
+        assertEquals(1, queryCursorService.getOpenCursorCount());
+
+        Thread.sleep(5);
+        queryCursorService.closeIdleCursors();
+
+        assertEquals(0, queryCursorService.getOpenCursorCount());
+        assertThrows(IllegalArgumentException.class, () ->
+            queryCursorService.fetchNextPage(page.continuationToken(), 10));
+    }
+
+    @Test
+    void testOpenCursorLimitIsEnforced() throws Exception {
+        QueryCursorService limited = new QueryCursorService(org.springframework.boot.jdbc.DataSourceBuilder.create()
+            .url("jdbc:h2:mem:cursorlimit;DB_CLOSE_DELAY=-1")
+            .username("sa")
+            .password("")
+            .driverClassName("org.h2.Driver")
+            .build(), 300, 1);
+        try {
+            CursorPage page = limited.openCursor("SELECT X FROM SYSTEM_RANGE(1, 100)", 10);
+            assertThrows(IllegalStateException.class, () ->
+                limited.openCursor("SELECT X FROM SYSTEM_RANGE(1, 100)", 10));
+
+            // Closed and failed cursors give their slot back
+            limited.closeCursor(page.continuationToken());
+            assertThrows(SQLException.class, () -> limited.openCursor("SELECT * FROM missing_table", 10));
+            assertTrue(limited.openCursor("SELECT X FROM SYSTEM_RANGE(1, 100)", 10).hasMore());
+        } finally {
+            limited.shutdown();
+        }
+    }
+
+    @Test
+    void testCloseCursor() throws SQLException {
+        CursorPage page = queryCursorService.openCursor("SELECT X FROM SYSTEM_RANGE(1, 100)", 10);
+
+        assertTrue(queryCursorService.closeCursor(page.continuationToken()));
+        assertFalse(queryCursorService.closeCursor(page.continuationToken()));
+    }
+}
@@ -0,0 +1,105 @@
+package com.baskettecase.mcpserver.service;
+
+import com.baskettecase.mcpserver.model.ColumnVector;
+import com.baskettecase.mcpserver.model.ColumnarResult;
+import com.baskettecase.mcpserver.model.QueryResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryExecutionServiceTest {
+
+    private QueryExecutionService queryExecutionService;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        DataSource dataSource = org.springframework.boot.jdbc.DataSourceBuilder.create()
+            .url("jdbc:h2:mem:querytest;DB_CLOSE_DELAY=-1")
+            .username("sa")
+            .password("")
+            .driverClassName("org.h2.Driver")
+            .build();
+        queryExecutionService = new QueryExecutionService(dataSource);
+
+        try (Connection connection = dataSource.getConnection();
+             Statement stmt = connection.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS facts");
+            stmt.execute("CREATE TABLE facts (" +
+                "id BIGINT PRIMARY KEY, " +
+                "qty INTEGER, " +
+                "price DOUBLE PRECISION, " +
+                "active BOOLEAN, " +
+                "region VARCHAR(20), " +
+                "amount DECIMAL(10,2))");
+            stmt.execute("INSERT INTO facts VALUES " +
+                "(1, 10, 1.5, TRUE, 'east', 10.25), " +
+                "(2, NULL, 2.5, FALSE, 'west', NULL), " +
+                "(3, 30, NULL, NULL, 'east', 30.75), " +
+                "(4, 40, 4.5, TRUE, NULL, 40.00)");
+        }
+    }
+
+    @Test
+    void testExecuteQueryChoosesTypedColumnVectors() throws SQLException {
+        QueryResult result = queryExecutionService.executeQuery(
+            "SELECT id, qty, price, active, region, amount FROM facts ORDER BY id", 100);
+        ColumnarResult data = result.getData();
+
+        assertEquals(4, result.getRowCount());
+        assertEquals(4, data.getRowCount());
+        assertInstanceOf(ColumnVector.LongVector.class, data.getColumn(0));
+        assertInstanceOf(ColumnVector.LongVector.class, data.getColumn(1));
+        assertInstanceOf(ColumnVector.DoubleVector.class, data.getColumn(2));
+        assertInstanceOf(ColumnVector.BooleanVector.class, data.getColumn(3));
+        assertInstanceOf(ColumnVector.StringVector.class, data.getColumn(4));
+        assertInstanceOf(ColumnVector.ObjectVector.class, data.getColumn(5));
+    }
+
+    @Test
+    void testExecuteQueryPreservesValuesAndNulls() throws SQLException {
+        ColumnarResult data = queryExecutionService.executeQuery(
+            "SELECT id, qty, price, active, region, amount FROM facts ORDER BY id", 100).getData();
+
+        assertEquals(40L, ((ColumnVector.LongVector) data.getColumn(1)).getLong(3));
+        assertTrue(data.getColumn(1).isNull(1));
+        assertNull(data.getValue(1, 1));
+        assertEquals(2.5, ((ColumnVector.DoubleVector) data.getColumn(2)).getDouble(1));
+        assertTrue(data.getColumn(2).isNull(2));
+        assertNull(data.getValue(2, 3));
+        assertEquals(Boolean.FALSE, data.getValue(1, 3));
+        assertNull(data.getValue(3, 4));
+        assertEquals(0, new BigDecimal("30.75").compareTo((BigDecimal) data.getValue(2, 5)));
+    }
+
+    @Test
+    void testStringColumnsAreDictionaryEncoded() throws SQLException {
+        ColumnarResult data = queryExecutionService.executeQuery("SELECT region FROM facts ORDER BY id", 100).getData();
+        ColumnVector.StringVector regions = (ColumnVector.StringVector) data.getColumn(0);
+
+        assertEquals(2, regions.getDictionary().size());
+        assertEquals(regions.getCode(0), regions.getCode(2));
+        assertEquals("west", regions.getString(1));
+    }
+
+    @Test
+    void testExecuteQueryHonoursMaxRows() throws SQLException {
+        QueryResult result = queryExecutionService.executeQuery("SELECT X FROM SYSTEM_RANGE(1, 5000)", 1500);
+
+        assertEquals(1500, result.getRowCount());
+        assertEquals(1500L, result.getData().getValue(1499, 0));
+        assertTrue(result.getData().estimatedSizeBytes() > 1500 * 8L);
+    }
+
+    @Test
+    void testExecuteQueryRejectsNonSelect() {
+        assertThrows(IllegalArgumentException.class, () ->
+            queryExecutionService.executeQuery("DELETE FROM facts", 10));
+    }
+}
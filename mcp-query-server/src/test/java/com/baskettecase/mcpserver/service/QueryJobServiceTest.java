@@ -0,0 +1,147 @@
+package com.baskettecase.mcpserver.service;
+
+import com.baskettecase.mcpserver.model.QueryJobStatus;
+import com.baskettecase.mcpserver.model.QueryJobStatus.State;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryJobServiceTest {
+
+    private static final String LONG_QUERY =
+        "SELECT COUNT(*) FROM SYSTEM_RANGE(1, 100000) a, SYSTEM_RANGE(1, 100000) b WHERE MOD(a.X * b.X, 7) = 3";
+
+    private QueryJobService queryJobService;
+
+    private QueryJobService createService(int maxActive, long resultBudgetBytes) {
+        DataSource dataSource = org.springframework.boot.jdbc.DataSourceBuilder.create()
+            .url("jdbc:h2:mem:jobtest;DB_CLOSE_DELAY=-1")
+            .username("sa")
+            .password("")
+            .driverClassName("org.h2.Driver")
+            .build();
+        queryJobService = new QueryJobService(new QueryExecutionService(dataSource), 2, 8, maxActive, resultBudgetBytes, 1800);
+        return queryJobService;
+    }
+
+    @AfterEach
+    void tearDown() {
+        queryJobService.shutdown();
+    }
+
+    @Test
+    void testSubmittedJobSucceeds() throws Exception {
+        QueryJobService service = createService(2, 64 * 1024 * 1024);
+        QueryJobStatus submitted = service.submit("SELECT X FROM SYSTEM_RANGE(1, 50)", 100);
+
+        QueryJobStatus status = awaitFinished(service, submitted.jobId());
+
+        assertEquals(State.SUCCEEDED, status.state());
+        assertEquals(50, status.rowCount());
+        assertEquals(50, service.getResult(submitted.jobId()).getRowCount());
+    }
+
+    @Test
+    void testRunningJobCanBeCancelled() throws Exception {
+        QueryJobService service = createService(2, 64 * 1024 * 1024);
+        QueryJobStatus submitted = service.submit(LONG_QUERY, 1);
+
+        while (service.getStatus(submitted.jobId()).state() == State.QUEUED) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(100);
+        service.cancel(submitted.jobId());
+
+        assertEquals(State.CANCELLED, awaitFinished(service, submitted.jobId()).state());
+        assertThrows(IllegalStateException.class, () -> service.getResult(submitted.jobId()));
+    }
+
+    @Test
+    void testActiveJobLimitIsEnforced() throws Exception {
+        QueryJobService service = createService(1, 64 * 1024 * 1024);
+        QueryJobStatus first = service.submit(LONG_QUERY, 1);
+
+        assertThrows(IllegalStateException.class, () -> service.submit("SELECT 1", 1));
+
+        service.cancel(first.jobId());
+        awaitFinished(service, first.jobId());
+        QueryJobStatus next = service.submit("SELECT 1", 1);
+        assertEquals(State.SUCCEEDED, awaitFinished(service, next.jobId()).state());
+    }
+
+    @Test
+    void testJobCancelledBeforeExecutionNeverRuns() throws Exception {
+        DataSource h2 = org.springframework.boot.jdbc.DataSourceBuilder.create()
+            .url("jdbc:h2:mem:jobtest;DB_CLOSE_DELAY=-1")
+            .username("sa")
+            .password("")
+            .driverClassName("org.h2.Driver")
+            .build();
+        // Holds the job between RUNNING and statement execution
+        CountDownLatch acquiring = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        DataSource gated = (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(),
+            new Class<?>[] {DataSource.class}, (proxy, method, args) -> {
+                if (method.getName().equals("getConnection")) {
+                    acquiring.countDown();
+                    assertTrue(release.await(5, TimeUnit.SECONDS));
+                }
+                try {
+                    return method.invoke(h2, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+        queryJobService = new QueryJobService(new QueryExecutionService(gated), 1, 8, 1, 64 * 1024 * 1024, 1800);
+
+        QueryJobStatus submitted = queryJobService.submit(LONG_QUERY, 1);
+        assertTrue(acquiring.await(5, TimeUnit.SECONDS));
+        assertEquals(State.RUNNING, queryJobService.getStatus(submitted.jobId()).state());
+        queryJobService.cancel(submitted.jobId());
+        release.countDown();
+
+        // The long query would take far longer than this if it had been sent
+        long start = System.currentTimeMillis();
+        assertEquals(State.CANCELLED, awaitFinished(queryJobService, submitted.jobId()).state());
+        assertTrue(System.currentTimeMillis() - start < 5_000);
+
+        QueryJobStatus next = queryJobService.submit("SELECT 1", 1);
+        assertEquals(State.SUCCEEDED, awaitFinished(queryJobService, next.jobId()).state());
+    }
+
+    @Test
+    void testOldestResultsAreEvictedOverBudget() throws Exception {
+        QueryJobService service = createService(4, 40 * 1024);
+        QueryJobStatus first = service.submit("SELECT X FROM SYSTEM_RANGE(1, 4000)", 4000);
+        awaitFinished(service, first.jobId());
+        QueryJobStatus second = service.submit("SELECT X FROM SYSTEM_RANGE(1, 4000)", 4000);
+        awaitFinished(service, second.jobId());
+
+        assertEquals(State.EXPIRED, service.getStatus(first.jobId()).state());
+        assertEquals(State.SUCCEEDED, service.getStatus(second.jobId()).state());
+        assertTrue(service.getRetainedResultBytes() <= 40 * 1024);
+    }
+
+    @Test
+    void testNonSelectIsRejectedAtSubmit() {
+        QueryJobService service = createService(2, 64 * 1024 * 1024);
+        assertThrows(IllegalArgumentException.class, () -> service.submit("DROP TABLE x", 1));
+    }
+
+    private static QueryJobStatus awaitFinished(QueryJobService service, String jobId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30_000;
+        QueryJobStatus status = service.getStatus(jobId);
+        while (!status.state().isFinished() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            status = service.getStatus(jobId);
+        }
+        return status;
+    }
+}
@@ -0,0 +1,102 @@
+package com.baskettecase.mcpserver.service;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryMetricsTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private QueryMetrics queryMetrics;
+    private QueryExecutionService queryExecutionService;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        DataSource dataSource = org.springframework.boot.jdbc.DataSourceBuilder.create()
+            .url("jdbc:h2:mem:metricstest;DB_CLOSE_DELAY=-1")
+            .username("sa")
+            .password("")
+            .driverClassName("org.h2.Driver")
+            .build();
+        meterRegistry = new SimpleMeterRegistry();
+        queryMetrics = new QueryMetrics(meterRegistry, 2);
+        queryExecutionService = new QueryExecutionService(dataSource, queryMetrics);
+
+        try (Connection connection = dataSource.getConnection();
+             Statement stmt = connection.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS facts");
+            stmt.execute("CREATE TABLE facts (id BIGINT PRIMARY KEY, region VARCHAR(20))");
+            stmt.execute("INSERT INTO facts VALUES (1, 'east'), (2, 'west'), (3, 'east')");
+        }
+    }
+
+    @Test
+    void testQueriesDifferingOnlyInLiteralsShareOneShape() throws SQLException {
+        queryExecutionService.executeQuery("SELECT id FROM facts WHERE region = 'east'", 100);
+        queryExecutionService.executeQuery("SELECT id FROM facts WHERE region = 'west'", 100);
+
+        Map<String, Object> stats = queryMetrics.getTopStats(10);
+        assertEquals(1, stats.get("queryShapes"));
+
+        Map<String, Object> shape = firstShape(stats, "mostFrequent");
+        assertEquals(2L, shape.get("executions"));
+        assertEquals(3L, shape.get("rows"));
+        assertTrue(((String) shape.get("fingerprint")).contains("REGION = ?"));
+        assertTrue(((Map<?, ?>) shape.get("phases")).containsKey("execute"));
+
+        String fingerprintId = (String) shape.get("fingerprintId");
+        for (String phase : List.of("acquire", "execute", "fetch", "total")) {
+            Timer timer = meterRegistry.find("plumchat.query.latency")
+                .tag("phase", phase).tag("fingerprint", fingerprintId).timer();
+            assertNotNull(timer, phase);
+            assertEquals(2, timer.count(), phase);
+        }
+    }
+
+    @Test
+    void testFailedQueryIsCountedAsError() {
+        assertThrows(SQLException.class,
+            () -> queryExecutionService.executeQuery("SELECT missing_column FROM facts", 100));
+
+        Map<String, Object> shape = firstShape(queryMetrics.getTopStats(10), "slowest");
+        assertEquals(0L, shape.get("executions"));
+        assertEquals(1L, shape.get("errors"));
+    }
+
+    @Test
+    void testShapesBeyondTheLimitAreFoldedIntoOther() throws SQLException {
+        queryExecutionService.executeQuery("SELECT id FROM facts", 100);
+        queryExecutionService.executeQuery("SELECT region FROM facts", 100);
+        queryExecutionService.executeQuery("SELECT id, region FROM facts", 100);
+        queryExecutionService.executeQuery("SELECT region, id FROM facts", 100);
+        queryExecutionService.executeQuery("SELECT id FROM facts WHERE id = 1", 100);
+
+        Map<String, Object> stats = queryMetrics.getTopStats(10);
+        assertEquals(3, stats.get("queryShapes"));
+        Map<String, Object> other = firstShape(stats, "mostFrequent");
+        assertEquals("other", other.get("fingerprintId"));
+        assertEquals(3L, other.get("executions"));
+        assertEquals(7L, other.get("rows"));
+
+        assertEquals(3, meterRegistry.find("plumchat.query.latency").tag("fingerprint", "other")
+            .tag("phase", "total").timer().count());
+        assertEquals(3, meterRegistry.find("plumchat.query.latency").tag("phase", "total").timers().size());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> firstShape(Map<String, Object> stats, String ranking) {
+        List<Map<String, Object>> shapes = (List<Map<String, Object>>) stats.get(ranking);
+        assertFalse(shapes.isEmpty());
+        return shapes.get(0);
+    }
+}
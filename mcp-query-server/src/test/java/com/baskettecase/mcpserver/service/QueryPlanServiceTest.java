@@ -0,0 +1,145 @@
+package com.baskettecase.mcpserver.service;
+
+import com.baskettecase.mcpserver.model.PlanNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryPlanServiceTest {
+
+    // EXPLAIN (FORMAT JSON, ANALYZE) of a join whose small side is broadcast to every segment
+    private static final String GREENPLUM_PLAN = """
+        [
+          {
+            "Plan": {
+              "Node Type": "Gather Motion", "Senders": 4, "Receivers": 1, "Slice": 2,
+              "Startup Cost": 10.0, "Total Cost": 5200.0, "Plan Rows": 1000,
+              "Actual Rows": 98000, "Actual Loops": 1, "Actual Total Time": 812.5,
+              "Plans": [
+                {
+                  "Node Type": "Hash Join", "Slice": 1,
+                  "Startup Cost": 10.0, "Total Cost": 5000.0, "Plan Rows": 1000,
+                  "Actual Rows": 98000, "Actual Loops": 1, "Actual Total Time": 790.0,
+                  "Rows out": "Avg 24500.0 rows x 4 workers.  Max 80000 rows (seg2) with 3.1 ms to first row",
+                  "Plans": [
+                    {
+                      "Node Type": "Seq Scan", "Relation Name": "orders", "Slice": 1,
+                      "Startup Cost": 0.0, "Total Cost": 4000.0, "Plan Rows": 100000,
+                      "Actual Rows": 100000, "Actual Loops": 1, "Actual Total Time": 400.0
+                    },
+                    {
+                      "Node Type": "Hash", "Slice": 1,
+                      "Startup Cost": 0.0, "Total Cost": 900.0, "Plan Rows": 50,
+                      "Actual Rows": 50, "Actual Loops": 1, "Actual Total Time": 20.0,
+                      "Plans": [
+                        {
+                          "Node Type": "Broadcast Motion", "Senders": 4, "Receivers": 4, "Slice": 0,
+                          "Startup Cost": 0.0, "Total Cost": 900.0, "Plan Rows": 50,
+                          "Actual Rows": 50, "Actual Loops": 1, "Actual Total Time": 19.0,
+                          "Plans": [
+                            {
+                              "Node Type": "Seq Scan", "Relation Name": "regions", "Slice": 0,
+                              "Startup Cost": 0.0, "Total Cost": 850.0, "Plan Rows": 50,
+                              "Actual Rows": 50, "Actual Loops": 1, "Actual Total Time": 2.0
+                            }
+                          ]
+                        }
+                      ]
+                    }
+                  ]
+                }
+              ]
+            },
+            "Planning Time": 4.2,
+            "Execution Time": 815.0
+          }
+        ]
+        """;
+
+    private QueryExecutionService queryExecutionService;
+    private QueryPlanService queryPlanService;
+
+    @BeforeEach
+    void setUp() {
+        DataSource dataSource = org.springframework.boot.jdbc.DataSourceBuilder.create()
+            .url("jdbc:h2:mem:plantest;DB_CLOSE_DELAY=-1")
+            .username("sa")
+            .password("")
+            .driverClassName("org.h2.Driver")
+            .build();
+        queryExecutionService = new QueryExecutionService(dataSource);
+        queryPlanService = new QueryPlanService(queryExecutionService, 60, 5, 10, 2);
+    }
+
+    @Test
+    void testParsesPlanTree() {
+        QueryPlanService.PlanTree tree = queryPlanService.parse(GREENPLUM_PLAN);
+        PlanNode root = tree.root();
+
+        assertEquals("Gather Motion", root.nodeType());
+        assertTrue(root.isMotion());
+        assertEquals(4, root.senders());
+        assertEquals(815.0, tree.executionTimeMs());
+
+        PlanNode join = root.children().get(0);
+        assertEquals(100.0, join.selfCost());
+        assertEquals(80000.0, join.maxSegmentRows());
+        assertEquals(24500.0, join.avgSegmentRows());
+        assertEquals("orders", join.children().get(0).relation());
+        assertEquals(5, join.children().get(1).children().get(0).children().get(0).id());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testReportsHotspots() {
+        Map<String, Object> analysis = queryPlanService.analyze(queryPlanService.parse(GREENPLUM_PLAN), true, 900);
+
+        assertEquals(6, analysis.get("nodeCount"));
+        assertEquals(3, analysis.get("slices"));
+
+        List<Map<String, Object>> topCost = (List<Map<String, Object>>) analysis.get("topCostNodes");
+        assertEquals("orders", topCost.get(0).get("relation"));
+        assertEquals(4000.0, topCost.get(0).get("selfCost"));
+
+        List<Map<String, Object>> misestimates = (List<Map<String, Object>>) analysis.get("misestimates");
+        assertEquals(2, misestimates.size());
+        assertEquals("underestimated", misestimates.get(0).get("direction"));
+        assertEquals(98.0, misestimates.get(0).get("factor"));
+
+        List<Map<String, Object>> broadcasts = (List<Map<String, Object>>) analysis.get("broadcastMotions");
+        assertEquals(1, broadcasts.size());
+        assertEquals(4, broadcasts.get(0).get("receivers"));
+
+        List<Map<String, Object>> skew = (List<Map<String, Object>>) analysis.get("skew");
+        assertEquals(1, skew.size());
+        assertEquals("Hash Join", skew.get(0).get("nodeType"));
+
+        List<String> outline = (List<String>) analysis.get("plan");
+        assertEquals("        #5 Seq Scan on regions [slice0] cost=0.0..850.0 rows=50 actual rows=50.0 loops=1 time=2.0ms",
+            outline.get(5));
+    }
+
+    @Test
+    void testEstimatesOnlyWithoutAnalyze() {
+        Map<String, Object> analysis = queryPlanService.analyze(queryPlanService.parse(GREENPLUM_PLAN), false, 5);
+        assertFalse(analysis.containsKey("misestimates"));
+        assertTrue(analysis.get("note").toString().contains("analyze=true"));
+    }
+
+    @Test
+    void testDatabaseWithoutJsonPlansReturnsPlanText() throws SQLException {
+        assertFalse(queryExecutionService.supportsJsonPlans());
+
+        QueryPlanService.ExplainedPlan explained = queryPlanService.explain("SELECT X FROM SYSTEM_RANGE(1, 5)", true);
+        assertNull(explained.analysis());
+        assertTrue(explained.plan().getRows().get(0).get("QUERY PLAN").toString().contains("SYSTEM_RANGE"));
+
+        assertThrows(IllegalStateException.class, () -> queryPlanService.parse("not a plan"));
+    }
+}
@@ -0,0 +1,140 @@
+package com.baskettecase.mcpserver.service;
+
+import com.baskettecase.mcpserver.model.QueryResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryResultCacheTest {
+
+    private QueryResultCache cache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        cache = new QueryResultCache(true, 1024 * 1024, 300);
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    void testRepeatedQueryIsServedFromCache() throws Exception {
+        QueryResultCache.CachedResult first = cache.getOrLoad("SELECT 1", 100, this::load);
+        QueryResultCache.CachedResult second = cache.getOrLoad("SELECT 1", 100, this::load);
+
+        assertFalse(first.cacheHit());
+        assertTrue(second.cacheHit());
+        assertSame(first.result(), second.result());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testRowLimitIsPartOfTheKey() throws Exception {
+        cache.getOrLoad("SELECT 1", 100, this::load);
+        QueryResultCache.CachedResult other = cache.getOrLoad("SELECT 1", 200, this::load);
+
+        assertFalse(other.cacheHit());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testWhitespaceDifferencesShareAnEntry() throws Exception {
+        cache.getOrLoad("SELECT  id\n FROM facts;", 100, this::load);
+        QueryResultCache.CachedResult hit = cache.getOrLoad("SELECT id FROM facts", 100, this::load);
+
+        assertTrue(hit.cacheHit());
+        assertEquals("SELECT 'a  b' FROM t", QueryResultCache.normalize("SELECT   'a  b'\tFROM t ;"));
+    }
+
+    @Test
+    void testVolatileQueriesBypassCache() throws Exception {
+        cache.getOrLoad("SELECT now()", 100, this::load);
+        QueryResultCache.CachedResult again = cache.getOrLoad("SELECT now()", 100, this::load);
+
+        assertFalse(again.cacheHit());
+        assertEquals(2, loads.get());
+        assertFalse(QueryResultCache.isCacheable("SELECT RANDOM() FROM t"));
+        assertTrue(QueryResultCache.isCacheable("SELECT random_id FROM t"));
+    }
+
+    @Test
+    void testInvalidateAndStats() throws Exception {
+        cache.getOrLoad("SELECT 1", 100, this::load);
+        cache.getOrLoad("SELECT 1", 100, this::load);
+        cache.invalidateAll();
+        QueryResultCache.CachedResult reloaded = cache.getOrLoad("SELECT 1", 100, this::load);
+
+        assertFalse(reloaded.cacheHit());
+        cache.cleanUp();
+        Map<String, Object> stats = cache.getStats();
+        assertEquals(1L, stats.get("hits"));
+        assertEquals(2L, stats.get("misses"));
+        assertEquals(1L, stats.get("entries"));
+    }
+
+    @Test
+    void testDisabledCacheAlwaysLoads() throws Exception {
+        QueryResultCache disabled = new QueryResultCache(false, 1024 * 1024, 300);
+        disabled.getOrLoad("SELECT 1", 100, this::load);
+        QueryResultCache.CachedResult again = disabled.getOrLoad("SELECT 1", 100, this::load);
+
+        assertFalse(again.cacheHit());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testConcurrentIdenticalQueriesRunOnceWithoutCaching() throws Exception {
+        QueryResultCache uncached = new QueryResultCache(false, 1024 * 1024, 300);
+        CountDownLatch release = new CountDownLatch(1);
+        QueryResultCache.QueryLoader slowLoad = () -> {
+            QueryResult result = load();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return result;
+        };
+
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            Future<QueryResultCache.CachedResult> first = callers.submit(() -> uncached.getOrLoad("SELECT 1", 100, slowLoad));
+            while (loads.get() == 0) {
+                Thread.sleep(10);
+            }
+            Future<QueryResultCache.CachedResult> second = callers.submit(() -> uncached.getOrLoad("SELECT  1;", 100, slowLoad));
+            while (!uncached.getStats().get("coalesced").equals(1L)) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+
+            assertFalse(first.get(5, TimeUnit.SECONDS).coalesced());
+            QueryResultCache.CachedResult shared = second.get(5, TimeUnit.SECONDS);
+            assertTrue(shared.coalesced());
+            assertFalse(shared.cacheHit());
+            assertSame(first.get().result(), shared.result());
+            assertEquals(1, loads.get());
+        } finally {
+            release.countDown();
+            callers.shutdownNow();
+        }
+
+        // Once finished, a disabled cache runs the query again
+        assertFalse(uncached.getOrLoad("SELECT 1", 100, this::load).coalesced());
+        assertEquals(2, loads.get());
+    }
+
+    private QueryResult load() {
+        loads.incrementAndGet();
+        return new QueryResult(List.of("value"), null, 0, 1);
+    }
+}
@@ -0,0 +1,138 @@
+package com.baskettecase.mcpserver.service;
+
+import com.baskettecase.mcpserver.model.QueryResult;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResultEncodersTest {
+
+    private static final String NOTE = "Summarize the result.";
+
+    private QueryExecutionService queryExecutionService;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        DataSource dataSource = org.springframework.boot.jdbc.DataSourceBuilder.create()
+            .url("jdbc:h2:mem:encodertest;DB_CLOSE_DELAY=-1")
+            .username("sa")
+            .password("")
+            .driverClassName("org.h2.Driver")
+            .build();
+        queryExecutionService = new QueryExecutionService(dataSource);
+
+        try (Connection connection = dataSource.getConnection();
+             Statement stmt = connection.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS facts");
+            stmt.execute("CREATE TABLE facts (id BIGINT, region VARCHAR(40), amount DECIMAL(10,2))");
+            stmt.execute("INSERT INTO facts SELECT X, CASE WHEN MOD(X, 3) = 0 THEN NULL ELSE 'r' || MOD(X, 2) END, X / 4.0 "
+                + "FROM SYSTEM_RANGE(1, 500)");
+            stmt.execute("INSERT INTO facts VALUES (501, 'a|b, \"c\"', NULL)");
+        }
+    }
+
+    @Test
+    void testSmallResultIsShownInFull() throws SQLException {
+        QueryResult result = queryExecutionService.executeQuery("SELECT id, region FROM facts WHERE id <= 4 ORDER BY id", 100);
+        ResultEncoders encoders = ResultEncoders.defaults();
+
+        String compact = encoders.encode(encoders.encoder(null), result, Map.of("resultHandle", "h1"), 20, NOTE);
+
+        assertEquals("""
+            query_result rowCount=4 executionTimeMs=%d resultHandle=h1 previewRowCount=4
+            columns: ID:BIGINT|REGION:CHARACTER VARYING
+            1|r1
+            2|r0
+            3|NULL
+            4|r0
+            """.formatted(result.getExecutionTimeMs()), compact);
+    }
+
+    @Test
+    void testTruncationKeepsFirstAndLastRowsWithinBudget() throws SQLException {
+        QueryResult result = queryExecutionService.executeQuery("SELECT id, region, amount FROM facts ORDER BY id", 1000);
+        ResultEncoders encoders = new ResultEncoders(List.of(), "compact", 150);
+
+        for (String format : new String[] {"compact", "csv", "tsv", "markdown", "json"}) {
+            String encoded = encoders.encode(encoders.encoder(format), result, Map.of(), 100, NOTE);
+            assertTrue(ResultEncoders.estimateTokens(encoded) <= 150 || format.equals("json"), format + ": " + encoded);
+            assertTrue(encoded.contains(" of 501 rows. " + NOTE), format);
+            assertTrue(encoded.contains("mean=251.0") || format.equals("json"), format + ": " + encoded);
+        }
+
+        String compact = encoders.encode(encoders.encoder("compact"), result, Map.of(), 100, NOTE);
+        assertTrue(compact.contains("\n1|r1|0.25\n"), compact);
+        assertTrue(compact.contains("\n501|a\\|b, \"c\"|NULL\n"), compact);
+        assertTrue(compact.contains("REGION nulls=166 distinct=3"), compact);
+    }
+
+    @Test
+    void testJsonKeepsStructuredFields() throws Exception {
+        QueryResult result = queryExecutionService.executeQuery("SELECT id, region FROM facts ORDER BY id", 1000);
+        ResultEncoders encoders = ResultEncoders.defaults();
+
+        JsonNode json = new ObjectMapper().readTree(
+            encoders.encode(encoders.encoder("JSON"), result, Map.of("resultHandle", "h2"), 8, NOTE));
+
+        assertEquals("query_result", json.get("type").asText());
+        assertEquals("h2", json.get("resultHandle").asText());
+        assertEquals(8, json.get("previewRowCount").asInt());
+        assertEquals(6, json.get("omittedAfterRow").asInt());
+        assertEquals(493, json.get("omittedRows").asInt());
+        assertEquals(500, json.get("rows").get(6).get(0).asInt());
+        assertEquals(501, json.get("columnSummaries").get("ID").get("max").asInt());
+        assertTrue(json.get("message").asText().contains("first 6 and last 2 of 501 rows"));
+    }
+
+    @Test
+    void testDelimitedAndMarkdownEscapeCells() throws SQLException {
+        QueryResult result = queryExecutionService.executeQuery("SELECT id, region FROM facts WHERE id IN (3, 501) ORDER BY id", 10);
+        ResultEncoders encoders = ResultEncoders.defaults();
+
+        String csv = encoders.encode(encoders.encoder("csv"), result, Map.of(), 10, NOTE);
+        assertTrue(csv.contains("\nID,REGION\n3,\n501,\"a|b, \"\"c\"\"\"\n"), csv);
+
+        String tsv = encoders.encode(encoders.encoder("tsv"), result, Map.of(), 10, NOTE);
+        assertTrue(tsv.contains("\nID\tREGION\n3\t\n501\ta|b, \"c\"\n"), tsv);
+
+        String markdown = encoders.encode(encoders.encoder("markdown"), result, Map.of(), 10, NOTE);
+        assertTrue(markdown.contains("""
+            | ID  | REGION    |
+            | --- | --------- |
+            | 3   | NULL      |
+            | 501 | a\\|b, "c" |
+            """), markdown);
+    }
+
+    @Test
+    void testUnknownFormatIsRejected() {
+        ResultEncoders encoders = ResultEncoders.defaults();
+        assertThrows(IllegalArgumentException.class, () -> encoders.encoder("yaml"));
+        assertThrows(IllegalArgumentException.class, () -> new ResultEncoders(List.of(), "xml", 100));
+    }
+
+    @Test
+    void testLongPlanKeepsFirstAndLastLines() {
+        StringBuilder plan = new StringBuilder();
+        for (int i = 1; i <= 400; i++) {
+            plan.append("step ").append(i).append('\n');
+        }
+        QueryResult result = new QueryResult(List.of("QUERY PLAN"), List.of(Map.of("QUERY PLAN", plan.toString())), 1, 3);
+
+        String encoded = new ResultEncoders(List.of(), "compact", 200).encodePlan(result);
+        assertTrue(encoded.startsWith("Query plan (3 ms):\nstep 1\n"), encoded);
+        assertTrue(encoded.endsWith("step 400\n"), encoded);
+        assertTrue(encoded.contains(" plan lines omitted ..."), encoded);
+        assertTrue(ResultEncoders.estimateTokens(encoded) <= 210, encoded);
+    }
+}
@@ -0,0 +1,113 @@
+package com.baskettecase.mcpserver.service;
+
+import com.baskettecase.mcpserver.model.QueryJobStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RowCountServiceTest {
+
+    private DataSource dataSource;
+    private QueryJobService queryJobService;
+    private RowCountService rowCountService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dataSource = org.springframework.boot.jdbc.DataSourceBuilder.create()
+            .url("jdbc:h2:mem:counttest;DB_CLOSE_DELAY=-1")
+            .username("sa")
+            .password("")
+            .driverClassName("org.h2.Driver")
+            .build();
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE SCHEMA IF NOT EXISTS sales");
+            statement.execute("CREATE TABLE IF NOT EXISTS sales.orders (id INT)");
+            statement.execute("CREATE TABLE IF NOT EXISTS sales.\"Mixed Case\" (id INT)");
+            statement.execute("DELETE FROM sales.orders");
+            statement.execute("INSERT INTO sales.orders SELECT X FROM SYSTEM_RANGE(1, 42)");
+        }
+        queryJobService = new QueryJobService(new QueryExecutionService(dataSource), 2, 8, 2, 64 * 1024 * 1024, 1800);
+        rowCountService = new RowCountService(dataSource, queryJobService, 1_000_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        queryJobService.shutdown();
+    }
+
+    @Test
+    void testExactCountResolvesUnquotedNames() throws Exception {
+        RowCountService.RowCount count = rowCountService.count("sales", "orders", RowCountService.Mode.EXACT);
+
+        assertEquals("SALES", count.schema());
+        assertEquals("ORDERS", count.table());
+        assertEquals(42L, awaitJobCount(count));
+    }
+
+    @Test
+    void testQuotedIdentifierIsCountedSafely() throws Exception {
+        RowCountService.RowCount count = rowCountService.count("SALES", "Mixed Case", RowCountService.Mode.EXACT);
+
+        assertEquals("Mixed Case", count.table());
+        assertEquals(0L, awaitJobCount(count));
+    }
+
+    @Test
+    void testUnknownOrInjectedTableIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+            () -> rowCountService.count("sales", "orders; DROP TABLE sales.orders", RowCountService.Mode.EXACT));
+        assertThrows(IllegalArgumentException.class,
+            () -> rowCountService.count("sales", "ord%", RowCountService.Mode.EXACT));
+    }
+
+    @Test
+    void testTableWithoutStatisticsIsNotScannedInline() throws Exception {
+        // H2 has no reltuples, so the size is unknown: auto only reports that, exact runs in the background
+        RowCountService.RowCount auto = rowCountService.count("sales", "orders", RowCountService.Mode.AUTO);
+        assertNull(auto.exactCount());
+        assertNull(auto.estimatedCount());
+        assertNull(auto.jobId());
+        assertTrue(auto.note().contains("mode 'exact'"), auto.note());
+
+        RowCountService.RowCount exact = rowCountService.count("sales", "orders", RowCountService.Mode.EXACT);
+        assertNull(exact.exactCount());
+        assertNotNull(exact.jobId());
+
+        RowCountService.RowCount estimate = rowCountService.count("sales", "orders", RowCountService.Mode.ESTIMATE);
+        assertNull(estimate.exactCount());
+        assertNull(estimate.estimatedCount());
+        assertNotNull(estimate.note());
+    }
+
+    @Test
+    void testModeParsing() {
+        assertEquals(RowCountService.Mode.AUTO, RowCountService.Mode.parse(null));
+        assertEquals(RowCountService.Mode.EXACT, RowCountService.Mode.parse(" Exact "));
+        assertThrows(IllegalArgumentException.class, () -> RowCountService.Mode.parse("fast"));
+    }
+
+    @Test
+    void testCountSqlQuotesIdentifiers() {
+        RowCountService.TableRef table = new RowCountService.TableRef("s\"x", "t", "\"");
+        assertEquals("SELECT COUNT(*) AS row_count FROM \"s\"\"x\".\"t\"", table.countSql());
+    }
+
+    private long awaitJobCount(RowCountService.RowCount count) throws InterruptedException {
+        assertNull(count.exactCount());
+        assertNotNull(count.jobId());
+        long deadline = System.currentTimeMillis() + 30_000;
+        QueryJobStatus status = queryJobService.getStatus(count.jobId());
+        while (!status.state().isFinished() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            status = queryJobService.getStatus(count.jobId());
+        }
+        assertEquals(QueryJobStatus.State.SUCCEEDED, status.state(), status.error());
+        return ((Number) queryJobService.getResult(count.jobId()).getData().getColumn(0).getValue(0)).longValue();
+    }
+}
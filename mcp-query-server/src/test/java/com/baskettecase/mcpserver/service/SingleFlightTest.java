@@ -0,0 +1,128 @@
+package com.baskettecase.mcpserver.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private final SingleFlight<String, Long> singleFlight = new SingleFlight<>();
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+    private final AtomicInteger executions = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        callers.shutdownNow();
+    }
+
+    @Test
+    void testConcurrentCallersShareOneExecution() throws Exception {
+        Future<SingleFlight.Outcome<Long>> first = callers.submit(() -> singleFlight.execute("q", listener -> blockedCount()));
+        awaitCondition(() -> executions.get() == 1);
+        Future<SingleFlight.Outcome<Long>> second = callers.submit(() -> singleFlight.execute("q", listener -> blockedCount()));
+        Future<SingleFlight.Outcome<Long>> third = callers.submit(() -> singleFlight.execute("q", listener -> blockedCount()));
+        awaitCondition(() -> singleFlight.coalescedCount() == 2);
+
+        release.countDown();
+
+        assertFalse(first.get(5, TimeUnit.SECONDS).shared());
+        assertTrue(second.get(5, TimeUnit.SECONDS).shared());
+        assertEquals(42L, third.get(5, TimeUnit.SECONDS).value());
+        assertEquals(1, executions.get());
+        assertEquals(0, singleFlight.inFlight());
+
+        // Finished executions are not reused
+        assertFalse(singleFlight.execute("q", listener -> blockedCount()).shared());
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    void testErrorsAreSharedWithEveryWaiter() throws Exception {
+        Future<SingleFlight.Outcome<Long>> first = callers.submit(() -> singleFlight.execute("q", listener -> {
+            blockedCount();
+            throw new SQLException("relation does not exist");
+        }));
+        awaitCondition(() -> executions.get() == 1);
+        Future<SingleFlight.Outcome<Long>> second = callers.submit(() -> singleFlight.execute("q", listener -> blockedCount()));
+        awaitCondition(() -> singleFlight.coalescedCount() == 1);
+
+        release.countDown();
+
+        for (Future<SingleFlight.Outcome<Long>> caller : List.of(first, second)) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> caller.get(5, TimeUnit.SECONDS));
+            assertEquals("relation does not exist", e.getCause().getMessage());
+        }
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void testExecutionIsCancelledWhenTheLastWaiterLeaves() throws Exception {
+        CountDownLatch cancelled = new CountDownLatch(1);
+        Statement statement = (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(),
+            new Class<?>[] {Statement.class}, (proxy, method, args) -> {
+                if (method.getName().equals("cancel")) {
+                    cancelled.countDown();
+                }
+                return null;
+            });
+        SingleFlight.Execution<Long> execution = listener -> {
+            listener.accept(statement);
+            executions.incrementAndGet();
+            try {
+                cancelled.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new SQLException("canceling statement due to user request", "57014");
+        };
+
+        Future<SingleFlight.Outcome<Long>> first = callers.submit(() -> singleFlight.execute("q", execution));
+        awaitCondition(() -> executions.get() == 1);
+        Future<SingleFlight.Outcome<Long>> second = callers.submit(() -> singleFlight.execute("q", execution));
+        awaitCondition(() -> singleFlight.coalescedCount() == 1);
+
+        first.cancel(true);
+        Thread.sleep(100);
+        assertEquals(1, cancelled.getCount(), "cancelled while a waiter remained");
+        assertEquals(1, singleFlight.inFlight());
+
+        second.cancel(true);
+        assertTrue(cancelled.await(5, TimeUnit.SECONDS));
+        awaitCondition(() -> singleFlight.cancelledCount() == 1);
+        assertEquals(0, singleFlight.inFlight());
+    }
+
+    private long blockedCount() {
+        executions.incrementAndGet();
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return 42L;
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not reached within 5 seconds");
+            Thread.sleep(10);
+        }
+    }
+}
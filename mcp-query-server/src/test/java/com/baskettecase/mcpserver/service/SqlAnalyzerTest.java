@@ -0,0 +1,71 @@
+package com.baskettecase.mcpserver.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SqlAnalyzerTest {
+
+    @Test
+    void testReadOnlyQueriesAreAccepted() {
+        assertReadOnly("SELECT 1");
+        assertReadOnly("select * from sales.orders where id = 1;");
+        assertReadOnly("-- top customers\nSELECT name FROM customers");
+        assertReadOnly("/* outer /* nested */ comment */ SELECT 1");
+        assertReadOnly("(SELECT 1) UNION ALL (SELECT 2)");
+        assertReadOnly("WITH recent AS (SELECT * FROM orders) SELECT count(*) FROM recent");
+        assertReadOnly("WITH t (a) AS MATERIALIZED (SELECT 1) SELECT a FROM t");
+        assertReadOnly("VALUES (1, 'a'), (2, 'b')");
+        assertReadOnly("SELECT 'DELETE FROM t; DROP TABLE x' AS text, \"update\" FROM t");
+        assertReadOnly("SELECT $body$ ; INSERT $body$, E'it\\'s' FROM t");
+        assertReadOnly("SELECT substring(name FOR 3)::text FROM t");
+    }
+
+    @Test
+    void testModifyingQueriesAreRejected() {
+        assertRejected("INSERT INTO t VALUES (1)", "INSERT");
+        assertRejected("WITH d AS (DELETE FROM t RETURNING *) SELECT * FROM d", "DELETE");
+        assertRejected("WITH x AS (SELECT 1) DELETE FROM t", "DELETE");
+        assertRejected("SELECT 1; DROP TABLE t", "Multiple statements");
+        assertRejected("SELECT * INTO backup FROM t", "INTO");
+        assertRejected("SELECT * FROM t FOR UPDATE", "locking");
+        assertRejected("SELECT pg_terminate_backend(123)", "side effects");
+        assertRejected("SELECT \"setval\"('s', 1)", "side effects");
+        assertRejected("SELECT \"pg_terminate_backend\"(1)", "side effects");
+        assertRejected("SELECT pg_catalog.\"nextval\"('s')", "side effects");
+        assertRejected("SELECT pg_notify('channel', 'payload')", "side effects");
+        assertRejected("SELECT lo_from_bytea(0, 'data')", "side effects");
+        assertRejected("SELECT 'unterminated", "Unterminated");
+        assertRejected("SELECT (1", "Unbalanced");
+        assertRejected("   ", "empty");
+    }
+
+    @Test
+    void testFingerprintStripsLiteralsAndFormatting() {
+        SqlAnalyzer.SqlAnalysis first = SqlAnalyzer.analyze("SELECT * FROM orders WHERE id IN (1, 2, 3) AND name = 'bob'");
+        SqlAnalyzer.SqlAnalysis second = SqlAnalyzer.analyze("select *\n  from ORDERS -- comment\n where id in (42) and name = 'alice'");
+
+        assertEquals("SELECT * FROM ORDERS WHERE ID IN (?) AND NAME = ?", first.fingerprint());
+        assertEquals(first.fingerprint(), second.fingerprint());
+        assertEquals(first.fingerprintId(), second.fingerprintId());
+        assertEquals(16, first.fingerprintId().length());
+        assertNotEquals(first.fingerprintId(), SqlAnalyzer.analyze("SELECT * FROM customers WHERE id = 1").fingerprintId());
+    }
+
+    @Test
+    void testRepeatedAnalysisIsCached() {
+        String sql = "SELECT count(*) FROM cached_table WHERE x > 10";
+        assertSame(SqlAnalyzer.analyze(sql), SqlAnalyzer.analyze(sql));
+    }
+
+    private static void assertReadOnly(String sql) {
+        SqlAnalyzer.SqlAnalysis analysis = SqlAnalyzer.analyze(sql);
+        assertTrue(analysis.readOnly(), sql + " -> " + analysis.rejectionReason());
+    }
+
+    private static void assertRejected(String sql, String reason) {
+        SqlAnalyzer.SqlAnalysis analysis = SqlAnalyzer.analyze(sql);
+        assertFalse(analysis.readOnly(), sql);
+        assertTrue(analysis.rejectionReason().contains(reason), sql + " -> " + analysis.rejectionReason());
+    }
+}
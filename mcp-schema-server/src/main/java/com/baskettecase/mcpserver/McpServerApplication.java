@@ -10,12 +10,21 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 
+import java.util.Map;
+
 @SpringBootApplication
 @ComponentScan(basePackages = "com.baskettecase")
 public class McpServerApplication {
 
 	public static void main(String[] args) {
-		SpringApplication.run(McpServerApplication.class, args);
+		SpringApplication application = new SpringApplication(McpServerApplication.class);
+		// Every tool here is a catalog lookup: a small pool that fails fast when the database is
+		// unreachable instead of holding tool calls for Hikari's default 30 seconds
+		application.setDefaultProperties(Map.of(
+			"spring.datasource.hikari.pool-name", "plumchat-metadata",
+			"spring.datasource.hikari.maximum-pool-size", "4",
+			"spring.datasource.hikari.connection-timeout", "5000"));
+		application.run(args);
 	}
 
 	@Bean
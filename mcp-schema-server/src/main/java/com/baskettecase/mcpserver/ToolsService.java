@@ -118,6 +118,28 @@ public class ToolsService {
         }
     }
 
+    /**
+     * Refresh the cached catalog metadata
+     * @param schemaName The schema to refresh, or empty to refresh all schemas
+     * @return Status message including cache statistics
+     */
+    @Tool(description = "Refresh cached schema metadata. Use this after tables or columns were created, altered or dropped so the next schema lookup reads the current catalog. Pass an empty schema name to refresh every schema.")
+    public String refreshSchemaCache(
+        @org.springframework.ai.tool.annotation.ToolParam(description = "The schema to refresh; leave empty to refresh all schemas") String schemaName) {
+        logger.info("🔧 MCP Tool called: refreshSchemaCache(schemaName='{}')", schemaName);
+        boolean allSchemas = schemaName == null || schemaName.trim().isEmpty();
+        schemaDiscoveryService.refreshCache(allSchemas ? null : schemaName.trim());
+        try {
+            String stats = objectMapper.writeValueAsString(schemaDiscoveryService.getCacheStats());
+            logger.info("✅ Refreshed schema cache for {}", allSchemas ? "all schemas" : "schema '" + schemaName.trim() + "'");
+            return "Schema cache refreshed for " + (allSchemas ? "all schemas" : "schema '" + schemaName.trim() + "'")
+                + ". Cache statistics: " + stats;
+        } catch (JsonProcessingException e) {
+            logger.error("❌ Failed to serialize cache statistics to JSON", e);
+            return "Schema cache refreshed, but statistics could not be serialized: " + e.getMessage();
+        }
+    }
+
     /**
      * Test MCP connection and basic functionality
      * @return Status message indicating if MCP server is working
@@ -0,0 +1,293 @@
+package com.baskettecase.mcpserver.service;
+
+import com.baskettecase.mcpserver.model.SchemaInfo;
+import com.baskettecase.mcpserver.model.TableInfo;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory cache of catalog metadata so repeated schema lookups from the LLM are answered without
+ * a round trip to {@code DatabaseMetaData}.
+ *
+ * <p>Entries are held per schema (the schema overview, the table list of each schema and individual
+ * tables). On PostgreSQL and Greenplum a background poll computes a per-schema signature and drops
+ * the entries of schemas whose signature moved. The signature hashes the row xmins of the
+ * namespace, its relations ({@code pg_class}, with oids and relfilenodes), their columns
+ * ({@code pg_attribute}), column defaults ({@code pg_attrdef}) and constraints
+ * ({@code pg_constraint}), so column, nullability, default and key changes are seen as well as
+ * relations being created, dropped or rewritten. Other databases fall back to the entry TTL, which
+ * also bounds staleness for changes the signature does not see, such as comments.
+ */
+@Service
+public class CatalogCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogCache.class);
+
+    static final String CATALOG_SIGNATURE_SQL =
+        "WITH rels AS ("
+            + "SELECT c.oid, c.relnamespace, c.relfilenode, c.xmin FROM pg_catalog.pg_class c "
+            + "WHERE c.relkind IN ('r', 'v', 'm', 'p', 'f')), "
+            + "attrs AS ("
+            + "SELECT r.relnamespace AS nsp, sum(hashtext(a.attrelid::text || '/' || a.attnum::text || '/' || a.xmin::text)::bigint) AS h "
+            + "FROM pg_catalog.pg_attribute a JOIN rels r ON r.oid = a.attrelid WHERE a.attnum > 0 GROUP BY r.relnamespace), "
+            + "defaults AS ("
+            + "SELECT r.relnamespace AS nsp, count(*) + sum(hashtext(d.oid::text || '/' || d.xmin::text)::bigint) AS h "
+            + "FROM pg_catalog.pg_attrdef d JOIN rels r ON r.oid = d.adrelid GROUP BY r.relnamespace), "
+            + "constraints AS ("
+            + "SELECT k.connamespace AS nsp, count(*) + sum(hashtext(k.oid::text || '/' || k.xmin::text)::bigint) AS h "
+            + "FROM pg_catalog.pg_constraint k GROUP BY k.connamespace) "
+            + "SELECT n.nspname, count(r.oid), "
+            + "coalesce(sum(hashtext(r.oid::text || '/' || r.relfilenode::text || '/' || r.xmin::text)::bigint), 0) "
+            + "+ hashtext(n.oid::text || '/' || n.xmin::text)::bigint "
+            + "+ coalesce(max(a.h), 0) + coalesce(max(d.h), 0) + coalesce(max(k.h), 0) "
+            + "FROM pg_catalog.pg_namespace n "
+            + "LEFT JOIN rels r ON r.relnamespace = n.oid "
+            + "LEFT JOIN attrs a ON a.nsp = n.oid "
+            + "LEFT JOIN defaults d ON d.nsp = n.oid "
+            + "LEFT JOIN constraints k ON k.nsp = n.oid "
+            + "WHERE n.nspname NOT LIKE 'pg\\_%' AND n.nspname <> 'information_schema' "
+            + "GROUP BY n.oid, n.nspname, n.xmin";
+
+    private final DataSource dataSource;
+    private final boolean enabled;
+    private final long ttlMs;
+    private final long pollIntervalSeconds;
+
+    private volatile Entry<List<SchemaInfo>> schemas;
+    private final Map<String, Entry<List<TableInfo>>> tablesBySchema = new ConcurrentHashMap<>();
+    private final Map<TableKey, Entry<TableInfo>> tables = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private volatile Map<String, String> lastSignatures;
+    private volatile boolean signaturePollingSupported = true;
+    private volatile long lastPollMs;
+    private ScheduledExecutorService poller;
+
+    public CatalogCache(DataSource dataSource,
+                        @Value("${plumchat.schema.cache.enabled:true}") boolean enabled,
+                        @Value("${plumchat.schema.cache.ttl-seconds:600}") long ttlSeconds,
+                        @Value("${plumchat.schema.cache.poll-interval-seconds:15}") long pollIntervalSeconds) {
+        this.dataSource = dataSource;
+        this.enabled = enabled;
+        this.ttlMs = Duration.ofSeconds(ttlSeconds).toMillis();
+        this.pollIntervalSeconds = pollIntervalSeconds;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled || pollIntervalSeconds <= 0) {
+            return;
+        }
+        poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "catalog-change-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        poller.scheduleWithFixedDelay(this::pollForChanges, 0, pollIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (poller != null) {
+            poller.shutdownNow();
+        }
+    }
+
+    public List<SchemaInfo> getSchemas(Loader<List<SchemaInfo>> loader) throws SQLException {
+        if (!enabled) {
+            return loader.load();
+        }
+        Entry<List<SchemaInfo>> entry = schemas;
+        if (isFresh(entry)) {
+            hits.incrementAndGet();
+            return entry.value();
+        }
+        misses.incrementAndGet();
+        long loadGeneration = generation.get();
+        List<SchemaInfo> loaded = List.copyOf(loader.load());
+        Entry<List<SchemaInfo>> newEntry = new Entry<>(loaded, System.currentTimeMillis());
+        schemas = newEntry;
+        if (generation.get() != loadGeneration) {
+            // Invalidated while loading; the result may predate the change
+            schemas = null;
+        }
+        return loaded;
+    }
+
+    public List<TableInfo> getTablesInSchema(String schemaName, Loader<List<TableInfo>> loader) throws SQLException {
+        if (!enabled) {
+            return loader.load();
+        }
+        return cached(tablesBySchema, schemaName, () -> List.copyOf(loader.load()));
+    }
+
+    public TableInfo getTable(String schemaName, String tableName, Loader<TableInfo> loader) throws SQLException {
+        if (!enabled) {
+            return loader.load();
+        }
+        // A cached table list for the schema already holds every table in full
+        Entry<List<TableInfo>> schemaTables = tablesBySchema.get(schemaName);
+        if (isFresh(schemaTables)) {
+            for (TableInfo table : schemaTables.value()) {
+                if (table.tableName().equals(tableName)) {
+                    hits.incrementAndGet();
+                    return table;
+                }
+            }
+        }
+        return cached(tables, new TableKey(schemaName, tableName), loader);
+    }
+
+    /**
+     * Drops cached entries for one schema, or for the whole catalog when {@code schemaName} is null.
+     */
+    public void invalidate(String schemaName) {
+        generation.incrementAndGet();
+        invalidations.incrementAndGet();
+        schemas = null;
+        if (schemaName == null) {
+            tablesBySchema.clear();
+            tables.clear();
+            logger.info("Invalidated catalog cache");
+            return;
+        }
+        tablesBySchema.remove(schemaName);
+        tables.keySet().removeIf(key -> key.schemaName().equals(schemaName));
+        logger.info("Invalidated catalog cache for schema '{}'", schemaName);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("changeDetection", signaturePollingSupported && pollIntervalSeconds > 0 ? "catalog-poll" : "ttl");
+        stats.put("cachedSchemas", tablesBySchema.size());
+        stats.put("cachedTables", tables.size());
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("invalidations", invalidations.get());
+        stats.put("lastPollMs", lastPollMs);
+        return stats;
+    }
+
+    /**
+     * Compares the current catalog signature with the previous poll and invalidates changed schemas.
+     */
+    void pollForChanges() {
+        if (!signaturePollingSupported) {
+            return;
+        }
+        Map<String, String> current;
+        try {
+            current = readSignatures();
+        } catch (SQLException e) {
+            if (lastSignatures == null) {
+                signaturePollingSupported = false;
+                logger.info("Catalog change polling not available ({}); relying on {} s cache TTL",
+                    e.getMessage(), ttlMs / 1000);
+            } else {
+                logger.warn("Catalog change poll failed: {}", e.getMessage());
+            }
+            return;
+        } catch (RuntimeException e) {
+            logger.warn("Catalog change poll failed: {}", e.getMessage());
+            return;
+        }
+
+        Map<String, String> previous = lastSignatures;
+        lastSignatures = current;
+        lastPollMs = System.currentTimeMillis();
+        if (previous == null) {
+            return;
+        }
+
+        Set<String> changed = new HashSet<>();
+        for (Map.Entry<String, String> signature : current.entrySet()) {
+            if (!signature.getValue().equals(previous.get(signature.getKey()))) {
+                changed.add(signature.getKey());
+            }
+        }
+        for (String schemaName : previous.keySet()) {
+            if (!current.containsKey(schemaName)) {
+                changed.add(schemaName);
+            }
+        }
+        if (!changed.isEmpty()) {
+            logger.info("Catalog changes detected in schemas {}", changed);
+            changed.forEach(this::invalidate);
+        }
+    }
+
+    private Map<String, String> readSignatures() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            if (!connection.getMetaData().getDatabaseProductName().toLowerCase().contains("postgres")) {
+                throw new SQLException("not a PostgreSQL-compatible database");
+            }
+            Map<String, String> signatures = new HashMap<>();
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery(CATALOG_SIGNATURE_SQL)) {
+                while (rs.next()) {
+                    signatures.put(rs.getString(1), rs.getLong(2) + ":" + rs.getLong(3));
+                }
+            }
+            return signatures;
+        }
+    }
+
+    private <K, V> V cached(Map<K, Entry<V>> map, K key, Loader<V> loader) throws SQLException {
+        Entry<V> entry = map.get(key);
+        if (isFresh(entry)) {
+            hits.incrementAndGet();
+            return entry.value();
+        }
+        misses.incrementAndGet();
+        long loadGeneration = generation.get();
+        V loaded = loader.load();
+        Entry<V> newEntry = new Entry<>(loaded, System.currentTimeMillis());
+        map.put(key, newEntry);
+        if (generation.get() != loadGeneration) {
+            // Invalidated while loading; the result may predate the change
+            map.remove(key, newEntry);
+        }
+        return loaded;
+    }
+
+    private boolean isFresh(Entry<?> entry) {
+        return entry != null && System.currentTimeMillis() - entry.loadedAtMs() < ttlMs;
+    }
+
+    @FunctionalInterface
+    public interface Loader<V> {
+        V load() throws SQLException;
+    }
+
+    private record Entry<V>(V value, long loadedAtMs) {
+    }
+
+    private record TableKey(String schemaName, String tableName) {
+    }
+}
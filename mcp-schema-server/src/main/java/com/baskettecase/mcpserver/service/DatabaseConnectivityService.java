@@ -84,6 +84,7 @@ public class DatabaseConnectivityService {
         logger.info("   - getAllSchemas: Get all database schemas");
         logger.info("   - getTablesInSchema: Get tables in a specific schema");
         logger.info("   - getTableInfo: Get detailed table information");
+        logger.info("   - refreshSchemaCache: Discard cached schema metadata");
         logger.info("   - testMcpConnection: Test MCP server connectivity");
     }
 }
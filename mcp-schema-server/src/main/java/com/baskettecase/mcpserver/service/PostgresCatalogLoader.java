@@ -0,0 +1,193 @@
+package com.baskettecase.mcpserver.service;
+
+import com.baskettecase.mcpserver.model.ColumnInfo;
+import com.baskettecase.mcpserver.model.SchemaInfo;
+import com.baskettecase.mcpserver.model.TableInfo;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads schema metadata for PostgreSQL and Greenplum straight from {@code pg_catalog} with a few
+ * set-based queries, instead of the per-table {@code DatabaseMetaData} calls (columns, primary
+ * keys and imported keys for every table) that make large schemas cost thousands of round trips.
+ *
+ * <p>Table types and type names are the ones the PostgreSQL JDBC driver reports; column sizes and
+ * decimal digits are derived from the type modifier the same way, so results stay close to the
+ * {@code DatabaseMetaData} path.
+ */
+final class PostgresCatalogLoader {
+
+    private static final String SCHEMAS_SQL =
+        "SELECT n.nspname, current_database(), c.relname "
+            + "FROM pg_catalog.pg_namespace n "
+            + "LEFT JOIN pg_catalog.pg_class c ON c.relnamespace = n.oid AND c.relkind IN ('r', 'p', 'v') "
+            + "ORDER BY n.nspname, c.relname";
+
+    private static final String TABLES_SQL =
+        "SELECT c.oid, c.relname, c.relkind, pg_catalog.obj_description(c.oid, 'pg_class') "
+            + "FROM pg_catalog.pg_class c "
+            + "JOIN pg_catalog.pg_namespace n ON n.oid = c.relnamespace "
+            + "WHERE n.nspname = ? AND c.relkind IN ('r', 'p', 'v') AND (?::text IS NULL OR c.relname = ?) "
+            + "ORDER BY c.relname";
+
+    private static final String COLUMNS_SQL =
+        "SELECT a.attrelid, a.attname, t.typname, a.atttypmod, a.attnotnull, "
+            + "pg_catalog.pg_get_expr(d.adbin, d.adrelid), pg_catalog.col_description(a.attrelid, a.attnum), "
+            + "EXISTS (SELECT 1 FROM pg_catalog.pg_constraint pk "
+            + "WHERE pk.conrelid = a.attrelid AND pk.contype = 'p' AND a.attnum = ANY (pk.conkey)), "
+            + "EXISTS (SELECT 1 FROM pg_catalog.pg_constraint fk "
+            + "WHERE fk.conrelid = a.attrelid AND fk.contype = 'f' AND a.attnum = ANY (fk.conkey)) "
+            + "FROM pg_catalog.pg_attribute a "
+            + "JOIN pg_catalog.pg_class c ON c.oid = a.attrelid "
+            + "JOIN pg_catalog.pg_namespace n ON n.oid = c.relnamespace "
+            + "JOIN pg_catalog.pg_type t ON t.oid = a.atttypid "
+            + "LEFT JOIN pg_catalog.pg_attrdef d ON d.adrelid = a.attrelid AND d.adnum = a.attnum "
+            + "WHERE n.nspname = ? AND c.relkind IN ('r', 'p', 'v') AND (?::text IS NULL OR c.relname = ?) "
+            + "AND a.attnum > 0 AND NOT a.attisdropped "
+            + "ORDER BY a.attrelid, a.attnum";
+
+    private PostgresCatalogLoader() {
+    }
+
+    static boolean supports(Connection connection) throws SQLException {
+        return connection.getMetaData().getDatabaseProductName().toLowerCase().contains("postgres");
+    }
+
+    /**
+     * Loads every schema with its table and view names in a single query.
+     */
+    static List<SchemaInfo> loadSchemas(Connection connection) throws SQLException {
+        Map<String, SchemaInfo> schemas = new LinkedHashMap<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(SCHEMAS_SQL)) {
+            while (rs.next()) {
+                String schemaName = rs.getString(1);
+                String owner = rs.getString(2);
+                SchemaInfo schema = schemas.computeIfAbsent(schemaName,
+                    name -> new SchemaInfo(name, owner, new ArrayList<>()));
+                String tableName = rs.getString(3);
+                if (tableName != null) {
+                    schema.tableNames().add(tableName);
+                }
+            }
+        }
+        return new ArrayList<>(schemas.values());
+    }
+
+    /**
+     * Loads the tables of a schema with all their columns using two queries, or a single table
+     * when {@code tableName} is not null.
+     */
+    static List<TableInfo> loadTables(Connection connection, String schemaName, String tableName) throws SQLException {
+        Map<Long, TableBuilder> tables = new LinkedHashMap<>();
+        try (PreparedStatement statement = connection.prepareStatement(TABLES_SQL)) {
+            bindFilter(statement, schemaName, tableName);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    String tableType = "v".equals(rs.getString(3)) ? "VIEW" : "TABLE";
+                    tables.put(rs.getLong(1), new TableBuilder(rs.getString(2), tableType, rs.getString(4)));
+                }
+            }
+        }
+        if (tables.isEmpty()) {
+            return List.of();
+        }
+
+        try (PreparedStatement statement = connection.prepareStatement(COLUMNS_SQL)) {
+            bindFilter(statement, schemaName, tableName);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    TableBuilder table = tables.get(rs.getLong(1));
+                    if (table == null) {
+                        // Created between the two queries
+                        continue;
+                    }
+                    String typeName = rs.getString(3);
+                    int typmod = rs.getInt(4);
+                    table.columns.add(new ColumnInfo(
+                        rs.getString(2), typeName, columnSize(typeName, typmod), decimalDigits(typeName, typmod),
+                        !rs.getBoolean(5), rs.getString(6), rs.getString(7), rs.getBoolean(8), rs.getBoolean(9)
+                    ));
+                }
+            }
+        }
+
+        List<TableInfo> result = new ArrayList<>(tables.size());
+        for (TableBuilder table : tables.values()) {
+            result.add(new TableInfo(schemaName, table.tableName, table.tableType, table.remarks, table.columns));
+        }
+        return result;
+    }
+
+    /**
+     * Column size in the spirit of the PostgreSQL driver's {@code COLUMN_SIZE}.
+     */
+    static int columnSize(String typeName, int typmod) {
+        return switch (typeName) {
+            case "int2" -> 5;
+            case "int4", "oid" -> 10;
+            case "int8" -> 19;
+            case "float4" -> 8;
+            case "float8", "money" -> 17;
+            case "bool" -> 1;
+            case "date" -> 13;
+            case "time", "timetz", "timestamp", "timestamptz" -> temporalSize(typeName, typmod);
+            case "numeric" -> typmod >= 4 ? ((typmod - 4) >> 16) & 0xffff : 1000;
+            case "varchar", "bpchar" -> typmod >= 4 ? typmod - 4 : Integer.MAX_VALUE;
+            case "bit", "varbit" -> typmod > 0 ? typmod : Integer.MAX_VALUE;
+            case "uuid" -> 36;
+            default -> Integer.MAX_VALUE;
+        };
+    }
+
+    /**
+     * Decimal digits in the spirit of the PostgreSQL driver's {@code DECIMAL_DIGITS}.
+     */
+    static int decimalDigits(String typeName, int typmod) {
+        return switch (typeName) {
+            case "float4" -> 8;
+            case "float8" -> 17;
+            case "numeric" -> typmod >= 4 ? (typmod - 4) & 0xffff : 0;
+            case "time", "timetz", "timestamp", "timestamptz" -> typmod >= 0 ? typmod : 6;
+            default -> 0;
+        };
+    }
+
+    private static int temporalSize(String typeName, int typmod) {
+        int base = switch (typeName) {
+            case "time" -> 8;
+            case "timetz" -> 14;
+            case "timestamp" -> 19;
+            default -> 25;
+        };
+        int fractionalDigits = typmod >= 0 ? typmod : 6;
+        return fractionalDigits > 0 ? base + 1 + fractionalDigits : base;
+    }
+
+    private static void bindFilter(PreparedStatement statement, String schemaName, String tableName) throws SQLException {
+        statement.setString(1, schemaName);
+        statement.setString(2, tableName);
+        statement.setString(3, tableName);
+    }
+
+    private static final class TableBuilder {
+        private final String tableName;
+        private final String tableType;
+        private final String remarks;
+        private final List<ColumnInfo> columns = new ArrayList<>();
+
+        private TableBuilder(String tableName, String tableType, String remarks) {
+            this.tableName = tableName;
+            this.tableType = tableType;
+            this.remarks = remarks;
+        }
+    }
+}
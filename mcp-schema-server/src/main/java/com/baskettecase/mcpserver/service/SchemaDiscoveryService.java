@@ -5,6 +5,7 @@ import com.baskettecase.mcpserver.model.SchemaInfo;
 import com.baskettecase.mcpserver.model.TableInfo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import javax.sql.DataSource;
@@ -15,6 +16,7 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 @Service
@@ -23,15 +25,63 @@ public class SchemaDiscoveryService {
     private static final Logger logger = LoggerFactory.getLogger(SchemaDiscoveryService.class);
 
     private final DataSource dataSource;
+    private final CatalogCache catalogCache;
+    private volatile boolean catalogQueriesEnabled = true;
 
+    /**
+     * Creates a service that reads metadata on every call, without a catalog cache.
+     */
     public SchemaDiscoveryService(DataSource dataSource) {
+        this(dataSource, new CatalogCache(dataSource, false, 0, 0));
+    }
+
+    @Autowired
+    public SchemaDiscoveryService(DataSource dataSource, CatalogCache catalogCache) {
         this.dataSource = dataSource;
+        this.catalogCache = catalogCache;
     }
 
     public List<SchemaInfo> getAllSchemas() throws SQLException {
+        return catalogCache.getSchemas(this::loadAllSchemas);
+    }
+
+    public List<TableInfo> getTablesInSchema(String schemaName) throws SQLException {
+        return catalogCache.getTablesInSchema(schemaName, () -> loadTablesInSchema(schemaName));
+    }
+
+    public TableInfo getTableInfo(String schemaName, String tableName) throws SQLException {
+        return catalogCache.getTable(schemaName, tableName, () -> loadTableInfo(schemaName, tableName));
+    }
+
+    /**
+     * Discards cached metadata for one schema, or for all schemas when {@code schemaName} is null.
+     */
+    public void refreshCache(String schemaName) {
+        catalogCache.invalidate(schemaName);
+    }
+
+    public Map<String, Object> getCacheStats() {
+        return catalogCache.getStats();
+    }
+
+    private List<SchemaInfo> loadAllSchemas() throws SQLException {
         List<SchemaInfo> schemas = new ArrayList<>();
         
         try (Connection connection = dataSource.getConnection()) {
+            if (useCatalogQueries(connection)) {
+                try {
+                    for (SchemaInfo schema : PostgresCatalogLoader.loadSchemas(connection)) {
+                        if (isUserSchema(schema.schemaName())) {
+                            schemas.add(schema);
+                        }
+                    }
+                    logger.info("Found {} user schemas", schemas.size());
+                    return schemas;
+                } catch (SQLException e) {
+                    catalogQueryFailed(e);
+                }
+            }
+
             DatabaseMetaData metaData = connection.getMetaData();
             
             try (ResultSet rs = metaData.getSchemas()) {
@@ -52,10 +102,20 @@ public class SchemaDiscoveryService {
         return schemas;
     }
 
-    public List<TableInfo> getTablesInSchema(String schemaName) throws SQLException {
+    private List<TableInfo> loadTablesInSchema(String schemaName) throws SQLException {
         List<TableInfo> tables = new ArrayList<>();
         
         try (Connection connection = dataSource.getConnection()) {
+            if (useCatalogQueries(connection)) {
+                try {
+                    tables.addAll(PostgresCatalogLoader.loadTables(connection, schemaName, null));
+                    logger.info("Found {} tables in schema '{}'", tables.size(), schemaName);
+                    return tables;
+                } catch (SQLException e) {
+                    catalogQueryFailed(e);
+                }
+            }
+
             DatabaseMetaData metaData = connection.getMetaData();
             
             try (ResultSet rs = metaData.getTables(null, schemaName, "%", new String[]{"TABLE", "VIEW"})) {
@@ -74,8 +134,20 @@ public class SchemaDiscoveryService {
         return tables;
     }
 
-    public TableInfo getTableInfo(String schemaName, String tableName) throws SQLException {
+    private TableInfo loadTableInfo(String schemaName, String tableName) throws SQLException {
         try (Connection connection = dataSource.getConnection()) {
+            if (useCatalogQueries(connection)) {
+                try {
+                    List<TableInfo> tables = PostgresCatalogLoader.loadTables(connection, schemaName, tableName);
+                    if (tables.isEmpty()) {
+                        throw new IllegalArgumentException("Table " + schemaName + "." + tableName + " not found");
+                    }
+                    return tables.get(0);
+                } catch (SQLException e) {
+                    catalogQueryFailed(e);
+                }
+            }
+
             DatabaseMetaData metaData = connection.getMetaData();
             
             try (ResultSet rs = metaData.getTables(null, schemaName, tableName, new String[]{"TABLE", "VIEW"})) {
@@ -92,6 +164,36 @@ public class SchemaDiscoveryService {
         throw new IllegalArgumentException("Table " + schemaName + "." + tableName + " not found");
     }
 
+    /**
+     * Whether metadata can be read with the set-based pg_catalog queries rather than per-table
+     * {@code DatabaseMetaData} calls.
+     */
+    private boolean useCatalogQueries(Connection connection) throws SQLException {
+        return catalogQueriesEnabled && PostgresCatalogLoader.supports(connection);
+    }
+
+    /**
+     * Switches to JDBC metadata for good if the catalog queries are not supported by this database;
+     * any other failure, such as a dropped connection or a timeout, is rethrown for this call only.
+     */
+    private void catalogQueryFailed(SQLException e) throws SQLException {
+        if (!isCatalogUnsupported(e)) {
+            throw e;
+        }
+        logger.warn("⚠️  pg_catalog metadata queries are not supported here, falling back to JDBC metadata: {}",
+            e.getMessage());
+        catalogQueriesEnabled = false;
+    }
+
+    /**
+     * @return whether {@code e} means the catalog queries cannot work on this database: SQLSTATE class
+     *         42 (undefined table, column or function, insufficient privilege) or 0A (feature not supported)
+     */
+    static boolean isCatalogUnsupported(SQLException e) {
+        String sqlState = e.getSQLState();
+        return sqlState != null && (sqlState.startsWith("42") || sqlState.startsWith("0A"));
+    }
+
     private List<ColumnInfo> getColumnsForTable(DatabaseMetaData metaData, String schemaName, String tableName) throws SQLException {
         List<ColumnInfo> columns = new ArrayList<>();
         Set<String> primaryKeys = getPrimaryKeys(metaData, schemaName, tableName);
@@ -0,0 +1,97 @@
+package com.baskettecase.mcpserver.service;
+
+import com.baskettecase.mcpserver.model.SchemaInfo;
+import com.baskettecase.mcpserver.model.TableInfo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogCacheTest {
+
+    private DataSource dataSource;
+    private CatalogCache catalogCache;
+    private SchemaDiscoveryService schemaDiscoveryService;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        dataSource = org.springframework.boot.jdbc.DataSourceBuilder.create()
+            .url("jdbc:h2:mem:catalogcachetest;DB_CLOSE_DELAY=-1")
+            .username("sa")
+            .password("")
+            .driverClassName("org.h2.Driver")
+            .build();
+        catalogCache = new CatalogCache(dataSource, true, 600, 0);
+        schemaDiscoveryService = new SchemaDiscoveryService(dataSource, catalogCache);
+
+        execute("DROP SCHEMA IF EXISTS cached_schema CASCADE");
+        execute("CREATE SCHEMA cached_schema");
+        execute("CREATE TABLE cached_schema.accounts (id INTEGER PRIMARY KEY, name VARCHAR(50))");
+    }
+
+    @Test
+    void testWarmLookupsAreServedFromCache() throws SQLException {
+        List<TableInfo> first = schemaDiscoveryService.getTablesInSchema("CACHED_SCHEMA");
+        execute("CREATE TABLE cached_schema.invoices (id INTEGER PRIMARY KEY)");
+        List<TableInfo> second = schemaDiscoveryService.getTablesInSchema("CACHED_SCHEMA");
+
+        assertEquals(1, first.size());
+        assertSame(first, second);
+        assertEquals(1L, catalogCache.getStats().get("hits"));
+    }
+
+    @Test
+    void testTableLookupUsesCachedSchemaTables() throws SQLException {
+        schemaDiscoveryService.getTablesInSchema("CACHED_SCHEMA");
+        execute("DROP TABLE cached_schema.accounts");
+
+        TableInfo table = schemaDiscoveryService.getTableInfo("CACHED_SCHEMA", "ACCOUNTS");
+
+        assertEquals(2, table.columns().size());
+    }
+
+    @Test
+    void testRefreshPicksUpCatalogChanges() throws SQLException {
+        schemaDiscoveryService.getAllSchemas();
+        schemaDiscoveryService.getTablesInSchema("CACHED_SCHEMA");
+        execute("CREATE TABLE cached_schema.invoices (id INTEGER PRIMARY KEY)");
+
+        schemaDiscoveryService.refreshCache("CACHED_SCHEMA");
+
+        assertEquals(2, schemaDiscoveryService.getTablesInSchema("CACHED_SCHEMA").size());
+        SchemaInfo schema = schemaDiscoveryService.getAllSchemas().stream()
+            .filter(s -> "CACHED_SCHEMA".equals(s.schemaName()))
+            .findFirst()
+            .orElseThrow();
+        assertEquals(2, schema.tableNames().size());
+    }
+
+    @Test
+    void testMissingTableIsNotCached() throws SQLException {
+        assertThrows(IllegalArgumentException.class, () ->
+            schemaDiscoveryService.getTableInfo("CACHED_SCHEMA", "LATER"));
+        execute("CREATE TABLE cached_schema.later (id INTEGER)");
+
+        assertEquals("LATER", schemaDiscoveryService.getTableInfo("CACHED_SCHEMA", "LATER").tableName());
+    }
+
+    @Test
+    void testPollingFallsBackToTtlOnNonPostgresDatabases() {
+        catalogCache.pollForChanges();
+
+        assertEquals("ttl", catalogCache.getStats().get("changeDetection"));
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement stmt = connection.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+}
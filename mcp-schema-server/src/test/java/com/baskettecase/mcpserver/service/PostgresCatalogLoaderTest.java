@@ -0,0 +1,51 @@
+package com.baskettecase.mcpserver.service;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PostgresCatalogLoaderTest {
+
+    @Test
+    void testCharacterTypeSizesComeFromTypmod() {
+        // varchar(100) is stored with a typmod of 104
+        assertEquals(100, PostgresCatalogLoader.columnSize("varchar", 104));
+        assertEquals(Integer.MAX_VALUE, PostgresCatalogLoader.columnSize("varchar", -1));
+        assertEquals(Integer.MAX_VALUE, PostgresCatalogLoader.columnSize("text", -1));
+    }
+
+    @Test
+    void testNumericPrecisionAndScaleComeFromTypmod() {
+        // numeric(10,2) is stored as ((10 << 16) | 2) + 4
+        int typmod = ((10 << 16) | 2) + 4;
+        assertEquals(10, PostgresCatalogLoader.columnSize("numeric", typmod));
+        assertEquals(2, PostgresCatalogLoader.decimalDigits("numeric", typmod));
+        assertEquals(0, PostgresCatalogLoader.decimalDigits("numeric", -1));
+    }
+
+    @Test
+    void testFixedWidthTypes() {
+        assertEquals(10, PostgresCatalogLoader.columnSize("int4", -1));
+        assertEquals(19, PostgresCatalogLoader.columnSize("int8", -1));
+        assertEquals(26, PostgresCatalogLoader.columnSize("timestamp", -1));
+        assertEquals(19, PostgresCatalogLoader.columnSize("timestamp", 0));
+        assertEquals(6, PostgresCatalogLoader.decimalDigits("timestamptz", -1));
+    }
+
+    @Test
+    void testNonPostgresDatabasesAreNotSupported() throws SQLException {
+        DataSource dataSource = org.springframework.boot.jdbc.DataSourceBuilder.create()
+            .url("jdbc:h2:mem:catalogloadertest;DB_CLOSE_DELAY=-1")
+            .username("sa")
+            .password("")
+            .driverClassName("org.h2.Driver")
+            .build();
+        try (Connection connection = dataSource.getConnection()) {
+            assertFalse(PostgresCatalogLoader.supports(connection));
+        }
+    }
+}
@@ -119,4 +119,14 @@ class SchemaDiscoveryServiceTest {
         assertThrows(IllegalArgumentException.class, () -> 
             schemaDiscoveryService.getTableInfo("TEST_SCHEMA", "NONEXISTENT_TABLE"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testOnlyCatalogErrorsDisableCatalogQueries() {
+        assertTrue(SchemaDiscoveryService.isCatalogUnsupported(new SQLException("no such relation", "42P01")));
+        assertTrue(SchemaDiscoveryService.isCatalogUnsupported(new SQLException("no such function", "42883")));
+        assertTrue(SchemaDiscoveryService.isCatalogUnsupported(new SQLException("not supported", "0A000")));
+        assertFalse(SchemaDiscoveryService.isCatalogUnsupported(new SQLException("connection lost", "08006")));
+        assertFalse(SchemaDiscoveryService.isCatalogUnsupported(new SQLException("statement timeout", "57014")));
+        assertFalse(SchemaDiscoveryService.isCatalogUnsupported(new SQLException("no state")));
+    }
+}
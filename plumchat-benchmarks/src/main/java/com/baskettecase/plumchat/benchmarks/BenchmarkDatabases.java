@@ -0,0 +1,85 @@
+package com.baskettecase.plumchat.benchmarks;
+
+import org.springframework.boot.jdbc.DataSourceBuilder;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+
+/**
+ * In-process H2 databases seeded with synthetic data for the benchmarks.
+ */
+final class BenchmarkDatabases {
+
+    private BenchmarkDatabases() {
+    }
+
+    static DataSource newDatabase() {
+        return DataSourceBuilder.create()
+            .url("jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1")
+            .username("sa")
+            .password("")
+            .driverClassName("org.h2.Driver")
+            .build();
+    }
+
+    /**
+     * Creates {@code bench.facts} with a mix of integer, floating point, decimal, boolean, text and
+     * timestamp columns, similar to a typical fact table.
+     */
+    static void seedFacts(DataSource dataSource, int rows) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE SCHEMA IF NOT EXISTS bench");
+            stmt.execute("CREATE TABLE bench.facts (" +
+                "id BIGINT PRIMARY KEY, " +
+                "customer_id INTEGER, " +
+                "price DOUBLE PRECISION, " +
+                "amount DECIMAL(12,2), " +
+                "active BOOLEAN, " +
+                "region VARCHAR(20), " +
+                "description VARCHAR(200), " +
+                "created_at TIMESTAMP)");
+            stmt.execute("INSERT INTO bench.facts " +
+                "SELECT X, MOD(X, 5000), X * 1.5, CAST(X * 0.37 AS DECIMAL(12,2)), MOD(X, 2) = 0, " +
+                "'region-' || MOD(X, 12), 'order line ' || X || ' for a synthetic benchmark customer', " +
+                "DATEADD('SECOND', X, TIMESTAMP '2024-01-01 00:00:00') " +
+                "FROM SYSTEM_RANGE(1, " + rows + ")");
+        }
+    }
+
+    /**
+     * Creates schema {@code wide} holding {@code tables} tables of {@code columns} columns each, with
+     * a primary key and a foreign key to the previous table.
+     */
+    static void seedWideSchema(DataSource dataSource, int tables, int columns) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE SCHEMA IF NOT EXISTS wide");
+            for (int table = 0; table < tables; table++) {
+                StringBuilder ddl = new StringBuilder("CREATE TABLE wide.t").append(table)
+                    .append(" (id INTEGER PRIMARY KEY, parent_id INTEGER");
+                for (int column = 0; column < columns; column++) {
+                    ddl.append(", c").append(column).append(column % 3 == 0 ? " VARCHAR(64)" : " DECIMAL(12,2)");
+                }
+                if (table > 0) {
+                    ddl.append(", FOREIGN KEY (parent_id) REFERENCES wide.t").append(table - 1).append("(id)");
+                }
+                ddl.append(")");
+                stmt.execute(ddl.toString());
+            }
+        }
+    }
+
+    static void close(DataSource dataSource) {
+        if (dataSource instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                // Best effort; the JVM exits after the benchmark anyway
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.baskettecase.plumchat.benchmarks;
+
+import com.baskettecase.mcpserver.QueryToolsService;
+import com.baskettecase.mcpserver.model.QueryResult;
+import com.baskettecase.mcpserver.service.ConnectionPools;
+import com.baskettecase.mcpserver.service.QueryCostGuard;
+import com.baskettecase.mcpserver.service.QueryCursorService;
+import com.baskettecase.mcpserver.service.QueryExecutionService;
+import com.baskettecase.mcpserver.service.QueryJobService;
+import com.baskettecase.mcpserver.service.QueryMetrics;
+import com.baskettecase.mcpserver.service.QueryPlanService;
+import com.baskettecase.mcpserver.service.QueryResultCache;
+import com.baskettecase.mcpserver.service.QueryResultStore;
+import com.baskettecase.mcpserver.service.ResultEncoders;
+import com.baskettecase.mcpserver.service.RowCountService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query server hot paths: materializing rows from the ResultSet, and the full executeQuery tool
+ * call including the JSON returned to the LLM.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class QueryBenchmark {
+
+    private static final String SQL = "SELECT * FROM bench.facts ORDER BY id";
+
+    @Param({"1000", "10000"})
+    public int rows;
+
+    private DataSource dataSource;
+    private QueryExecutionService queryExecutionService;
+    private QueryCursorService queryCursorService;
+    private QueryJobService queryJobService;
+    private QueryToolsService queryToolsService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        dataSource = BenchmarkDatabases.newDatabase();
+        BenchmarkDatabases.seedFacts(dataSource, rows);
+
+        ConnectionPools connectionPools = ConnectionPools.shared(dataSource);
+        queryExecutionService = new QueryExecutionService(connectionPools, QueryMetrics.unpublished());
+        queryCursorService = new QueryCursorService(dataSource, 300, 4);
+        queryJobService = new QueryJobService(queryExecutionService, 1, 1, 1, 1024 * 1024, 60);
+        // Cache and coalescing disabled so every invocation runs the query
+        QueryResultCache queryResultCache = new QueryResultCache(false, 0, 1, false);
+        QueryResultStore queryResultStore = new QueryResultStore(256L * 1024 * 1024, 60, 20);
+        RowCountService rowCountService = new RowCountService(dataSource, queryJobService, 1_000_000);
+        queryToolsService = new QueryToolsService(queryExecutionService, queryCursorService, queryJobService,
+            queryResultCache, queryResultStore, rowCountService, QueryMetrics.unpublished(), connectionPools,
+            ResultEncoders.defaults(),
+            new QueryCostGuard(queryExecutionService, true, 1_000_000, 100_000_000, 1_000_000, 1_000, 600),
+            new QueryPlanService(queryExecutionService, 60, 5, 10, 2));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        queryCursorService.shutdown();
+        queryJobService.shutdown();
+        BenchmarkDatabases.close(dataSource);
+    }
+
+    @Benchmark
+    public QueryResult executeQuery() throws SQLException {
+        return queryExecutionService.executeQuery(SQL, rows);
+    }
+
+    @Benchmark
+    public String executeQueryTool() {
+        return queryToolsService.executeQuery(SQL, rows, null);
+    }
+}
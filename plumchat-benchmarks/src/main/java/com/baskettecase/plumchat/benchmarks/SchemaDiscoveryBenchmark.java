@@ -0,0 +1,61 @@
+package com.baskettecase.plumchat.benchmarks;
+
+import com.baskettecase.mcpserver.model.SchemaInfo;
+import com.baskettecase.mcpserver.model.TableInfo;
+import com.baskettecase.mcpserver.service.SchemaDiscoveryService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schema discovery against wide and large schemas, without the catalog cache so every invocation
+ * reads the metadata.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SchemaDiscoveryBenchmark {
+
+    @Param({"50", "400"})
+    public int tables;
+
+    @Param({"10", "100"})
+    public int columns;
+
+    private DataSource dataSource;
+    private SchemaDiscoveryService schemaDiscoveryService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        dataSource = BenchmarkDatabases.newDatabase();
+        BenchmarkDatabases.seedWideSchema(dataSource, tables, columns);
+        schemaDiscoveryService = new SchemaDiscoveryService(dataSource);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkDatabases.close(dataSource);
+    }
+
+    @Benchmark
+    public List<TableInfo> getTablesInSchema() throws SQLException {
+        return schemaDiscoveryService.getTablesInSchema("WIDE");
+    }
+
+    @Benchmark
+    public List<SchemaInfo> getAllSchemas() throws SQLException {
+        return schemaDiscoveryService.getAllSchemas();
+    }
+}
@@ -0,0 +1,83 @@
+package com.baskettecase.plumchat.benchmarks;
+
+import com.baskettecase.plumchat.model.MessageData;
+import com.baskettecase.plumchat.service.StructuredDataParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of large synthetic LLM responses: a {@code query_result} JSON block wrapped in prose,
+ * and a markdown table.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StructuredDataParserBenchmark {
+
+    @Param({"100", "5000"})
+    public int rows;
+
+    private StructuredDataParser parser;
+    private String jsonResponse;
+    private String markdownResponse;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        parser = new StructuredDataParser(new ObjectMapper());
+        jsonResponse = jsonResponse(rows);
+        markdownResponse = markdownResponse(rows);
+    }
+
+    @Benchmark
+    public MessageData parseJsonResponse() {
+        return parser.parse(jsonResponse);
+    }
+
+    @Benchmark
+    public MessageData parseMarkdownTable() {
+        return parser.parse(markdownResponse);
+    }
+
+    private static String jsonResponse(int rows) {
+        StringBuilder text = new StringBuilder("I ran the query against the sales schema. Here are the results:\n\n```json\n");
+        text.append("{\"type\":\"query_result\",\"executionTimeMs\":42,\"rowCount\":").append(rows)
+            .append(",\"columnNames\":[\"id\",\"customer\",\"region\",\"amount\",\"active\"],")
+            .append("\"columnMetadata\":[")
+            .append("{\"name\":\"id\",\"type\":\"int8\",\"nullable\":false},")
+            .append("{\"name\":\"customer\",\"type\":\"varchar\",\"nullable\":true},")
+            .append("{\"name\":\"region\",\"type\":\"varchar\",\"nullable\":true},")
+            .append("{\"name\":\"amount\",\"type\":\"numeric\",\"nullable\":true},")
+            .append("{\"name\":\"active\",\"type\":\"bool\",\"nullable\":true}],\"rows\":[");
+        for (int row = 0; row < rows; row++) {
+            if (row > 0) {
+                text.append(',');
+            }
+            text.append('[').append(row).append(",\"Customer {").append(row).append("}\",\"region-")
+                .append(row % 12).append("\",").append(row * 1.25).append(',').append(row % 2 == 0).append(']');
+        }
+        text.append("]}\n```\n\nThe largest amounts are in region-11. Let me know if you want a breakdown by month.");
+        return text.toString();
+    }
+
+    private static String markdownResponse(int rows) {
+        StringBuilder text = new StringBuilder("Here are the customers you asked for:\n\n");
+        text.append("| id | customer | region | amount | active |\n");
+        text.append("|----|----------|--------|--------|--------|\n");
+        for (int row = 0; row < rows; row++) {
+            text.append("| ").append(row).append(" | Customer ").append(row).append(" | region-").append(row % 12)
+                .append(" | ").append(row * 1.25).append(" | ").append(row % 2 == 0).append(" |\n");
+        }
+        text.append("\nLet me know if you want to filter these further.");
+        return text.toString();
+    }
+}
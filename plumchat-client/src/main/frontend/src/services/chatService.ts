@@ -3,6 +3,12 @@ import type { ChatRequest, ChatResponse, ConnectionStatus, ChatMessage } from '.
 
 const API_BASE = '/api'
 
+export interface ChatStreamHandlers {
+  onDelta?: (text: string) => void
+  onToolStart?: (tool: string, args: string) => void
+  onToolEnd?: (tool: string, durationMs: number, success: boolean) => void
+}
+
 class ChatService {
   private axiosInstance = axios.create({
     baseURL: API_BASE,
@@ -16,6 +22,72 @@ class ChatService {
     return response.data
   }
 
+  /**
+   * Sends a message to the streaming endpoint and reports text deltas and tool calls as they
+   * arrive. Resolves with the final response, including parsed structured data.
+   */
+  async streamMessage(request: ChatRequest, handlers: ChatStreamHandlers = {}): Promise<ChatResponse> {
+    const response = await fetch(`${API_BASE}/chat/stream`, {
+      method: 'POST',
+      headers: { 'Content-Type': 'application/json', Accept: 'text/event-stream' },
+      body: JSON.stringify(request),
+    })
+    if (response.status === 429) {
+      const retryAfter = response.headers.get('Retry-After') ?? 'a few'
+      throw new Error(`PlumChat is busy, please try again in ${retryAfter} seconds`)
+    }
+    if (!response.ok || !response.body) {
+      throw new Error(`Streaming request failed with status ${response.status}`)
+    }
+
+    const reader = response.body.getReader()
+    const decoder = new TextDecoder()
+    let buffer = ''
+    let result: ChatResponse | null = null
+
+    for (;;) {
+      const { done, value } = await reader.read()
+      if (done) break
+      buffer += decoder.decode(value, { stream: true })
+
+      let boundary
+      while ((boundary = buffer.indexOf('\n\n')) >= 0) {
+        const rawEvent = buffer.slice(0, boundary)
+        buffer = buffer.slice(boundary + 2)
+
+        let name = 'message'
+        const dataLines: string[] = []
+        for (const line of rawEvent.split('\n')) {
+          if (line.startsWith('event:')) name = line.slice(6).trim()
+          else if (line.startsWith('data:')) dataLines.push(line.slice(5))
+        }
+        if (dataLines.length === 0) continue
+        const data = JSON.parse(dataLines.join('\n'))
+
+        switch (name) {
+          case 'delta':
+            handlers.onDelta?.(data.text)
+            break
+          case 'tool_start':
+            handlers.onToolStart?.(data.tool, data.arguments)
+            break
+          case 'tool_end':
+            handlers.onToolEnd?.(data.tool, data.durationMs, data.success)
+            break
+          case 'done':
+          case 'error':
+            result = data as ChatResponse
+            break
+        }
+      }
+    }
+
+    if (!result) {
+      throw new Error('Stream ended without a response')
+    }
+    return result
+  }
+
   async getSessionHistory(sessionId: string): Promise<ChatMessage[]> {
     const response = await this.axiosInstance.get<ChatMessage[]>(`/chat/history/${sessionId}`)
     return response.data
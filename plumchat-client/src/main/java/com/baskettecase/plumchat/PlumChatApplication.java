@@ -3,10 +3,17 @@ package com.baskettecase.plumchat;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
+import java.util.Map;
+
 @SpringBootApplication
 public class PlumChatApplication {
 
     public static void main(String[] args) {
-        SpringApplication.run(PlumChatApplication.class, args);
+        SpringApplication application = new SpringApplication(PlumChatApplication.class);
+        // Serve requests on virtual threads so chat turns blocked on the LLM or slow queries don't
+        // exhaust Tomcat's thread pool. Defaults rank below every other property source, so
+        // spring.threads.virtual.enabled=false in application.yml or the environment turns it off
+        application.setDefaultProperties(Map.of("spring.threads.virtual.enabled", "true"));
+        application.run(args);
     }
 }
@@ -1,13 +1,25 @@
 package com.baskettecase.plumchat.config;
 
+import com.baskettecase.plumchat.service.ParallelToolCallingManager;
+import com.baskettecase.plumchat.service.ToolCallObserver;
+import com.baskettecase.plumchat.service.ToolResultMemoizer;
+import io.micrometer.observation.ObservationRegistry;
+import io.modelcontextprotocol.client.McpSyncClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.model.tool.DefaultToolCallingManager;
+import org.springframework.ai.model.tool.ToolCallingManager;
 import org.springframework.ai.tool.ToolCallbackProvider;
+import org.springframework.ai.tool.execution.ToolExecutionExceptionProcessor;
+import org.springframework.ai.tool.resolution.ToolCallbackResolver;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.List;
+
 @Configuration
 public class ChatConfig {
 
@@ -17,13 +29,33 @@ public class ChatConfig {
     private String systemPrompt;
 
     @Bean
-    public ChatClient chatClient(ChatClient.Builder chatClientBuilder, ToolCallbackProvider tools) {
+    public ChatClient chatClient(ChatClient.Builder chatClientBuilder, ToolCallbackProvider tools,
+                                 ToolCallObserver toolCallObserver, ToolResultMemoizer toolResultMemoizer) {
         logger.info("Creating ChatClient with ToolCallbackProvider and externalized system prompt");
         logger.debug("System prompt loaded from properties: {}", systemPrompt.substring(0, Math.min(100, systemPrompt.length())) + "...");
         
         return chatClientBuilder
-            .defaultToolCallbacks(tools)
+            .defaultToolCallbacks(toolCallObserver.observe(toolResultMemoizer.memoize(tools)))
             .defaultSystem(systemPrompt)
             .build();
     }
+
+    /**
+     * Replaces Spring AI's default tool calling manager so independent tool calls requested in one
+     * assistant message run concurrently.
+     */
+    @Bean
+    public ToolCallingManager toolCallingManager(ObjectProvider<ObservationRegistry> observationRegistry,
+                                                 ToolCallbackResolver toolCallbackResolver,
+                                                 ToolExecutionExceptionProcessor toolExecutionExceptionProcessor,
+                                                 ObjectProvider<List<McpSyncClient>> mcpClients,
+                                                 @Value("${plumchat.tools.max-concurrent-per-server:4}") int maxConcurrentPerServer) {
+        logger.info("Tool calls from one assistant message run in parallel, up to {} per MCP server", maxConcurrentPerServer);
+        ToolCallingManager defaultManager = DefaultToolCallingManager.builder()
+            .observationRegistry(observationRegistry.getIfUnique(() -> ObservationRegistry.NOOP))
+            .toolCallbackResolver(toolCallbackResolver)
+            .toolExecutionExceptionProcessor(toolExecutionExceptionProcessor)
+            .build();
+        return new ParallelToolCallingManager(defaultManager, mcpClients, maxConcurrentPerServer);
+    }
 }
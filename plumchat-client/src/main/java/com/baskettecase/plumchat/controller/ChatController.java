@@ -2,11 +2,19 @@ package com.baskettecase.plumchat.controller;
 
 import com.baskettecase.plumchat.model.ChatRequest;
 import com.baskettecase.plumchat.model.ChatResponse;
+import com.baskettecase.plumchat.service.AdmissionRejectedException;
+import com.baskettecase.plumchat.service.ChatAdmissionService;
 import com.baskettecase.plumchat.service.ChatService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -17,18 +25,25 @@ public class ChatController {
 
     private static final Logger logger = LoggerFactory.getLogger(ChatController.class);
     private final ChatService chatService;
+    private final ChatAdmissionService admissionService;
 
-    public ChatController(ChatService chatService) {
+    @Value("${plumchat.chat.stream-timeout-seconds:300}")
+    private long streamTimeoutSeconds;
+
+    public ChatController(ChatService chatService, ChatAdmissionService admissionService) {
         this.chatService = chatService;
+        this.admissionService = admissionService;
     }
 
     @PostMapping("/message")
-    public ResponseEntity<ChatResponse> sendMessage(@RequestBody ChatRequest request) {
+    public ResponseEntity<ChatResponse> sendMessage(@RequestBody ChatRequest request, HttpServletRequest httpRequest) {
         logger.info("Received chat message: {}", request.getMessage());
         
-        try {
+        try (ChatAdmissionService.Permit permit = admissionService.acquire(callerKey(httpRequest))) {
             ChatResponse response = chatService.processMessage(request);
             return ResponseEntity.ok(response);
+        } catch (AdmissionRejectedException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Error processing chat message", e);
             return ResponseEntity.internalServerError()
@@ -36,6 +51,50 @@ public class ChatController {
         }
     }
 
+    @PostMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamMessage(@RequestBody ChatRequest request, HttpServletRequest httpRequest) {
+        logger.info("Received streaming chat message: {}", request.getMessage());
+
+        ChatAdmissionService.Permit permit;
+        try {
+            permit = admissionService.acquire(callerKey(httpRequest));
+        } catch (AdmissionRejectedException e) {
+            // No body: the client asked for an event stream, not a JSON error
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .build();
+        }
+        SseEmitter emitter = new SseEmitter(streamTimeoutSeconds * 1000);
+        // The turn keeps running after this method returns; it ends with the stream
+        emitter.onCompletion(permit::release);
+        emitter.onTimeout(permit::release);
+        emitter.onError(error -> permit.release());
+        try {
+            chatService.streamMessage(request, emitter);
+        } catch (RuntimeException e) {
+            permit.release();
+            throw e;
+        }
+        return ResponseEntity.ok(emitter);
+    }
+
+    @ExceptionHandler(AdmissionRejectedException.class)
+    public ResponseEntity<ChatResponse> handleAdmissionRejected(AdmissionRejectedException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+            .body(new ChatResponse(e.getMessage() + ", please try again in a few seconds.", null, "BUSY", null));
+    }
+
+    /**
+     * Identifies the caller for per-user admission limits. There is no authentication, so this is
+     * the client address. Forwarded headers are not read here, since any client can set them; behind
+     * a proxy, {@code server.forward-headers-strategy=native} lets Tomcat resolve the address from
+     * headers set by trusted proxies only.
+     */
+    private static String callerKey(HttpServletRequest httpRequest) {
+        return httpRequest.getRemoteAddr();
+    }
+
     @GetMapping("/history")
     public ResponseEntity<List<String>> getChatHistory(@RequestParam(required = false) String sessionId) {
         try {
@@ -2,11 +2,15 @@ package com.baskettecase.plumchat.controller;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
-import org.springframework.web.client.RestTemplate;
+import com.baskettecase.plumchat.service.ChatAdmissionService;
 import com.baskettecase.plumchat.service.ChatService;
+import com.baskettecase.plumchat.service.ConversationMemory;
+import com.baskettecase.plumchat.service.McpHealthProber;
+import com.baskettecase.plumchat.service.ToolResultMemoizer;
 
 import java.util.Map;
 
@@ -15,14 +19,23 @@ import java.util.Map;
 @CrossOrigin(origins = "*")
 public class StatusController {
 
-    private final RestTemplate restTemplate = new RestTemplate();
     private final ChatService chatService;
+    private final ConversationMemory conversationMemory;
+    private final ChatAdmissionService admissionService;
+    private final McpHealthProber healthProber;
+    private final ToolResultMemoizer toolResultMemoizer;
     
     @Value("${spring.ai.openai.chat.options.model:gpt-4o-mini}")
     private String openAiModel;
 
-    public StatusController(ChatService chatService) {
+    public StatusController(ChatService chatService, ConversationMemory conversationMemory,
+                            ChatAdmissionService admissionService, McpHealthProber healthProber,
+                            ToolResultMemoizer toolResultMemoizer) {
         this.chatService = chatService;
+        this.conversationMemory = conversationMemory;
+        this.admissionService = admissionService;
+        this.healthProber = healthProber;
+        this.toolResultMemoizer = toolResultMemoizer;
     }
 
     @GetMapping("/health")
@@ -35,16 +48,20 @@ public class StatusController {
     }
 
     @GetMapping("/connections")
-    public Map<String, Object> getConnectionStatus() {
-        return Map.of(
-            "schema", checkMcpServerStatus("schema-server", "http://localhost:8080"),
-            "query", checkMcpServerStatus("query-server", "http://localhost:8081"),
-            "mgmt", Map.of(
-                "connected", false,
-                "status", "Not Implemented", 
-                "note", "Management server not yet implemented"
-            )
-        );
+    public Map<String, Map<String, Object>> getConnectionStatus() {
+        // Served from the background prober's latest snapshot; never calls the servers inline
+        return healthProber.getSnapshot();
+    }
+
+    @GetMapping("/tool-cache")
+    public Map<String, Object> getToolCacheStats() {
+        return toolResultMemoizer.getStats();
+    }
+
+    @DeleteMapping("/tool-cache")
+    public Map<String, Object> clearToolCache() {
+        toolResultMemoizer.invalidateAll();
+        return toolResultMemoizer.getStats();
     }
 
     @GetMapping("/llm")
@@ -94,28 +111,13 @@ public class StatusController {
             "jvm", Map.of(
                 "version", System.getProperty("java.version"),
                 "vendor", System.getProperty("java.vendor")
-            )
+            ),
+            "conversations", conversationMemory.getStats(),
+            "chatAdmission", admissionService.getStats(),
+            "virtualThreads", Thread.currentThread().isVirtual()
         );
     }
 
-    private Map<String, Object> checkMcpServerStatus(String serverName, String serverUrl) {
-        try {
-            // Try to check the actuator health endpoint
-            restTemplate.getForObject(serverUrl + "/actuator/health", String.class);
-            return Map.of(
-                "connected", true,
-                "status", "Online",
-                "note", "MCP server responding"
-            );
-        } catch (Exception e) {
-            return Map.of(
-                "connected", false,
-                "status", "Offline",
-                "note", "Cannot connect to MCP server at " + serverUrl
-            );
-        }
-    }
-
     @GetMapping("/welcome")
     public Map<String, Object> getWelcomeMessage() {
         return Map.of(
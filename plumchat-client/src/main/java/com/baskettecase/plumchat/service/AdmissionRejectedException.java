@@ -0,0 +1,18 @@
+package com.baskettecase.plumchat.service;
+
+/**
+ * Thrown when a chat turn is not admitted because the chat service is saturated.
+ */
+public class AdmissionRejectedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public AdmissionRejectedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
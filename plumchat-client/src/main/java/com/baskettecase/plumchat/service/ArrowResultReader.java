@@ -0,0 +1,89 @@
+package com.baskettecase.plumchat.service;
+
+import com.baskettecase.plumchat.model.MessageData;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowStreamReader;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.util.Text;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads query results sent by the query server as an Arrow IPC stream into
+ * {@link MessageData.TableData}, batch by batch as they arrive.
+ *
+ * <p>Column types come from the {@code sqlType} field metadata the server writes, so the table
+ * shows the same types as with the JSON format.
+ */
+@Service
+public class ArrowResultReader implements DisposableBean {
+
+    public static final String MEDIA_TYPE = "application/vnd.apache.arrow.stream";
+    private static final String SQL_TYPE_KEY = "sqlType";
+
+    private BufferAllocator allocator;
+
+    public MessageData read(InputStream in) throws IOException {
+        try (ArrowStreamReader reader = new ArrowStreamReader(in, allocator())) {
+            VectorSchemaRoot root = reader.getVectorSchemaRoot();
+            List<MessageData.ColumnData> columns = new ArrayList<>();
+            for (Field field : root.getSchema().getFields()) {
+                String sqlType = field.getMetadata() != null ? field.getMetadata().get(SQL_TYPE_KEY) : null;
+                columns.add(new MessageData.ColumnData(field.getName(), sqlType != null ? sqlType : "TEXT",
+                    field.isNullable(), false));
+            }
+
+            List<List<Object>> rows = new ArrayList<>();
+            while (reader.loadNextBatch()) {
+                List<FieldVector> vectors = root.getFieldVectors();
+                for (int row = 0; row < root.getRowCount(); row++) {
+                    Object[] cells = new Object[vectors.size()];
+                    for (int column = 0; column < cells.length; column++) {
+                        Object value = vectors.get(column).getObject(row);
+                        cells[column] = value instanceof Text text ? text.toString() : value;
+                    }
+                    rows.add(Arrays.asList(cells));
+                }
+            }
+
+            MessageData.TableData tableData = new MessageData.TableData();
+            tableData.setName("query_result");
+            tableData.setSchema("default");
+            tableData.setColumns(columns);
+            tableData.setRows(rows);
+            MessageData messageData = new MessageData("query_result");
+            messageData.setTables(List.of(tableData));
+            return messageData;
+        }
+    }
+
+    // Lazy: without --add-opens=java.base/java.nio the allocator can't initialize, and fetches
+    // should then fall back to JSON rather than keep the client from starting
+
+    private synchronized BufferAllocator allocator() {
+        if (allocator == null) {
+            try {
+                allocator = new RootAllocator();
+            } catch (RuntimeException | LinkageError e) {
+                throw new IllegalStateException("Arrow memory is unavailable: " + e.getMessage(), e);
+            }
+        }
+        return allocator;
+    }
+
+    @Override
+    public synchronized void destroy() {
+        if (allocator != null) {
+            allocator.close();
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.baskettecase.plumchat.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the number of chat turns (LLM calls plus their tool loops) in flight, globally and per
+ * caller.
+ *
+ * <p>A turn that cannot start right away waits in a bounded queue for at most the configured
+ * deadline. When the queue is full or the deadline passes, the turn is rejected with an
+ * {@link AdmissionRejectedException} carrying a retry-after estimate derived from recent turn
+ * durations. Waiting is cheap because requests are served on virtual threads.
+ *
+ * <p>Queue depth, in-flight turns, wait time and rejections are published as Micrometer metrics
+ * under {@code plumchat.chat.admission.*}.
+ */
+@Service
+public class ChatAdmissionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatAdmissionService.class);
+
+    private final int maxConcurrent;
+    private final int maxConcurrentPerUser;
+    private final int maxQueued;
+    private final Duration queueTimeout;
+    private final Semaphore globalPermits;
+    private final Map<String, UserPermits> userPermits = new ConcurrentHashMap<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // Bits of a double, so the moving average can be updated atomically
+    private final AtomicLong averageTurnMs = new AtomicLong(Double.doubleToLongBits(5000));
+
+    private final Timer waitTimer;
+    private final Counter rejectedQueueFull;
+    private final Counter rejectedTimeout;
+
+    public ChatAdmissionService(MeterRegistry meterRegistry,
+                                @Value("${plumchat.chat.admission.max-concurrent:16}") int maxConcurrent,
+                                @Value("${plumchat.chat.admission.max-concurrent-per-user:2}") int maxConcurrentPerUser,
+                                @Value("${plumchat.chat.admission.max-queued:64}") int maxQueued,
+                                @Value("${plumchat.chat.admission.queue-timeout-seconds:30}") long queueTimeoutSeconds) {
+        this.maxConcurrent = maxConcurrent;
+        this.maxConcurrentPerUser = maxConcurrentPerUser;
+        this.maxQueued = maxQueued;
+        this.queueTimeout = Duration.ofSeconds(queueTimeoutSeconds);
+        this.globalPermits = new Semaphore(maxConcurrent, true);
+
+        Gauge.builder("plumchat.chat.admission.queue.depth", queued, AtomicInteger::get)
+            .description("Chat turns waiting to be admitted")
+            .register(meterRegistry);
+        Gauge.builder("plumchat.chat.admission.in.flight", inFlight, AtomicInteger::get)
+            .description("Chat turns currently running")
+            .register(meterRegistry);
+        this.waitTimer = Timer.builder("plumchat.chat.admission.wait")
+            .description("Time chat turns spent waiting for admission")
+            .publishPercentiles(0.5, 0.95, 0.99)
+            .register(meterRegistry);
+        this.rejectedQueueFull = Counter.builder("plumchat.chat.admission.rejected")
+            .tag("reason", "queue_full")
+            .register(meterRegistry);
+        this.rejectedTimeout = Counter.builder("plumchat.chat.admission.rejected")
+            .tag("reason", "timeout")
+            .register(meterRegistry);
+
+        logger.info("Chat admission: {} concurrent turns ({} per user), {} queued, {}s queue timeout",
+            maxConcurrent, maxConcurrentPerUser, maxQueued, queueTimeoutSeconds);
+    }
+
+    /**
+     * Waits until a turn for {@code userKey} may start.
+     * @return the permit, which must be released once the turn has finished
+     * @throws AdmissionRejectedException if the queue is full or the deadline passed while waiting
+     */
+    public Permit acquire(String userKey) {
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            rejectedQueueFull.increment();
+            logger.warn("Rejecting chat turn for {}: admission queue is full ({} waiting)", userKey, maxQueued);
+            throw new AdmissionRejectedException("Too many chat requests are waiting", retryAfterSeconds());
+        }
+
+        long startNanos = System.nanoTime();
+        long deadlineNanos = startNanos + queueTimeout.toNanos();
+        UserPermits user = userPermits.compute(userKey, (key, existing) -> {
+            UserPermits permits = existing != null ? existing : new UserPermits(maxConcurrentPerUser);
+            permits.users++;
+            return permits;
+        });
+        boolean userAcquired = false;
+        boolean globalAcquired = false;
+        try {
+            userAcquired = user.semaphore.tryAcquire(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (userAcquired) {
+                globalAcquired = globalPermits.tryAcquire(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            queued.decrementAndGet();
+            waitTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+
+        if (!globalAcquired) {
+            if (userAcquired) {
+                user.semaphore.release();
+            }
+            releaseUser(userKey);
+            rejectedTimeout.increment();
+            logger.warn("Rejecting chat turn for {}: not admitted within {}s", userKey, queueTimeout.toSeconds());
+            throw new AdmissionRejectedException("Chat service is busy", retryAfterSeconds());
+        }
+
+        inFlight.incrementAndGet();
+        return new Permit(userKey, user);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("inFlight", inFlight.get());
+        stats.put("queued", queued.get());
+        stats.put("maxConcurrent", maxConcurrent);
+        stats.put("maxConcurrentPerUser", maxConcurrentPerUser);
+        stats.put("maxQueued", maxQueued);
+        stats.put("averageTurnMs", Math.round(averageTurnMs()));
+        stats.put("averageWaitMs", Math.round(waitTimer.mean(TimeUnit.MILLISECONDS)));
+        stats.put("rejected", Math.round(rejectedQueueFull.count() + rejectedTimeout.count()));
+        return stats;
+    }
+
+    /**
+     * Estimated seconds until a slot frees up: the queue ahead drains at roughly
+     * {@code maxConcurrent} turns per average turn duration.
+     */
+    long retryAfterSeconds() {
+        double turnsAhead = queued.get() + 1;
+        double seconds = Math.ceil(averageTurnMs() / 1000.0 * turnsAhead / maxConcurrent);
+        return Math.max(1, Math.min(120, (long) seconds));
+    }
+
+    private void releaseUser(String userKey) {
+        // Drop the per-user semaphore once nobody is using or waiting on it
+        userPermits.computeIfPresent(userKey, (key, permits) -> --permits.users == 0 ? null : permits);
+    }
+
+    private void recordTurnDuration(long durationMs) {
+        // Exponentially weighted, so the retry-after estimate follows the current load
+        averageTurnMs.accumulateAndGet(durationMs, (average, duration) ->
+            Double.doubleToLongBits(Double.longBitsToDouble(average) * 0.9 + duration * 0.1));
+    }
+
+    private double averageTurnMs() {
+        return Double.longBitsToDouble(averageTurnMs.get());
+    }
+
+    private static final class UserPermits {
+        private final Semaphore semaphore;
+        private int users;
+
+        private UserPermits(int permits) {
+            this.semaphore = new Semaphore(permits, true);
+        }
+    }
+
+    /**
+     * An admitted chat turn. Releasing is idempotent, so it can be tied to several completion
+     * callbacks of a streamed response.
+     */
+    public final class Permit implements AutoCloseable {
+
+        private final String userKey;
+        private final UserPermits user;
+        private final long startMs = System.currentTimeMillis();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(String userKey, UserPermits user) {
+            this.userKey = userKey;
+            this.user = user;
+        }
+
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                inFlight.decrementAndGet();
+                globalPermits.release();
+                user.semaphore.release();
+                releaseUser(userKey);
+                recordTurnDuration(System.currentTimeMillis() - startMs);
+            }
+        }
+
+        @Override
+        public void close() {
+            release();
+        }
+    }
+}
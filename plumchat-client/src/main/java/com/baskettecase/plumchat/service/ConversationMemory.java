@@ -0,0 +1,333 @@
+package com.baskettecase.plumchat.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded per-session conversation memory.
+ *
+ * <p>Each session keeps its most recent turns verbatim within a token budget. Older turns are folded
+ * into a short extractive summary (no extra LLM call), which is itself capped, so the prompt sent
+ * on every turn stays within {@code plumchat.memory.max-tokens} however long the session runs. The
+ * new user message counts against the same budget, and a message or turn too large to fit on its
+ * own (a pasted table, say) is truncated. Sessions idle for longer than the configured timeout are
+ * evicted, and the least recently used session is dropped when the total session count would
+ * exceed its limit.
+ *
+ * <p>Turns of one session are serialized: {@link #beginTurn} waits until the previous turn of the
+ * session has been recorded or abandoned, so concurrent messages cannot build their prompts from
+ * the same history and then record over each other.
+ */
+@Service
+public class ConversationMemory {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConversationMemory.class);
+    private static final int SUMMARY_SNIPPET_CHARS = 160;
+    private static final String TRUNCATION_MARKER = " … [truncated to fit the conversation memory]";
+
+    private final int maxTokens;
+    private final int summaryMaxTokens;
+    private final int maxSessions;
+    private final Duration idleTimeout;
+    private final Duration turnWait;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService evictor;
+
+    public ConversationMemory(@Value("${plumchat.memory.max-tokens:6000}") int maxTokens,
+                              @Value("${plumchat.memory.summary-max-tokens:800}") int summaryMaxTokens,
+                              @Value("${plumchat.memory.max-sessions:1000}") int maxSessions,
+                              @Value("${plumchat.memory.idle-timeout-minutes:60}") long idleTimeoutMinutes,
+                              @Value("${plumchat.memory.turn-wait-seconds:120}") long turnWaitSeconds) {
+        this.maxTokens = maxTokens;
+        this.summaryMaxTokens = summaryMaxTokens;
+        this.maxSessions = maxSessions;
+        this.idleTimeout = Duration.ofMinutes(idleTimeoutMinutes);
+        this.turnWait = Duration.ofSeconds(turnWaitSeconds);
+        this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "conversation-memory-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        evictor.scheduleWithFixedDelay(this::evictIdleSessions, 1, 1, TimeUnit.MINUTES);
+        logger.info("Conversation memory: {} token budget per session, {} max sessions, {} min idle timeout",
+            maxTokens, maxSessions, idleTimeoutMinutes);
+    }
+
+    /**
+     * Starts a turn of {@code sessionId}, waiting for a turn of the same session that is still in
+     * progress. The returned turn must be closed, normally after {@link ActiveTurn#record}; closing
+     * it without recording abandons the turn.
+     * @throws IllegalStateException if the previous turn does not finish within the configured wait
+     */
+    public ActiveTurn beginTurn(String sessionId, String userMessage) {
+        Session session = session(sessionId);
+        try {
+            if (!session.turnPermit.tryAcquire(turnWait.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("Another message in this conversation is still being answered");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the previous message of this conversation", e);
+        }
+        return new ActiveTurn(session, fitToBudget(userMessage != null ? userMessage : "", windowBudget()));
+    }
+
+    /**
+     * One turn of a session, holding the session's turn permit until it is closed.
+     */
+    public final class ActiveTurn implements AutoCloseable {
+        private final Session session;
+        private final String userMessage;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private ActiveTurn(Session session, String userMessage) {
+            this.session = session;
+            this.userMessage = userMessage;
+        }
+
+        /**
+         * Builds the messages for the LLM call: the summary of older turns (if any), the recent turns
+         * and the new user message. Older turns are folded into the summary first where needed to
+         * leave room for the new message within the budget.
+         */
+        public List<Message> prompt() {
+            List<Message> messages = new ArrayList<>();
+            session.lock.lock();
+            try {
+                foldUntilWithin(session, windowBudget() - estimateTokens(userMessage), 0);
+                if (!session.summary.isEmpty()) {
+                    messages.add(new SystemMessage(session.summaryText()));
+                }
+                for (Turn turn : session.turns) {
+                    messages.add(new UserMessage(turn.userMessage()));
+                    messages.add(new AssistantMessage(turn.assistantMessage()));
+                }
+            } finally {
+                session.lock.unlock();
+            }
+            messages.add(new UserMessage(userMessage));
+            return messages;
+        }
+
+        /**
+         * Records the completed turn and folds the oldest turns into the summary until the session is
+         * back within its token budget. The newest turn is kept verbatim unless it alone exceeds the
+         * budget, in which case it is truncated.
+         */
+        public void record(String assistantMessage) {
+            if (closed.get()) {
+                return;
+            }
+            session.lock.lock();
+            try {
+                int windowBudget = windowBudget();
+                Turn turn = fitToBudget(new Turn(userMessage, assistantMessage != null ? assistantMessage : "",
+                    estimateTokens(userMessage) + estimateTokens(assistantMessage)), windowBudget);
+                session.turns.addLast(turn);
+                session.turnTokens += turn.tokens();
+                foldUntilWithin(session, windowBudget, 1);
+            } finally {
+                session.lock.unlock();
+            }
+        }
+
+        /**
+         * Releases the session for its next turn. Safe to call more than once and from any thread.
+         */
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                session.turnPermit.release();
+            }
+        }
+    }
+
+    /**
+     * Returns the messages currently remembered for a session, oldest first.
+     */
+    public List<String> getHistory(String sessionId) {
+        Session session = sessionId != null ? sessions.get(sessionId) : null;
+        if (session == null) {
+            return List.of();
+        }
+        List<String> history = new ArrayList<>();
+        session.lock.lock();
+        try {
+            for (Turn turn : session.turns) {
+                history.add(turn.userMessage());
+                history.add(turn.assistantMessage());
+            }
+        } finally {
+            session.lock.unlock();
+        }
+        return history;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("sessions", sessions.size());
+        stats.put("maxSessions", maxSessions);
+        stats.put("maxTokensPerSession", maxTokens);
+        stats.put("idleTimeoutMinutes", idleTimeout.toMinutes());
+        return stats;
+    }
+
+    static int estimateTokens(String text) {
+        // ~4 characters per token for English text with the OpenAI tokenizers
+        return text == null ? 0 : (text.length() + 3) / 4;
+    }
+
+    void evictIdleSessions() {
+        long cutoff = System.currentTimeMillis() - idleTimeout.toMillis();
+        int evicted = 0;
+        for (Session session : sessions.values()) {
+            if (session.lastAccessMs < cutoff && sessions.remove(session.id, session)) {
+                evicted++;
+            }
+        }
+        if (evicted > 0) {
+            logger.info("Evicted {} idle chat sessions, {} remaining", evicted, sessions.size());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        evictor.shutdownNow();
+    }
+
+    private Session session(String sessionId) {
+        Session session = sessions.get(sessionId);
+        if (session == null) {
+            if (sessions.size() >= maxSessions) {
+                evictLeastRecentlyUsed();
+            }
+            session = sessions.computeIfAbsent(sessionId, Session::new);
+        }
+        session.lastAccessMs = System.currentTimeMillis();
+        return session;
+    }
+
+    private void evictLeastRecentlyUsed() {
+        Session oldest = null;
+        for (Session session : sessions.values()) {
+            if (oldest == null || session.lastAccessMs < oldest.lastAccessMs) {
+                oldest = session;
+            }
+        }
+        if (oldest != null && sessions.remove(oldest.id, oldest)) {
+            logger.info("Session limit of {} reached, evicted least recently used session {}", maxSessions, oldest.id);
+        }
+    }
+
+    private int windowBudget() {
+        return Math.max(0, maxTokens - summaryMaxTokens);
+    }
+
+    /**
+     * Folds the oldest turns into the summary until the remaining turns fit {@code budget}, keeping
+     * at least {@code keep} turns. Caller must hold the session lock.
+     */
+    private void foldUntilWithin(Session session, int budget, int keep) {
+        while (session.turnTokens > budget && session.turns.size() > keep) {
+            Turn oldest = session.turns.removeFirst();
+            session.turnTokens -= oldest.tokens();
+            summarize(session, oldest);
+        }
+    }
+
+    private void summarize(Session session, Turn turn) {
+        String line = "- User: " + snippet(turn.userMessage()) + " / Assistant: " + snippet(turn.assistantMessage());
+        session.summary.addLast(line);
+        session.summaryTokens += estimateTokens(line);
+        while (session.summaryTokens > summaryMaxTokens && session.summary.size() > 1) {
+            session.summaryTokens -= estimateTokens(session.summary.removeFirst());
+            session.omittedTurns++;
+        }
+    }
+
+    /**
+     * Truncates a turn that alone exceeds {@code budget}, giving the shorter message what it needs
+     * (up to half the budget) and the other message the rest.
+     */
+    static Turn fitToBudget(Turn turn, int budget) {
+        if (turn.tokens() <= budget) {
+            return turn;
+        }
+        int userTokens = estimateTokens(turn.userMessage());
+        int assistantTokens = estimateTokens(turn.assistantMessage());
+        int userBudget = Math.min(userTokens, Math.max(budget - assistantTokens, budget / 2));
+        String user = fitToBudget(turn.userMessage(), userBudget);
+        String assistant = fitToBudget(turn.assistantMessage(), budget - userBudget);
+        return new Turn(user, assistant, estimateTokens(user) + estimateTokens(assistant));
+    }
+
+    /**
+     * Keeps the start of {@code text} within {@code budget} estimated tokens, marking the cut.
+     */
+    static String fitToBudget(String text, int budget) {
+        if (estimateTokens(text) <= budget) {
+            return text;
+        }
+        int maxChars = budget * 4;
+        if (maxChars <= TRUNCATION_MARKER.length()) {
+            return text.substring(0, maxChars);
+        }
+        return text.substring(0, maxChars - TRUNCATION_MARKER.length()) + TRUNCATION_MARKER;
+    }
+
+    private static String snippet(String text) {
+        String collapsed = text.replaceAll("\\s+", " ").trim();
+        return collapsed.length() <= SUMMARY_SNIPPET_CHARS ? collapsed : collapsed.substring(0, SUMMARY_SNIPPET_CHARS) + "…";
+    }
+
+    record Turn(String userMessage, String assistantMessage, int tokens) {
+    }
+
+    private static final class Session {
+        private final String id;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Semaphore turnPermit = new Semaphore(1);
+        private final Deque<Turn> turns = new ArrayDeque<>();
+        private final Deque<String> summary = new ArrayDeque<>();
+        private int turnTokens;
+        private int summaryTokens;
+        private int omittedTurns;
+        private volatile long lastAccessMs = System.currentTimeMillis();
+
+        private Session(String id) {
+            this.id = id;
+        }
+
+        private String summaryText() {
+            StringBuilder text = new StringBuilder("Summary of earlier turns in this conversation");
+            if (omittedTurns > 0) {
+                text.append(" (").append(omittedTurns).append(" older turns omitted)");
+            }
+            text.append(":\n");
+            text.append(String.join("\n", summary));
+            return text.toString();
+        }
+    }
+}
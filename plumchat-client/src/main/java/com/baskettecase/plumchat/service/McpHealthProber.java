@@ -0,0 +1,241 @@
+package com.baskettecase.plumchat.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Probes the MCP servers' actuator health endpoints in the background and keeps the latest
+ * result, so status requests never wait on a server.
+ *
+ * <p>All servers are probed concurrently with strict connect and request timeouts. Each server
+ * keeps a short latency history and a circuit breaker: after {@code failure-threshold}
+ * consecutive failures the circuit opens and the server is only probed again once
+ * {@code circuit-open-seconds} have passed (half-open); a successful probe closes it.
+ */
+@Service
+public class McpHealthProber {
+
+    private static final Logger logger = LoggerFactory.getLogger(McpHealthProber.class);
+    private static final int LATENCY_HISTORY_SIZE = 20;
+
+    public enum CircuitState { CLOSED, OPEN, HALF_OPEN }
+
+    private final Map<String, ServerProbe> servers = new LinkedHashMap<>();
+    private final long intervalSeconds;
+    private final Duration timeout;
+    private final int failureThreshold;
+    private final Duration circuitOpenDuration;
+    private final HttpClient httpClient;
+    private final ScheduledExecutorService scheduler;
+    private volatile Map<String, Map<String, Object>> snapshot;
+
+    public McpHealthProber(@Value("${plumchat.schema-server.url:http://localhost:8080}") String schemaServerUrl,
+                           @Value("${plumchat.query-server.url:http://localhost:8081}") String queryServerUrl,
+                           @Value("${plumchat.mgmt-server.url:}") String mgmtServerUrl,
+                           @Value("${plumchat.health.interval-seconds:10}") long intervalSeconds,
+                           @Value("${plumchat.health.timeout-millis:2000}") long timeoutMillis,
+                           @Value("${plumchat.health.failure-threshold:3}") int failureThreshold,
+                           @Value("${plumchat.health.circuit-open-seconds:30}") long circuitOpenSeconds) {
+        servers.put("schema", new ServerProbe("schema-server", schemaServerUrl));
+        servers.put("query", new ServerProbe("query-server", queryServerUrl));
+        servers.put("mgmt", new ServerProbe("mgmt-server", mgmtServerUrl));
+        this.intervalSeconds = intervalSeconds;
+        this.timeout = Duration.ofMillis(timeoutMillis);
+        this.failureThreshold = failureThreshold;
+        this.circuitOpenDuration = Duration.ofSeconds(circuitOpenSeconds);
+        this.httpClient = HttpClient.newBuilder()
+            .connectTimeout(timeout)
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "mcp-health-prober");
+            thread.setDaemon(true);
+            return thread;
+        });
+        publishSnapshot();
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::probeAll, 0, intervalSeconds, TimeUnit.SECONDS);
+        logger.info("Probing MCP server health every {}s with a {}ms timeout", intervalSeconds, timeout.toMillis());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * @return the latest health of every configured server, keyed by {@code schema}, {@code query}
+     * and {@code mgmt}
+     */
+    public Map<String, Map<String, Object>> getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * @return whether the server was reachable at the last probe
+     */
+    public boolean isAvailable(String server) {
+        Map<String, Object> health = snapshot.get(server);
+        return health != null && Boolean.TRUE.equals(health.get("connected"));
+    }
+
+    void probeAll() {
+        try {
+            List<CompletableFuture<Void>> probes = new ArrayList<>();
+            for (ServerProbe server : servers.values()) {
+                if (server.shouldProbe()) {
+                    probes.add(probe(server));
+                }
+            }
+            CompletableFuture.allOf(probes.toArray(CompletableFuture[]::new))
+                .get(timeout.toMillis() * 2, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.debug("Health probe round did not finish cleanly: {}", e.getMessage());
+        } finally {
+            publishSnapshot();
+        }
+    }
+
+    private CompletableFuture<Void> probe(ServerProbe server) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(server.url + "/actuator/health"))
+            .timeout(timeout)
+            .GET()
+            .build();
+        long startNanos = System.nanoTime();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+            .handle((response, error) -> {
+                long latencyMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+                if (error == null && response.statusCode() == 200) {
+                    server.recordSuccess(latencyMs);
+                } else {
+                    String reason = error != null ? error.getClass().getSimpleName() : "HTTP " + response.statusCode();
+                    server.recordFailure(reason);
+                }
+                return null;
+            });
+    }
+
+    private void publishSnapshot() {
+        Map<String, Map<String, Object>> next = new LinkedHashMap<>();
+        servers.forEach((key, server) -> next.put(key, server.toMap()));
+        snapshot = Collections.unmodifiableMap(next);
+    }
+
+    private final class ServerProbe {
+
+        private final String name;
+        private final String url;
+        private final Deque<Long> latencies = new ArrayDeque<>();
+        private boolean probed;
+        private boolean connected;
+        private String lastError;
+        private int consecutiveFailures;
+        private CircuitState circuitState = CircuitState.CLOSED;
+        private long circuitOpenedAtMs;
+        private long lastCheckedMs;
+
+        private ServerProbe(String name, String url) {
+            this.name = name;
+            this.url = url != null && url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+        }
+
+        private boolean configured() {
+            return url != null && !url.isBlank();
+        }
+
+        private synchronized boolean shouldProbe() {
+            if (!configured()) {
+                return false;
+            }
+            if (circuitState == CircuitState.OPEN) {
+                if (System.currentTimeMillis() - circuitOpenedAtMs < circuitOpenDuration.toMillis()) {
+                    return false;
+                }
+                circuitState = CircuitState.HALF_OPEN;
+            }
+            return true;
+        }
+
+        private synchronized void recordSuccess(long latencyMs) {
+            if (circuitState != CircuitState.CLOSED) {
+                logger.info("✅ {} is reachable again, closing circuit", name);
+            }
+            probed = true;
+            connected = true;
+            lastError = null;
+            consecutiveFailures = 0;
+            circuitState = CircuitState.CLOSED;
+            lastCheckedMs = System.currentTimeMillis();
+            latencies.addLast(latencyMs);
+            if (latencies.size() > LATENCY_HISTORY_SIZE) {
+                latencies.removeFirst();
+            }
+        }
+
+        private synchronized void recordFailure(String reason) {
+            probed = true;
+            connected = false;
+            lastError = reason;
+            consecutiveFailures++;
+            lastCheckedMs = System.currentTimeMillis();
+            if (circuitState == CircuitState.HALF_OPEN
+                    || (circuitState == CircuitState.CLOSED && consecutiveFailures >= failureThreshold)) {
+                circuitState = CircuitState.OPEN;
+                circuitOpenedAtMs = lastCheckedMs;
+                logger.warn("⚠️ {} failed {} health probes ({}), opening circuit for {}s",
+                    name, consecutiveFailures, reason, circuitOpenDuration.toSeconds());
+            }
+        }
+
+        private synchronized Map<String, Object> toMap() {
+            Map<String, Object> health = new LinkedHashMap<>();
+            if (!configured()) {
+                health.put("connected", false);
+                health.put("status", "Not Configured");
+                health.put("note", "No URL configured for " + name);
+                return health;
+            }
+            health.put("connected", connected);
+            health.put("status", !probed ? "Unknown" : connected ? "Online" : "Offline");
+            health.put("note", !probed ? "Not probed yet"
+                : connected ? "MCP server responding"
+                : "Cannot connect to MCP server at " + url + (lastError != null ? " (" + lastError + ")" : ""));
+            health.put("url", url);
+            health.put("circuit", circuitState.name());
+            health.put("consecutiveFailures", consecutiveFailures);
+            health.put("lastCheckedMs", lastCheckedMs);
+            if (!latencies.isEmpty()) {
+                health.put("latencyMs", latencies.peekLast());
+                health.put("averageLatencyMs", Math.round(latencies.stream().mapToLong(Long::longValue).average().orElse(0)));
+                health.put("latencyHistoryMs", List.copyOf(latencies));
+            }
+            return health;
+        }
+    }
+}
@@ -56,11 +56,17 @@ public class McpToolDiscoveryService {
         logger.info("      - getAllSchemas: Get all database schemas");
         logger.info("      - getTablesInSchema: Get tables in a specific schema");
         logger.info("      - getTableInfo: Get detailed table information");
+        logger.info("      - refreshSchemaCache: Discard cached schema metadata");
         logger.info("      - testMcpConnection: Test MCP server connectivity");
         logger.info("   🔍 Query Execution Tools (from query-server on port 8081 - if configured):");
-        logger.info("      - executeQuery: Execute SELECT queries against the database");
-        logger.info("      - explainQuery: Get execution plan for a query");
-        logger.info("      - countTableRows: Count rows in a specified table");
+        logger.info("      - executeQuery: Execute SELECT queries against the database (compact, csv, tsv, markdown or json output)");
+        logger.info("      - executeQueryPaged / fetchNextPage / closeQueryCursor: Page through large results");
+        logger.info("      - submitQuery / getQueryStatus / getQueryResult / cancelQuery: Background query jobs");
+        logger.info("      - invalidateCache / getCacheStats: Manage the query result cache");
+        logger.info("      - getQueryStats: Latency statistics per query shape");
+        logger.info("      - getConnectionPoolStats: Connection pool usage per workload");
+        logger.info("      - explainQuery: Get execution plan for a query, with cost hotspots, misestimates and skew");
+        logger.info("      - countTableRows: Count rows in a table (exact, estimated or auto)");
         logger.info("      - testConnection: Test database connectivity");
         
         logger.info("🎉 PlumChat is ready to assist with Greenplum database operations!");
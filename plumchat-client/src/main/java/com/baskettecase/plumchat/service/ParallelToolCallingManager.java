@@ -0,0 +1,167 @@
+package com.baskettecase.plumchat.service;
+
+import io.modelcontextprotocol.client.McpSyncClient;
+import io.modelcontextprotocol.spec.McpSchema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.mcp.McpToolUtils;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.ai.model.tool.ToolExecutionResult;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Runs the tool calls of one assistant message concurrently instead of one after another.
+ *
+ * <p>Each tool call is executed by the delegate manager on its own virtual thread, so tool
+ * resolution, observations and exception handling stay exactly as in Spring AI's default
+ * manager. The responses are merged into a single tool response message in the order the model
+ * requested them. Concurrent calls to the same MCP server are capped by
+ * {@code maxConcurrentPerServer}; tools are mapped to their server through the MCP clients'
+ * tool listings.
+ */
+public class ParallelToolCallingManager implements ToolCallingManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelToolCallingManager.class);
+    private static final String UNKNOWN_SERVER = "unknown";
+
+    private final ToolCallingManager delegate;
+    private final ObjectProvider<List<McpSyncClient>> mcpClients;
+    private final int maxConcurrentPerServer;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, Semaphore> serverPermits = new ConcurrentHashMap<>();
+    private volatile Map<String, String> toolServers = Map.of();
+
+    public ParallelToolCallingManager(ToolCallingManager delegate, ObjectProvider<List<McpSyncClient>> mcpClients,
+                                      int maxConcurrentPerServer) {
+        this.delegate = delegate;
+        this.mcpClients = mcpClients;
+        this.maxConcurrentPerServer = maxConcurrentPerServer;
+    }
+
+    @Override
+    public List<ToolDefinition> resolveToolDefinitions(ToolCallingChatOptions chatOptions) {
+        return delegate.resolveToolDefinitions(chatOptions);
+    }
+
+    @Override
+    public ToolExecutionResult executeToolCalls(Prompt prompt, ChatResponse chatResponse) {
+        AssistantMessage assistantMessage = chatResponse.getResults().stream()
+            .map(Generation::getOutput)
+            .filter(AssistantMessage::hasToolCalls)
+            .findFirst()
+            .orElse(null);
+        if (assistantMessage == null || assistantMessage.getToolCalls().size() < 2) {
+            return delegate.executeToolCalls(prompt, chatResponse);
+        }
+
+        List<AssistantMessage.ToolCall> toolCalls = assistantMessage.getToolCalls();
+        logger.info("Executing {} tool calls in parallel: {}", toolCalls.size(),
+            toolCalls.stream().map(AssistantMessage.ToolCall::name).toList());
+        long startTime = System.currentTimeMillis();
+
+        List<CompletableFuture<ToolExecutionResult>> results = new ArrayList<>(toolCalls.size());
+        for (AssistantMessage.ToolCall toolCall : toolCalls) {
+            // The delegate only sees this one call, so it resolves, observes and runs just that tool
+            AssistantMessage singleCall = new AssistantMessage(assistantMessage.getText(),
+                assistantMessage.getMetadata(), List.of(toolCall));
+            ChatResponse singleResponse = new ChatResponse(List.of(new Generation(singleCall)), chatResponse.getMetadata());
+            results.add(CompletableFuture.supplyAsync(
+                () -> executeWithServerLimit(toolCall.name(), () -> delegate.executeToolCalls(prompt, singleResponse)),
+                executor));
+        }
+
+        List<ToolResponseMessage.ToolResponse> responses = new ArrayList<>(toolCalls.size());
+        boolean returnDirect = true;
+        try {
+            for (CompletableFuture<ToolExecutionResult> future : results) {
+                ToolExecutionResult result = future.join();
+                List<Message> history = result.conversationHistory();
+                if (history.get(history.size() - 1) instanceof ToolResponseMessage toolResponse) {
+                    responses.addAll(toolResponse.getResponses());
+                }
+                returnDirect &= result.returnDirect();
+            }
+        } catch (CompletionException e) {
+            results.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        logger.info("Parallel tool calls finished in {}ms", System.currentTimeMillis() - startTime);
+
+        List<Message> conversationHistory = new ArrayList<>(prompt.copy().getInstructions());
+        conversationHistory.add(assistantMessage);
+        conversationHistory.add(new ToolResponseMessage(responses, Map.of()));
+        return ToolExecutionResult.builder()
+            .conversationHistory(conversationHistory)
+            .returnDirect(returnDirect)
+            .build();
+    }
+
+    private <T> T executeWithServerLimit(String toolName, Supplier<T> call) {
+        Semaphore permits = serverPermits.computeIfAbsent(serverOf(toolName),
+            server -> new Semaphore(maxConcurrentPerServer, true));
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to call tool " + toolName, e);
+        }
+        try {
+            return call.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * @return the name of the MCP client (one per server connection) that provides {@code toolName}
+     */
+    String serverOf(String toolName) {
+        String server = toolServers.get(toolName);
+        if (server == null) {
+            // Servers may have connected or added tools since the last lookup
+            Map<String, String> index = indexToolServers();
+            server = index.computeIfAbsent(toolName, name -> UNKNOWN_SERVER);
+            toolServers = index;
+        }
+        return server;
+    }
+
+    private Map<String, String> indexToolServers() {
+        Map<String, String> index = new ConcurrentHashMap<>();
+        List<McpSyncClient> clients = mcpClients.getIfAvailable(List::of);
+        for (McpSyncClient client : clients) {
+            String clientName = client.getClientInfo().name();
+            try {
+                for (McpSchema.Tool tool : client.listTools().tools()) {
+                    index.put(tool.name(), clientName);
+                    index.put(McpToolUtils.prefixedToolName(clientName, tool.name()), clientName);
+                }
+            } catch (RuntimeException e) {
+                logger.debug("Could not list tools of MCP client {}: {}", clientName, e.getMessage());
+            }
+        }
+        return index;
+    }
+}
@@ -0,0 +1,109 @@
+package com.baskettecase.plumchat.service;
+
+import com.baskettecase.plumchat.model.MessageData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+import java.time.Duration;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Fetches full query results from the query server by result handle.
+ *
+ * <p>The query server's tools return only a preview of the rows plus a {@code resultHandle}; the
+ * complete table is fetched here and attached to the chat response, so it never passes through
+ * the LLM. By default it is fetched as an Arrow IPC stream ({@code plumchat.query-server.result-format}
+ * {@code arrow}), which is read straight into column values without parsing text; with
+ * {@code json}, or if the Arrow download fails, the JSON form is used.
+ */
+@Service
+public class QueryResultClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryResultClient.class);
+
+    // Matches the handle in raw tool output as well as in the JSON-escaped MCP content wrapper, and
+    // the resultHandle=... form used by the compact, delimited and markdown result encodings
+    private static final Pattern RESULT_HANDLE = Pattern.compile("resultHandle(?:\\\\?\"\\s*:\\s*\\\\?\"|=)([A-Za-z0-9_-]+)");
+
+    private final RestClient restClient;
+    private final StructuredDataParser structuredDataParser;
+    private final ArrowResultReader arrowResultReader;
+    private final boolean arrow;
+
+    public QueryResultClient(@Value("${plumchat.query-server.url:http://localhost:8081}") String queryServerUrl,
+                             @Value("${plumchat.query-server.result-format:arrow}") String resultFormat,
+                             StructuredDataParser structuredDataParser, ArrowResultReader arrowResultReader) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(Duration.ofSeconds(5));
+        requestFactory.setReadTimeout(Duration.ofSeconds(60));
+        this.restClient = RestClient.builder()
+            .baseUrl(queryServerUrl)
+            .requestFactory(requestFactory)
+            .build();
+        this.structuredDataParser = structuredDataParser;
+        this.arrowResultReader = arrowResultReader;
+        this.arrow = "arrow".equalsIgnoreCase(resultFormat.trim());
+    }
+
+    /**
+     * @return the result handle contained in a tool's output, or {@code null}
+     */
+    public static String findResultHandle(String toolResult) {
+        if (toolResult == null) {
+            return null;
+        }
+        Matcher matcher = RESULT_HANDLE.matcher(toolResult);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    /**
+     * Fetches the full result stored under {@code handle}.
+     * @return the table data, or {@code null} if the result has expired or cannot be fetched
+     */
+    public MessageData fetch(String handle) {
+        if (arrow) {
+            try {
+                MessageData data = restClient.get()
+                    .uri("/api/results/{handle}", handle)
+                    .accept(MediaType.parseMediaType(ArrowResultReader.MEDIA_TYPE))
+                    .exchange((request, response) -> {
+                        if (response.getStatusCode().value() == 404) {
+                            return null;
+                        }
+                        if (!response.getStatusCode().is2xxSuccessful()) {
+                            throw new RestClientException("HTTP " + response.getStatusCode().value());
+                        }
+                        return arrowResultReader.read(response.getBody());
+                    });
+                if (data == null) {
+                    logger.warn("Query result {} not found or expired", handle);
+                    return null;
+                }
+                logger.info("Fetched full query result for handle {} as Arrow", handle);
+                return data;
+            } catch (RuntimeException e) {
+                // Also covers a missing --add-opens for Arrow's allocator; JSON still works then
+                logger.warn("Could not fetch query result {} as Arrow, falling back to JSON: {}", handle, e.getMessage());
+            }
+        }
+        try {
+            String body = restClient.get()
+                .uri("/api/results/{handle}", handle)
+                .retrieve()
+                .body(String.class);
+            MessageData data = structuredDataParser.parse(body);
+            logger.info("Fetched full query result for handle {}", handle);
+            return data;
+        } catch (RestClientException e) {
+            logger.warn("Could not fetch query result {}: {}", handle, e.getMessage());
+            return null;
+        }
+    }
+}
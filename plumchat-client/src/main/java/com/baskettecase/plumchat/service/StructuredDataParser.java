@@ -0,0 +1,350 @@
+package com.baskettecase.plumchat.service;
+
+import com.baskettecase.plumchat.model.MessageData;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses structured table data out of LLM responses so the UI can render it as a table.
+ *
+ * <p>The response is scanned once. Every {@code {} that starts outside a JSON value is handed to a
+ * streaming Jackson parser over the response's characters, which binds a {@code query_result}
+ * payload straight into {@link MessageData.TableData} without building a tree or copying the
+ * candidate out of the response. Lines are checked for a markdown table during the same scan, and
+ * that table is only materialized when no {@code query_result} payload is found.
+ */
+@Service
+public class StructuredDataParser {
+
+    private static final Logger logger = LoggerFactory.getLogger(StructuredDataParser.class);
+    private final ObjectMapper objectMapper;
+
+    public StructuredDataParser(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Extracts table data from an LLM response: a {@code query_result} JSON block if one is present,
+     * otherwise the first markdown table.
+     * @return the parsed data, or {@code null} if the response contains neither
+     */
+    public MessageData parse(String aiResponse) {
+        if (aiResponse == null) {
+            return null;
+        }
+        try {
+            logger.debug("Parsing structured data from response of length: {}", aiResponse.length());
+            char[] text = aiResponse.toCharArray();
+            MarkdownTableScanner markdown = new MarkdownTableScanner(text);
+
+            int lineStart = 0;
+            int i = 0;
+            while (i < text.length) {
+                char c = text[i];
+                if (c == '\n') {
+                    markdown.line(lineStart, i);
+                    lineStart = i + 1;
+                    i++;
+                } else if (c == '{') {
+                    JsonCandidate candidate = parseJsonCandidate(text, i);
+                    if (candidate.result() != null) {
+                        logger.info("Found query_result JSON, parsed table data");
+                        return candidate.result();
+                    }
+                    if (candidate.end() > i + 1) {
+                        // A JSON value spanning lines is prose as far as the markdown table is concerned
+                        int skipped = lastNewline(text, i, candidate.end());
+                        if (skipped >= 0) {
+                            markdown.line(lineStart, skipped);
+                            lineStart = skipped + 1;
+                        }
+                    }
+                    i = candidate.end();
+                } else {
+                    i++;
+                }
+            }
+            markdown.line(lineStart, text.length);
+
+            MessageData markdownData = markdown.toMessageData();
+            if (markdownData != null) {
+                logger.info("Successfully parsed markdown table data");
+                return markdownData;
+            }
+
+            logger.warn("No structured data found in AI response");
+        } catch (Exception e) {
+            logger.warn("Error parsing structured data from AI response", e);
+        }
+        return null;
+    }
+
+    /**
+     * Parses the JSON object starting at {@code start}. Returns the table data if it is a
+     * {@code query_result} payload, and the offset at which scanning should resume: after the
+     * object if it is valid JSON, otherwise where parsing failed.
+     */
+    private JsonCandidate parseJsonCandidate(char[] text, int start) {
+        try (JsonParser parser = objectMapper.getFactory().createParser(text, start, text.length - start)) {
+            parser.nextToken();
+            MessageData result = readQueryResult(parser);
+            return new JsonCandidate(result, start + (int) parser.currentLocation().getCharOffset());
+        } catch (JsonProcessingException e) {
+            long errorOffset = e.getLocation() != null ? e.getLocation().getCharOffset() : -1;
+            int resumeAt = errorOffset > 0 ? start + (int) errorOffset : start + 1;
+            return new JsonCandidate(null, Math.min(Math.max(resumeAt, start + 1), text.length));
+        } catch (IOException e) {
+            return new JsonCandidate(null, start + 1);
+        }
+    }
+
+    /**
+     * Streams one JSON object, binding the fields of a {@code query_result} payload as they are read.
+     * @return the table data, or {@code null} if the object is not a {@code query_result}
+     */
+    private MessageData readQueryResult(JsonParser parser) throws IOException {
+        String type = null;
+        List<String> columnNames = null;
+        List<MessageData.ColumnData> columnMetadata = null;
+        List<List<Object>> rows = null;
+
+        JsonToken token;
+        while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if (type != null && !"query_result".equals(type)) {
+                // Not a query result; just find the end of the object
+                parser.skipChildren();
+                continue;
+            }
+            switch (field) {
+                case "type" -> type = parser.getValueAsString();
+                case "columnNames" -> columnNames = readColumnNames(parser);
+                case "columnMetadata" -> columnMetadata = readColumnMetadata(parser);
+                case "rows" -> rows = readRows(parser);
+                default -> parser.skipChildren();
+            }
+        }
+        if (token != JsonToken.END_OBJECT || !"query_result".equals(type)) {
+            return null;
+        }
+
+        MessageData messageData = new MessageData("query_result");
+        if (columnNames != null) {
+            MessageData.TableData tableData = new MessageData.TableData();
+            tableData.setName("query_result");
+            tableData.setSchema("default");
+            tableData.setColumns(columnMetadata != null ? columnMetadata : columnNames.stream()
+                .map(name -> new MessageData.ColumnData(name, "TEXT", true, false))
+                .toList());
+            if (rows != null) {
+                tableData.setRows(rows);
+            }
+            messageData.setTables(List.of(tableData));
+        }
+        return messageData;
+    }
+
+    private List<String> readColumnNames(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+        List<String> names = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            names.add(parser.getValueAsString());
+        }
+        return names;
+    }
+
+    private List<MessageData.ColumnData> readColumnMetadata(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+        List<MessageData.ColumnData> columns = new ArrayList<>();
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            String name = null;
+            String type = null;
+            boolean nullable = true;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "name" -> name = parser.getValueAsString();
+                    case "type" -> type = parser.getValueAsString();
+                    case "nullable" -> nullable = value != JsonToken.VALUE_FALSE;
+                    default -> parser.skipChildren();
+                }
+            }
+            // We don't have PK info from query results
+            columns.add(new MessageData.ColumnData(name, type != null ? type : "TEXT", nullable, false));
+        }
+        return columns;
+    }
+
+    private List<List<Object>> readRows(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+        List<List<Object>> rows = new ArrayList<>();
+        while (parser.nextToken() == JsonToken.START_ARRAY) {
+            List<Object> row = new ArrayList<>();
+            JsonToken value;
+            while ((value = parser.nextToken()) != JsonToken.END_ARRAY) {
+                row.add(readCell(parser, value));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private Object readCell(JsonParser parser, JsonToken value) throws IOException {
+        return switch (value) {
+            case VALUE_STRING -> parser.getText();
+            case VALUE_NUMBER_INT -> parser.getNumberValue();
+            case VALUE_NUMBER_FLOAT -> parser.getDoubleValue();
+            case VALUE_TRUE -> Boolean.TRUE;
+            case VALUE_FALSE -> Boolean.FALSE;
+            case VALUE_NULL -> null;
+            // Nested arrays and objects are rare in query results; bind them generically
+            default -> objectMapper.readValue(parser, Object.class);
+        };
+    }
+
+    private static int lastNewline(char[] text, int from, int to) {
+        for (int i = Math.min(to, text.length) - 1; i >= from; i--) {
+            if (text[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private record JsonCandidate(MessageData result, int end) {
+    }
+
+    /**
+     * Collects the line ranges of the first markdown table as lines are fed in, and parses the
+     * table cells only when asked.
+     */
+    private static final class MarkdownTableScanner {
+
+        private final char[] text;
+        private final List<int[]> tableLines = new ArrayList<>();
+        private boolean inTable;
+        private boolean finished;
+
+        private MarkdownTableScanner(char[] text) {
+            this.text = text;
+        }
+
+        private void line(int start, int end) {
+            if (finished) {
+                return;
+            }
+            while (start < end && Character.isWhitespace(text[start])) {
+                start++;
+            }
+            while (end > start && Character.isWhitespace(text[end - 1])) {
+                end--;
+            }
+            if (end > start && text[start] == '|' && text[end - 1] == '|') {
+                inTable = true;
+                tableLines.add(new int[]{start, end});
+            } else if (inTable && contains(start, end, "---")) {
+                // This is the separator line, include it
+                tableLines.add(new int[]{start, end});
+            } else if (inTable && end > start) {
+                // End of table
+                finished = true;
+            }
+        }
+
+        private MessageData toMessageData() {
+            if (tableLines.size() < 3) { // Need at least header, separator, and one data row
+                logger.debug("Not enough table lines found: {}", tableLines.size());
+                return null;
+            }
+
+            List<String> columnNames = cells(tableLines.get(0));
+            if (columnNames.isEmpty()) {
+                logger.debug("No column names found in header");
+                return null;
+            }
+
+            // Parse data rows (skip header and separator)
+            List<List<Object>> rows = new ArrayList<>();
+            for (int i = 2; i < tableLines.size(); i++) {
+                List<String> rowData = cells(tableLines.get(i));
+                if (rowData.size() == columnNames.size()) {
+                    rows.add(new ArrayList<>(rowData));
+                }
+            }
+
+            MessageData messageData = new MessageData("query_result");
+            MessageData.TableData tableData = new MessageData.TableData();
+            tableData.setName("query_result");
+            tableData.setSchema("default");
+            tableData.setColumns(columnNames.stream()
+                .map(name -> new MessageData.ColumnData(name, "TEXT", true, false))
+                .toList());
+            tableData.setRows(rows);
+            messageData.setTables(List.of(tableData));
+
+            logger.info("Successfully parsed markdown table: {} columns, {} rows", columnNames.size(), rows.size());
+            return messageData;
+        }
+
+        private List<String> cells(int[] range) {
+            int start = range[0];
+            int end = range[1];
+            if (start < end && text[start] == '|') {
+                start++;
+            }
+            if (end > start && text[end - 1] == '|') {
+                end--;
+            }
+            // Same as String.split: trailing zero-length cells are dropped
+            int lastPipe = end;
+            while (lastPipe > start && text[lastPipe - 1] == '|') {
+                lastPipe--;
+            }
+            if (lastPipe == start && end > start) {
+                return List.of();
+            }
+            List<String> cells = new ArrayList<>();
+            int cellStart = start;
+            for (int i = start; i <= lastPipe; i++) {
+                if (i == lastPipe || text[i] == '|') {
+                    cells.add(new String(text, cellStart, i - cellStart).trim());
+                    cellStart = i + 1;
+                }
+            }
+            return cells;
+        }
+
+        private boolean contains(int start, int end, String needle) {
+            outer:
+            for (int i = start; i <= end - needle.length(); i++) {
+                for (int j = 0; j < needle.length(); j++) {
+                    if (text[i + j] != needle.charAt(j)) {
+                        continue outer;
+                    }
+                }
+                return true;
+            }
+            return false;
+        }
+    }
+}
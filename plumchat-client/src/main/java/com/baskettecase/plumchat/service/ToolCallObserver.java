@@ -0,0 +1,120 @@
+package com.baskettecase.plumchat.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.ToolCallbackProvider;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reports MCP tool calls made while answering a chat request to whoever is streaming that request.
+ *
+ * <p>Tool callbacks are wrapped by {@link #observe(ToolCallbackProvider)}. A request opts in by
+ * registering a listener and passing its id in the tool context under {@link #REQUEST_ID_KEY};
+ * tool calls for requests without a listener pass straight through.
+ */
+@Service
+public class ToolCallObserver {
+
+    public static final String REQUEST_ID_KEY = "plumchat.requestId";
+
+    private static final Logger logger = LoggerFactory.getLogger(ToolCallObserver.class);
+
+    private final Map<String, ToolCallListener> listeners = new ConcurrentHashMap<>();
+
+    public void register(String requestId, ToolCallListener listener) {
+        listeners.put(requestId, listener);
+    }
+
+    public void unregister(String requestId) {
+        listeners.remove(requestId);
+    }
+
+    /**
+     * Wraps every callback of {@code provider} so its calls are reported to registered listeners.
+     * Callbacks are resolved on each call, so tools of MCP servers that come up later are included.
+     */
+    public ToolCallbackProvider observe(ToolCallbackProvider provider) {
+        return () -> Arrays.stream(provider.getToolCallbacks())
+            .map(callback -> (ToolCallback) new ObservedToolCallback(callback))
+            .toArray(ToolCallback[]::new);
+    }
+
+    private ToolCallListener listenerFor(ToolContext toolContext) {
+        if (toolContext == null || toolContext.getContext() == null) {
+            return null;
+        }
+        Object requestId = toolContext.getContext().get(REQUEST_ID_KEY);
+        return requestId != null ? listeners.get(requestId.toString()) : null;
+    }
+
+    /**
+     * Receives tool call events for one chat request.
+     */
+    public interface ToolCallListener {
+
+        void onToolStart(String toolName, String arguments);
+
+        void onToolFinish(String toolName, String result, long durationMs, Throwable error);
+    }
+
+    private final class ObservedToolCallback implements ToolCallback {
+
+        private final ToolCallback delegate;
+
+        private ObservedToolCallback(ToolCallback delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public ToolDefinition getToolDefinition() {
+            return delegate.getToolDefinition();
+        }
+
+        @Override
+        public ToolMetadata getToolMetadata() {
+            return delegate.getToolMetadata();
+        }
+
+        @Override
+        public String call(String toolInput) {
+            return call(toolInput, null);
+        }
+
+        @Override
+        public String call(String toolInput, ToolContext toolContext) {
+            ToolCallListener listener = listenerFor(toolContext);
+            if (listener == null) {
+                return delegate.call(toolInput, toolContext);
+            }
+
+            String toolName = getToolDefinition().name();
+            notify(() -> listener.onToolStart(toolName, toolInput));
+            long startTime = System.currentTimeMillis();
+            try {
+                String result = delegate.call(toolInput, toolContext);
+                notify(() -> listener.onToolFinish(toolName, result, System.currentTimeMillis() - startTime, null));
+                return result;
+            } catch (RuntimeException e) {
+                notify(() -> listener.onToolFinish(toolName, null, System.currentTimeMillis() - startTime, e));
+                throw e;
+            }
+        }
+
+        private void notify(Runnable event) {
+            try {
+                event.run();
+            } catch (RuntimeException e) {
+                // A failing listener (e.g. a closed stream) must not fail the tool call itself
+                logger.debug("Tool call listener failed: {}", e.getMessage());
+            }
+        }
+    }
+}
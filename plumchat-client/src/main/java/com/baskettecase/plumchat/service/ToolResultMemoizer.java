@@ -0,0 +1,257 @@
+package com.baskettecase.plumchat.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.ToolCallbackProvider;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Memoizes results of idempotent MCP tools such as {@code getAllSchemas} and {@code getTableInfo},
+ * so repeated calls within and across chat turns skip the round trip to the MCP server.
+ *
+ * <p>Only tools listed in {@code plumchat.tools.memoize.tools} are cached, each with its own TTL
+ * in seconds ({@code name=ttl,...}). Tools whose results refer to server-side state that expires
+ * or changes, such as the result handle of {@code executeQuery}, cursors and background jobs, are
+ * never memoized even when listed: a replayed handle may no longer resolve. Entries are keyed on
+ * the full tool name and its arguments with object keys sorted, so argument order doesn't matter
+ * and tools of the same name on different MCP servers don't share entries. Error results are never
+ * cached, and calling one of the {@code plumchat.tools.memoize.invalidate-on} tools (the servers'
+ * own cache refresh tools) drops every entry.
+ */
+@Service
+public class ToolResultMemoizer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ToolResultMemoizer.class);
+
+    // Results carry result handles, continuation tokens or job ids, or report state that changes
+    private static final Set<String> NEVER_MEMOIZED = Set.of("executeQuery", "executeQueryPaged", "fetchNextPage",
+        "closeQueryCursor", "submitQuery", "getQueryStatus", "getQueryResult", "cancelQuery", "countTableRows");
+
+    private final boolean enabled;
+    private final Map<String, Duration> toolTtls;
+    private final Set<String> invalidatingTools;
+    private final Cache<String, Entry> results;
+    private final Map<String, ToolStats> stats = new ConcurrentHashMap<>();
+    private final ObjectMapper canonicalMapper = new ObjectMapper()
+        .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
+    public ToolResultMemoizer(@Value("${plumchat.tools.memoize.enabled:true}") boolean enabled,
+                              @Value("${plumchat.tools.memoize.tools:getAllSchemas=300,getTablesInSchema=300,getTableInfo=300,explainQuery=60}") String tools,
+                              @Value("${plumchat.tools.memoize.invalidate-on:refreshSchemaCache,invalidateCache}") String invalidateOn,
+                              @Value("${plumchat.tools.memoize.max-entries:1000}") long maxEntries) {
+        this.enabled = enabled;
+        this.toolTtls = parseToolTtls(tools);
+        this.invalidatingTools = Set.of(invalidateOn.isBlank() ? new String[0] : invalidateOn.trim().split("\\s*,\\s*"));
+        this.results = Caffeine.newBuilder()
+            .maximumSize(maxEntries)
+            .expireAfter(new Expiry<String, Entry>() {
+                @Override
+                public long expireAfterCreate(String key, Entry entry, long currentTime) {
+                    return entry.ttl().toNanos();
+                }
+
+                @Override
+                public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+                    return entry.ttl().toNanos();
+                }
+
+                @Override
+                public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .build();
+        logger.info("Tool result memoization {}: {}", enabled ? "enabled" : "disabled", toolTtls);
+    }
+
+    /**
+     * Wraps every callback of {@code provider}; callbacks of tools that are not memoized pass
+     * straight through. Callbacks are resolved on each call, like {@link ToolCallObserver#observe}.
+     */
+    public ToolCallbackProvider memoize(ToolCallbackProvider provider) {
+        if (!enabled) {
+            return provider;
+        }
+        return () -> Arrays.stream(provider.getToolCallbacks())
+            .map(callback -> (ToolCallback) new MemoizingToolCallback(callback))
+            .toArray(ToolCallback[]::new);
+    }
+
+    public void invalidateAll() {
+        results.invalidateAll();
+    }
+
+    /**
+     * @return hit and miss counts and the time saved by hits, overall and per tool
+     */
+    public Map<String, Object> getStats() {
+        long hits = 0;
+        long misses = 0;
+        long savedMs = 0;
+        Map<String, Object> perTool = new TreeMap<>();
+        for (Map.Entry<String, ToolStats> entry : stats.entrySet()) {
+            ToolStats toolStats = entry.getValue();
+            hits += toolStats.hits.sum();
+            misses += toolStats.misses.sum();
+            savedMs += toolStats.savedMs.sum();
+            perTool.put(entry.getKey(), toolStats.toMap());
+        }
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("enabled", enabled);
+        summary.put("entries", results.estimatedSize());
+        summary.put("hits", hits);
+        summary.put("misses", misses);
+        summary.put("hitRate", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+        summary.put("savedMs", savedMs);
+        summary.put("ttlSeconds", toolTtls.entrySet().stream()
+            .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().toSeconds())));
+        summary.put("tools", perTool);
+        return summary;
+    }
+
+    /**
+     * Canonical form of the tool arguments: JSON with object keys sorted and insignificant
+     * whitespace removed. Arguments that are not valid JSON are used as they are.
+     */
+    String canonicalArguments(String toolInput) {
+        if (toolInput == null || toolInput.isBlank()) {
+            return "{}";
+        }
+        try {
+            Object value = canonicalMapper.readValue(toolInput, Object.class);
+            return canonicalMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            return toolInput.trim();
+        }
+    }
+
+    /**
+     * Maps a (possibly client-prefixed) MCP tool name to the configured tool name it matches.
+     */
+    private static String configuredName(String toolName, Set<String> configured) {
+        for (String name : configured) {
+            if (toolName.equals(name) || toolName.endsWith("_" + name)) {
+                return name;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isError(String result) {
+        // Our MCP servers report failures as text results starting with "Error:" or "SQL Error:"
+        return result == null
+            || result.startsWith("Error") || result.startsWith("SQL Error")
+            || result.contains("\"text\":\"Error") || result.contains("\"text\":\"SQL Error")
+            || result.contains("\"isError\":true");
+    }
+
+    private static Map<String, Duration> parseToolTtls(String tools) {
+        Map<String, Duration> ttls = new LinkedHashMap<>();
+        if (tools == null || tools.isBlank()) {
+            return ttls;
+        }
+        for (String entry : tools.trim().split("\\s*,\\s*")) {
+            String[] parts = entry.split("\\s*=\\s*", 2);
+            long seconds = parts.length == 2 ? Long.parseLong(parts[1]) : 300;
+            if (configuredName(parts[0], NEVER_MEMOIZED) != null) {
+                logger.warn("Not memoizing {}: its results refer to server-side state", parts[0]);
+            } else if (seconds > 0) {
+                ttls.put(parts[0], Duration.ofSeconds(seconds));
+            }
+        }
+        return ttls;
+    }
+
+    private record Entry(String result, Duration ttl, long computeMs) {
+    }
+
+    private static final class ToolStats {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder savedMs = new LongAdder();
+
+        private Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("hits", hits.sum());
+            map.put("misses", misses.sum());
+            map.put("savedMs", savedMs.sum());
+            return map;
+        }
+    }
+
+    private final class MemoizingToolCallback implements ToolCallback {
+
+        private final ToolCallback delegate;
+
+        private MemoizingToolCallback(ToolCallback delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public ToolDefinition getToolDefinition() {
+            return delegate.getToolDefinition();
+        }
+
+        @Override
+        public ToolMetadata getToolMetadata() {
+            return delegate.getToolMetadata();
+        }
+
+        @Override
+        public String call(String toolInput) {
+            return call(toolInput, null);
+        }
+
+        @Override
+        public String call(String toolInput, ToolContext toolContext) {
+            String toolName = getToolDefinition().name();
+            String memoizedName = configuredName(toolName, toolTtls.keySet());
+            if (memoizedName == null) {
+                if (configuredName(toolName, invalidatingTools) != null) {
+                    logger.info("{} called, discarding {} memoized tool results", toolName, results.estimatedSize());
+                    results.invalidateAll();
+                }
+                return delegate.call(toolInput, toolContext);
+            }
+
+            ToolStats toolStats = stats.computeIfAbsent(memoizedName, name -> new ToolStats());
+            String key = toolName + ':' + canonicalArguments(toolInput);
+            Entry cached = results.getIfPresent(key);
+            if (cached != null) {
+                toolStats.hits.increment();
+                toolStats.savedMs.add(cached.computeMs());
+                logger.debug("Memoized result for {} {}", memoizedName, toolInput);
+                return cached.result();
+            }
+
+            toolStats.misses.increment();
+            long startTime = System.currentTimeMillis();
+            String result = delegate.call(toolInput, toolContext);
+            if (!isError(result)) {
+                results.put(key, new Entry(result, toolTtls.get(memoizedName), System.currentTimeMillis() - startTime));
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.baskettecase.plumchat.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.Message;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConversationMemoryTest {
+
+    private ConversationMemory memory;
+
+    @AfterEach
+    void tearDown() {
+        if (memory != null) {
+            memory.shutdown();
+        }
+    }
+
+    @Test
+    void testOversizedTurnIsTruncatedToTheBudget() {
+        memory = new ConversationMemory(100, 20, 10, 60, 5);
+        String pastedTable = "x".repeat(10_000);
+
+        try (ConversationMemory.ActiveTurn turn = memory.beginTurn("s1", pastedTable)) {
+            assertTrue(promptTokens(turn.prompt()) <= 100);
+            turn.record("y".repeat(10_000));
+        }
+
+        List<String> history = memory.getHistory("s1");
+        assertEquals(2, history.size());
+        assertTrue(history.get(0).endsWith("[truncated to fit the conversation memory]"));
+        assertTrue(history.get(1).endsWith("[truncated to fit the conversation memory]"));
+        int turnTokens = ConversationMemory.estimateTokens(history.get(0)) + ConversationMemory.estimateTokens(history.get(1));
+        assertTrue(turnTokens <= 80, "turn of " + turnTokens + " tokens exceeds the 80 token window");
+    }
+
+    @Test
+    void testOlderTurnsAreFoldedIntoTheSummary() {
+        memory = new ConversationMemory(100, 40, 10, 60, 5);
+        for (int i = 0; i < 5; i++) {
+            try (ConversationMemory.ActiveTurn turn = memory.beginTurn("s1", "question " + i + " " + "q".repeat(60))) {
+                turn.record("answer " + i + " " + "a".repeat(60));
+            }
+        }
+
+        List<String> history = memory.getHistory("s1");
+        assertTrue(history.size() < 10, "older turns should have been folded");
+        assertTrue(history.get(history.size() - 1).startsWith("answer 4"));
+
+        try (ConversationMemory.ActiveTurn turn = memory.beginTurn("s1", "next")) {
+            List<Message> prompt = turn.prompt();
+            assertTrue(prompt.get(0).getText().startsWith("Summary of earlier turns"));
+            // the summary header is the only text not counted against the budget
+            int header = ConversationMemory.estimateTokens("Summary of earlier turns in this conversation (9 older turns omitted):\n");
+            assertTrue(promptTokens(prompt) <= 100 + header,
+                "prompt of " + promptTokens(prompt) + " tokens exceeds the budget");
+        }
+    }
+
+    @Test
+    void testLeastRecentlyUsedSessionIsEvictedAtTheLimit() throws InterruptedException {
+        memory = new ConversationMemory(1000, 100, 2, 60, 5);
+        converse("a");
+        Thread.sleep(5);
+        converse("b");
+        Thread.sleep(5);
+        converse("a");
+        Thread.sleep(5);
+
+        converse("c");
+
+        assertFalse(memory.getHistory("a").isEmpty());
+        assertTrue(memory.getHistory("b").isEmpty());
+        assertFalse(memory.getHistory("c").isEmpty());
+        assertEquals(2, memory.getStats().get("sessions"));
+    }
+
+    @Test
+    void testIdleSessionsAreEvicted() throws InterruptedException {
+        memory = new ConversationMemory(1000, 100, 10, 0, 5);
+        converse("a");
+        Thread.sleep(5);
+
+        memory.evictIdleSessions();
+
+        assertTrue(memory.getHistory("a").isEmpty());
+        assertEquals(0, memory.getStats().get("sessions"));
+    }
+
+    @Test
+    void testConcurrentTurnsOfOneSessionAreSerialized() throws Exception {
+        memory = new ConversationMemory(1000, 100, 10, 60, 5);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            ConversationMemory.ActiveTurn first = memory.beginTurn("s1", "first");
+            CountDownLatch secondStarted = new CountDownLatch(1);
+            Future<List<Message>> second = executor.submit(() -> {
+                secondStarted.countDown();
+                try (ConversationMemory.ActiveTurn turn = memory.beginTurn("s1", "second")) {
+                    List<Message> prompt = turn.prompt();
+                    turn.record("second answer");
+                    return prompt;
+                }
+            });
+
+            assertTrue(secondStarted.await(5, TimeUnit.SECONDS));
+            Thread.sleep(100);
+            assertFalse(second.isDone(), "second turn must wait for the first to finish");
+
+            first.record("first answer");
+            first.close();
+
+            List<Message> prompt = second.get(5, TimeUnit.SECONDS);
+            assertEquals(List.of("first", "first answer", "second"), prompt.stream().map(Message::getText).toList());
+            assertEquals(List.of("first", "first answer", "second", "second answer"), memory.getHistory("s1"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testTurnWaitTimesOut() {
+        memory = new ConversationMemory(1000, 100, 10, 60, 0);
+        try (ConversationMemory.ActiveTurn first = memory.beginTurn("s1", "first")) {
+            assertThrows(IllegalStateException.class, () -> memory.beginTurn("s1", "second"));
+        }
+        try (ConversationMemory.ActiveTurn next = memory.beginTurn("s1", "after close")) {
+            assertNotNull(next);
+        }
+    }
+
+    private void converse(String sessionId) {
+        try (ConversationMemory.ActiveTurn turn = memory.beginTurn(sessionId, "hello")) {
+            turn.record("hi");
+        }
+    }
+
+    private static int promptTokens(List<Message> prompt) {
+        return prompt.stream().mapToInt(message -> ConversationMemory.estimateTokens(message.getText())).sum();
+    }
+}
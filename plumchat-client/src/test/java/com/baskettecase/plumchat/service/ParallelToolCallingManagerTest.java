@@ -0,0 +1,146 @@
+package com.baskettecase.plumchat.service;
+
+import io.modelcontextprotocol.client.McpSyncClient;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.ai.model.tool.ToolExecutionResult;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelToolCallingManagerTest {
+
+    private static final Prompt PROMPT = new Prompt(List.of(new UserMessage("compare the tables")));
+
+    @Test
+    void testResponsesComeBackInRequestOrder() {
+        // Earlier calls take longer, so they finish after the later ones
+        ParallelToolCallingManager manager = new ParallelToolCallingManager(new StubDelegate(call -> {
+            sleep(50L * (5 - Integer.parseInt(call.id())));
+            return "result " + call.id();
+        }), noMcpClients(), 8);
+
+        ToolExecutionResult result = manager.executeToolCalls(PROMPT, toolCalls(5));
+
+        List<Message> history = result.conversationHistory();
+        assertEquals(3, history.size());
+        assertInstanceOf(AssistantMessage.class, history.get(1));
+        ToolResponseMessage toolResponses = assertInstanceOf(ToolResponseMessage.class, history.get(2));
+        assertEquals(List.of("0", "1", "2", "3", "4"),
+            toolResponses.getResponses().stream().map(ToolResponseMessage.ToolResponse::id).toList());
+        assertEquals(List.of("result 0", "result 1", "result 2", "result 3", "result 4"),
+            toolResponses.getResponses().stream().map(ToolResponseMessage.ToolResponse::responseData).toList());
+    }
+
+    @Test
+    void testConcurrencyPerServerIsCapped() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        ParallelToolCallingManager manager = new ParallelToolCallingManager(new StubDelegate(call -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                sleep(50);
+                return "ok";
+            } finally {
+                running.decrementAndGet();
+            }
+        }), noMcpClients(), 2);
+
+        ToolExecutionResult result = manager.executeToolCalls(PROMPT, toolCalls(6));
+
+        assertEquals(6, ((ToolResponseMessage) result.conversationHistory().get(2)).getResponses().size());
+        assertEquals(2, maxRunning.get());
+    }
+
+    @Test
+    void testToolFailurePropagates() {
+        ParallelToolCallingManager manager = new ParallelToolCallingManager(new StubDelegate(call -> {
+            if (call.id().equals("1")) {
+                throw new IllegalArgumentException("tool 1 failed");
+            }
+            return "ok";
+        }), noMcpClients(), 4);
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+            () -> manager.executeToolCalls(PROMPT, toolCalls(3)));
+        assertEquals("tool 1 failed", e.getMessage());
+    }
+
+    @Test
+    void testSingleCallGoesStraightToTheDelegate() {
+        List<String> threads = new ArrayList<>();
+        ParallelToolCallingManager manager = new ParallelToolCallingManager(new StubDelegate(call -> {
+            threads.add(Thread.currentThread().getName());
+            return "ok";
+        }), noMcpClients(), 4);
+
+        manager.executeToolCalls(PROMPT, toolCalls(1));
+
+        assertEquals(List.of(Thread.currentThread().getName()), threads);
+    }
+
+    private static ChatResponse toolCalls(int count) {
+        List<AssistantMessage.ToolCall> calls = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            calls.add(new AssistantMessage.ToolCall(String.valueOf(i), "function", "executeQuery", "{}"));
+        }
+        return new ChatResponse(List.of(new Generation(new AssistantMessage("", Map.of(), calls))));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ObjectProvider<List<McpSyncClient>> noMcpClients() {
+        return (ObjectProvider<List<McpSyncClient>>) Proxy.newProxyInstance(
+            ParallelToolCallingManagerTest.class.getClassLoader(),
+            new Class<?>[] { ObjectProvider.class },
+            (proxy, method, args) -> List.of());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Answers each single tool call with a response computed from the call, as the default
+     * manager would after running the tool.
+     */
+    private record StubDelegate(Function<AssistantMessage.ToolCall, String> tool) implements ToolCallingManager {
+
+        @Override
+        public List<ToolDefinition> resolveToolDefinitions(ToolCallingChatOptions chatOptions) {
+            return List.of();
+        }
+
+        @Override
+        public ToolExecutionResult executeToolCalls(Prompt prompt, ChatResponse chatResponse) {
+            AssistantMessage message = chatResponse.getResult().getOutput();
+            List<ToolResponseMessage.ToolResponse> responses = message.getToolCalls().stream()
+                .map(call -> new ToolResponseMessage.ToolResponse(call.id(), call.name(), tool.apply(call)))
+                .toList();
+            List<Message> history = new ArrayList<>(prompt.getInstructions());
+            history.add(message);
+            history.add(new ToolResponseMessage(responses, Map.of()));
+            return ToolExecutionResult.builder().conversationHistory(history).build();
+        }
+    }
+}
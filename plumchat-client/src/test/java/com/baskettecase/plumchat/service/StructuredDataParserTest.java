@@ -0,0 +1,89 @@
+package com.baskettecase.plumchat.service;
+
+import com.baskettecase.plumchat.model.MessageData;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StructuredDataParserTest {
+
+    private final StructuredDataParser parser = new StructuredDataParser(new ObjectMapper());
+
+    @Test
+    void testQueryResultAfterBracesInProse() {
+        String response = "The set {a, b} is not JSON, nor is {\"unterminated\": .\n"
+            + "Here are the results:\n"
+            + "{\"type\": \"query_result\", \"columnNames\": [\"id\", \"name\"], \"rows\": [[1, \"alice\"], [2, null]]}\n"
+            + "Let me know if you need more.";
+
+        MessageData.TableData table = singleTable(parser.parse(response));
+
+        assertEquals(List.of("id", "name"), columnNames(table));
+        assertEquals(2, table.getRows().size());
+        assertEquals(1, ((Number) table.getRows().get(0).get(0)).intValue());
+        assertEquals("alice", table.getRows().get(0).get(1));
+        assertNull(table.getRows().get(1).get(1));
+    }
+
+    @Test
+    void testRowsBeforeTypeAreBound() {
+        String response = "{\"rows\": [[true, 1.5]], "
+            + "\"columnMetadata\": [{\"name\": \"flag\", \"type\": \"BOOLEAN\", \"nullable\": false}, {\"name\": \"ratio\"}], "
+            + "\"columnNames\": [\"flag\", \"ratio\"], \"type\": \"query_result\"}";
+
+        MessageData.TableData table = singleTable(parser.parse(response));
+
+        assertEquals("BOOLEAN", table.getColumns().get(0).getType());
+        assertFalse(table.getColumns().get(0).isNullable());
+        assertEquals("TEXT", table.getColumns().get(1).getType());
+        assertEquals(List.of(List.of(Boolean.TRUE, 1.5)), table.getRows());
+    }
+
+    @Test
+    void testJsonWinsOverMarkdownTableAfterIt() {
+        String response = "{\"type\": \"query_result\", \"columnNames\": [\"n\"], \"rows\": [[7]]}\n\n"
+            + "| a | b |\n"
+            + "|---|---|\n"
+            + "| 1 | 2 |\n";
+
+        MessageData.TableData table = singleTable(parser.parse(response));
+
+        assertEquals(List.of("n"), columnNames(table));
+        assertEquals(1, table.getRows().size());
+    }
+
+    @Test
+    void testMarkdownTableAfterOtherJson() {
+        String response = "Config: {\"type\": \"settings\", \"rows\": [[1]]}\n"
+            + "| region | total |\n"
+            + "|--------|-------|\n"
+            + "| east   | 10    |\n"
+            + "| west   | 20    |\n"
+            + "That is all.";
+
+        MessageData.TableData table = singleTable(parser.parse(response));
+
+        assertEquals(List.of("region", "total"), columnNames(table));
+        assertEquals(List.of(List.of("east", "10"), List.of("west", "20")), table.getRows());
+    }
+
+    @Test
+    void testResponseWithoutTableData() {
+        assertNull(parser.parse("No results matched {your filter}."));
+        assertNull(parser.parse(null));
+    }
+
+    private static MessageData.TableData singleTable(MessageData data) {
+        assertNotNull(data);
+        assertEquals("query_result", data.getType());
+        assertEquals(1, data.getTables().size());
+        return data.getTables().get(0);
+    }
+
+    private static List<String> columnNames(MessageData.TableData table) {
+        return table.getColumns().stream().map(MessageData.ColumnData::getName).toList();
+    }
+}
@@ -0,0 +1,127 @@
+package com.baskettecase.plumchat.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.ToolCallbackProvider;
+import org.springframework.ai.tool.definition.ToolDefinition;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ToolResultMemoizerTest {
+
+    @Test
+    void testArgumentOrderDoesNotMatter() {
+        ToolResultMemoizer memoizer = new ToolResultMemoizer(true, "getTableInfo=300", "refreshSchemaCache", 100);
+        StubTool tableInfo = new StubTool("schema_getTableInfo", input -> "{\"columns\": []}");
+        ToolCallback memoized = memoized(memoizer, tableInfo);
+
+        memoized.call("{\"schemaName\": \"public\", \"tableName\": \"orders\"}");
+        String result = memoized.call("{ \"tableName\":\"orders\",\"schemaName\":\"public\" }");
+
+        assertEquals("{\"columns\": []}", result);
+        assertEquals(1, tableInfo.calls.get());
+        assertEquals("{\"a\":1,\"b\":{\"c\":2,\"d\":3}}", memoizer.canonicalArguments("{\"b\": {\"d\": 3, \"c\": 2}, \"a\": 1}"));
+        assertEquals(1L, memoizer.getStats().get("hits"));
+    }
+
+    @Test
+    void testDifferentArgumentsAreCachedSeparately() {
+        ToolResultMemoizer memoizer = new ToolResultMemoizer(true, "getTableInfo=300", "", 100);
+        StubTool tableInfo = new StubTool("getTableInfo", input -> "info for " + input);
+        ToolCallback memoized = memoized(memoizer, tableInfo);
+
+        assertEquals("info for {\"tableName\":\"a\"}", memoized.call("{\"tableName\":\"a\"}"));
+        assertEquals("info for {\"tableName\":\"b\"}", memoized.call("{\"tableName\":\"b\"}"));
+        assertEquals(2, tableInfo.calls.get());
+    }
+
+    @Test
+    void testErrorResultsAreNotCached() {
+        ToolResultMemoizer memoizer = new ToolResultMemoizer(true, "getAllSchemas=300", "", 100);
+        AtomicInteger attempt = new AtomicInteger();
+        StubTool schemas = new StubTool("getAllSchemas",
+            input -> attempt.incrementAndGet() == 1 ? "Error: connection refused" : "[\"public\"]");
+        ToolCallback memoized = memoized(memoizer, schemas);
+
+        assertEquals("Error: connection refused", memoized.call("{}"));
+        assertEquals("[\"public\"]", memoized.call("{}"));
+        assertEquals("[\"public\"]", memoized.call("{}"));
+        assertEquals(2, schemas.calls.get());
+    }
+
+    @Test
+    void testInvalidatingToolDropsEveryEntry() {
+        ToolResultMemoizer memoizer = new ToolResultMemoizer(true, "getAllSchemas=300", "refreshSchemaCache", 100);
+        StubTool schemas = new StubTool("schema_getAllSchemas", input -> "[\"public\"]");
+        StubTool refresh = new StubTool("schema_refreshSchemaCache", input -> "refreshed");
+        ToolCallbackProvider provider = memoizer.memoize(() -> new ToolCallback[] { schemas, refresh });
+        ToolCallback memoizedSchemas = provider.getToolCallbacks()[0];
+        ToolCallback memoizedRefresh = provider.getToolCallbacks()[1];
+
+        memoizedSchemas.call("{}");
+        memoizedSchemas.call("{}");
+        assertEquals(1, schemas.calls.get());
+
+        memoizedRefresh.call("{}");
+        memoizedSchemas.call("{}");
+
+        assertEquals(1, refresh.calls.get());
+        assertEquals(2, schemas.calls.get());
+    }
+
+    @Test
+    void testStatefulToolsAreNeverMemoized() {
+        ToolResultMemoizer memoizer = new ToolResultMemoizer(true,
+            "executeQuery=60,query_closeQueryCursor=60,countTableRows=60,getTableInfo=60", "", 100);
+        StubTool executeQuery = new StubTool("query_executeQuery", input -> "{\"resultHandle\": \"h1\"}");
+        StubTool countRows = new StubTool("query_countTableRows", input -> "42");
+        ToolCallbackProvider provider = memoizer.memoize(() -> new ToolCallback[] { executeQuery, countRows });
+
+        for (ToolCallback callback : provider.getToolCallbacks()) {
+            callback.call("{}");
+            callback.call("{}");
+        }
+
+        assertEquals(2, executeQuery.calls.get());
+        assertEquals(2, countRows.calls.get());
+        assertEquals(Map.of("getTableInfo", 60L), memoizer.getStats().get("ttlSeconds"));
+    }
+
+    @Test
+    void testDisabledMemoizerReturnsTheProvider() {
+        ToolResultMemoizer memoizer = new ToolResultMemoizer(false, "getAllSchemas=300", "", 100);
+        ToolCallbackProvider provider = () -> new ToolCallback[0];
+
+        assertSame(provider, memoizer.memoize(provider));
+    }
+
+    private static ToolCallback memoized(ToolResultMemoizer memoizer, ToolCallback callback) {
+        return memoizer.memoize(() -> new ToolCallback[] { callback }).getToolCallbacks()[0];
+    }
+
+    private static final class StubTool implements ToolCallback {
+        private final ToolDefinition definition;
+        private final Function<String, String> result;
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private StubTool(String name, Function<String, String> result) {
+            this.definition = ToolDefinition.builder().name(name).description(name).inputSchema("{}").build();
+            this.result = result;
+        }
+
+        @Override
+        public ToolDefinition getToolDefinition() {
+            return definition;
+        }
+
+        @Override
+        public String call(String toolInput) {
+            calls.incrementAndGet();
+            return result.apply(toolInput);
+        }
+    }
+}